@@ -1,9 +1,9 @@
 package algorithms;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.List;
 
 import models.*;
 import models.algebra.*;
@@ -29,10 +29,9 @@ public class DataTransferModelAnalyzer {
 		for (Channel channel: channels) {
 			for (ChannelMember member: ((DataTransferChannel) channel).getOutputChannelMembers()) {
 				boolean toBeStored = !member.getStateTransition().isRightUnary();		// The state does not need to be stored if the state transition function is right unary.
-				for (Node node: graph.getNodes()) {
-					if (((ResourceNode) node).getResource().equals(member.getResource())) {
-						setStoreAttribute((ResourceNode) node, toBeStored);
-					}
+				ResourceNode node = graph.getResouceNode(member.getResource());
+				if (node != null) {
+					setStoreAttribute(node, toBeStored);
 				}
 			}
 		}
@@ -70,12 +69,12 @@ public class DataTransferModelAnalyzer {
 	 * @return annotated data flow graph
 	 */
 	static public DataFlowGraph annotateWithSelectableDataTransferAttiribute(DataFlowGraph graph) {
-		List<Node> nodes = new ArrayList<>(graph.getNodes());
+		boolean[] visited = new boolean[graph.getNumberOfNodes()];
 		// set push only attributes
 		for (Node n: graph.getNodes()) {
-			if (nodes.contains(n) && ((StoreAttribute) ((ResourceNode) n).getAttribute()).isNeeded()) {
-				nodes.remove(n);
-				trackEdges(n, nodes);
+			if (!visited[n.getId()] && ((StoreAttribute) ((ResourceNode) n).getAttribute()).isNeeded()) {
+				visited[n.getId()] = true;
+				trackEdges(n, visited);
 			}
 		}
 		// set push/pull attributes to the remaining edges
@@ -91,16 +90,21 @@ public class DataTransferModelAnalyzer {
 		return graph;
 	}
 
-	static private void trackEdges(Node n, List<Node> nodes) {
-		// recursively set push only attributes to input side edges
-		for (Edge e : ((ResourceNode) n).getInEdges()) {
-			PushPullAttribute ppat = new PushPullAttribute();
-			ppat.addOption(PushPullValue.PUSH);
-			((DataFlowEdge) e).setAttribute(ppat);
-			Node n2 = e.getSource();
-			if (nodes.contains(n2)) {
-				nodes.remove(n2);
-				trackEdges(n2, nodes);
+	static private void trackEdges(Node n, boolean[] visited) {
+		// set push only attributes to input side edges (with an explicit stack so that long chains do not overflow the call stack)
+		Deque<Node> stack = new ArrayDeque<>();
+		stack.push(n);
+		while (!stack.isEmpty()) {
+			Node n1 = stack.pop();
+			for (Edge e : ((ResourceNode) n1).getInEdges()) {
+				PushPullAttribute ppat = new PushPullAttribute();
+				ppat.addOption(PushPullValue.PUSH);
+				((DataFlowEdge) e).setAttribute(ppat);
+				Node n2 = e.getSource();
+				if (!visited[n2.getId()]) {
+					visited[n2.getId()] = true;
+					stack.push(n2);
+				}
 			}
 		}
 	}
@@ -1,14 +1,21 @@
 package algorithms;
 
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import javax.xml.crypto.Data;
 
@@ -36,113 +43,345 @@ import models.dataFlowModel.ResourceNode;
  *
  */
 public class TypeInference {
-	static private Map<Type, Type> listTypes = new HashMap<>();
-	static private Map<Type, Type> listComponentTypes = new HashMap<>();
-	static private Map<List<Type>, Type> tupleTypes = new HashMap<>();
-	static private Map<Type, List<Type>> tupleComponentTypes = new HashMap<>();
-	static private Map<Type, Type> pairTypes = new HashMap<>();
-	static private Map<Type, Type> pairComponentTypes = new HashMap<>();
-	static private Map<List<Type>, Type> mapTypes = new HashMap<>();
-	static private Map<Type, List<Type>> mapComponentTypes = new HashMap<>();
-	static private Map<Map<String, Type>, Type> jsonTypes = new HashMap<>();
-	static private Map<Type, Map<String, Type>> jsonMemberTypes = new HashMap<>();
+	/**
+	 * Built-in collection types of DataConstraintModel. They are immutable and shared by all the inference contexts.
+	 */
+	static private final Map<Type, Type> builtInListTypes;
+	static private final Map<Type, Type> builtInListComponentTypes;
+	static private final Map<Type, List<Type>> builtInTupleComponentTypes;
+	static private final Map<Type, Type> builtInPairTypes;
+	static private final Map<Type, Type> builtInPairComponentTypes;
+	static private final Map<Type, List<Type>> builtInMapComponentTypes;
+
+	static {
+		Map<Type, Type> listTypes = new LinkedHashMap<>();
+		listTypes.put(DataConstraintModel.typeInt, DataConstraintModel.typeListInt);
+		listTypes.put(DataConstraintModel.typeString, DataConstraintModel.typeListStr);
+		builtInListTypes = Collections.unmodifiableMap(listTypes);
+		Map<Type, Type> listComponentTypes = new LinkedHashMap<>();
+		listComponentTypes.put(DataConstraintModel.typeList, null);
+		listComponentTypes.put(DataConstraintModel.typeListInt, DataConstraintModel.typeInt);
+		listComponentTypes.put(DataConstraintModel.typeListStr, DataConstraintModel.typeString);
+		builtInListComponentTypes = Collections.unmodifiableMap(listComponentTypes);
+		Map<Type, Type> pairTypes = new LinkedHashMap<>();
+		pairTypes.put(DataConstraintModel.typeInt, DataConstraintModel.typePairInt);
+		pairTypes.put(DataConstraintModel.typeString, DataConstraintModel.typePairStr);
+		pairTypes.put(DataConstraintModel.typeDouble, DataConstraintModel.typePairDouble);
+		builtInPairTypes = Collections.unmodifiableMap(pairTypes);
+		Map<Type, Type> pairComponentTypes = new LinkedHashMap<>();
+		pairComponentTypes.put(DataConstraintModel.typePair, null);
+		pairComponentTypes.put(DataConstraintModel.typePairInt, DataConstraintModel.typeInt);
+		pairComponentTypes.put(DataConstraintModel.typePairStr, DataConstraintModel.typeString);
+		pairComponentTypes.put(DataConstraintModel.typePairDouble, DataConstraintModel.typeDouble);
+		builtInPairComponentTypes = Collections.unmodifiableMap(pairComponentTypes);
+		builtInTupleComponentTypes = Collections.singletonMap(DataConstraintModel.typeTuple, Collections.unmodifiableList(Arrays.asList(new Type[] { null, null })));
+		builtInMapComponentTypes = Collections.singletonMap(DataConstraintModel.typeMap, Collections.unmodifiableList(Arrays.asList(new Type[] { null, null })));
+	}
+
+	/**
+	 * The inference context of each model that has been inferred. A model is held weakly so that its context is released together with it,
+	 * and so a context must not refer to its model.
+	 */
+	static private final Map<DataTransferModel, TypeInference> contexts = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final Map<Type, Type> listTypes = new LinkedHashMap<>(builtInListTypes);
+	private final Map<Type, Type> listComponentTypes = new LinkedHashMap<>(builtInListComponentTypes);
+	private final Map<List<Type>, Type> tupleTypes = new LinkedHashMap<>();
+	private final Map<Type, List<Type>> tupleComponentTypes = new LinkedHashMap<>(builtInTupleComponentTypes);
+	private final Map<Type, Type> pairTypes = new LinkedHashMap<>(builtInPairTypes);
+	private final Map<Type, Type> pairComponentTypes = new LinkedHashMap<>(builtInPairComponentTypes);
+	private final Map<List<Type>, Type> mapTypes = new LinkedHashMap<>();
+	private final Map<Type, List<Type>> mapComponentTypes = new LinkedHashMap<>(builtInMapComponentTypes);
+	private final Map<Map<String, Type>, Type> jsonTypes = new LinkedHashMap<>();
+	private final Map<Type, Map<String, Type>> jsonMemberTypes = new LinkedHashMap<>();
+
+	// The types given by the model before inference, which are restored before re-inference.
+	private final Map<ResourcePath, Type> initialResourceTypes = new HashMap<>();
+	private final Map<Expression, Type> initialExpressionTypes = new IdentityHashMap<>();
+
+	// The members of each channel and their state transitions at the last inference, which are compared to find the changed channels.
+	private final Map<Channel, Set<ChannelMember>> inferredMembers = new IdentityHashMap<>();
+	private final Map<ChannelMember, StateTransition> inferredStateTransitions = new IdentityHashMap<>();
+	private final Set<Channel> changedChannels = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Infer the types of a model in a new inference context and register the context for the model.
+	 * 
+	 * @param model a data transfer model
+	 * @return the inference context of the model
+	 */
+	static public TypeInference infer(DataTransferModel model) {
+		TypeInference typeInference = new TypeInference();
+		Collection<Channel> channels = new LinkedHashSet<>(model.getIOChannels());
+		channels.addAll(model.getChannels());
+		typeInference.infer(channels);
+		contexts.put(model, typeInference);
+		return typeInference;
+	}
+
+	/**
+	 * Get the inference context of a model.
+	 * 
+	 * @param model a data transfer model
+	 * @return the context registered by infer(model), or a context that only knows the built-in types if the model has not been inferred
+	 */
+	public static TypeInference getTypeInference(DataTransferModel model) {
+		TypeInference typeInference = contexts.get(model);
+		if (typeInference == null) return new TypeInference();
+		return typeInference;
+	}
+
+	/**
+	 * Re-infer the types that depend on a channel of a model that has already been inferred, that is, only the constraint component
+	 * of the channel (the channels and resources that are connected to it through shared resources).
+	 * Types are never propagated across the boundary of the component.
+	 * 
+	 * @param model a data transfer model
+	 * @param channel a channel whose state transitions have been changed
+	 * @return the inference context of the model, or null if the model has not been inferred yet
+	 */
+	static public TypeInference reinfer(DataTransferModel model, Channel channel) {
+		TypeInference typeInference = contexts.get(model);
+		if (typeInference == null) return null;
+		typeInference.infer(getAffectedChannels(model, channel));
+		return typeInference;
+	}
+
+	/**
+	 * Mark a channel of a model as changed, so that the types that depend on it are re-inferred by the next update(model).
+	 * 
+	 * @param model a data transfer model
+	 * @param channel a channel whose state transitions have been changed
+	 */
+	static public void invalidate(DataTransferModel model, Channel channel) {
+		TypeInference typeInference = contexts.get(model);
+		if (typeInference != null) typeInference.changedChannels.add(channel);
+	}
+
+	/**
+	 * Bring the types of a model up to date by reusing its registered inference context. Only the constraint components of the channels
+	 * that have been added, invalidated or given new state transitions since the last inference are re-inferred. The whole model is
+	 * inferred again if it has not been inferred yet or if a channel has been removed or has gained or lost a member.
+	 * 
+	 * @param model a data transfer model
+	 * @return the inference context of the model
+	 */
+	static public TypeInference update(DataTransferModel model) {
+		TypeInference typeInference = contexts.get(model);
+		if (typeInference == null) return infer(model);
+		Collection<Channel> channels = new LinkedHashSet<>(model.getIOChannels());
+		channels.addAll(model.getChannels());
+		Set<Channel> affectedChannels = new LinkedHashSet<>();
+		int numberOfInferredChannels = 0;
+		for (Channel c: channels) {
+			Set<ChannelMember> members = typeInference.inferredMembers.get(c);
+			if (members != null) {
+				numberOfInferredChannels++;
+				if (members.size() != c.getChannelMembers().size() || !members.containsAll(c.getChannelMembers())) return infer(model);
+				if (!typeInference.isChanged(c)) continue;
+			}
+			if (!affectedChannels.contains(c)) affectedChannels.addAll(getAffectedChannels(model, c));
+		}
+		if (numberOfInferredChannels < typeInference.inferredMembers.size()) return infer(model);
+		if (affectedChannels.size() > 0) typeInference.infer(affectedChannels);
+		return typeInference;
+	}
+
+	private boolean isChanged(Channel channel) {
+		if (changedChannels.contains(channel)) return true;
+		for (ChannelMember cm: channel.getChannelMembers()) {
+			if (inferredStateTransitions.get(cm) != cm.getStateTransition()) return true;
+		}
+		return false;
+	}
 
-	public static Type getListType(Type compType) {
+	public Type getListType(Type compType) {
 		return listTypes.get(compType);
 	}
 
-	public static Type getListComponentType(Type listType) {
+	public Type getListComponentType(Type listType) {
 		return listComponentTypes.get(listType);
 	}
 
-	public static Collection<Type> getListTypes() {
+	public Collection<Type> getListTypes() {
 		return listTypes.values();
 	}
 
-	public static Type getTupleType(List<Type> compTypes) {
+	public Type getTupleType(List<Type> compTypes) {
 		return tupleTypes.get(compTypes);
 	}
 
-	public static List<Type> getTupleComponentTypes(Type tupleType) {
+	public List<Type> getTupleComponentTypes(Type tupleType) {
 		return tupleComponentTypes.get(tupleType);
 	}
 
-	public static Collection<Type> getTupleTypes() {
+	public Collection<Type> getTupleTypes() {
 		return tupleTypes.values();
 	}
 
-	public static Type getPairType(Type compType) {
+	public Type getPairType(Type compType) {
 		return pairTypes.get(compType);
 	}
 
-	public static Type getPairComponentType(Type pairType) {
+	public Type getPairComponentType(Type pairType) {
 		return pairComponentTypes.get(pairType);
 	}
 
-	public static Type getMapType(List<Type> compTypes) {
+	public Type getMapType(List<Type> compTypes) {
 		return mapTypes.get(compTypes);
 	}
 
-	public static List<Type> getMapComponentTypes(Type mapType) {
+	public List<Type> getMapComponentTypes(Type mapType) {
 		return mapComponentTypes.get(mapType);
 	}
 
-	public static Type getJsonType(Map<String, Type> memberTypes) {
+	public Type getJsonType(Map<String, Type> memberTypes) {
 		return jsonTypes.get(memberTypes);
 	}
 
-	public static Map<String, Type> getJsonMemberTypes(Type jsonType) {
+	public Map<String, Type> getJsonMemberTypes(Type jsonType) {
 		return jsonMemberTypes.get(jsonType);
 	}
 
-	static public void infer(DataTransferModel model) {
+	/**
+	 * Get the constraint component of a channel.
+	 * 
+	 * @param model a data transfer model
+	 * @param channel a channel
+	 * @return the channels whose types may depend on the given channel (including itself)
+	 */
+	public static Set<Channel> getAffectedChannels(DataTransferModel model, Channel channel) {
+		Map<ResourcePath, List<Channel>> resourceToChannels = new HashMap<>();
+		for (Channel c: model.getIOChannels()) {
+			for (ResourcePath res: c.getResources()) {
+				resourceToChannels.computeIfAbsent(res, r -> new ArrayList<>()).add(c);
+			}
+		}
+		for (Channel c: model.getChannels()) {
+			for (ResourcePath res: c.getResources()) {
+				resourceToChannels.computeIfAbsent(res, r -> new ArrayList<>()).add(c);
+			}
+		}
+		Set<Channel> affectedChannels = new LinkedHashSet<>();
+		List<Channel> stack = new ArrayList<>();
+		affectedChannels.add(channel);
+		stack.add(channel);
+		while (stack.size() > 0) {
+			Channel c = stack.remove(stack.size() - 1);
+			for (ResourcePath res: c.getResources()) {
+				for (Channel c2: resourceToChannels.getOrDefault(res, Collections.emptyList())) {
+					if (affectedChannels.add(c2)) stack.add(c2);
+				}
+			}
+		}
+		return affectedChannels;
+	}
+
+	/**
+	 * Get the resources in the constraint component of a channel.
+	 * 
+	 * @param model a data transfer model
+	 * @param channel a channel
+	 * @return the resources whose state types may depend on the given channel
+	 */
+	public static Set<ResourcePath> getAffectedResources(DataTransferModel model, Channel channel) {
+		Set<ResourcePath> affectedResources = new LinkedHashSet<>();
+		for (Channel c: getAffectedChannels(model, channel)) {
+			affectedResources.addAll(c.getResources());
+		}
+		return affectedResources;
+	}
+
+	/**
+	 * Restore the types of the resources and expressions in given channels to the ones before inference.
+	 * The types of the expressions that have not been inferred yet are recorded instead.
+	 * 
+	 * @param channels channels to be inferred
+	 */
+	private void restoreInitialTypes(Collection<Channel> channels) {
+		for (Channel c : channels) {
+			for (ChannelMember cm : c.getChannelMembers()) {
+				ResourcePath res = cm.getResource();
+				if (initialResourceTypes.containsKey(res)) {
+					res.setResourceStateType(initialResourceTypes.get(res));
+				} else {
+					initialResourceTypes.put(res, res.getResourceStateType());
+				}
+				StateTransition st = cm.getStateTransition();
+				restoreInitialTypes(st.getCurStateExpression());
+				restoreInitialTypes(st.getMessageExpression());
+				restoreInitialTypes(st.getNextStateExpression());
+			}
+		}
+	}
+
+	private void restoreInitialTypes(Expression exp) {
+		if (exp instanceof Variable) {
+			Variable var = (Variable) exp;
+			if (initialExpressionTypes.containsKey(var)) {
+				var.setType(initialExpressionTypes.get(var));
+			} else {
+				initialExpressionTypes.put(var, var.getType());
+			}
+		} else if (exp instanceof Term) {
+			Term term = (Term) exp;
+			if (initialExpressionTypes.containsKey(term)) {
+				term.setType(initialExpressionTypes.get(term));
+			} else {
+				initialExpressionTypes.put(term, term.getOwnType());		// not the type given by the signature of its symbol.
+			}
+			for (Expression child : term.getChildren()) {
+				restoreInitialTypes(child);
+			}
+		}
+	}
+
+	private void infer(Collection<Channel> channels) {
+		restoreInitialTypes(channels);
+		for (Channel c : channels) {
+			Set<ChannelMember> members = Collections.newSetFromMap(new IdentityHashMap<>());
+			members.addAll(c.getChannelMembers());
+			inferredMembers.put(c, members);
+			for (ChannelMember cm : members) {
+				inferredStateTransitions.put(cm, cm.getStateTransition());
+			}
+			changedChannels.remove(c);
+		}
 		Map<ResourcePath, List<Expression>> resources = new HashMap<>();
-		Map<Integer, Type> variables = new HashMap<>();
+		Map<List<Expression>, Type> variables = new IdentityHashMap<>();
 		Map<Channel, Map<Integer, Map.Entry<List<Expression>, Type>>> messages = new HashMap<>();
-		Map<Integer, Type> consOrSet = new HashMap<>();
-		Map<Integer, Type> tuple = new HashMap<>();
-		Map<Integer, Type> pair = new HashMap<>();
-		Map<Integer, Type> map = new HashMap<>();
-		Map<Integer, Type> json = new HashMap<>();
+		Map<List<Expression>, Type> consOrSet = new IdentityHashMap<>();
+		Map<List<Expression>, Type> tuple = new IdentityHashMap<>();
+		Map<List<Expression>, Type> pair = new IdentityHashMap<>();
+		Map<List<Expression>, Type> map = new IdentityHashMap<>();
+		Map<List<Expression>, Type> json = new IdentityHashMap<>();
 		
-		// Maps from the objectId of each expression to its belonging group that has the same type as the expression
-		Map<Integer, List<Expression>> expToResource = new HashMap<>();
-		Map<Integer, List<Expression>> expToVariable = new HashMap<>();
-		Map<Integer, List<Expression>> expToMessage = new HashMap<>();
-		Map<Integer, Set<List<Expression>>> expToConsOrSet = new HashMap<>();
-		Map<Integer, Set<List<Expression>>> expToTuple = new HashMap<>();
-		Map<Integer, Set<List<Expression>>> expToPair = new HashMap<>();
-		Map<Integer, Set<List<Expression>>> expToMap = new HashMap<>();
-		Map<Integer, Set<List<Expression>>> expToJson = new HashMap<>();
+		// Maps from each expression (compared by identity) to its belonging group that has the same type as the expression
+		Map<Expression, List<Expression>> expToResource = new IdentityHashMap<>();
+		Map<Expression, List<Expression>> expToVariable = new IdentityHashMap<>();
+		Map<Expression, List<Expression>> expToMessage = new IdentityHashMap<>();
+		Map<Expression, Set<List<Expression>>> expToConsOrSet = new IdentityHashMap<>();
+		Map<Expression, Set<List<Expression>>> expToTuple = new IdentityHashMap<>();
+		Map<Expression, Set<List<Expression>>> expToPair = new IdentityHashMap<>();
+		Map<Expression, Set<List<Expression>>> expToMap = new IdentityHashMap<>();
+		Map<Expression, Set<List<Expression>>> expToJson = new IdentityHashMap<>();
 
-		// Maps from the objectId of each group to the set of updated expressions.
-		Map<Integer, Map<Integer, Expression>> updateFromResource = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromVariable = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromMessage = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromConsOrSet = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromTuple = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromPair = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromMap = new HashMap<>();
-		Map<Integer, Map<Integer, Expression>> updateFromJson = new HashMap<>();
+		// Maps from each resource or message group (compared by identity) to its resource or message type entry
+		Map<List<Expression>, ResourcePath> groupToResource = new IdentityHashMap<>();
+		Map<List<Expression>, Map.Entry<List<Expression>, Type>> groupToMessage = new IdentityHashMap<>();
 
-		listComponentTypes.put(DataConstraintModel.typeList, null);
-		listComponentTypes.put(DataConstraintModel.typeListInt, DataConstraintModel.typeInt);
-		listComponentTypes.put(DataConstraintModel.typeListStr, DataConstraintModel.typeString);
-		listTypes.put(DataConstraintModel.typeInt, DataConstraintModel.typeListInt);
-		listTypes.put(DataConstraintModel.typeString, DataConstraintModel.typeListStr);
-		pairComponentTypes.put(DataConstraintModel.typePair, null);
-		pairComponentTypes.put(DataConstraintModel.typePairInt, DataConstraintModel.typeInt);
-		pairComponentTypes.put(DataConstraintModel.typePairStr, DataConstraintModel.typeString);
-		pairComponentTypes.put(DataConstraintModel.typePairDouble, DataConstraintModel.typeDouble);
-		pairTypes.put(DataConstraintModel.typeInt, DataConstraintModel.typePairInt);
-		pairTypes.put(DataConstraintModel.typeString, DataConstraintModel.typePairStr);
-		pairTypes.put(DataConstraintModel.typeDouble, DataConstraintModel.typePairDouble);
-		tupleComponentTypes.put(DataConstraintModel.typeTuple, Arrays.asList(new Type[] { null, null }));
-		mapComponentTypes.put(DataConstraintModel.typeMap, Arrays.asList(new Type[] { null, null }));
+		// Maps from each group to the set of updated expressions.
+		// They work as the worklists of the propagation, so the groups are taken out in the order they are queued.
+		Worklist updateFromResource = new Worklist();
+		Worklist updateFromVariable = new Worklist();
+		Worklist updateFromMessage = new Worklist();
+		Worklist updateFromConsOrSet = new Worklist();
+		Worklist updateFromTuple = new Worklist();
+		Worklist updateFromPair = new Worklist();
+		Worklist updateFromMap = new Worklist();
+		Worklist updateFromJson = new Worklist();
 
 		// 1. Collect type information from the architecture model.
-		Collection<Channel> channels = new HashSet<>(model.getIOChannels());
-		channels.addAll(model.getChannels());
 		for (Channel c : channels) {
 			for (ChannelMember cm : c.getChannelMembers()) {
 				StateTransition st = cm.getStateTransition();
@@ -153,12 +392,13 @@ public class TypeInference {
 				if (sameResource == null) {
 					sameResource = new ArrayList<>();
 					resources.put(res, sameResource);
+					groupToResource.put(sameResource, res);
 				}
 				sameResource.add(st.getCurStateExpression());
 				if (st.getNextStateExpression() != null) sameResource.add(st.getNextStateExpression());
-				expToResource.put(System.identityHashCode(st.getCurStateExpression()), sameResource);
-				if (st.getNextStateExpression() != null) expToResource.put(System.identityHashCode(st.getNextStateExpression()), sameResource);
-				Map<Integer, Expression> updatedExps = getUpdateSet(updateFromResource, sameResource);
+				expToResource.put(st.getCurStateExpression(), sameResource);
+				if (st.getNextStateExpression() != null) expToResource.put(st.getNextStateExpression(), sameResource);
+				UpdateSet updatedExps = updateFromResource.getUpdateSet(sameResource);
 				Type resType = res.getResourceStateType();
 				Expression exp = st.getCurStateExpression();
 				Type expType = getExpTypeIfUpdatable(resType, exp);
@@ -168,22 +408,22 @@ public class TypeInference {
 						if (resExp != exp) {
 							if (resExp instanceof Variable && compareTypes(((Variable) resExp).getType(), expType)) {
 								((Variable) resExp).setType(expType);
-								updatedExps.put(System.identityHashCode(resExp), resExp);
+								updatedExps.add(resExp);
 							} else if (resExp instanceof Term && compareTypes(((Term) resExp).getType(), expType)) {
 								((Term) resExp).setType(expType);
-								updatedExps.put(System.identityHashCode(resExp), resExp);
+								updatedExps.add(resExp);
 							}
 						}
 					}
 				} else if (exp instanceof Variable) {
 					if (compareTypes(((Variable) exp).getType(), resType)) {
 						((Variable) exp).setType(resType);
-						updatedExps.put(System.identityHashCode(exp), exp);
+						updatedExps.add(exp);
 					}
 				} else if (exp instanceof Term) {
 					if (compareTypes(((Term) exp).getType(), resType)) {
 						((Term) exp).setType(resType);
-						updatedExps.put(System.identityHashCode(exp), exp);
+						updatedExps.add(exp);
 					}
 				}
 				resType = res.getResourceStateType();
@@ -196,22 +436,22 @@ public class TypeInference {
 							if (resExp != exp) {
 								if (resExp instanceof Variable && compareTypes(((Variable) resExp).getType(), expType)) {
 									((Variable) resExp).setType(expType);
-									updatedExps.put(System.identityHashCode(resExp), resExp);
+									updatedExps.add(resExp);
 								} else if (resExp instanceof Term && compareTypes(((Term) resExp).getType(), expType)) {
 									((Term) resExp).setType(expType);
-									updatedExps.put(System.identityHashCode(resExp), resExp);
+									updatedExps.add(resExp);
 								}
 							}
 						}
 					} else if (exp instanceof Variable) {
 						if (compareTypes(((Variable) exp).getType(), resType)) {
 							((Variable) exp).setType(resType);
-							updatedExps.put(System.identityHashCode(exp), exp);
+							updatedExps.add(exp);
 						}
 					} else if (exp instanceof Term) {
 						if (compareTypes(((Term) exp).getType(), resType)) {
 							((Term) exp).setType(resType);
-							updatedExps.put(System.identityHashCode(exp), exp);
+							updatedExps.add(exp);
 						}
 					}
 				}
@@ -229,32 +469,32 @@ public class TypeInference {
 					if (sameVariable == null) {
 						sameVariable = new ArrayList<>();
 						sameVariable.add(var);
-						expToVariable.put(System.identityHashCode(var), sameVariable);
+						expToVariable.put(var, sameVariable);
 						locals.put(var.getName(), sameVariable);
 						localTypes.put(var.getName(), var.getType());
 					} else {
 						sameVariable.add(var);
-						expToVariable.put(System.identityHashCode(var), sameVariable);
+						expToVariable.put(var, sameVariable);
 						Type varType = localTypes.get(var.getName());
-						Map<Integer, Expression> updatedVars = getUpdateSet(updateFromVariable, sameVariable);
+						UpdateSet updatedVars = updateFromVariable.getUpdateSet(sameVariable);
 						if (compareTypes(varType, var.getType())) {
 							localTypes.put(var.getName(), var.getType());
 							for (Expression v : sameVariable) {
 								if (v != var) {
 									if (compareTypes(((Variable) v).getType(), var.getType())) {
 										((Variable) v).setType(var.getType());
-										updatedVars.put(System.identityHashCode(v), v);
+										updatedVars.add(v);
 									}
 								}
 							}
 						} else if (compareTypes(var.getType(), varType)) {
 							var.setType(varType);
-							updatedVars.put(System.identityHashCode(var), var);
+							updatedVars.add(var);
 						}
 					}
 				}
 				for (String varName : locals.keySet()) {
-					variables.put(System.identityHashCode(locals.get(varName)), localTypes.get(varName));
+					variables.put(locals.get(varName), localTypes.get(varName));
 				}
 				
 				// 1.3 Group expressions by message.
@@ -272,24 +512,25 @@ public class TypeInference {
 						exps.add(message);
 						typeAndExps = new AbstractMap.SimpleEntry<>(exps, msgType);
 						msgTypeMap.put(0, typeAndExps);
-						expToMessage.put(System.identityHashCode(message), exps);
+						groupToMessage.put(exps, typeAndExps);
+						expToMessage.put(message, exps);
 					} else {
 						typeAndExps.getKey().add(message);
-						expToMessage.put(System.identityHashCode(message), typeAndExps.getKey());
-						Map<Integer, Expression> updateExps = getUpdateSet(updateFromMessage, typeAndExps.getKey());
+						expToMessage.put(message, typeAndExps.getKey());
+						UpdateSet updateExps = updateFromMessage.getUpdateSet(typeAndExps.getKey());
 						if (compareTypes(typeAndExps.getValue(), msgType)) {
 							typeAndExps.setValue(msgType);
 							for (Expression e : typeAndExps.getKey()) {
 								if (e != message) {
 									if (e instanceof Variable) {
 										((Variable) e).setType(msgType);
-										updateExps.put(System.identityHashCode(e), e);
+										updateExps.add(e);
 									}
 								}
 							}
 						} else if (compareTypes(msgType, typeAndExps.getValue())) {
 							((Variable) message).setType(typeAndExps.getValue());
-							updateExps.put(System.identityHashCode(message), message);
+							updateExps.add(message);
 						}
 					}
 				} else if (message instanceof Term) {
@@ -314,28 +555,29 @@ public class TypeInference {
 							exps.add(arg);
 							typeAndExps = new AbstractMap.SimpleEntry<>(exps, argType);
 							msgTypeMap.put(i, typeAndExps);
-							expToMessage.put(System.identityHashCode(arg), exps);
+							groupToMessage.put(exps, typeAndExps);
+							expToMessage.put(arg, exps);
 						} else {
 							typeAndExps.getKey().add(arg);
-							expToMessage.put(System.identityHashCode(arg), typeAndExps.getKey());
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromMessage, typeAndExps.getKey());
+							expToMessage.put(arg, typeAndExps.getKey());
+							UpdateSet updateExps = updateFromMessage.getUpdateSet(typeAndExps.getKey());
 							if (compareTypes(typeAndExps.getValue(), argType)) {
 								typeAndExps.setValue(argType);
 								for (Expression e : typeAndExps.getKey()) {
 									if (e != arg) {
 										if (e instanceof Variable) {
 											((Variable) e).setType(argType);
-											updateExps.put(System.identityHashCode(e), e);
+											updateExps.add(e);
 										}
 									}
 								}
 							} else if (compareTypes(argType, typeAndExps.getValue())) {
 								if (arg instanceof Variable) {
 									((Variable) arg).setType(typeAndExps.getValue());
-									updateExps.put(System.identityHashCode(arg), arg);
+									updateExps.add(arg);
 								} else if (arg instanceof Term) {
 									((Term) arg).setType(typeAndExps.getValue());
-									updateExps.put(System.identityHashCode(arg), arg);
+									updateExps.add(arg);
 								}
 							}
 						}
@@ -382,8 +624,8 @@ public class TypeInference {
 						if (newType != null) {
 							// If the type of the 2nd argument of cons (1st argument of set) is more concrete than the type of the term.
 							t.setType(newType);
-							Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-							updateCons.put(System.identityHashCode(t), t);
+							UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+							updateCons.add(t);
 						} else {
 							Type arg2Type = null;
 							if (consExps.get(2) != null && consExps.get(2) instanceof Variable) {
@@ -391,16 +633,16 @@ public class TypeInference {
 								if (compareTypes(arg2Type, t.getType())) {
 									// If the type of the term is more concrete than the type of the 2nd argument of cons (1st argument of set).
 									((Variable) consExps.get(2)).setType(t.getType());
-									Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-									updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+									UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+									updateCons.add(consExps.get(2));
 								}
 							} else if (consExps.get(2) != null && consExps.get(2) instanceof Term) {
 								arg2Type = ((Term) consExps.get(2)).getType();
 								if (compareTypes(arg2Type, t.getType())) {
 									// If the type of the term is more concrete than the type of the 2nd argument of cons (1st argument of set).
 									((Term) consExps.get(2)).setType(t.getType());
-									Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-									updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+									UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+									updateCons.add(consExps.get(2));
 								}
 							}
 						}
@@ -413,17 +655,17 @@ public class TypeInference {
 								newListType = createNewListType(newCompType, DataConstraintModel.typeList);
 							}
 							t.setType(newListType);
-							Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-							updateCons.put(System.identityHashCode(t), t);
+							UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+							updateCons.add(t);
 							if (consExps.get(2) != null && consExps.get(2) instanceof Variable) {
 								((Variable) consExps.get(2)).setType(newListType);
-								updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+								updateCons.add(consExps.get(2));
 							} else if (consExps.get(2) != null && consExps.get(2) instanceof Term) {
 								((Term) consExps.get(2)).setType(newListType);
-								updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+								updateCons.add(consExps.get(2));
 							}
 						}
-						consOrSet.put(System.identityHashCode(consExps), t.getType());
+						consOrSet.put(consExps, t.getType());
 					} else if (symbol.equals(DataConstraintModel.head) || symbol.equals(DataConstraintModel.get)) {
 						// If the root symbol of the term is head or get.
 						List<Expression> consExps = new ArrayList<>();
@@ -444,22 +686,22 @@ public class TypeInference {
 							Type newCompType = listComponentTypes.get(newListType);
 							if (newCompType != null) {
 								t.setType(newCompType);
-								Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-								updateCons.put(System.identityHashCode(t), t);
+								UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+								updateCons.add(t);
 							}
-							consOrSet.put(System.identityHashCode(consExps), newListType);						
+							consOrSet.put(consExps, newListType);						
 						} else {
 							// If the type of the term is more concrete than the type of the component of the 1st argument.
 							if (consExps.get(0) != null && consExps.get(0) instanceof Variable) {
 								((Variable) consExps.get(0)).setType(listType);
-								Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-								updateCons.put(System.identityHashCode(consExps.get(0)), consExps.get(0));
+								UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+								updateCons.add(consExps.get(0));
 							} else if (consExps.get(0) != null && consExps.get(0) instanceof Term) {
 								((Term) consExps.get(0)).setType(listType);
-								Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-								updateCons.put(System.identityHashCode(consExps.get(0)), consExps.get(0));
+								UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+								updateCons.add(consExps.get(0));
 							}
-							consOrSet.put(System.identityHashCode(consExps), listType);						
+							consOrSet.put(consExps, listType);						
 						}
 					} else if (symbol.equals(DataConstraintModel.tail)) {
 						// If the root symbol of the term is tail.
@@ -474,8 +716,8 @@ public class TypeInference {
 						if (newType != null) {
 							// If the type of the argument is more concrete than the type of the term.
 							t.setType(newType);
-							Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-							updateCons.put(System.identityHashCode(t), t);
+							UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+							updateCons.add(t);
 						} else {
 							Type argType = null;
 							if (consExps.get(2) != null && consExps.get(2) instanceof Variable) {
@@ -483,20 +725,20 @@ public class TypeInference {
 								if (compareTypes(argType, t.getType())) {
 									// If the type of the term is more concrete than the type of the argument.
 									((Variable) consExps.get(2)).setType(t.getType());
-									Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-									updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+									UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+									updateCons.add(consExps.get(2));
 								}
 							} else if (consExps.get(2) != null && consExps.get(2) instanceof Term) {
 								argType = ((Term) consExps.get(2)).getType();
 								if (compareTypes(argType, t.getType())) {
 									// If the type of the term is more concrete than the type of the argument.
 									((Term) consExps.get(2)).setType(t.getType());
-									Map<Integer, Expression> updateCons = getUpdateSet(updateFromConsOrSet, consExps);
-									updateCons.put(System.identityHashCode(consExps.get(2)), consExps.get(2));
+									UpdateSet updateCons = updateFromConsOrSet.getUpdateSet(consExps);
+									updateCons.add(consExps.get(2));
 								}
 							}						
 						}
-						consOrSet.put(System.identityHashCode(consExps), t.getType());
+						consOrSet.put(consExps, t.getType());
 					} else if (symbol.equals(DataConstraintModel.tuple)) {
 						// If the root symbol of the term is tuple.
 						List<Expression> tupleExps = new ArrayList<>();
@@ -522,10 +764,10 @@ public class TypeInference {
 							}
 							// Update the type of the tuple term and record the updated expression.
 							t.setType(newTupleType);
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromTuple, tupleExps);
-							updateExps.put(System.identityHashCode(t), t);
+							UpdateSet updateExps = updateFromTuple.getUpdateSet(tupleExps);
+							updateExps.add(t);
 						}
-						tuple.put(System.identityHashCode(tupleExps), t.getType());
+						tuple.put(tupleExps, t.getType());
 					} else if (symbol.equals(DataConstraintModel.pair)) {
 						// If the root symbol of the term is pair.
 						List<Expression> pairExps = new ArrayList<>();
@@ -547,12 +789,12 @@ public class TypeInference {
 									Type newPairType = pairTypes.get(newArgType);
 									if (newPairType != null) {
 										t.setType(newPairType);
-										Map<Integer, Expression> updateExps = getUpdateSet(updateFromPair, pairExps);
-										updateExps.put(System.identityHashCode(t), t);
+										UpdateSet updateExps = updateFromPair.getUpdateSet(pairExps);
+										updateExps.add(t);
 									}
 								}
 							}
-							pair.put(System.identityHashCode(pairExps), t.getType());
+							pair.put(pairExps, t.getType());
 							
 						}
 					} else if (symbol.equals(DataConstraintModel.fst)) {
@@ -590,10 +832,10 @@ public class TypeInference {
 								((Term) arg).setType(newTupleType);
 								argType = newTupleType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromTuple, tupleExps);
-							updateExps.put(System.identityHashCode(arg), arg);
+							UpdateSet updateExps = updateFromTuple.getUpdateSet(tupleExps);
+							updateExps.add(arg);
 						}
-						tuple.put(System.identityHashCode(tupleExps), argType);
+						tuple.put(tupleExps, argType);
 					} else if (symbol.equals(DataConstraintModel.snd)) {
 						// If the root symbol of the term is snd.
 						List<Expression> tupleExps = new ArrayList<>();
@@ -640,10 +882,10 @@ public class TypeInference {
 								((Term) arg).setType(newTupleType);
 								argType = newTupleType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromTuple, tupleExps);
-							updateExps.put(System.identityHashCode(arg), arg);
+							UpdateSet updateExps = updateFromTuple.getUpdateSet(tupleExps);
+							updateExps.add(arg);
 						}
-						tuple.put(System.identityHashCode(tupleExps), argType);
+						tuple.put(tupleExps, argType);
 					} else if (symbol.equals(DataConstraintModel.left)) {
 						// If the root symbol of the term is left.
 						List<Expression> pairExps = new ArrayList<>();
@@ -678,10 +920,10 @@ public class TypeInference {
 								((Term) arg).setType(newPairType);
 								argType = newPairType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromPair, pairExps);
-							updateExps.put(System.identityHashCode(arg), arg);
+							UpdateSet updateExps = updateFromPair.getUpdateSet(pairExps);
+							updateExps.add(arg);
 						}
-						pair.put(System.identityHashCode(pairExps), argType);
+						pair.put(pairExps, argType);
 					} else if (symbol.equals(DataConstraintModel.right)) {
 						// If the root symbol of the term is right.
 						List<Expression> pairExps = new ArrayList<>();
@@ -716,10 +958,10 @@ public class TypeInference {
 								((Term) arg).setType(newPairType);
 								argType = newPairType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromPair, pairExps);
-							updateExps.put(System.identityHashCode(arg), arg);
+							UpdateSet updateExps = updateFromPair.getUpdateSet(pairExps);
+							updateExps.add(arg);
 						}
-						pair.put(System.identityHashCode(pairExps), argType);
+						pair.put(pairExps, argType);
 					} else if (symbol.equals(DataConstraintModel.lookup)) {
 						// If the root symbol of the term is lookup.
 						List<Expression> mapExps = new ArrayList<>();
@@ -760,10 +1002,10 @@ public class TypeInference {
 								((Term) arg1).setType(newMapType);
 								arg1Type = newMapType;
 							}							
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromMap, mapExps);
-							updateExps.put(System.identityHashCode(arg1), arg1);
+							UpdateSet updateExps = updateFromMap.getUpdateSet(mapExps);
+							updateExps.add(arg1);
 						}
-						map.put(System.identityHashCode(mapExps), arg1Type);
+						map.put(mapExps, arg1Type);
 					} else if (symbol.equals(DataConstraintModel.insert)) {
 						// If the root symbol of the term is insert.
 						List<Expression> mapExps = new ArrayList<>();
@@ -803,10 +1045,10 @@ public class TypeInference {
 							// Update the type of the map term and record the updated expression.
 							t.setType(newMapType);
 							termType = newMapType;
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromMap, mapExps);
-							updateExps.put(System.identityHashCode(t), t);
+							UpdateSet updateExps = updateFromMap.getUpdateSet(mapExps);
+							updateExps.add(t);
 						}
-						map.put(System.identityHashCode(mapExps), termType);
+						map.put(mapExps, termType);
 					} else if (symbol.equals(DataConstraintModel.addMember)) {
 						// If the root symbol of the term is addMember (addMember(json, key, value)).
 						List<Expression> dotExps = new ArrayList<>();
@@ -852,10 +1094,10 @@ public class TypeInference {
 							// Update the type of the json term and record the updated expression.
 							t.setType(newJsonType);
 							jsonType = newJsonType;
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromJson, dotExps);
-							updateExps.put(System.identityHashCode(t), t);
+							UpdateSet updateExps = updateFromJson.getUpdateSet(dotExps);
+							updateExps.add(t);
 						}
-						json.put(System.identityHashCode(dotExps), jsonType);
+						json.put(dotExps, jsonType);
 					} else if (symbol.equals(DataConstraintModel.dot)) {
 						// If the root symbol of the term is dot (json.property).
 						List<Expression> dotExps = new ArrayList<>();
@@ -897,10 +1139,10 @@ public class TypeInference {
 								((Term) jsonArg).setType(newJsonType);
 								jsonType = newJsonType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromJson, dotExps);
-							updateExps.put(System.identityHashCode(jsonArg), jsonArg);
+							UpdateSet updateExps = updateFromJson.getUpdateSet(dotExps);
+							updateExps.add(jsonArg);
 						}
-						json.put(System.identityHashCode(dotExps), jsonType);
+						json.put(dotExps, jsonType);
 					} else if (symbol.equals(DataConstraintModel.dotParam)) {
 						// If the root symbol of the term is dot (json.{param}).
 						List<Expression> dotExps = new ArrayList<>();
@@ -955,10 +1197,10 @@ public class TypeInference {
 								((Term) jsonArg).setType(newJsonType);
 								jsonType = newJsonType;
 							}
-							Map<Integer, Expression> updateExps = getUpdateSet(updateFromJson, dotExps);
-							updateExps.put(System.identityHashCode(jsonArg), jsonArg);
+							UpdateSet updateExps = updateFromJson.getUpdateSet(dotExps);
+							updateExps.add(jsonArg);
 						}
-						json.put(System.identityHashCode(dotExps), jsonType);
+						json.put(dotExps, jsonType);
 					} else if (symbol.equals(DataConstraintModel.cond)) {
 						// If the root symbol of the term is if function.
 						Expression c1 = t.getChild(1);
@@ -967,47 +1209,47 @@ public class TypeInference {
 						condTerms.add(t);
 						condTerms.add(c1);
 						condTerms.add(c2);
-						expToVariable.put(System.identityHashCode(t), condTerms);
-						expToVariable.put(System.identityHashCode(c1), condTerms);
-						expToVariable.put(System.identityHashCode(c2), condTerms);
+						expToVariable.put(t, condTerms);
+						expToVariable.put(c1, condTerms);
+						expToVariable.put(c2, condTerms);
 						Type condType = t.getType();
-						Map<Integer, Expression> updatedVars = getUpdateSet(updateFromVariable, condTerms);
+						UpdateSet updatedVars = updateFromVariable.getUpdateSet(condTerms);
 						Type child1Type = getExpTypeIfUpdatable(condType, c1);
 						if (child1Type != null) {
 							condType = child1Type;
 							t.setType(child1Type);
-							updatedVars.put(System.identityHashCode(t), t);
+							updatedVars.add(t);
 						} else {
 							if (c1 instanceof Variable && compareTypes(((Variable) c1).getType(), condType)) {
 								((Variable) c1).setType(condType);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							} else if (c1 instanceof Term && compareTypes(((Term) c1).getType(), condType)) {
 								((Term) c1).setType(condType);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							}
 						}
 						Type child2Type = getExpTypeIfUpdatable(condType, c2);
 						if (child2Type != null) {
 							condType = child2Type;
 							t.setType(child2Type);
-							updatedVars.put(System.identityHashCode(t), t);
+							updatedVars.add(t);
 							if (c1 instanceof Variable) {
 								((Variable) c1).setType(child2Type);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							} else if (c1 instanceof Term) {
 								((Term) c1).setType(child2Type);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							}
 						} else {
 							if (c2 instanceof Variable && compareTypes(((Variable) c2).getType(), condType)) {
 								((Variable) c2).setType(condType);
-								updatedVars.put(System.identityHashCode(c2), c2);
+								updatedVars.add(c2);
 							} else if (c2 instanceof Term && compareTypes(((Term) c2).getType(), condType)) {
 								((Term) c2).setType(condType);
-								updatedVars.put(System.identityHashCode(c2), c2);
+								updatedVars.add(c2);
 							}
 						}
-						variables.put(System.identityHashCode(condTerms), condType);
+						variables.put(condTerms, condType);
 					} else if (symbol.equals(DataConstraintModel.add) || symbol.equals(DataConstraintModel.sub)
 							|| symbol.equals(DataConstraintModel.mul) || symbol.equals(DataConstraintModel.div)) {
 						// If the root symbol of the term is arithmetic operators.
@@ -1017,56 +1259,56 @@ public class TypeInference {
 						operands.add(t);
 						operands.add(c1);
 						operands.add(c2);
-						expToVariable.put(System.identityHashCode(t), operands);
-						expToVariable.put(System.identityHashCode(c1), operands);
-						expToVariable.put(System.identityHashCode(c2), operands);
+						expToVariable.put(t, operands);
+						expToVariable.put(c1, operands);
+						expToVariable.put(c2, operands);
 						Type opType = t.getType();
-						Map<Integer, Expression> updatedVars = getUpdateSet(updateFromVariable, operands);
+						UpdateSet updatedVars = updateFromVariable.getUpdateSet(operands);
 						Type child1Type = getExpTypeIfUpdatable(opType, c1);
 						if (child1Type != null) {
 							opType = child1Type;
 							t.setType(child1Type);
-							updatedVars.put(System.identityHashCode(t), t);
+							updatedVars.add(t);
 						} else {
 							if (c1 instanceof Variable && compareTypes(((Variable) c1).getType(), opType)) {
 								((Variable) c1).setType(opType);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							} else if (c1 instanceof Term && compareTypes(((Term) c1).getType(), opType)) {
 								((Term) c1).setType(opType);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							}
 						}
 						Type child2Type = getExpTypeIfUpdatable(opType, c2);
 						if (child2Type != null) {
 							opType = child2Type;
 							t.setType(child2Type);
-							updatedVars.put(System.identityHashCode(t), t);
+							updatedVars.add(t);
 							if (c1 instanceof Variable) {
 								((Variable) c1).setType(child2Type);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							} else if (c1 instanceof Term) {
 								((Term) c1).setType(child2Type);
-								updatedVars.put(System.identityHashCode(c1), c1);
+								updatedVars.add(c1);
 							}
 						} else {
 							if (c2 instanceof Variable && compareTypes(((Variable) c2).getType(), opType)) {
 								((Variable) c2).setType(opType);
-								updatedVars.put(System.identityHashCode(c2), c2);
+								updatedVars.add(c2);
 							} else if (c2 instanceof Term && compareTypes(((Term) c2).getType(), opType)) {
 								((Term) c2).setType(opType);
-								updatedVars.put(System.identityHashCode(c2), c2);
+								updatedVars.add(c2);
 							}
 						}
-						variables.put(System.identityHashCode(operands), opType);
+						variables.put(operands, opType);
 					} else if (symbol.getSignature() != null
 							&& symbol.getSignature()[0] == DataConstraintModel.typeList) {
 						// If the root symbol of the term is the list type (except for the cons
 						// function).
 						List<Expression> consExps = new ArrayList<>();
 						consExps.add(t);
-						expToVariable.put(System.identityHashCode(t), consExps);
+						expToVariable.put(t, consExps);
 						Type condType = t.getType();
-						Map<Integer, Expression> updatedVars = getUpdateSet(updateFromVariable, consExps);
+						UpdateSet updatedVars = updateFromVariable.getUpdateSet(consExps);
 						for (int i = 1; i < symbol.getSignature().length; i++) {
 							Type tc = symbol.getSignature()[i];
 							if (tc == DataConstraintModel.typeList) {
@@ -1077,44 +1319,39 @@ public class TypeInference {
 									for (Expression e2 : consExps) {
 										if (e2 instanceof Variable) {
 											((Variable) e2).setType(newType);
-											updatedVars.put(System.identityHashCode(e2), e2);
+											updatedVars.add(e2);
 										} else if (e2 instanceof Term) {
 											((Term) e2).setType(newType);
-											updatedVars.put(System.identityHashCode(e2), e2);
+											updatedVars.add(e2);
 										}
 									}
 								} else {
 									if (e instanceof Variable && compareTypes(((Variable) e).getType(), condType)) {
 										((Variable) e).setType(condType);
-										updatedVars.put(System.identityHashCode(e), e);
+										updatedVars.add(e);
 									} else if (e instanceof Term && compareTypes(((Term) e).getType(), condType)) {
 										((Term) e).setType(condType);
-										updatedVars.put(System.identityHashCode(e), e);
+										updatedVars.add(e);
 									}
 								}
 								consExps.add(e);
-								expToVariable.put(System.identityHashCode(e), consExps);
+								expToVariable.put(e, consExps);
 							}
 						}
-						variables.put(System.identityHashCode(consExps), condType);
+						variables.put(consExps, condType);
 					}
 				}
 			}
 		}
 		
 		// 2. Propagate type information.
-		while (updateFromResource.size() > 0 || updateFromVariable.size() > 0 || updateFromMessage.size() > 0
-				|| updateFromConsOrSet.size() > 0 || updateFromTuple.size() > 0 || updateFromPair.size() > 0 
-				|| updateFromMap.size() > 0 || updateFromJson.size() > 0) {
-			if (updateFromResource.size() > 0) {
-				Set<Integer> resourceKeys = updateFromResource.keySet();
-				Integer resourceKey = resourceKeys.iterator().next();
-				Map<Integer, Expression> resourceValue = updateFromResource.get(resourceKey);
-				updateFromResource.remove(resourceKey);
-				for (int i : resourceValue.keySet()) {
-					Expression resExp = resourceValue.get(i);
+		while (!updateFromResource.isEmpty() || !updateFromVariable.isEmpty() || !updateFromMessage.isEmpty()
+				|| !updateFromConsOrSet.isEmpty() || !updateFromTuple.isEmpty() || !updateFromPair.isEmpty() 
+				|| !updateFromMap.isEmpty() || !updateFromJson.isEmpty()) {
+			if (!updateFromResource.isEmpty()) {
+				for (Expression resExp : updateFromResource.poll()) {
 					updateVaribleTypes(resExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(resExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(resExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(resExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(resExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(resExp, pair, expToPair, updateFromPair);
@@ -1122,16 +1359,11 @@ public class TypeInference {
 					updateJsonTypes(resExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromVariable.size() > 0) {
-				Set<Integer> variableKeys = updateFromVariable.keySet();
-				Integer variableKey = variableKeys.iterator().next();
-				Map<Integer, Expression> variableValue = updateFromVariable.get(variableKey);
-				updateFromVariable.remove(variableKey);
-				for (int i : variableValue.keySet()) {
-					Expression var = variableValue.get(i);
-					updateResourceTypes(var, resources, expToResource, updateFromResource);
+			if (!updateFromVariable.isEmpty()) {
+				for (Expression var : updateFromVariable.poll()) {
+					updateResourceTypes(var, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(var, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(var, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(var, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(var, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(var, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(var, pair, expToPair, updateFromPair);
@@ -1139,14 +1371,9 @@ public class TypeInference {
 					updateJsonTypes(var, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromMessage.size() > 0) {
-				Set<Integer> messageKeys = updateFromMessage.keySet();
-				Integer messageKey = messageKeys.iterator().next();
-				Map<Integer, Expression> messageValue = updateFromMessage.get(messageKey);
-				updateFromMessage.remove(messageKey);
-				for (int i : messageValue.keySet()) {
-					Expression mesExp = messageValue.get(i);
-					updateResourceTypes(mesExp, resources, expToResource, updateFromResource);
+			if (!updateFromMessage.isEmpty()) {
+				for (Expression mesExp : updateFromMessage.poll()) {
+					updateResourceTypes(mesExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(mesExp, variables, expToVariable, updateFromVariable);
 					updateConsOrSetTypes(mesExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(mesExp, tuple, expToTuple, updateFromTuple);
@@ -1155,16 +1382,11 @@ public class TypeInference {
 					updateJsonTypes(mesExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromConsOrSet.size() > 0) {
-				Set<Integer> consKeys = updateFromConsOrSet.keySet();
-				Integer consKey = consKeys.iterator().next();
-				Map<Integer, Expression> consValue = updateFromConsOrSet.get(consKey);
-				updateFromConsOrSet.remove(consKey);
-				for (int i : consValue.keySet()) {
-					Expression consExp = consValue.get(i);
-					updateResourceTypes(consExp, resources, expToResource, updateFromResource);
+			if (!updateFromConsOrSet.isEmpty()) {
+				for (Expression consExp : updateFromConsOrSet.poll()) {
+					updateResourceTypes(consExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(consExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(consExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(consExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(consExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(consExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(consExp, pair, expToPair, updateFromPair);
@@ -1172,16 +1394,11 @@ public class TypeInference {
 					updateJsonTypes(consExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromTuple.size() > 0) {
-				Set<Integer> tupleKeys = updateFromTuple.keySet();
-				Integer tupleKey = tupleKeys.iterator().next();
-				Map<Integer, Expression> tupleValue = updateFromTuple.get(tupleKey);
-				updateFromTuple.remove(tupleKey);
-				for (int i : tupleValue.keySet()) {
-					Expression tupleExp = tupleValue.get(i);
-					updateResourceTypes(tupleExp, resources, expToResource, updateFromResource);
+			if (!updateFromTuple.isEmpty()) {
+				for (Expression tupleExp : updateFromTuple.poll()) {
+					updateResourceTypes(tupleExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(tupleExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(tupleExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(tupleExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(tupleExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(tupleExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(tupleExp, pair, expToPair, updateFromPair);
@@ -1189,16 +1406,11 @@ public class TypeInference {
 					updateJsonTypes(tupleExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromPair.size() > 0) {
-				Set<Integer> pairKeys = updateFromPair.keySet();
-				Integer pairKey = pairKeys.iterator().next();
-				Map<Integer, Expression> pairValue = updateFromPair.get(pairKey);
-				updateFromPair.remove(pairKey);
-				for (int i : pairValue.keySet()) {
-					Expression pairExp = pairValue.get(i);
-					updateResourceTypes(pairExp, resources, expToResource, updateFromResource);
+			if (!updateFromPair.isEmpty()) {
+				for (Expression pairExp : updateFromPair.poll()) {
+					updateResourceTypes(pairExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(pairExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(pairExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(pairExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(pairExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(pairExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(pairExp, pair, expToPair, updateFromPair);
@@ -1206,16 +1418,11 @@ public class TypeInference {
 					updateJsonTypes(pairExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromMap.size() > 0) {
-				Set<Integer> mapKeys = updateFromMap.keySet();
-				Integer mapKey = mapKeys.iterator().next();
-				Map<Integer, Expression> mapValue = updateFromMap.get(mapKey);
-				updateFromMap.remove(mapKey);
-				for (int i : mapValue.keySet()) {
-					Expression mapExp = mapValue.get(i);
-					updateResourceTypes(mapExp, resources, expToResource, updateFromResource);
+			if (!updateFromMap.isEmpty()) {
+				for (Expression mapExp : updateFromMap.poll()) {
+					updateResourceTypes(mapExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(mapExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(mapExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(mapExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(mapExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(mapExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(mapExp, pair, expToPair, updateFromPair);
@@ -1223,16 +1430,11 @@ public class TypeInference {
 					updateJsonTypes(mapExp, json, expToJson, updateFromJson);
 				}
 			}
-			if (updateFromJson.size() > 0) {
-				Set<Integer> jsonKeys = updateFromJson.keySet();
-				Integer jsonKey = jsonKeys.iterator().next();
-				Map<Integer, Expression> jsonValue = updateFromJson.get(jsonKey);
-				updateFromJson.remove(jsonKey);
-				for (int i : jsonValue.keySet()) {
-					Expression jsonExp = jsonValue.get(i);
-					updateResourceTypes(jsonExp, resources, expToResource, updateFromResource);
+			if (!updateFromJson.isEmpty()) {
+				for (Expression jsonExp : updateFromJson.poll()) {
+					updateResourceTypes(jsonExp, groupToResource, expToResource, updateFromResource);
 					updateVaribleTypes(jsonExp, variables, expToVariable, updateFromVariable);
-					updateMessageTypes(jsonExp, messages, expToMessage, updateFromMessage);
+					updateMessageTypes(jsonExp, groupToMessage, expToMessage, updateFromMessage);
 					updateConsOrSetTypes(jsonExp, consOrSet, expToConsOrSet, updateFromConsOrSet);
 					updateTupleTypes(jsonExp, tuple, expToTuple, updateFromTuple);
 					updatePairTypes(jsonExp, pair, expToPair, updateFromPair);
@@ -1243,11 +1445,11 @@ public class TypeInference {
 		}
 	}
 
-	private static void updateExpressionBelonging(Map<Integer, Set<List<Expression>>> belonging, Expression exp, List<Expression> group) {
-		Set<List<Expression>> groups = belonging.get(System.identityHashCode(exp));
+	private void updateExpressionBelonging(Map<Expression, Set<List<Expression>>> belonging, Expression exp, List<Expression> group) {
+		Set<List<Expression>> groups = belonging.get(exp);
 		if (groups == null) {
-			groups = new HashSet<>();
-			belonging.put(System.identityHashCode(exp), groups);
+			groups = new LinkedHashSet<>();
+			belonging.put(exp, groups);
 			groups.add(group);
 			return;
 		}
@@ -1256,112 +1458,100 @@ public class TypeInference {
 		}
 	}
 
-	private static void updateResourceTypes(Expression exp, Map<ResourcePath, List<Expression>> resources,
-			Map<Integer, List<Expression>> expToResource, Map<Integer, Map<Integer, Expression>> updateFromResource) {
-		List<Expression> sameResource = expToResource.get(System.identityHashCode(exp));
+	private void updateResourceTypes(Expression exp, Map<List<Expression>, ResourcePath> groupToResource,
+			Map<Expression, List<Expression>> expToResource, Worklist updateFromResource) {
+		List<Expression> sameResource = expToResource.get(exp);
 		if (sameResource == null) return;
-		for (ResourcePath res : resources.keySet()) {
-			if (resources.get(res) == sameResource) {
-				Type resType = res.getResourceStateType();
-				Type newResType = getExpTypeIfUpdatable(resType, exp);
-				if (newResType != null) {
-					res.setResourceStateType(newResType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromResource, sameResource);
-					for (Expression resExp : sameResource) {
-						if (resExp != exp) {
-							if (resExp instanceof Variable) {
-								((Variable) resExp).setType(newResType);
-								updateExps.put(System.identityHashCode(resExp), resExp);
-							} else if (resExp instanceof Term) {
-								((Term) resExp).setType(newResType);
-								updateExps.put(System.identityHashCode(resExp), resExp);
-							}
-						}
+		ResourcePath res = groupToResource.get(sameResource);
+		if (res == null) return;
+		Type resType = res.getResourceStateType();
+		Type newResType = getExpTypeIfUpdatable(resType, exp);
+		if (newResType != null) {
+			res.setResourceStateType(newResType);
+			UpdateSet updateExps = updateFromResource.getUpdateSet(sameResource);
+			for (Expression resExp : sameResource) {
+				if (resExp != exp) {
+					if (resExp instanceof Variable) {
+						((Variable) resExp).setType(newResType);
+						updateExps.add(resExp);
+					} else if (resExp instanceof Term) {
+						((Term) resExp).setType(newResType);
+						updateExps.add(resExp);
 					}
 				}
 			}
 		}
 	}
 
-	private static void updateVaribleTypes(Expression exp, Map<Integer, Type> variables,
-			Map<Integer, List<Expression>> expToVariable, Map<Integer, Map<Integer, Expression>> updateFromVariable) {
-		List<Expression> sameVariable = expToVariable.get(System.identityHashCode(exp));
+	private void updateVaribleTypes(Expression exp, Map<List<Expression>, Type> variables,
+			Map<Expression, List<Expression>> expToVariable, Worklist updateFromVariable) {
+		List<Expression> sameVariable = expToVariable.get(exp);
 		if (sameVariable == null) return;
-		Type varType = variables.get(System.identityHashCode(sameVariable));
+		Type varType = variables.get(sameVariable);
 		Type newVarType = getExpTypeIfUpdatable(varType, exp);
 		if (newVarType != null) {
-			variables.put(System.identityHashCode(sameVariable), newVarType);
-			Map<Integer, Expression> updateVars = getUpdateSet(updateFromVariable, sameVariable);
+			variables.put(sameVariable, newVarType);
+			UpdateSet updateVars = updateFromVariable.getUpdateSet(sameVariable);
 			for (Expression v : sameVariable) {
 				if (v != exp) {
 					if (v instanceof Variable) {
 						((Variable) v).setType(newVarType);
-						updateVars.put(System.identityHashCode(v), v);
+						updateVars.add(v);
 					} else if (v instanceof Term) {
 						((Term) v).setType(newVarType);
-						updateVars.put(System.identityHashCode(v), v);
+						updateVars.add(v);
 					}
 				}
 			}
 		} else {
-			Map<Integer, Expression> updateVars = getUpdateSet(updateFromVariable, sameVariable);
+			UpdateSet updateVars = updateFromVariable.getUpdateSet(sameVariable);
 			for (Expression v : sameVariable) {
 				if (v instanceof Variable) {
 					Type orgVarType = ((Variable) v).getType();
 					if (orgVarType != varType && compareTypes(orgVarType, varType)) {
 						((Variable) v).setType(varType);
-						updateVars.put(System.identityHashCode(v), v);
+						updateVars.add(v);
 					}
 				} else if (v instanceof Term) {
 					Type orgVarType = ((Term) v).getType();
 					if (orgVarType != varType && compareTypes(orgVarType, varType)) {
 						((Term) v).setType(varType);
-						updateVars.put(System.identityHashCode(v), v);
+						updateVars.add(v);
 					}
 				}
 			}
 		}
 	}
 
-	private static void updateMessageTypes(Expression exp,
-			Map<Channel, Map<Integer, Map.Entry<List<Expression>, Type>>> messages,
-			Map<Integer, List<Expression>> expToMessage, Map<Integer, Map<Integer, Expression>> updateFromMessage) {
-		List<Expression> messageExps = expToMessage.get(System.identityHashCode(exp));
+	private void updateMessageTypes(Expression exp, Map<List<Expression>, Map.Entry<List<Expression>, Type>> groupToMessage,
+			Map<Expression, List<Expression>> expToMessage, Worklist updateFromMessage) {
+		List<Expression> messageExps = expToMessage.get(exp);
 		if (messageExps == null) return;
-		Type msgType = null;
-		Map.Entry<List<Expression>, Type> expsAndType = null;
-		for (Channel c : messages.keySet()) {
-			for (int i : messages.get(c).keySet()) {
-				expsAndType = messages.get(c).get(i);
-				if (expsAndType.getKey() == messageExps) {
-					msgType = expsAndType.getValue();
-					break;
-				}
-			}
-			if (msgType != null) break;
-		}
+		Map.Entry<List<Expression>, Type> expsAndType = groupToMessage.get(messageExps);
+		if (expsAndType == null) return;
+		Type msgType = expsAndType.getValue();
 		if (msgType == null) return;
 		Type newMsgType = getExpTypeIfUpdatable(msgType, exp);
 		if (newMsgType != null) {
 			expsAndType.setValue(newMsgType);
-			Map<Integer, Expression> updateExps = getUpdateSet(updateFromMessage, messageExps);
+			UpdateSet updateExps = updateFromMessage.getUpdateSet(messageExps);
 			for (Expression e : messageExps) {
 				if (e != exp) {
 					if (e instanceof Variable) {
 						((Variable) e).setType(newMsgType);
-						updateExps.put(System.identityHashCode(e), e);
+						updateExps.add(e);
 					} else if (e instanceof Term) {
 						((Term) e).setType(newMsgType);
-						updateExps.put(System.identityHashCode(e), e);
+						updateExps.add(e);
 					}
 				}
 			}
 		}
 	}
 
-	private static void updateConsOrSetTypes(Expression exp, Map<Integer, Type> consOrSet,
-			Map<Integer, Set<List<Expression>>> expToConsOrSet, Map<Integer, Map<Integer, Expression>> updateFromConsOrSet) {
-		Set<List<Expression>> consComponentGroups = expToConsOrSet.get(System.identityHashCode(exp));
+	private void updateConsOrSetTypes(Expression exp, Map<List<Expression>, Type> consOrSet,
+			Map<Expression, Set<List<Expression>>> expToConsOrSet, Worklist updateFromConsOrSet) {
+		Set<List<Expression>> consComponentGroups = expToConsOrSet.get(exp);
 		if (consComponentGroups == null) return;
 		for (List<Expression> consOrSetComponentGroup: consComponentGroups) {
 			int idx = consOrSetComponentGroup.indexOf(exp);
@@ -1369,31 +1559,31 @@ public class TypeInference {
 			case 0:
 				// exp is a list itself.
 				if (!(exp instanceof Term)) break;
-				Type listType = consOrSet.get(System.identityHashCode(consOrSetComponentGroup));
+				Type listType = consOrSet.get(consOrSetComponentGroup);
 				Type expType = getExpTypeIfUpdatable(listType, exp);
 				if (expType != null) {
-					consOrSet.put(System.identityHashCode(consOrSetComponentGroup), expType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromConsOrSet, consOrSetComponentGroup);
+					consOrSet.put(consOrSetComponentGroup, expType);
+					UpdateSet updateExps = updateFromConsOrSet.getUpdateSet(consOrSetComponentGroup);
 					if (consOrSetComponentGroup.get(2) instanceof Variable) {
 						((Variable) consOrSetComponentGroup.get(2)).setType(expType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(2)), consOrSetComponentGroup.get(2));
+						updateExps.add(consOrSetComponentGroup.get(2));
 					} else if (consOrSetComponentGroup.get(2) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(2)).setType(expType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(2)), consOrSetComponentGroup.get(2));
+						updateExps.add(consOrSetComponentGroup.get(2));
 					}
 					Type compType = listComponentTypes.get(expType);
 					if (consOrSetComponentGroup.get(1) != null && consOrSetComponentGroup.get(1) instanceof Variable) {
 						((Variable) consOrSetComponentGroup.get(1)).setType(compType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(1)), consOrSetComponentGroup.get(1));
+						updateExps.add(consOrSetComponentGroup.get(1));
 					} else if (consOrSetComponentGroup.get(1) != null && consOrSetComponentGroup.get(1) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(1)).setType(compType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(1)), consOrSetComponentGroup.get(1));
+						updateExps.add(consOrSetComponentGroup.get(1));
 					}
 				}
 				break;
 			case 1:
 				// exp is a list's component.
-				listType = consOrSet.get(System.identityHashCode(consOrSetComponentGroup));
+				listType = consOrSet.get(consOrSetComponentGroup);
 				Type compType = listComponentTypes.get(listType);
 				Type newCompType = getExpTypeIfUpdatable(compType, exp);
 				if (newCompType != null) {
@@ -1402,60 +1592,64 @@ public class TypeInference {
 						// Create new list type.
 						newListType = createNewListType(newCompType, listType);
 					}
-					consOrSet.put(System.identityHashCode(consOrSetComponentGroup), newListType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromConsOrSet, consOrSetComponentGroup);
+					consOrSet.put(consOrSetComponentGroup, newListType);
+					UpdateSet updateExps = updateFromConsOrSet.getUpdateSet(consOrSetComponentGroup);
 					if (consOrSetComponentGroup.get(0) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(0)).setType(newListType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(0)), consOrSetComponentGroup.get(0));
+						updateExps.add(consOrSetComponentGroup.get(0));
+					} else if (consOrSetComponentGroup.get(2) == null && consOrSetComponentGroup.get(0) instanceof Variable) {
+						// The list argument of head or get.
+						((Variable) consOrSetComponentGroup.get(0)).setType(newListType);
+						updateExps.add(consOrSetComponentGroup.get(0));
 					}
 					if (consOrSetComponentGroup.get(2) instanceof Variable) {
 						((Variable) consOrSetComponentGroup.get(2)).setType(newListType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(2)), consOrSetComponentGroup.get(2));
+						updateExps.add(consOrSetComponentGroup.get(2));
 					} else if (consOrSetComponentGroup.get(2) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(2)).setType(newListType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(2)), consOrSetComponentGroup.get(2));
+						updateExps.add(consOrSetComponentGroup.get(2));
 					}
 				}
 				break;
 			case 2:
 				// exp is a list itself.
-				listType = consOrSet.get(System.identityHashCode(consOrSetComponentGroup));
+				listType = consOrSet.get(consOrSetComponentGroup);
 				expType = getExpTypeIfUpdatable(listType, exp);
 				if (expType != null) {
-					consOrSet.put(System.identityHashCode(consOrSetComponentGroup), expType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromConsOrSet, consOrSetComponentGroup);
+					consOrSet.put(consOrSetComponentGroup, expType);
+					UpdateSet updateExps = updateFromConsOrSet.getUpdateSet(consOrSetComponentGroup);
 					if (consOrSetComponentGroup.get(0) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(0)).setType(expType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(0)), consOrSetComponentGroup.get(0));
+						updateExps.add(consOrSetComponentGroup.get(0));
 					}
 					compType = listComponentTypes.get(expType);
 					if (consOrSetComponentGroup.get(1) != null && consOrSetComponentGroup.get(1) instanceof Variable) {
 						((Variable) consOrSetComponentGroup.get(1)).setType(compType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(1)), consOrSetComponentGroup.get(1));
+						updateExps.add(consOrSetComponentGroup.get(1));
 					} else if (consOrSetComponentGroup.get(1) != null && consOrSetComponentGroup.get(1) instanceof Term) {
 						((Term) consOrSetComponentGroup.get(1)).setType(compType);
-						updateExps.put(System.identityHashCode(consOrSetComponentGroup.get(1)), consOrSetComponentGroup.get(1));
+						updateExps.add(consOrSetComponentGroup.get(1));
 					}
 				}
 			}
 		}
 	}
 
-	private static void updateTupleTypes(Expression exp, Map<Integer, Type> tuple,
-			Map<Integer, Set<List<Expression>>> expToTuple, Map<Integer, Map<Integer, Expression>> updateFromTuple) {
-		Set<List<Expression>> tupleComponentGroups = expToTuple.get(System.identityHashCode(exp));
+	private void updateTupleTypes(Expression exp, Map<List<Expression>, Type> tuple,
+			Map<Expression, Set<List<Expression>>> expToTuple, Worklist updateFromTuple) {
+		Set<List<Expression>> tupleComponentGroups = expToTuple.get(exp);
 		if (tupleComponentGroups == null) return;
 		for (List<Expression> tupleComponentGroup: tupleComponentGroups) {
 			int idx = tupleComponentGroup.indexOf(exp);
 			if (idx == 0) {
 				// exp is a tuple itself.
-				Type tupleType = tuple.get(System.identityHashCode(tupleComponentGroup));
+				Type tupleType = tuple.get(tupleComponentGroup);
 				Type newTupleType = getExpTypeIfUpdatable(tupleType, exp);
 				if (newTupleType != null) {
 					// Propagate an update of a tuple's type to its components' types.
-					tuple.put(System.identityHashCode(tupleComponentGroup), newTupleType);
+					tuple.put(tupleComponentGroup, newTupleType);
 					List<Type> componentTypes = tupleComponentTypes.get(newTupleType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromTuple, tupleComponentGroup);
+					UpdateSet updateExps = updateFromTuple.getUpdateSet(tupleComponentGroup);
 					for (int i = 1; i < tupleComponentGroup.size(); i++) {
 						Expression compExp = tupleComponentGroup.get(i);
 						if (compExp instanceof Variable) {
@@ -1469,19 +1663,19 @@ public class TypeInference {
 								}
 								if (compareTypes(compType, newExpType)) {
 									((Variable) compExp).setType(newExpType);
-									updateExps.put(System.identityHashCode(compExp), compExp);
+									updateExps.add(compExp);
 								}
 							} else {
 								if (i - 1 < componentTypes.size()) {
 									if (compareTypes(compType, componentTypes.get(i - 1))) {
 										((Variable) compExp).setType(componentTypes.get(i - 1));
-										updateExps.put(System.identityHashCode(compExp), compExp);
+										updateExps.add(compExp);
 									}									
 								} else {
 									// for insert
 									if (compareTypes(compType, newTupleType)) {
 										((Variable) compExp).setType(newTupleType);
-										updateExps.put(System.identityHashCode(compExp), compExp);
+										updateExps.add(compExp);
 									}									
 								}
 							}
@@ -1496,19 +1690,19 @@ public class TypeInference {
 								}
 								if (compareTypes(compType, newExpType)) {
 									((Term) compExp).setType(newExpType);
-									updateExps.put(System.identityHashCode(compExp), compExp);
+									updateExps.add(compExp);
 								}
 							} else {
 								if (i - 1 < componentTypes.size()) {
 									if (compareTypes(compType, componentTypes.get(i - 1))) {
 										((Term) compExp).setType(componentTypes.get(i - 1));
-										updateExps.put(System.identityHashCode(compExp), compExp);
+										updateExps.add(compExp);
 									}
 								} else {
 									// for insert
 									if (compareTypes(compType, newTupleType)) {
 										((Term) compExp).setType(newTupleType);
-										updateExps.put(System.identityHashCode(compExp), compExp);
+										updateExps.add(compExp);
 									}
 								}
 							}
@@ -1517,7 +1711,7 @@ public class TypeInference {
 				}
 			} else {
 				// exp is a tuple's component.
-				Type tupleType = tuple.get(System.identityHashCode(tupleComponentGroup));
+				Type tupleType = tuple.get(tupleComponentGroup);
 				List<Type> componentTypes = tupleComponentTypes.get(tupleType);
 				boolean updated = false;
 				if (idx == 1) {
@@ -1565,102 +1759,102 @@ public class TypeInference {
 						// Create new tuple type;
 						newTupleType = createNewTupleType(componentTypes, tupleType);
 					}
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromTuple, tupleComponentGroup);
+					UpdateSet updateExps = updateFromTuple.getUpdateSet(tupleComponentGroup);
 					Expression tupleExp = tupleComponentGroup.get(0);
 					if (tupleExp instanceof Variable) {
 						((Variable) tupleExp).setType(newTupleType);
-						updateExps.put(System.identityHashCode(tupleExp), tupleExp);
+						updateExps.add(tupleExp);
 					} else if (tupleExp instanceof Term) {
 						((Term) tupleExp).setType(newTupleType);
-						updateExps.put(System.identityHashCode(tupleExp), tupleExp);
+						updateExps.add(tupleExp);
 					}
-					tuple.put(System.identityHashCode(tupleComponentGroup), newTupleType);
+					tuple.put(tupleComponentGroup, newTupleType);
 				}
 			}
 		}
 	}
 
-	private static void updatePairTypes(Expression exp, Map<Integer, Type> pair,
-			Map<Integer, Set<List<Expression>>> expToPair, Map<Integer, Map<Integer, Expression>> updateFromPair) {
-		Set<List<Expression>> pairComponentGroups = expToPair.get(System.identityHashCode(exp));
+	private void updatePairTypes(Expression exp, Map<List<Expression>, Type> pair,
+			Map<Expression, Set<List<Expression>>> expToPair, Worklist updateFromPair) {
+		Set<List<Expression>> pairComponentGroups = expToPair.get(exp);
 		if (pairComponentGroups == null) return;
 		for (List<Expression> pairComponentGroup: pairComponentGroups) {
 			int idx = pairComponentGroup.indexOf(exp);
 			if (idx == 0) {
 				// exp is a pair itself.
-				Type pairType = pair.get(System.identityHashCode(pairComponentGroup));
+				Type pairType = pair.get(pairComponentGroup);
 				Type newPairType = getExpTypeIfUpdatable(pairType, exp);
 				if (newPairType != null) {
 					// Propagate an update of a pair's type to its components' types.
-					pair.put(System.identityHashCode(pairComponentGroup), newPairType);
+					pair.put(pairComponentGroup, newPairType);
 					Type componentType = pairComponentTypes.get(newPairType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromPair, pairComponentGroup);
+					UpdateSet updateExps = updateFromPair.getUpdateSet(pairComponentGroup);
 					for (int i = 1; i < pairComponentGroup.size(); i++) {
 						Expression compExp = pairComponentGroup.get(i);
 						if (compExp instanceof Variable) {
 							if (compareTypes(((Variable) compExp).getType(), componentType)) {
 								((Variable) compExp).setType(componentType);
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						} else if (compExp instanceof Term) {
 							if (compareTypes(((Term) compExp).getType(), componentType)) {
 								((Term) compExp).setType(componentType);
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						}
 					}
 				}
 			} else {
 				// exp is a pair's component.
-				Type pairType = pair.get(System.identityHashCode(pairComponentGroup));
+				Type pairType = pair.get(pairComponentGroup);
 				Type compType = pairComponentTypes.get(pairType);
 				Type newCompType = getExpTypeIfUpdatable(compType, exp);
 				if (newCompType != null) {
 					// Propagate an update of a component's type to its container's (pair's) type.
 					Type newPairType = pairTypes.get(compType);
 					if (newPairType != null) {
-						Map<Integer, Expression> updateExps = getUpdateSet(updateFromPair, pairComponentGroup);
+						UpdateSet updateExps = updateFromPair.getUpdateSet(pairComponentGroup);
 						Expression pairExp = pairComponentGroup.get(0);
 						if (pairExp instanceof Variable) {
 							((Variable) pairExp).setType(newPairType);
-							updateExps.put(System.identityHashCode(pairExp), pairExp);
+							updateExps.add(pairExp);
 						} else if (pairExp instanceof Term) {
 							((Term) pairExp).setType(newPairType);
-							updateExps.put(System.identityHashCode(pairExp), pairExp);
+							updateExps.add(pairExp);
 						}
-						pair.put(System.identityHashCode(pairComponentGroup), newPairType);
+						pair.put(pairComponentGroup, newPairType);
 					}
 				}
 			}
 		}
 	}
 	
-	private static void updateMapTypes(Expression exp, Map<Integer, Type> map,
-			Map<Integer, Set<List<Expression>>> expToMap, Map<Integer, Map<Integer, Expression>> updateFromMap) {
-		Set<List<Expression>> mapComponentGroups = expToMap.get(System.identityHashCode(exp));
+	private void updateMapTypes(Expression exp, Map<List<Expression>, Type> map,
+			Map<Expression, Set<List<Expression>>> expToMap, Worklist updateFromMap) {
+		Set<List<Expression>> mapComponentGroups = expToMap.get(exp);
 		if (mapComponentGroups == null) return;
 		for (List<Expression> mapComponentGroup: mapComponentGroups) {
 			int idx = mapComponentGroup.indexOf(exp);
 			if (idx == 0 || idx == 3) {
 				// exp is a map itself.
-				Type mapType = map.get(System.identityHashCode(mapComponentGroup));
+				Type mapType = map.get(mapComponentGroup);
 				Type newMapType = getExpTypeIfUpdatable(mapType, exp);
 				if (newMapType != null) {
 					// Propagate an update of a map's type to its components' types.
-					map.put(System.identityHashCode(mapComponentGroup), newMapType);
+					map.put(mapComponentGroup, newMapType);
 					List<Type> componentTypes = mapComponentTypes.get(newMapType);
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromMap, mapComponentGroup);
+					UpdateSet updateExps = updateFromMap.getUpdateSet(mapComponentGroup);
 					for (int i = 1; i < mapComponentGroup.size() && i < 3; i++) {
 						Expression compExp = mapComponentGroup.get(i);
 						if (compExp instanceof Variable) {
 							if (compareTypes(((Variable) compExp).getType(), componentTypes.get(i - 1))) {
 								((Variable) compExp).setType(componentTypes.get(i - 1));
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						} else if (compExp instanceof Term) {
 							if (compareTypes(((Term) compExp).getType(), componentTypes.get(i - 1))) {
 								((Term) compExp).setType(componentTypes.get(i - 1));
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						}
 					}
@@ -1675,19 +1869,19 @@ public class TypeInference {
 						if (compExp instanceof Variable) {
 							if (compareTypes(((Variable) compExp).getType(), newMapType)) {
 								((Variable) compExp).setType(newMapType);
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						} else if (compExp instanceof Term) {
 							if (compareTypes(((Term) compExp).getType(), newMapType)) {
 								((Term) compExp).setType(newMapType);
-								updateExps.put(System.identityHashCode(compExp), compExp);
+								updateExps.add(compExp);
 							}
 						}
 					}
 				}
 			} else {
 				// exp is a map's key or value.
-				Type mapType = map.get(System.identityHashCode(mapComponentGroup));
+				Type mapType = map.get(mapComponentGroup);
 				List<Type> componentTypes = mapComponentTypes.get(mapType);
 				Type compType = componentTypes.get(idx - 1);
 				Type newCompType = getExpTypeIfUpdatable(compType, exp);
@@ -1700,41 +1894,41 @@ public class TypeInference {
 						// Create new map type;
 						newMapType = createNewMapType(componentTypes, mapType);
 					}
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromMap, mapComponentGroup);
+					UpdateSet updateExps = updateFromMap.getUpdateSet(mapComponentGroup);
 					Expression mapExp = mapComponentGroup.get(0);
 					if (mapExp instanceof Variable) {
 						((Variable) mapExp).setType(newMapType);
-						updateExps.put(System.identityHashCode(mapExp), mapExp);
+						updateExps.add(mapExp);
 					} else if (mapExp instanceof Term) {
 						((Term) mapExp).setType(newMapType);
-						updateExps.put(System.identityHashCode(mapExp), mapExp);
+						updateExps.add(mapExp);
 					}
 					if (mapComponentGroup.size() == 4) {	// for insert
 						mapExp = mapComponentGroup.get(3);
 						if (mapExp instanceof Variable) {
 							((Variable) mapExp).setType(newMapType);
-							updateExps.put(System.identityHashCode(mapExp), mapExp);
+							updateExps.add(mapExp);
 						} else if (mapExp instanceof Term) {
 							((Term) mapExp).setType(newMapType);
-							updateExps.put(System.identityHashCode(mapExp), mapExp);
+							updateExps.add(mapExp);
 						}					
 					}
-					map.put(System.identityHashCode(mapComponentGroup), newMapType);
+					map.put(mapComponentGroup, newMapType);
 				}
 			}
 		}
 	}
 	
 	
-	private static void updateJsonTypes(Expression exp, Map<Integer, Type> json,
-			Map<Integer, Set<List<Expression>>> expToJson, Map<Integer, Map<Integer, Expression>> updateFromJson) {
-		Set<List<Expression>> jsonMemberGroups = expToJson.get(System.identityHashCode(exp));
+	private void updateJsonTypes(Expression exp, Map<List<Expression>, Type> json,
+			Map<Expression, Set<List<Expression>>> expToJson, Worklist updateFromJson) {
+		Set<List<Expression>> jsonMemberGroups = expToJson.get(exp);
 		if (jsonMemberGroups == null) return;
 		for (List<Expression> jsonMemberGroup: jsonMemberGroups) {
 			int idx = jsonMemberGroup.indexOf(exp);
 			if (idx == 3) {
 				// exp is a json argument (0:t = addMember(3:json, 1:key, 2:value)).
-				Type jsonType = json.get(System.identityHashCode(jsonMemberGroup));
+				Type jsonType = json.get(jsonMemberGroup);
 				Map<String, Type> memberTypes = new HashMap<>(jsonMemberTypes.get(jsonType));
 				Map<String, Type> argMemberTypes = new HashMap<>(memberTypes);
 				String keyName = null;
@@ -1757,20 +1951,20 @@ public class TypeInference {
 						newJsonType = createNewJsonType(memberTypes, jsonType);
 					}
 					// Update the type of the json term and record the updated expression.
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromJson, jsonMemberGroup);
+					UpdateSet updateExps = updateFromJson.getUpdateSet(jsonMemberGroup);
 					Expression jsonExp = jsonMemberGroup.get(0);
 					if (jsonExp instanceof Variable) {
 						((Variable) jsonExp).setType(newJsonType);
-						updateExps.put(System.identityHashCode(jsonExp), jsonExp);
+						updateExps.add(jsonExp);
 					} else if (jsonExp instanceof Term) {
 						((Term) jsonExp).setType(newJsonType);
-						updateExps.put(System.identityHashCode(jsonExp), jsonExp);
+						updateExps.add(jsonExp);
 					}
-					json.put(System.identityHashCode(jsonMemberGroup), newJsonType);
+					json.put(jsonMemberGroup, newJsonType);
 				}
 			} else if (idx == 2) {
 				// exp is a value (0:t = addMember(3:json, 1:key, 2:value) or 2:value = dot(0:list/map, 1:key)).
-				Type jsonType = json.get(System.identityHashCode(jsonMemberGroup));
+				Type jsonType = json.get(jsonMemberGroup);
 				Type newJsonType = null;
 				if (exp instanceof Term && ((Term) exp).getSymbol().equals(DataConstraintModel.dotParam)) {
 					if (DataConstraintModel.typeList.isAncestorOf(jsonType)) {
@@ -1820,22 +2014,22 @@ public class TypeInference {
 				}
 				if (newJsonType != null) {
 					// Update the type of the json term and record the updated expression.
-					Map<Integer, Expression> updateExps = getUpdateSet(updateFromJson, jsonMemberGroup);
+					UpdateSet updateExps = updateFromJson.getUpdateSet(jsonMemberGroup);
 					Expression jsonExp = jsonMemberGroup.get(0);
 					if (jsonExp instanceof Variable) {
 						((Variable) jsonExp).setType(newJsonType);
-						updateExps.put(System.identityHashCode(jsonExp), jsonExp);
+						updateExps.add(jsonExp);
 					} else if (jsonExp instanceof Term) {
 						((Term) jsonExp).setType(newJsonType);
-						updateExps.put(System.identityHashCode(jsonExp), jsonExp);
+						updateExps.add(jsonExp);
 					}
-					json.put(System.identityHashCode(jsonMemberGroup), newJsonType);
+					json.put(jsonMemberGroup, newJsonType);
 				}
 			}
 		}
 	}
 	
-	private static Type createNewListType(Type compType, Type parentType) {
+	private Type createNewListType(Type compType, Type parentType) {
 		String compTypeName = getInterfaceTypeName(compType);
 		List<Type> childrenTypes = getChildrenTypes(parentType, listComponentTypes.keySet());
 		Type newListType = new Type("List", "ArrayList<>", "List<" + compTypeName + ">", parentType);
@@ -1848,14 +2042,14 @@ public class TypeInference {
 				} else {
 					newListType.addParentType(childType);
 				}
-			} else if (compareTypes(newListType, childType)) {
+			} else if (compareTypes(newListType, childType) && !isBuiltInType(childType)) {
 				childType.replaceParentType(parentType, newListType);
 			}
 		}
 		return newListType;
 	}
 
-	private static Type createNewTupleType(List<Type> componentTypes, Type parentTupleType) {
+	private Type createNewTupleType(List<Type> componentTypes, Type parentTupleType) {
 		String implTypeName = "AbstractMap.SimpleEntry<>";
 		String interfaceTypeName = "Map.Entry<$x>";
 		if (componentTypes.size() >= 2) {
@@ -1883,14 +2077,14 @@ public class TypeInference {
 				} else {
 					newTupleType.addParentType(childType);
 				}
-			} else if (compareTypes(newTupleType, childType)) {
+			} else if (compareTypes(newTupleType, childType) && !isBuiltInType(childType)) {
 				childType.replaceParentType(parentTupleType, newTupleType);
 			}
 		}
 		return newTupleType;
 	}
 
-	private static Type createNewMapType(List<Type> componentTypes, Type parentMapType) {
+	private Type createNewMapType(List<Type> componentTypes, Type parentMapType) {
 		String implTypeName = "HashMap<>";
 		String interfaceTypeName = "Map<$x, $y>";
 		if (componentTypes.size() == 2) {
@@ -1910,14 +2104,14 @@ public class TypeInference {
 				} else {
 					newMapType.addParentType(childType);
 				}
-			} else if (compareTypes(newMapType, childType)) {
+			} else if (compareTypes(newMapType, childType) && !isBuiltInType(childType)) {
 				childType.replaceParentType(parentMapType, newMapType);
 			}
 		}
 		return newMapType;
 	}
 
-	private static JsonType createNewJsonType(Map<String, Type> memberTypes, Type parentJsonType) {
+	private JsonType createNewJsonType(Map<String, Type> memberTypes, Type parentJsonType) {
 		String implTypeName = "HashMap<>";
 		String interfaceTypeName = "Map<String, Object>";
 		List<Type> childrenTypes = getChildrenTypes(parentJsonType, jsonMemberTypes.keySet());
@@ -1934,13 +2128,23 @@ public class TypeInference {
 				} else {
 					newJsonType.addParentType(childType);
 				}
-			} else if (compareTypes(newJsonType, childType)) {
+			} else if (compareTypes(newJsonType, childType) && !isBuiltInType(childType)) {
 				childType.replaceParentType(parentJsonType, newJsonType);
 			}
 		}
 		return newJsonType;
 	}
 
+	/**
+	 * Built-in types are shared by all the inference contexts and must not be modified by any of them.
+	 * @param type a type
+	 * @return true if the type is one of the built-in types
+	 */
+	private static boolean isBuiltInType(Type type) {
+		return builtInListComponentTypes.containsKey(type) || builtInTupleComponentTypes.containsKey(type)
+				|| builtInPairComponentTypes.containsKey(type) || builtInMapComponentTypes.containsKey(type);
+	}
+
 	/**
 	 * Get children types of a given type from given set of types.
 	 * @param parentType a type
@@ -1975,16 +2179,7 @@ public class TypeInference {
 		return type.getInterfaceTypeName();
 	}
 
-	private static <T extends Expression, U extends Collection<T>> Map<Integer, T> getUpdateSet(Map<Integer, Map<Integer, T>> updateSets, U keySet) {
-		Map<Integer, T> updatedExps = updateSets.get(System.identityHashCode(keySet));
-		if (updatedExps == null) {
-			updatedExps = new HashMap<>();
-			updateSets.put(System.identityHashCode(keySet), updatedExps);
-		}
-		return updatedExps;
-	}
-
-	private static Type getExpTypeIfUpdatable(Type originalType, Expression newExp) {
+	private Type getExpTypeIfUpdatable(Type originalType, Expression newExp) {
 		Type expType = null;
 		if (newExp instanceof Term) {
 			expType = ((Term) newExp).getType();
@@ -2005,7 +2200,7 @@ public class TypeInference {
 	 * @return true: if the original type equals to the new type or is an ancestor
 	 *         of the new type, false: otherwise
 	 */
-	private static boolean compareTypes(Type originalType, Type newType) {
+	private boolean compareTypes(Type originalType, Type newType) {
 		if (originalType == null) return true;
 		if (originalType != newType && newType != null) {
 			if (originalType.isAncestorOf(newType)) return true;
@@ -2073,4 +2268,48 @@ public class TypeInference {
 		}
 		return false;
 	}
+
+	/**
+	 * The set of expressions whose types have been updated, compared by identity and iterated in the order they are added.
+	 */
+	private static class UpdateSet implements Iterable<Expression> {
+		private final Set<Expression> members = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final List<Expression> order = new ArrayList<>();
+
+		public void add(Expression exp) {
+			if (members.add(exp)) order.add(exp);
+		}
+
+		@Override
+		public Iterator<Expression> iterator() {
+			return order.iterator();
+		}
+	}
+
+	/**
+	 * The worklist of a propagation, which maps each group (compared by identity) to the set of its updated expressions
+	 * and takes the groups out in the order they are queued.
+	 */
+	private static class Worklist {
+		private final Map<Collection<? extends Expression>, UpdateSet> updateSets = new IdentityHashMap<>();
+		private final Deque<Collection<? extends Expression>> groups = new ArrayDeque<>();
+
+		public UpdateSet getUpdateSet(Collection<? extends Expression> group) {
+			UpdateSet updatedExps = updateSets.get(group);
+			if (updatedExps == null) {
+				updatedExps = new UpdateSet();
+				updateSets.put(group, updatedExps);
+				groups.add(group);
+			}
+			return updatedExps;
+		}
+
+		public boolean isEmpty() {
+			return groups.isEmpty();
+		}
+
+		public UpdateSet poll() {
+			return updateSets.remove(groups.poll());
+		}
+	}
 }
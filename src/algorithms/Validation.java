@@ -7,66 +7,177 @@ import models.dataFlowModel.*;
 
 /**
  * Validation checker for data transfer model
- * 
+ *
  * @author Nitta
  *
  */
 public class Validation {
-	private static int index = 0;
-	private static Deque<Node> stack = new ArrayDeque<>();
-	private static Set<Set<Node>> strong = new HashSet<>();
-	private static Map<Node, Integer> ids = new HashMap<>();
-	private static Map<Node, Integer> lowlink = new HashMap<>();
-	private static Map<Node, Boolean> onStack = new HashMap<>();
+	private Node[] nodes;
+	private int[] edgeStart;			// the out-edges of node v are edgeTarget[edgeStart[v]..edgeStart[v + 1] - 1].
+	private int[] edgeTarget;
+	private Edge[] edges;
 
-	static public boolean checkUpdateConflict(DataTransferModel model) {
-		init();
-		boolean check = true;
-		for (Node node : model.getDataFlowGraph().getNodes()) {
-			if (ids.containsKey(node)) {
-				traverseStronglyConnectedComponents(node);
+	public Validation(DataFlowGraph graph) {
+		nodes = new Node[graph.getNumberOfNodes()];
+		for (int v = 0; v < nodes.length; v++) {
+			nodes[v] = graph.getNode(v);
+		}
+		edgeStart = new int[nodes.length + 1];
+		for (int v = 0; v < nodes.length; v++) {
+			edgeStart[v + 1] = edgeStart[v] + nodes[v].getOutEdges().size();
+		}
+		edgeTarget = new int[edgeStart[nodes.length]];
+		edges = new Edge[edgeStart[nodes.length]];
+		for (int v = 0; v < nodes.length; v++) {
+			int e = edgeStart[v];
+			for (Edge edge: nodes[v].getOutEdges()) {
+				edgeTarget[e] = edge.getDestination().getId();
+				edges[e] = edge;
+				e++;
 			}
 		}
-		return strong.size() == 0 && check;
 	}
 
-	static private void init() {
-		index = 0;
-		stack = new ArrayDeque<>();
-		strong = new HashSet<>();
-		ids = new HashMap<>();
-		lowlink = new HashMap<>();
-		onStack = new HashMap<>();
+	static public boolean checkUpdateConflict(DataTransferModel model) {
+		return findUpdateConflicts(model).size() == 0;
 	}
 
-	static private void traverseStronglyConnectedComponents(Node node) {
-		ids.put(node, index);
-		lowlink.put(node, index);
-		index++;
-		stack.push(node);
-		onStack.put(node, true);
-
-		for (Node n : node.getSuccessors()) {
-			if (lowlink.containsKey(n)) {
-				traverseStronglyConnectedComponents(n);
-				if (lowlink.get(node) > lowlink.get(n)) {
-					lowlink.replace(node, lowlink.get(n));
-				}
-			} else if (onStack.get(n)) {
-				if (lowlink.get(node) > lowlink.get(n)) {
-					lowlink.replace(node, lowlink.get(n));
+	/**
+	 * Find the cycles of data-flows in a model, each of which can cause conflicting updates of the resources on it.
+	 *
+	 * @param model a data transfer model
+	 * @return the conflicting cycles
+	 */
+	static public List<UpdateConflict> findUpdateConflicts(DataTransferModel model) {
+		return new Validation(model.getDataFlowGraph()).findUpdateConflicts();
+	}
+
+	/**
+	 * Find the strongly connected components that contain a cycle by Tarjan's algorithm in O(V + E).
+	 * The depth-first search is done with an explicit stack, so that long chains of resources do not overflow the call stack.
+	 *
+	 * @return the conflicting cycles
+	 */
+	public List<UpdateConflict> findUpdateConflicts() {
+		int n = nodes.length;
+		int[] ids = new int[n];
+		int[] lowlink = new int[n];
+		int[] component = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int[] callStack = new int[n];
+		int[] edgeCursor = new int[n];
+		int index = 0;
+		int sp = 0;
+		Arrays.fill(ids, -1);
+		Arrays.fill(component, -1);
+		List<int[]> components = new ArrayList<>();
+
+		for (int s = 0; s < n; s++) {
+			if (ids[s] >= 0) continue;
+			int csp = 0;
+			ids[s] = lowlink[s] = index++;
+			stack[sp++] = s;
+			onStack[s] = true;
+			edgeCursor[s] = edgeStart[s];
+			callStack[csp++] = s;
+			while (csp > 0) {
+				int v = callStack[csp - 1];
+				if (edgeCursor[v] < edgeStart[v + 1]) {
+					int w = edgeTarget[edgeCursor[v]++];
+					if (ids[w] < 0) {
+						// Visit w.
+						ids[w] = lowlink[w] = index++;
+						stack[sp++] = w;
+						onStack[w] = true;
+						edgeCursor[w] = edgeStart[w];
+						callStack[csp++] = w;
+					} else if (onStack[w] && ids[w] < lowlink[v]) {
+						lowlink[v] = ids[w];
+					}
+				} else {
+					// Return from v.
+					csp--;
+					if (lowlink[v] == ids[v]) {
+						int top = sp;
+						do {
+							sp--;
+							onStack[stack[sp]] = false;
+							component[stack[sp]] = components.size();
+						} while (stack[sp] != v);
+						components.add(Arrays.copyOfRange(stack, sp, top));
+					}
+					if (csp > 0) {
+						int u = callStack[csp - 1];
+						if (lowlink[v] < lowlink[u]) lowlink[u] = lowlink[v];
+					}
 				}
 			}
 		}
-		if (lowlink.get(node) == ids.get(node)) {
-			Set<Node> tmp = new HashSet<>();
-			Node w;
-			do {
-				w = stack.pop();
-				onStack.replace(node, false);
-				tmp.add(w);
-			} while (node != w);
-			strong.add(tmp);
+
+		// A component is a cycle if it has more than one node or a self-loop.
+		List<List<Edge>> cycleEdges = new ArrayList<>();
+		for (int c = 0; c < components.size(); c++) {
+			cycleEdges.add(null);
+		}
+		for (int v = 0; v < n; v++) {
+			for (int e = edgeStart[v]; e < edgeStart[v + 1]; e++) {
+				int c = component[v];
+				if (component[edgeTarget[e]] != c) continue;
+				if (cycleEdges.get(c) == null) cycleEdges.set(c, new ArrayList<>());
+				cycleEdges.get(c).add(edges[e]);
+			}
+		}
+		List<UpdateConflict> conflicts = new ArrayList<>();
+		for (int c = 0; c < components.size(); c++) {
+			if (cycleEdges.get(c) == null) continue;
+			List<Node> cycleNodes = new ArrayList<>();
+			for (int v: components.get(c)) {
+				cycleNodes.add(nodes[v]);
+			}
+			conflicts.add(new UpdateConflict(cycleNodes, cycleEdges.get(c)));
+		}
+		return conflicts;
+	}
+
+	/**
+	 * A cycle of data-flows that consists of resources and the channels between them.
+	 */
+	public static class UpdateConflict {
+		private List<Node> nodes;
+		private List<Edge> edges;
+
+		public UpdateConflict(List<Node> nodes, List<Edge> edges) {
+			this.nodes = nodes;
+			this.edges = edges;
+		}
+
+		public List<Node> getNodes() {
+			return nodes;
+		}
+
+		public List<Edge> getEdges() {
+			return edges;
+		}
+
+		public Set<String> getResourceNames() {
+			Set<String> resourceNames = new TreeSet<>();
+			for (Node node: nodes) {
+				resourceNames.add(node.toString());
+			}
+			return resourceNames;
+		}
+
+		public Set<String> getChannelNames() {
+			Set<String> channelNames = new TreeSet<>();
+			for (Edge edge: edges) {
+				channelNames.add(edge.toString());
+			}
+			return channelNames;
+		}
+
+		public String toString() {
+			return "resources: " + getResourceNames() + ", channels: " + getChannelNames();
 		}
 	}
 }
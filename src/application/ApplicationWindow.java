@@ -9,6 +9,7 @@ import com.mxgraph.view.mxGraph;
 
 import application.editor.Editor;
 import application.views.NavigationWindow;
+import application.views.VirtualizedGraphComponent;
 import application.views.controlFlowDelegation.FlowLayerWindow;
 
 /**
@@ -45,7 +46,7 @@ public class ApplicationWindow extends JFrame {
 			}
 		};
 		
-		this.graphComponent = new mxGraphComponent(graph);
+		this.graphComponent = new VirtualizedGraphComponent(graph);
 		
 		this.editor = new Editor(graphComponent);
 
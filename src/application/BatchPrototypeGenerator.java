@@ -0,0 +1,278 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGenerator;
+import generators.CodeGeneratorFromControlFlowGraph;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.controlFlowModel.ControlFlowGraph;
+import models.dataConstraintModel.ResourcePath;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.IFlowGraph;
+import models.dataFlowModel.ModelExtension;
+import parser.Parser;
+import parser.ParserDTRAM;
+import parser.exceptions.ParseException;
+
+/**
+ * Headless entry point to generate plain Java prototypes for all the models in a directory.
+ *
+ * Usage: BatchPrototypeGenerator <model dir> <output dir> [-threads N] [-cfg] [-memoize]
+ *
+ * Each model is parsed, analyzed and generated on a worker pool, and the generated files are written
+ * to <output dir>/<model name>/.
+ *
+ */
+public class BatchPrototypeGenerator {
+	private static final String MODEL_EXTENSION = ".model";
+	private static final String DTRAM_EXTENSION = ".dtram";
+
+	private File outputDir = null;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private boolean useControlFlowGraph = false;
+	private boolean memoizingPullAccessors = false;
+
+	public BatchPrototypeGenerator(File outputDir) {
+		this.outputDir = outputDir;
+	}
+
+	public void setNumberOfThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public void setUseControlFlowGraph(boolean useControlFlowGraph) {
+		this.useControlFlowGraph = useControlFlowGraph;
+	}
+
+	/**
+	 * Set whether the getters of the resources whose states are derived by PULL-style transfer memoize the states
+	 * (only for the generation from data-flow graphs).
+	 */
+	public void setMemoizingPullAccessors(boolean memoizingPullAccessors) {
+		this.memoizingPullAccessors = memoizingPullAccessors;
+	}
+
+	/**
+	 * Generate prototypes for all the model files in a given directory.
+	 *
+	 * @param modelDir directory containing .model and .dtram files
+	 * @return the result of each model in the order of the file names
+	 */
+	public List<Result> generateAll(File modelDir) throws InterruptedException {
+		File[] files = modelDir.listFiles((dir, name) -> name.endsWith(MODEL_EXTENSION) || name.endsWith(DTRAM_EXTENSION));
+		if (files == null) return new ArrayList<>();
+		Arrays.sort(files);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (File file: files) {
+				futures.add(executor.submit(() -> generate(file)));
+			}
+			List<Result> results = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					// The generation of the model has failed with an error that was not caught by generate().
+					Result result = new Result(files[i]);
+					result.error = e.getCause();
+					results.add(result);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Parse, analyze and generate a prototype for a single model file.
+	 *
+	 * @param file a .model or .dtram file
+	 * @return the result of the generation
+	 */
+	public Result generate(File file) {
+		Result result = new Result(file);
+		long start = System.nanoTime();
+		try {
+			// Parse.
+			DataTransferModel model;
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				if (file.getName().endsWith(DTRAM_EXTENSION)) {
+					model = new ParserDTRAM(reader).doParseModel();
+				} else {
+					model = new Parser(reader).doParse();
+				}
+			}
+			long parsed = System.nanoTime();
+			result.parseTime = parsed - start;
+
+			// Analyze.
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+			long analyzed = System.nanoTime();
+			result.analysisTime = analyzed - parsed;
+
+			// Infer types and generate codes.
+			ModelExtension.extendModel(model);
+			TypeInference.update(model);
+			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+			CodeGenerator generator;
+			IFlowGraph flowGraph;
+			if (useControlFlowGraph) {
+				generator = new CodeGeneratorFromControlFlowGraph();
+				flowGraph = new ControlFlowGraph(graph, model);
+			} else {
+				CodeGeneratorFromDataFlowGraph dataFlowGenerator = new CodeGeneratorFromDataFlowGraph();
+				dataFlowGenerator.setMemoizingPullAccessors(memoizingPullAccessors);
+				generator = dataFlowGenerator;
+				flowGraph = graph;
+			}
+			generator.setMainTypeName(getMainTypeName(file, model));		// null to use the default main type's name.
+			ArrayList<CompilationUnit> codes = generator.generateCode(model, flowGraph, new JavaSpecific());
+			ModelExtension.recoverModel(model);
+			long generated = System.nanoTime();
+			result.generationTime = generated - analyzed;
+
+			// Write.
+			File dir = new File(outputDir, getModelName(file));
+			dir.mkdirs();
+			for (CompilationUnit cu: codes) {
+				save(dir, cu);
+			}
+			result.numberOfFiles = codes.size();
+			result.writeTime = System.nanoTime() - generated;
+		} catch (ParseException | IOException | RuntimeException e) {
+			result.error = e;
+		}
+		result.totalTime = System.nanoTime() - start;
+		return result;
+	}
+
+	private static String getMainTypeName(File file, DataTransferModel model) {
+		String mainTypeName = getModelName(file);
+		for (ResourcePath id: model.getResourcePaths()) {
+			String resourceName = id.getResourceName().substring(0, 1).toUpperCase() + id.getResourceName().substring(1);
+			if (mainTypeName.equals(resourceName)) {
+				return null;
+			}
+		}
+		return mainTypeName;
+	}
+
+	private static String getModelName(File file) {
+		return file.getName().split("\\.")[0];
+	}
+
+	private static void save(File dir, CompilationUnit cu) throws IOException {
+		File javaFile = new File(dir, cu.getFileName());
+		CodeEmitter.emitIfChanged(cu, javaFile);
+	}
+
+	/**
+	 * Wall time of each stage of the generation for a single model (in nanoseconds).
+	 */
+	public static class Result {
+		private File file;
+		private long parseTime = 0;
+		private long analysisTime = 0;
+		private long generationTime = 0;
+		private long writeTime = 0;
+		private long totalTime = 0;
+		private int numberOfFiles = 0;
+		private Throwable error = null;
+
+		public Result(File file) {
+			this.file = file;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public long getParseTime() {
+			return parseTime;
+		}
+
+		public long getAnalysisTime() {
+			return analysisTime;
+		}
+
+		public long getGenerationTime() {
+			return generationTime;
+		}
+
+		public long getWriteTime() {
+			return writeTime;
+		}
+
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		public int getNumberOfFiles() {
+			return numberOfFiles;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public String toString() {
+			if (error != null) {
+				return String.format("%-40s FAILED (%s)", file.getName(), error);
+			}
+			return String.format("%-40s %4d files  parse %8.2fms  analyze %8.2fms  generate %8.2fms  write %8.2fms  total %8.2fms",
+					file.getName(), numberOfFiles, toMillis(parseTime), toMillis(analysisTime), toMillis(generationTime), toMillis(writeTime), toMillis(totalTime));
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: BatchPrototypeGenerator <model dir> <output dir> [-threads N] [-cfg] [-memoize]");
+			System.exit(1);
+		}
+		BatchPrototypeGenerator generator = new BatchPrototypeGenerator(new File(args[1]));
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				generator.setNumberOfThreads(Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-cfg")) {
+				generator.setUseControlFlowGraph(true);
+			} else if (args[i].equals("-memoize")) {
+				generator.setMemoizingPullAccessors(true);
+			}
+		}
+		long start = System.nanoTime();
+		List<Result> results = generator.generateAll(new File(args[0]));
+		long elapsed = System.nanoTime() - start;
+		int failed = 0;
+		for (Result result: results) {
+			System.out.println(result);
+			if (result.getError() != null) failed++;
+		}
+		System.out.println(String.format("%d models (%d failed) in %.2fms: %.2f models/s",
+				results.size(), failed, toMillis(elapsed), results.size() / (elapsed / 1000000000.0)));
+		if (failed > 0) System.exit(1);
+	}
+}
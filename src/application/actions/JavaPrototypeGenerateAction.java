@@ -2,29 +2,27 @@ package application.actions;
 
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import javax.swing.JFileChooser;
+import javax.swing.SwingWorker;
 
-import algorithms.*;
 import application.editor.Editor;
+import application.views.WorkerProgressMonitor;
 import code.ast.*;
 import generators.CodeGenerator;
 import generators.CodeGeneratorFromControlFlowGraph;
 import generators.CodeGeneratorFromDataFlowGraph;
-import generators.DataTransferMethodAnalyzer;
+import generators.CompilationUnitCache;
 import generators.JavaCodeGenerator;
 import generators.JavaMethodBodyGenerator;
 import generators.JavaSpecific;
 import models.controlFlowModel.ControlFlowGraph;
 import models.dataConstraintModel.ResourcePath;
 import models.dataFlowModel.DataTransferModel;
-import models.dataFlowModel.ModelExtension;
-import models.dataFlowModel.DataFlowGraph;
 
 public class JavaPrototypeGenerateAction extends AbstractEditorAction {
 	/**
@@ -33,6 +31,8 @@ public class JavaPrototypeGenerateAction extends AbstractEditorAction {
 	private static final long serialVersionUID = -3694103632055735068L;
 
 	private String lastDir = null;
+	private DataTransferModel lastModel = null;
+	private CompilationUnitCache cache = new CompilationUnitCache();
 
 	public JavaPrototypeGenerateAction(Editor editor) {
 		super("Generate Plain Java Prototype", editor);
@@ -40,39 +40,40 @@ public class JavaPrototypeGenerateAction extends AbstractEditorAction {
 
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		DataFlowGraph dataFlowgraph = editor.getDataFlowGraph();
-		if (dataFlowgraph == null) {
-			editor.changeStage(Editor.STAGE_PUSH_PULL_SELECTION);			
-			dataFlowgraph = editor.getDataFlowGraph();
-		}
-		if (dataFlowgraph != null) {
-			DataTransferModel model = editor.getModel();
-			ModelExtension.extendModel(model);
-			TypeInference.infer(model);
-			DataTransferMethodAnalyzer.decideToStoreResourceStates(dataFlowgraph);
-			String fileName = editor.getCurFileName();
-			if (fileName == null) fileName = "Main";
-			String mainTypeName = fileName.split("\\.")[0];
-			boolean exist = false;
-			for (ResourcePath id: model.getResourcePaths()) {
-				String resourceName = id.getResourceName().substring(0, 1).toUpperCase() + id.getResourceName().substring(1);
-				if (mainTypeName.equals(resourceName)) {
-					exist = true;
-				}
+		DataTransferModel model = editor.getModel();
+		String fileName = editor.getCurFileName();
+		if (fileName == null) fileName = "Main";
+		String mainTypeName = fileName.split("\\.")[0];		// use model's file name as the main type's name.
+		for (ResourcePath id: model.getResourcePaths()) {
+			String resourceName = id.getResourceName().substring(0, 1).toUpperCase() + id.getResourceName().substring(1);
+			if (mainTypeName.equals(resourceName)) {
+				mainTypeName = null;					// use the default main type's name.
+				break;
 			}
-			if (!exist) {
-				CodeGenerator.setMainTypeName(mainTypeName);	// use model's file name as the main type's name.
-			} else {
-				CodeGenerator.resetMainTypeName();			// use the default main type's name.
-			}
-			ControlFlowGraph controlFlowGraph = editor.getControlFlowGraph();
+		}
+		String typeName = mainTypeName;
+		ControlFlowGraph controlFlowGraph = editor.getControlFlowGraph();
+		if (model != lastModel) {
+			cache = new CompilationUnitCache();		// the units of another model are not reused.
+			lastModel = model;
+		}
+		CompilationUnitCache unitCache = cache;
+
+		// Infer the types and generate the codes in the background, so that the window keeps responding.
+		SwingWorker<ArrayList<CompilationUnit>, Void> worker = editor.generateInBackground((extendedModel, dataFlowGraph) -> {
 			if (controlFlowGraph != null) {
-				editor.setCodes(new CodeGeneratorFromControlFlowGraph().generateCode(model, controlFlowGraph, new JavaSpecific()));
-			} else {
-				editor.setCodes(new CodeGeneratorFromDataFlowGraph().generateCode(model, dataFlowgraph, new JavaSpecific()));
+				CodeGeneratorFromControlFlowGraph generator = new CodeGeneratorFromControlFlowGraph();
+				generator.setMainTypeName(typeName);
+				return generator.generateCode(extendedModel, controlFlowGraph, new JavaSpecific());
 			}
-			ModelExtension.recoverModel(model);
-			for (CompilationUnit file : editor.getCodes()) {
+			CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+			generator.setMainTypeName(typeName);
+			generator.setCache(unitCache);		// only the components whose inputs have been changed are generated.
+			return generator.generateCode(extendedModel, dataFlowGraph, new JavaSpecific());
+		});
+		if (worker == null) return;		// the model is not valid.
+		WorkerProgressMonitor.execute(editor.getGraphComponent(), "Generating the plain Java prototype", worker, codes -> {
+			for (CompilationUnit file : codes) {
 				System.out.println(file);
 			}
 			
@@ -82,19 +83,17 @@ public class JavaPrototypeGenerateAction extends AbstractEditorAction {
 			int rc = fc.showSaveDialog(null);
 			if (rc == JFileChooser.APPROVE_OPTION) {
 				lastDir = fc.getSelectedFile().getPath();
-				for (CompilationUnit cu : editor.getCodes()) {
+				for (CompilationUnit cu : codes) {
 					save(fc.getSelectedFile(), cu);
 				}
 			}
-		}
+		});
 	}
 
 	private void save(File dir, CompilationUnit cu) {
 		File javaFile = new File(dir.getPath(), cu.getFileName());
 		try {
-			BufferedWriter writer = new BufferedWriter(new FileWriter(javaFile));
-			writer.write(cu.toString());
-			writer.close();
+			CodeEmitter.emitIfChanged(cu, javaFile);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
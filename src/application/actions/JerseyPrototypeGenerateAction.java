@@ -2,25 +2,22 @@ package application.actions;
 
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import javax.swing.JFileChooser;
+import javax.swing.SwingWorker;
 
-import algorithms.*;
 import application.editor.Editor;
+import application.views.WorkerProgressMonitor;
 import code.ast.*;
-import generators.DataTransferMethodAnalyzer;
 import generators.JerseyCodeGenerator;
 import generators.JerseyMethodBodyGenerator;
 import models.algebra.Type;
 import models.dataConstraintModel.ResourcePath;
 import models.dataFlowModel.DataTransferModel;
-import models.dataFlowModel.ModelExtension;
-import models.dataFlowModel.DataFlowGraph;
 
 public class JerseyPrototypeGenerateAction extends AbstractEditorAction {
 	/**
@@ -36,34 +33,29 @@ public class JerseyPrototypeGenerateAction extends AbstractEditorAction {
 
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		DataFlowGraph graph = editor.getDataFlowGraph();
-		if (graph == null) {
-			editor.changeStage(Editor.STAGE_PUSH_PULL_SELECTION);
-			graph = editor.getDataFlowGraph();			
-		}
-		if (graph != null) {
-			DataTransferModel model = editor.getModel();
-			ModelExtension.extendModel(model);
-			TypeInference.infer(model);
-			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
-			String fileName = editor.getCurFileName();
-			if (fileName == null) fileName = "Main";
-			String mainTypeName = fileName.split("\\.")[0];
-			boolean exist = false;
-			for (ResourcePath id: model.getResourcePaths()) {
-				String resourceName = id.getResourceName().substring(0, 1).toUpperCase() + id.getResourceName().substring(1);
-				if (mainTypeName.equals(resourceName)) {
-					exist = true;
-				}
+		DataTransferModel model = editor.getModel();
+		String fileName = editor.getCurFileName();
+		if (fileName == null) fileName = "Main";
+		String mainTypeName = fileName.split("\\.")[0];
+		boolean exist = false;
+		for (ResourcePath id: model.getResourcePaths()) {
+			String resourceName = id.getResourceName().substring(0, 1).toUpperCase() + id.getResourceName().substring(1);
+			if (mainTypeName.equals(resourceName)) {
+				exist = true;
 			}
-			if (!exist) {
-				JerseyCodeGenerator.setMainTypeName(mainTypeName);	// use model's file name as the main type's name.
-			} else {
-				JerseyCodeGenerator.resetMainTypeName();			// use the default main type's name.
-			}
-			editor.setCodes(JerseyMethodBodyGenerator.doGenerate(graph, model, JerseyCodeGenerator.doGenerate(graph, model)));
-			ModelExtension.recoverModel(model);
-			for (CompilationUnit file : editor.getCodes()) {
+		}
+		if (!exist) {
+			JerseyCodeGenerator.setMainTypeName(mainTypeName);	// use model's file name as the main type's name.
+		} else {
+			JerseyCodeGenerator.resetMainTypeName();			// use the default main type's name.
+		}
+
+		// Infer the types and generate the codes in the background, so that the window keeps responding.
+		SwingWorker<ArrayList<CompilationUnit>, Void> worker = editor.generateInBackground((extendedModel, graph) ->
+				JerseyMethodBodyGenerator.doGenerate(graph, extendedModel, JerseyCodeGenerator.doGenerate(graph, extendedModel)));
+		if (worker == null) return;		// the model is not valid.
+		WorkerProgressMonitor.execute(editor.getGraphComponent(), "Generating the JAX-RS prototype", worker, codes -> {
+			for (CompilationUnit file : codes) {
 				System.out.println(file);
 			}
 			
@@ -73,19 +65,17 @@ public class JerseyPrototypeGenerateAction extends AbstractEditorAction {
 			int rc = fc.showSaveDialog(null);
 			if (rc == JFileChooser.APPROVE_OPTION) {
 				lastDir = fc.getSelectedFile().getPath();
-				for (CompilationUnit cu : editor.getCodes()) {
+				for (CompilationUnit cu : codes) {
 					save(fc.getSelectedFile(), cu);
 				}
 			}
-		}
+		});
 	}
 
 	private void save(File dir, CompilationUnit cu) {
 		File javaFile = new File(dir.getPath(), cu.getFileName());
 		try {
-			BufferedWriter writer = new BufferedWriter(new FileWriter(javaFile));
-			writer.write(cu.toString());
-			writer.close();
+			CodeEmitter.emitIfChanged(cu, javaFile);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -9,6 +9,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import application.ApplicationWindow;
 import application.editor.Editor;
+import application.views.WorkerProgressMonitor;
 
 public class OpenAction extends AbstractSystemAction {
 	/**
@@ -53,8 +54,15 @@ public class OpenAction extends AbstractSystemAction {
 			int rc = fc.showDialog(null, "Open Model File");
 			if (rc == JFileChooser.APPROVE_OPTION) {
 				lastDir = fc.getSelectedFile().getParent();
-				editor.open(fc.getSelectedFile());
-				frame.setTitle(frame.title + " - " + fc.getSelectedFile().getAbsolutePath());
+				File file = fc.getSelectedFile();
+
+				// Parse and analyze the file in the background, so that the window keeps responding and the opening can be cancelled.
+				WorkerProgressMonitor.execute(frame, "Opening " + file.getName(), editor.openInBackground(file), openedModel -> {
+					// The editor has been updated unless the model could not be shown.
+					if (file.getAbsolutePath().equals(editor.getCurFilePath())) {
+						frame.setTitle(frame.title + " - " + file.getAbsolutePath());
+					}
+				});
 			}
 		}
 	}
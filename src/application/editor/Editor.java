@@ -3,12 +3,20 @@ package application.editor;
 import java.awt.event.MouseListener;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import com.mxgraph.layout.mxCircleLayout;
 import com.mxgraph.layout.mxCompactTreeLayout;
@@ -20,11 +28,13 @@ import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
 import com.mxgraph.view.mxGraphView;
 
+import algorithms.TypeInference;
 import application.editor.stages.ControlFlowDelegationStage;
 import application.editor.stages.DataFlowModelingStage;
 import application.editor.stages.PushPullSelectionStage;
 import application.layouts.*;
 import code.ast.CompilationUnit;
+import generators.DataTransferMethodAnalyzer;
 import models.EdgeAttribute;
 import models.controlFlowModel.ControlFlowGraph;
 import models.dataConstraintModel.Channel;
@@ -32,27 +42,11 @@ import models.dataConstraintModel.ResourcePath;
 import models.dataFlowModel.DataTransferModel;
 import models.dataFlowModel.DataTransferChannel;
 import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.ModelExtension;
 import models.visualModel.FormulaChannel;
 import parser.Parser;
-import parser.exceptions.ExpectedAssignment;
-import parser.exceptions.ExpectedChannel;
-import parser.exceptions.ExpectedChannelName;
-import parser.exceptions.ExpectedColon;
-import parser.exceptions.ExpectedEquals;
-import parser.exceptions.ExpectedFormulaChannel;
-import parser.exceptions.ExpectedGeometry;
-import parser.exceptions.ExpectedInOrOutOrRefKeyword;
-import parser.exceptions.ExpectedIoChannel;
-import parser.exceptions.ExpectedLeftCurlyBracket;
-import parser.exceptions.ExpectedModel;
-import parser.exceptions.ExpectedNode;
-import parser.exceptions.ExpectedRHSExpression;
-import parser.exceptions.ExpectedResource;
-import parser.exceptions.ExpectedRightBracket;
-import parser.exceptions.ExpectedStateTransition;
-import parser.exceptions.WrongJsonExpression;
-import parser.exceptions.WrongLHSExpression;
-import parser.exceptions.WrongRHSExpression;
+import parser.exceptions.ParseException;
+import parser.ModelCache;
 import parser.ParserDTRAM;
 
 /**
@@ -75,11 +69,15 @@ public class Editor {
 	protected String curFileName = null;
 	protected String curFilePath = null;
 	protected ArrayList<CompilationUnit> codes = null;
+	private final AtomicBoolean isModelInUse = new AtomicBoolean(false);		// true while a worker uses the model in the background.
 	
 	public static DataFlowModelingStage STAGE_DATA_FLOW_MODELING = null;
 	public static PushPullSelectionStage STAGE_PUSH_PULL_SELECTION = null;
 	public static ControlFlowDelegationStage STAGE_CONTROL_FLOW_DELEGATION = null;
 
+	public static final String PHASE = "phase";		// the property of an open worker that describes what it is doing.
+	private static final int MAX_REPORTED_ERRORS = 20;		// the maximum number of the errors of a file shown at once.
+
 	public Editor(mxGraphComponent graphComponent) {
 		this.graphComponent = graphComponent;
 		this.graph = graphComponent.getGraph();
@@ -215,90 +213,50 @@ public class Editor {
 	}
 
 	/**
-	 * Open a given file, parse the file, construct a DataFlowModel and a mxGraph
+	 * Open a given file in the background. The file is parsed and the data transfer model is analyzed by a worker thread,
+	 * and then the mxGraph is constructed and its geometry is restored on the event dispatch thread in one update of the graph model.
+	 * The progress of the worker is notified by its "progress" property and what it is doing by its {@link #PHASE} property.
+	 * 
 	 * @param file given file
-	 * @return a constructed DataFlowModel
+	 * @return a worker to be executed, which can be cancelled until the mxGraph is updated
 	 */
-	public DataTransferModel open(File file) {
-		// Force to change to the data-flow modeling stage.
-		boolean stageChanged = changeStage(STAGE_DATA_FLOW_MODELING);
-		if (!stageChanged) return null;
-		
-		try {
-			String extension ="";
-			if(file != null && file.exists()) {
-				// get file's name
-				String name = file.getName();
-
-				// get file's extension
-				extension = name.substring(name.lastIndexOf("."));
-			}
-			if(extension.contains(".model")) {
-				openModel(file);
-			} else {
-				// Parse the .dtram file.
-				ParserDTRAM parserDTRAM = new ParserDTRAM(new BufferedReader(new FileReader(file)));
-				try {
-					model = parserDTRAM.doParseModel();
-					if (curStage instanceof DataFlowModelingStage) {
-						// Update the mxGraph.
-						((DataFlowModelingStage) curStage).setModel(model);
-					}
-					// Restore the geometry.
-					parserDTRAM.doParseGeometry(graph);
-					
-					// Change to the push/pull selection stage, analyze the data transfer model and construct a data-flow graph.
-					changeStage(STAGE_PUSH_PULL_SELECTION);
-					
-					curFilePath = file.getAbsolutePath();
-					curFileName = file.getName();
-					return model;
-				} catch (ExpectedChannel | ExpectedChannelName | ExpectedLeftCurlyBracket | ExpectedInOrOutOrRefKeyword
-						| ExpectedStateTransition | ExpectedEquals | ExpectedRHSExpression | WrongLHSExpression
-						| WrongRHSExpression | ExpectedRightBracket | ExpectedAssignment | ExpectedModel | ExpectedGeometry | ExpectedNode | ExpectedResource | ExpectedFormulaChannel | ExpectedIoChannel | WrongJsonExpression | ExpectedColon e) {
-					e.printStackTrace();
-				}
-			}
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		}
+	public SwingWorker<DataTransferModel, Void> openInBackground(File file) {
+		return new OpenWorker(file);
+	}
 
-		return null;
+	/**
+	 * Analyze the data transfer model in the background and then change to the push/pull selection stage.
+	 * The progress of the worker is notified in the same way as {@link #openInBackground(File)}.
+	 * 
+	 * @return a worker to be executed, or null if the stage cannot be changed from the current stage to the push/pull selection stage
+	 */
+	public SwingWorker<DataFlowGraph, Void> analyzeInBackground() {
+		if (!(curStage instanceof DataFlowModelingStage) || !canChange(STAGE_PUSH_PULL_SELECTION)) return null;
+		return new AnalyzeWorker(getModel());
 	}
 
-	public DataTransferModel openModel(File file) {
-		// Force to change to data-flow modeling stage.
-		boolean stageChanged = changeStage(STAGE_DATA_FLOW_MODELING);
+	/**
+	 * Generate the codes of a prototype in the background. The data transfer model is analyzed first if it has not been yet,
+	 * and the types and the resource states to be stored are decided on the extended model before the codes are generated.
+	 * The generated codes are set to the editor when the worker is done.
+	 * 
+	 * @param generator generates the codes from the extended model and its data-flow graph in the background
+	 * @return a worker to be executed, or null if the data transfer model cannot be analyzed
+	 */
+	public SwingWorker<ArrayList<CompilationUnit>, Void> generateInBackground(BiFunction<DataTransferModel, DataFlowGraph, ArrayList<CompilationUnit>> generator) {
+		DataFlowGraph dataFlowGraph = getDataFlowGraph();
+		if (dataFlowGraph == null && (!(curStage instanceof DataFlowModelingStage) || !canChange(STAGE_PUSH_PULL_SELECTION))) return null;
+		return new GenerateWorker(getModel(), dataFlowGraph, generator);
+	}
 
-		if (!stageChanged) return null;
-		
-		try {
-			// Parse the .model file.
-			Parser parser = new Parser(new BufferedReader(new FileReader(file)));
-			try {	
-				model = parser.doParse();
-				if (curStage instanceof DataFlowModelingStage) {
-					// Update the mxGraph.
-					((DataFlowModelingStage) curStage).setModel(model);
-				}
-				// Set DAG layout.
-				setDAGLayout();
-				
-				// Change to the push/pull selection stage, analyze the data transfer model and construct a data-flow graph.
-				changeStage(STAGE_PUSH_PULL_SELECTION);
-				
-				curFilePath = file.getAbsolutePath();
-				curFileName = file.getName();
-				return model;
-			} catch (ExpectedChannel | ExpectedChannelName | ExpectedLeftCurlyBracket | ExpectedInOrOutOrRefKeyword
-					| ExpectedStateTransition | ExpectedEquals | ExpectedRHSExpression | WrongLHSExpression
-					| WrongRHSExpression | ExpectedRightBracket | ExpectedAssignment | WrongJsonExpression | ExpectedColon e) {
-				e.printStackTrace();
-			}
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * Change to the push/pull selection stage with a data-flow graph analyzed in the background, 
+	 * unless the data-flow modeling stage has been given another model in the meantime.
+	 */
+	private void changeToPushPullSelectionStage(DataTransferModel model, DataFlowGraph dataFlowGraph) {
+		if (!(curStage instanceof DataFlowModelingStage) || curStage.getModel() != model) return;
+		STAGE_PUSH_PULL_SELECTION.setAnalyzedDataFlowGraph(model, dataFlowGraph);
+		changeStage(STAGE_PUSH_PULL_SELECTION);
 	}
 
 	/*************************************************************
@@ -505,6 +463,244 @@ public class Editor {
 		((DataFlowModelingStage) curStage).delete();
 	}
 
+	/**--------------------------------------------------------------------------------
+	 * [inner class]
+	 * "OpenWorker" parses a file and analyzes its model in the background, and then updates the editor on the event dispatch thread.
+	 */
+	private class OpenWorker extends SwingWorker<DataTransferModel, Void> {
+		private File file;
+		private ParserDTRAM parserDTRAM = null;
+		private DataFlowGraph dataFlowGraph = null;
+		private Map<Integer, List<mxCell>> cells = null;
+		private List<ParseException> errors = null;
+
+		public OpenWorker(File file) {
+			this.file = file;
+		}
+
+		@Override
+		protected DataTransferModel doInBackground() throws IOException, ParseException {
+			firePropertyChange(PHASE, null, "Parsing " + file.getName());
+			ModelCache cache = new ModelCache(file);
+			DataTransferModel model = cache.load();
+			if (!file.getName().endsWith(".model")) {
+				// The geometry section of the .dtram file is parsed in the background while the model is parsed.
+				parserDTRAM = new ParserDTRAM(file);
+			}
+			if (isCancelled()) return null;
+			if (model == null) {
+				// Continue the parsing after errors, so that all the errors of the file are reported at once.
+				if (parserDTRAM != null) {
+					parserDTRAM.setErrorRecovery(true);
+					model = parserDTRAM.doParseModel();
+					errors = parserDTRAM.getErrors();
+				} else {
+					try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+						Parser parser = new Parser(reader);
+						parser.setErrorRecovery(true);
+						model = parser.doParse();
+						errors = parser.getErrors();
+					}
+				}
+				if (!errors.isEmpty()) return null;
+				cache.store(model);
+			}
+			setProgress(50);
+			if (isCancelled()) return null;
+
+			// Analyze the data transfer model for the push/pull selection stage.
+			firePropertyChange(PHASE, null, "Analyzing " + file.getName());
+			dataFlowGraph = PushPullSelectionStage.analyzeDataTransferModel(model);
+			setProgress(70);
+			if (isCancelled()) return null;
+
+			// Create the cells of the mxGraph and restore their geometry, which are added to the mxGraph at once.
+			firePropertyChange(PHASE, null, "Constructing " + file.getName());
+			cells = STAGE_DATA_FLOW_MODELING.createCells(model);
+			if (isCancelled()) return null;
+			if (parserDTRAM != null) {
+				List<mxCell> layerCells = new ArrayList<>();
+				for (List<mxCell> cellsOfLayer: cells.values()) {
+					layerCells.addAll(cellsOfLayer);
+				}
+				parserDTRAM.doParseGeometry(graph, layerCells);
+			}
+			setProgress(90);
+			return model;
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled()) return;
+			DataTransferModel model = null;
+			try {
+				model = get();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				return;
+			} catch (ExecutionException e) {
+				// e.g., the file cannot be read or its geometry is broken.
+				e.getCause().printStackTrace();
+				showErrors(Collections.singletonList(e.getCause()));
+				return;
+			}
+			if (errors != null && !errors.isEmpty()) {
+				showErrors(errors);
+				return;
+			}
+			if (model == null) return;
+
+			// Force to change to the data-flow modeling stage.
+			boolean stageChanged = changeStage(STAGE_DATA_FLOW_MODELING);
+			if (!stageChanged) return;
+
+			Editor.this.model = model;
+			DataFlowModelingStage stage = (DataFlowModelingStage) curStage;
+			stage.beginReflectingArchitectureModel();
+			try {
+				// Update the mxGraph with the cells created in the background in one update.
+				stage.setModel(model, cells);
+			} finally {
+				stage.endReflectingArchitectureModel();
+			}
+			if (parserDTRAM == null) setDAGLayout();
+
+			// Change to the push/pull selection stage with the data-flow graph analyzed in the background.
+			STAGE_PUSH_PULL_SELECTION.setAnalyzedDataFlowGraph(model, dataFlowGraph);
+			changeStage(STAGE_PUSH_PULL_SELECTION);
+
+			curFilePath = file.getAbsolutePath();
+			curFileName = file.getName();
+		}
+
+		/**
+		 * Show the errors that prevent the file from being opened. The errors of the source are shown with their lines and columns.
+		 */
+		private void showErrors(List<? extends Throwable> errors) {
+			StringBuilder message = new StringBuilder("Cannot open " + file.getName() + " (" + errors.size() + " error(s)):");
+			for (Throwable e: errors.subList(0, Math.min(MAX_REPORTED_ERRORS, errors.size()))) {
+				if (e instanceof ParseException) {
+					message.append("\n" + e.getMessage() + ": " + e.getClass().getSimpleName());
+					if (e.getCause() != null) message.append(" (" + e.getCause() + ")");
+				} else {
+					message.append("\n" + e);
+				}
+			}
+			if (errors.size() > MAX_REPORTED_ERRORS) message.append("\n...");
+			JOptionPane.showMessageDialog(graphComponent, message.toString(), "Open", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
+	/**--------------------------------------------------------------------------------
+	 * [inner class]
+	 * "ModelWorker" uses the data transfer model of the editor in the background. Only one worker uses the model at a time,
+	 * and the graph component is disabled while the model is used, so that the model is not edited in the meantime.
+	 */
+	private abstract class ModelWorker<T> extends SwingWorker<T, Void> {
+		protected DataTransferModel model;
+
+		protected ModelWorker(DataTransferModel model) {
+			this.model = model;
+		}
+
+		@Override
+		protected T doInBackground() throws Exception {
+			if (!isModelInUse.compareAndSet(false, true)) return null;		// another worker is using the model.
+			SwingUtilities.invokeLater(() -> graphComponent.setEnabled(false));
+			try {
+				return useModel();
+			} finally {
+				isModelInUse.set(false);
+				SwingUtilities.invokeLater(() -> graphComponent.setEnabled(true));
+			}
+		}
+
+		abstract protected T useModel() throws Exception;
+
+		/**
+		 * Get the result of the worker in its done method.
+		 * 
+		 * @return the result, or null if the worker has been cancelled or has failed
+		 */
+		protected T getResult() {
+			if (isCancelled()) return null;
+			try {
+				return get();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+				JOptionPane.showMessageDialog(graphComponent, e.getCause().toString(), "Error", JOptionPane.ERROR_MESSAGE);
+			}
+			return null;
+		}
+	}
+
+	private class AnalyzeWorker extends ModelWorker<DataFlowGraph> {
+
+		public AnalyzeWorker(DataTransferModel model) {
+			super(model);
+		}
+
+		@Override
+		protected DataFlowGraph useModel() {
+			firePropertyChange(PHASE, null, "Analyzing the data transfer model");
+			DataFlowGraph dataFlowGraph = PushPullSelectionStage.analyzeDataTransferModel(model);
+			setProgress(90);
+			return dataFlowGraph;
+		}
+
+		@Override
+		protected void done() {
+			DataFlowGraph dataFlowGraph = getResult();
+			if (dataFlowGraph == null) return;
+			changeToPushPullSelectionStage(model, dataFlowGraph);
+		}
+	}
+
+	private class GenerateWorker extends ModelWorker<ArrayList<CompilationUnit>> {
+		private DataFlowGraph dataFlowGraph;
+		private BiFunction<DataTransferModel, DataFlowGraph, ArrayList<CompilationUnit>> generator;
+		private boolean isAnalyzed = false;
+
+		public GenerateWorker(DataTransferModel model, DataFlowGraph dataFlowGraph, BiFunction<DataTransferModel, DataFlowGraph, ArrayList<CompilationUnit>> generator) {
+			super(model);
+			this.dataFlowGraph = dataFlowGraph;
+			this.generator = generator;
+		}
+
+		@Override
+		protected ArrayList<CompilationUnit> useModel() {
+			if (dataFlowGraph == null) {
+				firePropertyChange(PHASE, null, "Analyzing the data transfer model");
+				dataFlowGraph = PushPullSelectionStage.analyzeDataTransferModel(model);
+				isAnalyzed = true;
+				setProgress(20);
+				if (isCancelled()) return null;
+			}
+			firePropertyChange(PHASE, null, "Inferring the types");
+			ModelExtension.extendModel(model);
+			try {
+				TypeInference.update(model);		// only the types that depend on the edited channels are re-inferred.
+				DataTransferMethodAnalyzer.decideToStoreResourceStates(dataFlowGraph);
+				setProgress(50);
+				if (isCancelled()) return null;
+				firePropertyChange(PHASE, null, "Generating the codes");
+				return generator.apply(model, dataFlowGraph);
+			} finally {
+				ModelExtension.recoverModel(model);
+			}
+		}
+
+		@Override
+		protected void done() {
+			ArrayList<CompilationUnit> codes = getResult();
+			if (codes == null) return;
+			if (isAnalyzed) changeToPushPullSelectionStage(model, dataFlowGraph);
+			setCodes(codes);
+		}
+	}
+
 	public static class SrcDstAttribute extends EdgeAttribute {
 		private Object src;
 		private Object dst;
@@ -3,19 +3,27 @@ package application.editor.stages;
 import java.awt.event.MouseListener;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.swing.JOptionPane;
 
 import com.mxgraph.model.mxCell;
 import com.mxgraph.model.mxGeometry;
 import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.model.mxIGraphModel;
 import com.mxgraph.swing.mxGraphComponent;
 import com.mxgraph.util.mxEventSource.mxIEventListener;
 import com.mxgraph.util.mxEventObject;
 import com.mxgraph.util.mxPoint;
 import com.mxgraph.view.mxGraph;
 
+import algorithms.TypeInference;
 import algorithms.Validation;
+import algorithms.Validation.UpdateConflict;
 import application.editor.Editor;
 import application.editor.Editor.SrcDstAttribute;
 import application.editor.FlowCellEditor;
@@ -23,6 +31,7 @@ import application.editor.Stage;
 import models.dataConstraintModel.Channel;
 import models.dataConstraintModel.ChannelMember;
 import models.dataConstraintModel.ResourcePath;
+import models.dataFlowModel.DataFlowGraph;
 import models.dataFlowModel.DataTransferChannel;
 import models.dataFlowModel.DataTransferModel;
 import models.dataFlowModel.ResourceNodeAttribute;
@@ -161,14 +170,52 @@ public class DataFlowModelingStage extends Stage {
 		graph = constructGraph(graph, model);
 	}
 
+	/*************************************************************
+	 * Set a model whose cells have been created by {@link #createCells(DataTransferModel)}.
+	 */
+	public void setModel(DataTransferModel model, Map<Integer, List<mxCell>> cells) {
+		clear();
+		// Set the model.
+		this.model = model;
+		
+		// Add the cells to the mxGraph.
+		graph = addCells(graph, cells);
+	}
+
 	/*************************************************************
 	 * 
 	 */
 	public boolean isValid() {
 		if (model == null) return false;
-		if (!Validation.checkUpdateConflict(model)) return false;
+		List<UpdateConflict> conflicts = Validation.findUpdateConflicts(model);
+		if (conflicts.size() > 0) {
+			showUpdateConflicts(conflicts);
+			return false;
+		}
 		return true;
 	}
+
+	/*************************************************************
+	 * Select the resources and channels on the cycles of data-flows and tell them to the user.
+	 * @param conflicts the cycles that can cause conflicting updates
+	 */
+	private void showUpdateConflicts(List<UpdateConflict> conflicts) {
+		Set<String> names = new HashSet<>();
+		String message = "The following cycles of data-flows can cause conflicting updates:";
+		for (UpdateConflict conflict: conflicts) {
+			names.addAll(conflict.getResourceNames());
+			names.addAll(conflict.getChannelNames());
+			message += "\n" + conflict;
+		}
+		List<Object> cells = new ArrayList<>();
+		for (Object cell: ((mxGraphModel) graph.getModel()).getCells().values()) {
+			if (((mxCell) cell).isVertex() && names.contains(((mxCell) cell).getValue())) {
+				cells.add(cell);
+			}
+		}
+		graph.setSelectionCells(cells.toArray());
+		JOptionPane.showMessageDialog(graphComponent, message, "Update Conflicts", JOptionPane.WARNING_MESSAGE);
+	}
 	
 	/*************************************************************
 	 * Construct a mxGraph from DataFlowModel
@@ -177,92 +224,166 @@ public class DataFlowModelingStage extends Stage {
 	 * @return constructed mxGraph
 	 */
 	public mxGraph constructGraph(mxGraph graph, DataTransferModel model) {
-		bReflectingArchitectureModel = true;
-		mxCell root = (mxCell) graph.getDefaultParent();
-		mxCell nodeLayer = (mxCell) root.getChildAt(NODE_LAYER);
-		mxCell dataFlowLayer = (mxCell) root.getChildAt(DATA_FLOW_LAYER);
-				
-		graph.getModel().beginUpdate();
-		try {
-			mxGeometry geo1 = new mxGeometry(0, 0.5, PORT_DIAMETER, PORT_DIAMETER);
-			geo1.setOffset(new mxPoint(-PORT_RADIUS, -PORT_RADIUS));
-			geo1.setRelative(true);
+		return addCells(graph, createCells(model));
+	}
 
-			mxGeometry geo2 = new mxGeometry(1.0, 0.5, PORT_DIAMETER, PORT_DIAMETER);
-			geo2.setOffset(new mxPoint(-PORT_RADIUS, -PORT_RADIUS));
-			geo2.setRelative(true);
+	/*************************************************************
+	 * Create the cells of the mxGraph of a DataFlowModel without touching any mxGraph,
+	 * so that they can be created outside of the event dispatch thread.
+	 * @param model
+	 * @return the top-level cells to be added to each layer, in the order of the addition
+	 */
+	public Map<Integer, List<mxCell>> createCells(DataTransferModel model) {
+		Map<Integer, List<mxCell>> cells = new LinkedHashMap<>();
+		List<mxCell> nodeLayer = new ArrayList<>();
+		cells.put(NODE_LAYER, nodeLayer);
+		if (cells.get(DATA_FLOW_LAYER) == null) cells.put(DATA_FLOW_LAYER, new ArrayList<>());
+		List<mxCell> dataFlowLayer = cells.get(DATA_FLOW_LAYER);
 
-			Map<DataTransferChannel, Object> channelsIn = new HashMap<>();
-			Map<DataTransferChannel, Object> channelsOut = new HashMap<>();
-			Map<ResourcePath, Object> resources = new HashMap<>();
-
-			// create channel vertices
-			for (Channel c: model.getChannels()) {
-				DataTransferChannel channelGen = (DataTransferChannel) c;
-				if (channelsIn.get(channelGen) == null || channelsOut.get(channelGen) == null) {
-					Object channel = graph.insertVertex(dataFlowLayer, null, channelGen.getChannelName(), 150, 20, 30, 30); // insert a channel as a vertex
-					mxCell port_in = new mxCell(null, geo1, "shape=ellipse;perimter=ellipsePerimeter");
-					port_in.setVertex(true);
-					graph.addCell(port_in, channel);		// insert the input port of a channel					
-					mxCell port_out = new mxCell(null, geo2, "shape=ellipse;perimter=ellipsePerimeter");
-					port_out.setVertex(true);
-					graph.addCell(port_out, channel);		// insert the output port of a channel
-					channelsIn.put(channelGen, port_in);
-					channelsOut.put(channelGen, port_out);
-				}
+		mxGeometry geo1 = new mxGeometry(0, 0.5, PORT_DIAMETER, PORT_DIAMETER);
+		geo1.setOffset(new mxPoint(-PORT_RADIUS, -PORT_RADIUS));
+		geo1.setRelative(true);
+
+		mxGeometry geo2 = new mxGeometry(1.0, 0.5, PORT_DIAMETER, PORT_DIAMETER);
+		geo2.setOffset(new mxPoint(-PORT_RADIUS, -PORT_RADIUS));
+		geo2.setRelative(true);
+
+		Map<DataTransferChannel, mxCell> channelsIn = new HashMap<>();
+		Map<DataTransferChannel, mxCell> channelsOut = new HashMap<>();
+		Map<ResourcePath, mxCell> resources = new HashMap<>();
+
+		// create channel vertices
+		for (Channel c: model.getChannels()) {
+			DataTransferChannel channelGen = (DataTransferChannel) c;
+			if (channelsIn.get(channelGen) == null || channelsOut.get(channelGen) == null) {
+				mxCell channel = createVertex(channelGen.getChannelName(), 150, 20, 30, 30, null); // create a channel as a vertex
+				dataFlowLayer.add(channel);
+				mxCell port_in = new mxCell(null, geo1, "shape=ellipse;perimter=ellipsePerimeter");
+				port_in.setVertex(true);
+				channel.insert(port_in);		// insert the input port of a channel
+				mxCell port_out = new mxCell(null, geo2, "shape=ellipse;perimter=ellipsePerimeter");
+				port_out.setVertex(true);
+				channel.insert(port_out);		// insert the output port of a channel
+				channelsIn.put(channelGen, port_in);
+				channelsOut.put(channelGen, port_out);
 			}
+		}
+
+		// create resource vertices
+		DataFlowGraph dataFlowGraph = model.getDataFlowGraph();
+		for (ResourcePath res: model.getResourcePaths()) {
+			// create a resource as a vertex
+			ResourceNodeAttribute resNodeAttr = new ResourceNodeAttribute(dataFlowGraph.getResouceNode(res));
+			mxCell resource = createVertex(
+					resNodeAttr, 
+					/*coordinate*/20, 20,
+					/*    scale     */80, 30,
+						   				  resNodeAttr.getDefaultStyle());
+			dataFlowLayer.add(resource);
+			resources.put(res, resource);
+		}
 
-			// create resource vertices
-			for (ResourcePath res: model.getResourcePaths()) {
-				// insert a resource as a vertex
-				ResourceNodeAttribute resNodeAttr = new ResourceNodeAttribute(model.getDataFlowGraph().getResouceNode(res));
-				Object resource = graph.insertVertex(
-						dataFlowLayer, null, resNodeAttr, 
-						/*coordinate*/20, 20,
-						/*    scale     */80, 30,
-							   				  resNodeAttr.getDefaultStyle());
-				resources.put(res, resource);
+		// create input, output and reference edges
+		for (Channel ch: model.getChannels()) {
+			DataTransferChannel channel = (DataTransferChannel) ch;
+			// input edge
+			for (ResourcePath srcRes: channel.getInputResources()) {
+				dataFlowLayer.add(createEdge(new SrcDstAttribute(srcRes, channel), resources.get(srcRes), channelsIn.get(channel), "movable=false;strokeColor=#FF0000"));
+			}
+			// output edge
+			for (ResourcePath dstRes: channel.getOutputResources()) {
+				dataFlowLayer.add(createEdge(new SrcDstAttribute(channel, dstRes), channelsOut.get(channel), resources.get(dstRes), "movable=false;strokeColor=#FF0000"));
+			}
+			// reference edges
+			for (ResourcePath refRes: channel.getReferenceResources()) {
+				dataFlowLayer.add(createEdge(null, resources.get(refRes), channelsIn.get(channel), "dashed=true;movable=false;strokeColor=#FF0000"));
 			}
+		}
 
-			// add input, output and reference edges
-			for (Channel ch: model.getChannels()) {
-				DataTransferChannel channel = (DataTransferChannel) ch;
-				// input edge
-				for (ResourcePath srcRes: channel.getInputResources()) {
-					graph.insertEdge(dataFlowLayer, null, new SrcDstAttribute(srcRes, channel), resources.get(srcRes), channelsIn.get(channel), "movable=false;strokeColor=#FF0000");
-				}
-				// output edge
-				for (ResourcePath dstRes: channel.getOutputResources()) {
-					graph.insertEdge(dataFlowLayer, null, new SrcDstAttribute(channel, dstRes), channelsOut.get(channel), resources.get(dstRes), "movable=false;strokeColor=#FF0000");
-				}
-				// reference edges
-				for (ResourcePath refRes: channel.getReferenceResources()) {
-					graph.insertEdge(dataFlowLayer, null, null, resources.get(refRes), channelsIn.get(channel), "dashed=true;movable=false;strokeColor=#FF0000");
+		for (Channel ioChannel: model.getIOChannels()) {
+			if (channelsOut.get(ioChannel) == null) {
+				mxCell channel = createVertex(ioChannel.getChannelName(), 150, 20, 30, 30, null); // create an I/O channel as a vertex
+				nodeLayer.add(channel);
+				mxCell port_out = new mxCell(null, geo2, "shape=ellipse;perimter=ellipsePerimeter");
+				port_out.setVertex(true);
+				channel.insert(port_out);		// insert the output port of a channel
+				channelsOut.put((DataTransferChannel) ioChannel, port_out);
+				
+				for (ResourcePath outRes: ((DataTransferChannel) ioChannel).getOutputResources()) {
+					dataFlowLayer.add(createEdge(null, port_out, resources.get(outRes), "movable=false;strokeColor=#FF0000"));
 				}
+				
 			}
+		}
+		return cells;
+	}
 
-			for (Channel ioChannel: model.getIOChannels()) {
-				if (channelsOut.get(ioChannel) == null) {
-					Object channel = graph.insertVertex(nodeLayer, null, ioChannel.getChannelName(), 150, 20, 30, 30); // insert an I/O channel as a vertex
-					mxCell port_out = new mxCell(null, geo2, "shape=ellipse;perimter=ellipsePerimeter");
-					port_out.setVertex(true);
-					graph.addCell(port_out, channel);		// insert the output port of a channel
-					channelsOut.put((DataTransferChannel) ioChannel, port_out);
-					
-					for (ResourcePath outRes: ((DataTransferChannel) ioChannel).getOutputResources()) {
-						graph.insertEdge(dataFlowLayer, null, null, port_out, resources.get(outRes), "movable=false;strokeColor=#FF0000");
-					}
-					
+	/*************************************************************
+	 * Add the cells created by {@link #createCells(DataTransferModel)} to the layers of a mxGraph in one update.
+	 * The cells are added to the graph model directly, so that neither the cells nor the edges connected to them are 
+	 * visited by mxGraph once for each cell.
+	 * @param graph
+	 * @param cells
+	 * @return the mxGraph
+	 */
+	public mxGraph addCells(mxGraph graph, Map<Integer, List<mxCell>> cells) {
+		boolean bReflecting = bReflectingArchitectureModel;
+		bReflectingArchitectureModel = true;
+		mxCell root = (mxCell) graph.getDefaultParent();
+		mxIGraphModel graphModel = graph.getModel();
+
+		graphModel.beginUpdate();
+		try {
+			for (Map.Entry<Integer, List<mxCell>> layerCells: cells.entrySet()) {
+				mxCell layer = (mxCell) root.getChildAt(layerCells.getKey());
+				for (mxCell cell: layerCells.getValue()) {
+					graphModel.add(layer, cell, layer.getChildCount());
 				}
 			}
 		} finally {
-			graph.getModel().endUpdate();
+			graphModel.endUpdate();
 		}
 
-		bReflectingArchitectureModel = false;
+		bReflectingArchitectureModel = bReflecting;
 		return graph;
 	}
 
+	private mxCell createVertex(Object value, double x, double y, double width, double height, String style) {
+		mxCell vertex = new mxCell(value, new mxGeometry(x, y, width, height), style);
+		vertex.setVertex(true);
+		vertex.setConnectable(true);
+		return vertex;
+	}
+
+	private mxCell createEdge(Object value, mxCell source, mxCell target, String style) {
+		mxCell edge = new mxCell(value, new mxGeometry(), style);
+		edge.setEdge(true);
+		edge.getGeometry().setRelative(true);
+		edge.setTerminal(source, true);		// registered to the source when the edge is added to the graph model
+		edge.setTerminal(target, false);	// registered to the target when the edge is added to the graph model
+		return edge;
+	}
+
+	/*************************************************************
+	 * Begin an update of the mxGraph to reflect the model, such as the construction of the mxGraph 
+	 * and the restoration of its geometry, whose changes are notified at once at the end of the update and are not taken as edits.
+	 */
+	public void beginReflectingArchitectureModel() {
+		bReflectingArchitectureModel = true;
+		graph.getModel().beginUpdate();
+	}
+
+	/*************************************************************
+	 * End the update of the mxGraph begun by {@link #beginReflectingArchitectureModel()}.
+	 */
+	public void endReflectingArchitectureModel() {
+		try {
+			graph.getModel().endUpdate();
+		} finally {
+			bReflectingArchitectureModel = false;
+		}
+	}
+
 	/*************************************************************
 	 * 
 	 */
@@ -454,6 +575,8 @@ public class DataFlowModelingStage extends Stage {
 					}
 				}
 			}
+			// The types that depend on the edited channel are re-inferred on the extended model when the codes are generated next.
+			TypeInference.invalidate(getModel(), ch);
 		} catch (ExpectedRightBracket | ExpectedChannel | ExpectedChannelName | ExpectedLeftCurlyBracket
 				| ExpectedInOrOutOrRefKeyword | ExpectedStateTransition | ExpectedEquals | ExpectedRHSExpression
 				| WrongLHSExpression | WrongRHSExpression | ExpectedAssignment | WrongJsonExpression | ExpectedColon e) {
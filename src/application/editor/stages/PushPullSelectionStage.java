@@ -28,6 +28,8 @@ import models.dataFlowModel.ResourceNode;
 
 public class PushPullSelectionStage extends Stage {
 	protected DataFlowGraph dataFlowGraph = null;
+	private DataTransferModel analyzedModel = null;
+	private DataFlowGraph analyzedDataFlowGraph = null;
 	
 	public PushPullSelectionStage(mxGraphComponent graphComponent) {
 		super(graphComponent);
@@ -47,7 +49,15 @@ public class PushPullSelectionStage extends Stage {
 	public void init(Stage prevStage) {
 		if (prevStage instanceof DataFlowModelingStage) {
 			model = ((DataFlowModelingStage) prevStage).getModel();
-			dataFlowGraph = analyzeDataTransferModel(graph, model);
+			if (analyzedModel != null && model == analyzedModel) {
+				dataFlowGraph = analyzedDataFlowGraph;
+				updateEdgeAttiributes(graph, dataFlowGraph);
+			} else {
+				// The editor analyzes the model in the background before changing to this stage, so this is only for the other callers.
+				dataFlowGraph = analyzeDataTransferModel(graph, model);
+			}
+			analyzedModel = null;
+			analyzedDataFlowGraph = null;
 			showOnlyLayer(DATA_FLOW_LAYER);
 		}
 		
@@ -93,13 +103,35 @@ public class PushPullSelectionStage extends Stage {
 		return dataFlowGraph;
 	}
 	
+	/**
+	 * Set the data-flow graph of a model that has been analyzed in advance, for example by a background thread.
+	 * The data-flow graph is used instead of analyzing the model again when this stage is initialized with the model next time.
+	 * 
+	 * @param model a data transfer model
+	 * @param dataFlowGraph the data-flow graph returned by {@link #analyzeDataTransferModel(DataTransferModel)} for the model
+	 */
+	public void setAnalyzedDataFlowGraph(DataTransferModel model, DataFlowGraph dataFlowGraph) {
+		this.analyzedModel = model;
+		this.analyzedDataFlowGraph = dataFlowGraph;
+	}
+
 	public DataFlowGraph analyzeDataTransferModel(mxGraph graph, DataTransferModel model) {
-		DataFlowGraph flowGraph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
-		DataFlowGraph dataFlowGraph = DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(flowGraph);
+		DataFlowGraph dataFlowGraph = analyzeDataTransferModel(model);
 		updateEdgeAttiributes(graph, dataFlowGraph);
 		return dataFlowGraph;
 	}
 
+	/**
+	 * Analyze a data transfer model without updating the mxGraph, which can be done outside of the event dispatch thread.
+	 * 
+	 * @param model a data transfer model
+	 * @return the data-flow graph annotated with the selectable data transfer attributes
+	 */
+	public static DataFlowGraph analyzeDataTransferModel(DataTransferModel model) {
+		DataFlowGraph flowGraph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		return DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(flowGraph);
+	}
+
 	private void updateEdgeAttiributes(mxGraph graph, DataFlowGraph dataFlowGraph) {
 		mxCell root = (mxCell) graph.getDefaultParent();
 		mxCell layer = (mxCell) root.getChildAt(DATA_FLOW_LAYER);
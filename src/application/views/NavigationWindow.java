@@ -7,6 +7,7 @@ import java.awt.event.ActionListener;
 import javax.swing.ButtonGroup;
 import javax.swing.JDialog;
 import javax.swing.JToggleButton;
+import javax.swing.SwingWorker;
 
 import application.ApplicationWindow;
 import application.editor.Editor;
@@ -15,6 +16,7 @@ import application.editor.Stage;
 import application.editor.stages.ControlFlowDelegationStage;
 import application.editor.stages.DataFlowModelingStage;
 import application.editor.stages.PushPullSelectionStage;
+import models.dataFlowModel.DataFlowGraph;
 
 public class NavigationWindow extends JDialog implements IStageChangeListener {
 	private String title = "Navigation";
@@ -115,6 +117,17 @@ public class NavigationWindow extends JDialog implements IStageChangeListener {
 	private class PushPullSelectionButtonListener implements ActionListener {
 		@Override
 		public void actionPerformed(ActionEvent e) {
+			SwingWorker<DataFlowGraph, Void> worker = editor.analyzeInBackground();
+			if (worker != null) {
+				// Analyze the model in the background. The stage is changed when the analysis is done, and then the buttons are updated by stageChanged().
+				worker.addPropertyChangeListener(evt -> {
+					if (evt.getNewValue() == SwingWorker.StateValue.DONE && !(editor.getCurStage() instanceof PushPullSelectionStage)) {
+						dataFlowModelingButton.setSelected(true);		// cancelled or failed.
+					}
+				});
+				WorkerProgressMonitor.execute(NavigationWindow.this, "Changing to the PUSH/PULL selection stage", worker, null);
+				return;
+			}
 			forbidReentry = true;
 			editor.changeStage(Editor.STAGE_PUSH_PULL_SELECTION);
 			forbidReentry = false;
@@ -0,0 +1,247 @@
+package application.views;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxEvent;
+import com.mxgraph.util.mxEventObject;
+import com.mxgraph.util.mxEventSource.mxIEventListener;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.util.mxUtils;
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxGraphView;
+
+/**
+ * A graph component that draws only the cells intersecting the visible area of a large graph, which are found from a grid index
+ * of the bounds of the cells instead of visiting all the cells on every repaint, and that draws the cells in simplified shapes
+ * without labels when the graph is zoomed out.
+ * A graph with fewer cells than VIRTUALIZATION_THRESHOLD is drawn in the same way as mxGraphComponent.
+ *
+ */
+public class VirtualizedGraphComponent extends mxGraphComponent {
+	private static final long serialVersionUID = -3517942366398213364L;
+
+	public static final int VIRTUALIZATION_THRESHOLD = 1000;	// the number of cell states from which the graph is virtualized
+	public static final double DETAIL_SCALE = 0.5;				// the scale under which the cells are drawn in simplified shapes
+	private static final int GRID_SIZE = 256;					// the size of a square of the grid index in pixels
+	private static final int MAX_SQUARES = 64;					// the number of squares over which a cell is not indexed in the grid
+
+	private CellIndex cellIndex = null;
+
+	public VirtualizedGraphComponent(mxGraph graph) {
+		super(graph);
+
+		// The index is created again at the next repaint when the states of the cells may have been changed.
+		mxIEventListener invalidator = new mxIEventListener() {
+			public void invoke(Object sender, mxEventObject evt) {
+				cellIndex = null;
+			}
+		};
+		graph.addListener(mxEvent.REPAINT, invalidator);
+		graph.getModel().addListener(mxEvent.CHANGE, invalidator);
+		graph.getView().addListener(mxEvent.SCALE, invalidator);
+		graph.getView().addListener(mxEvent.TRANSLATE, invalidator);
+		graph.getView().addListener(mxEvent.SCALE_AND_TRANSLATE, invalidator);
+		graph.getView().addListener(mxEvent.UNDO, invalidator);
+	}
+
+	/**
+	 * No cell is given a component or an overlay by this graph component, so that the cells of a large graph are not visited
+	 * to update them whenever the graph is zoomed or changed.
+	 */
+	@Override
+	public void updateComponents() {
+		if (components.isEmpty() && overlays.isEmpty() && graph.getView().getStates().size() >= VIRTUALIZATION_THRESHOLD) return;
+		super.updateComponents();
+	}
+
+	@Override
+	protected mxGraphControl createGraphControl() {
+		return new VirtualizedGraphControl();
+	}
+
+	public class VirtualizedGraphControl extends mxGraphControl {
+		private static final long serialVersionUID = 4810539278306815283L;
+
+		@Override
+		protected void drawFromRootCell() {
+			mxGraphView view = graph.getView();
+			if (view.getStates().size() < VIRTUALIZATION_THRESHOLD || graph.isKeepEdgesInBackground() || graph.isKeepEdgesInForeground()) {
+				super.drawFromRootCell();
+				return;
+			}
+			if (cellIndex == null) {
+				cellIndex = new CellIndex();
+				indexCell(graph.getModel().getRoot());
+			}
+			Graphics2D g = getCanvas().getGraphics();
+			List<mxCellState> states = cellIndex.getStates(g.getClipBounds());
+			if (view.getScale() >= DETAIL_SCALE) {
+				// Draw the cells in the visible area in full detail.
+				Object editingCell = getCellEditor().getEditingCell();
+				for (mxCellState state: states) {
+					if (!isCellDisplayable(state.getCell())) continue;
+					graph.drawState(getCanvas(), state, state.getCell() != editingCell);
+					cellDrawn(getCanvas(), state);
+				}
+			} else {
+				// Draw the cells in the visible area in simplified shapes without labels.
+				Color color = g.getColor();
+				Stroke stroke = g.getStroke();
+				g.setStroke(new BasicStroke(1));
+				for (mxCellState state: states) {
+					if (!isCellDisplayable(state.getCell())) continue;
+					drawSimplifiedState(g, state);
+				}
+				g.setColor(color);
+				g.setStroke(stroke);
+			}
+		}
+
+		private void indexCell(Object cell) {
+			mxIGraphModel graphModel = graph.getModel();
+			mxCellState state = graph.getView().getState(cell);
+			if (state != null) {
+				Rectangle bounds = getExtendedCellBounds(state);
+				if (bounds != null) cellIndex.add(state, bounds);
+			}
+			for (int i = 0; i < graphModel.getChildCount(cell); i++) {
+				indexCell(graphModel.getChildAt(cell, i));
+			}
+		}
+
+		private void drawSimplifiedState(Graphics2D g, mxCellState state) {
+			Map<String, Object> style = state.getStyle();
+			Color strokeColor = mxUtils.getColor(style, mxConstants.STYLE_STROKECOLOR);
+			if (graph.getModel().isEdge(state.getCell())) {
+				if (strokeColor == null) return;
+				g.setColor(strokeColor);
+				for (int i = 1; i < state.getAbsolutePointCount(); i++) {
+					mxPoint p0 = state.getAbsolutePoint(i - 1);
+					mxPoint p1 = state.getAbsolutePoint(i);
+					if (p0 == null || p1 == null) continue;
+					g.drawLine((int) Math.round(p0.getX()), (int) Math.round(p0.getY()), (int) Math.round(p1.getX()), (int) Math.round(p1.getY()));
+				}
+			} else if (graph.getModel().isVertex(state.getCell())) {
+				Rectangle rect = state.getRectangle();
+				Color fillColor = mxUtils.getColor(style, mxConstants.STYLE_FILLCOLOR);
+				if (fillColor != null) {
+					g.setColor(fillColor);
+					g.fillRect(rect.x, rect.y, rect.width, rect.height);
+				}
+				if (strokeColor != null) {
+					g.setColor(strokeColor);
+					g.drawRect(rect.x, rect.y, rect.width, rect.height);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A grid index of the states of the cells, which keeps the order in which the cells are drawn.
+	 */
+	private static class CellIndex {
+		private List<IndexEntry> entries = new ArrayList<>();
+		private Map<Long, List<IndexEntry>> squares = new HashMap<>();
+		private List<IndexEntry> largeEntries = new ArrayList<>();
+		private int queryCount = 0;
+
+		public void add(mxCellState state, Rectangle bounds) {
+			IndexEntry entry = new IndexEntry(entries.size(), state, bounds);
+			entries.add(entry);
+			int minX = Math.floorDiv(bounds.x, GRID_SIZE);
+			int minY = Math.floorDiv(bounds.y, GRID_SIZE);
+			int maxX = Math.floorDiv(bounds.x + bounds.width, GRID_SIZE);
+			int maxY = Math.floorDiv(bounds.y + bounds.height, GRID_SIZE);
+			if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_SQUARES) {
+				largeEntries.add(entry);
+				return;
+			}
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					List<IndexEntry> square = squares.get(key(x, y));
+					if (square == null) {
+						square = new ArrayList<>();
+						squares.put(key(x, y), square);
+					}
+					square.add(entry);
+				}
+			}
+		}
+
+		/**
+		 * Get the states of the cells intersecting a clip in the order in which they are drawn.
+		 *
+		 * @param clip the clip, or null to get all the states
+		 * @return the states of the cells
+		 */
+		public List<mxCellState> getStates(Rectangle clip) {
+			List<mxCellState> states = new ArrayList<>();
+			if (clip == null) {
+				for (IndexEntry entry: entries) {
+					states.add(entry.state);
+				}
+				return states;
+			}
+			queryCount++;
+			List<IndexEntry> hits = new ArrayList<>();
+			for (IndexEntry entry: largeEntries) {
+				if (entry.bounds.intersects(clip)) hits.add(entry);
+			}
+			int minX = Math.floorDiv(clip.x, GRID_SIZE);
+			int minY = Math.floorDiv(clip.y, GRID_SIZE);
+			int maxX = Math.floorDiv(clip.x + clip.width, GRID_SIZE);
+			int maxY = Math.floorDiv(clip.y + clip.height, GRID_SIZE);
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					List<IndexEntry> square = squares.get(key(x, y));
+					if (square == null) continue;
+					for (IndexEntry entry: square) {
+						if (entry.queryCount == queryCount) continue;		// already found in another square
+						entry.queryCount = queryCount;
+						if (entry.bounds.intersects(clip)) hits.add(entry);
+					}
+				}
+			}
+			Collections.sort(hits, new Comparator<IndexEntry>() {
+				public int compare(IndexEntry e1, IndexEntry e2) {
+					return Integer.compare(e1.order, e2.order);
+				}
+			});
+			for (IndexEntry entry: hits) {
+				states.add(entry.state);
+			}
+			return states;
+		}
+
+		private static long key(int x, int y) {
+			return ((long) x << 32) | (y & 0xFFFFFFFFL);
+		}
+	}
+
+	private static class IndexEntry {
+		private int order;
+		private mxCellState state;
+		private Rectangle bounds;
+		private int queryCount = 0;
+
+		public IndexEntry(int order, mxCellState state, Rectangle bounds) {
+			this.order = order;
+			this.state = state;
+			this.bounds = bounds;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package application.views;
+
+import java.awt.Component;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import application.editor.Editor;
+
+/**
+ * Executes a worker of the editor with a progress monitor, which shows the progress and the {@link Editor#PHASE} of the worker
+ * and cancels the worker by its cancel button.
+ *
+ */
+public class WorkerProgressMonitor {
+
+	/**
+	 * Execute a worker with a progress monitor.
+	 *
+	 * @param parent the parent component of the progress monitor
+	 * @param message the message of the progress monitor
+	 * @param worker a worker to be executed
+	 * @param done called on the event dispatch thread with the result of the worker, unless the worker is cancelled, fails or returns null
+	 */
+	public static <T> void execute(Component parent, String message, SwingWorker<T, ?> worker, Consumer<T> done) {
+		ProgressMonitor monitor = new ProgressMonitor(parent, message, "", 0, 100);
+
+		// Poll the cancel button of the monitor, since the worker fires no event while it is in a long phase.
+		Timer timer = new Timer(100, evt -> {
+			if (monitor.isCanceled()) worker.cancel(true);
+		});
+		worker.addPropertyChangeListener(evt -> {
+			if (evt.getPropertyName().equals("progress")) {
+				monitor.setProgress((Integer) evt.getNewValue());
+			} else if (evt.getPropertyName().equals(Editor.PHASE)) {
+				monitor.setNote((String) evt.getNewValue());
+			}
+			if (evt.getNewValue() == SwingWorker.StateValue.DONE) {
+				// The done method of the worker has been called.
+				timer.stop();
+				monitor.close();
+				if (done == null || worker.isCancelled()) return;
+				try {
+					T result = worker.get();
+					if (result != null) done.accept(result);
+				} catch (InterruptedException | ExecutionException e) {
+					// The failure has been reported by the worker.
+				}
+			}
+		});
+		timer.start();
+		worker.execute();
+	}
+}
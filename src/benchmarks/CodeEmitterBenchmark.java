@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import code.ast.Block;
+import code.ast.CodeEmitter;
+import code.ast.CodeUtil;
+import code.ast.CompilationUnit;
+import code.ast.FieldDeclaration;
+import code.ast.MethodDeclaration;
+import code.ast.TypeDeclaration;
+import code.ast.VariableDeclaration;
+import models.algebra.Type;
+
+/**
+ * Compares the time to write generated classes of increasing numbers of methods to a file by building their code as strings
+ * with CodeUtil.insertTab, as the code used to be built, and by emitting their code to the file with CodeEmitter.
+ *
+ * Usage: CodeEmitterBenchmark [max number of methods]
+ *
+ */
+public class CodeEmitterBenchmark {
+	public static void main(String[] args) throws IOException {
+		int maxMethods = 6400;
+		if (args.length > 0) maxMethods = Integer.parseInt(args[0]);
+
+		File file = File.createTempFile("benchmark", ".java");
+		// Warm up.
+		CompilationUnit warmUp = createCompilationUnit(400);
+		for (int i = 0; i < 5; i++) {
+			writeString(warmUp, file);
+			emit(warmUp, file);
+		}
+		for (int numMethods = 400; numMethods <= maxMethods; numMethods *= 2) {
+			CompilationUnit cu = createCompilationUnit(numMethods);
+			System.gc();
+			long start = System.nanoTime();
+			writeString(cu, file);
+			long written = System.nanoTime();
+			long length = file.length();
+			System.gc();
+			long emitStart = System.nanoTime();
+			emit(cu, file);
+			long emitted = System.nanoTime();
+			if (file.length() != length) throw new IllegalStateException("The emitted code differs from the built code.");
+			System.out.println(String.format("%5d methods (%5.1f MB): string %8.2fms  emit %8.2fms",
+					numMethods, length / (1024.0 * 1024.0), (written - start) / 1000000.0, (emitted - emitStart) / 1000000.0));
+		}
+		file.delete();
+	}
+
+	private static void writeString(CompilationUnit cu, File file) throws IOException {
+		try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+			writer.write(toStringByInsertTab(cu));
+		}
+	}
+
+	private static void emit(CompilationUnit cu, File file) throws IOException {
+		try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+			CodeEmitter.emit(cu, writer);
+		}
+	}
+
+	/**
+	 * Build the code of a compilation unit without annotations in the way it used to be built.
+	 */
+	private static String toStringByInsertTab(CompilationUnit cu) {
+		String result = "\n";
+		for (TypeDeclaration type: cu.types()) {
+			result += "public class " + type.getTypeName() + " {\n";
+			for (FieldDeclaration f: type.getFields()) {
+				result += "\t" + f.toString();
+			}
+			for (MethodDeclaration m: type.getMethods()) {
+				String code = "public " + m.getReturnType().getInterfaceTypeName() + " " + m.getName() + "(";
+				String delimiter = "";
+				for (VariableDeclaration parameter: m.getParameters()) {
+					code = code + delimiter + parameter.toString();
+					delimiter = ", ";
+				}
+				code += ") {\n";
+				String body = "";
+				for (String statement: m.getBody().getStatements()) {
+					body += (statement + "\n");
+				}
+				code += CodeUtil.insertTab(body);
+				code += "}";
+				result += CodeUtil.insertTab(code);
+			}
+			result += "}";
+		}
+		return result;
+	}
+
+	/**
+	 * Create a generated class with methods whose bodies have nested statements.
+	 */
+	private static CompilationUnit createCompilationUnit(int numMethods) {
+		Type intType = new Type("Integer", "int");
+		TypeDeclaration type = new TypeDeclaration("Benchmark");
+		for (int i = 0; i < numMethods; i++) {
+			type.addField(new FieldDeclaration(intType, "value" + i, "0"));
+		}
+		for (int i = 0; i < numMethods; i++) {
+			MethodDeclaration method = new MethodDeclaration("updateValue" + i, intType);
+			method.addParameter(new VariableDeclaration(intType, "x"));
+			method.setBody(new Block());
+			method.addStatement("int temp = this.value" + i + " + x;");
+			method.addStatement("if (temp > 0) {\n\tfor (int j = 0; j < temp; j++) {\n\t\tthis.value" + i + " += j;\n\t}\n} else {\n\tthis.value" + i + " = 0;\n}");
+			method.addStatement("return this.value" + i + ";");
+			type.addMethod(method);
+		}
+		return new CompilationUnit(type);
+	}
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import algorithms.DataTransferModelAnalyzer;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import parser.exceptions.ParseException;
+
+/**
+ * Measures how the time of the data-flow analysis scales with the number of resources.
+ *
+ * Usage: DataTransferModelAnalyzerBenchmark [max number of resources]
+ *
+ */
+public class DataTransferModelAnalyzerBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxResources = 51200;
+		if (args.length > 0) maxResources = Integer.parseInt(args[0]);
+
+		// Warm up.
+		for (int i = 0; i < 5; i++) {
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(TypeInferenceBenchmark.createModel(800));
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		}
+		for (int numResources = 800; numResources <= maxResources; numResources *= 2) {
+			// Each copy of the POS model has 4 resources and 4 channels.
+			DataTransferModel model = TypeInferenceBenchmark.createModel(numResources);
+			System.gc();
+			long start = System.nanoTime();
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+			long analyzed = System.nanoTime();
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+			long annotated = System.nanoTime();
+			System.out.println(String.format("%6d resources: store attributes %8.2fms  selectable data transfers %8.2fms",
+					graph.getNumberOfNodes(), (analyzed - start) / 1000000.0, (annotated - analyzed) / 1000000.0));
+		}
+	}
+}
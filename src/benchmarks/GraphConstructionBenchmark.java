@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.view.mxGraph;
+
+import application.editor.stages.DataFlowModelingStage;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Measures the time to construct the graphs of models of increasing numbers of nodes, by creating their cells
+ * and adding them to the graph model at once, and compares it with the time to insert the same cells through mxGraph one by one.
+ *
+ * Usage: GraphConstructionBenchmark [max number of channels]
+ *
+ */
+public class GraphConstructionBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 25600;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		DataTransferModel warmUp = parse(400);
+		for (int i = 0; i < 5; i++) {
+			construct(warmUp);
+			insert(warmUp);
+		}
+		for (int numChannels = 400; numChannels <= maxChannels; numChannels *= 2) {
+			DataTransferModel model = parse(numChannels);
+			System.gc();
+			long[] constructed = construct(model);
+			System.gc();
+			long inserted = insert(model);
+			System.out.println(String.format("%6d nodes (%7d cells): create %8.2fms  add %8.2fms  (mxGraph.addCell %8.2fms)",
+					constructed[0], constructed[1], constructed[2] / 1000000.0, constructed[3] / 1000000.0, inserted / 1000000.0));
+		}
+	}
+
+	/**
+	 * Construct the graph of a model in the same way as the editor.
+	 *
+	 * @return the numbers of nodes and cells, and the times to create the cells and to add them to the graph
+	 */
+	private static long[] construct(DataTransferModel model) {
+		mxGraph graph = new mxGraph();
+		DataFlowModelingStage stage = new DataFlowModelingStage(new mxGraphComponent(graph));
+		long start = System.nanoTime();
+		Map<Integer, List<mxCell>> cells = stage.createCells(model);
+		long created = System.nanoTime();
+		stage.setModel(model, cells);
+		long added = System.nanoTime();
+		long numNodes = 0;
+		long numCells = 0;
+		for (List<mxCell> layerCells: cells.values()) {
+			for (mxCell cell: layerCells) {
+				if (cell.isVertex()) numNodes++;
+				numCells += 1 + cell.getChildCount();
+			}
+		}
+		return new long[] {numNodes, numCells, created - start, added - created};
+	}
+
+	/**
+	 * Insert the cells of a model through mxGraph one by one in a single update, as the graph used to be constructed.
+	 *
+	 * @return the time to insert the cells
+	 */
+	private static long insert(DataTransferModel model) {
+		mxGraph graph = new mxGraph();
+		DataFlowModelingStage stage = new DataFlowModelingStage(new mxGraphComponent(graph));
+		Map<Integer, List<mxCell>> cells = stage.createCells(model);
+		stage.clear();
+		mxCell root = (mxCell) graph.getDefaultParent();
+		long start = System.nanoTime();
+		graph.getModel().beginUpdate();
+		try {
+			for (Map.Entry<Integer, List<mxCell>> layerCells: cells.entrySet()) {
+				mxCell layer = (mxCell) root.getChildAt(layerCells.getKey());
+				for (mxCell cell: layerCells.getValue()) {
+					graph.addCell(cell, layer);
+				}
+			}
+		} finally {
+			graph.getModel().endUpdate();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static DataTransferModel parse(int numChannels) throws ParseException {
+		return new Parser(new BufferedReader(new StringReader(TypeInferenceBenchmark.createModelText(numChannels)))).doParse();
+	}
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.Block;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaCodeGenerator;
+import generators.JavaMethodBodyGenerator;
+import generators.JavaSpecific;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Measures how the time to generate the codes of a model scales with the number of the input channels of a hub resource,
+ * and compares the time to add statements guarded by duplicate checks to a list, as the statements used to be added,
+ * and to a block.
+ *
+ * Usage: HubCodeGenerationBenchmark [max number of input channels]
+ *
+ */
+public class HubCodeGenerationBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 5000;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		for (int i = 0; i < 3; i++) {
+			generate(createModel(300));
+			addToList(300);
+			addToBlock(300);
+		}
+		for (int numChannels = maxChannels / 8; numChannels <= maxChannels; numChannels *= 2) {
+			DataTransferModel model = createModel(numChannels);
+			System.gc();
+			long[] elapsed = generate(model);
+			System.gc();
+			long start = System.nanoTime();
+			List<String> list = addToList(numChannels);
+			long added = System.nanoTime();
+			System.gc();
+			long blockStart = System.nanoTime();
+			Block block = addToBlock(numChannels);
+			long blockAdded = System.nanoTime();
+			if (!list.equals(block.getStatements())) throw new IllegalStateException("The statements of the block differ from those of the list.");
+			System.out.println(String.format("%5d input channels: JavaCodeGenerator %8.2fms  CodeGeneratorFromDataFlowGraph %8.2fms  list %8.2fms  block %8.2fms",
+					numChannels, elapsed[0] / 1000000.0, elapsed[1] / 1000000.0, (added - start) / 1000000.0, (blockAdded - blockStart) / 1000000.0));
+		}
+	}
+
+	private static long[] generate(DataTransferModel model) {
+		DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		ModelExtension.extendModel(model);
+		TypeInference.infer(model);
+		DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+		long start = System.nanoTime();
+		ArrayList<CompilationUnit> codes = JavaCodeGenerator.doGenerate(graph, model);
+		JavaMethodBodyGenerator.doGenerate(graph, model, codes);
+		long generated = System.nanoTime();
+		new CodeGeneratorFromDataFlowGraph().generateCode(model, graph, new JavaSpecific());
+		long generated2 = System.nanoTime();
+		ModelExtension.recoverModel(model);
+		return new long[] {generated - start, generated2 - generated};
+	}
+
+	/**
+	 * Add a statement per input channel of a hub to the head of a list, as the statements used to be added.
+	 */
+	private static List<String> addToList(int numChannels) {
+		List<String> statements = new ArrayList<String>();
+		for (int i = 0; i < numChannels; i++) {
+			String statement = "this.source" + i + " = source" + i + ";";
+			for (int j = 0; j < 2; j++) {
+				if (!statements.contains(statement)) {
+					statements.add(0, statement);
+				}
+			}
+		}
+		return statements;
+	}
+
+	private static Block addToBlock(int numChannels) {
+		Block block = new Block();
+		for (int i = 0; i < numChannels; i++) {
+			String statement = "this.source" + i + " = source" + i + ";";
+			for (int j = 0; j < 2; j++) {
+				if (!block.containsStatement(statement)) {
+					block.addFirstStatement(statement);
+				}
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * Create a model in which a hub resource is updated through the given number of channels from distinct resources.
+	 *
+	 * @param numChannels the number of the input channels of the hub
+	 * @return a model whose types are not inferred yet
+	 */
+	public static DataTransferModel createModel(int numChannels) throws ParseException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < numChannels; i++) {
+			text.append("channel CIO" + i + " {\n");
+			text.append("\tout source" + i + "(s:Int, set" + i + "(x:Int)) == x\n");
+			text.append("}\n");
+			text.append("channel C" + i + " {\n");
+			text.append("\tin source" + i + "(s, update" + i + "(u)) == u\n");
+			text.append("\tout hub(h:Int, update" + i + "(u)) == h + u\n");
+			text.append("}\n");
+		}
+		return new Parser(new BufferedReader(new StringReader(text.toString()))).doParse();
+	}
+}
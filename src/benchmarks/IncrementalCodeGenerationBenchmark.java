@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.CompilationUnitCache;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.Edge;
+import models.dataFlowModel.DataFlowEdge;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import models.dataFlowModel.PushPullAttribute;
+import models.dataFlowModel.PushPullValue;
+import parser.exceptions.ParseException;
+
+/**
+ * Compares the time to generate all the components of models of increasing sizes with the time to generate them again
+ * with a cache of the units after the push/pull selection of a single data-flow edge is changed,
+ * and checks that the codes generated with the cache are identical to those generated without it.
+ *
+ * Usage: IncrementalCodeGenerationBenchmark [max number of channels]
+ *
+ */
+public class IncrementalCodeGenerationBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 3200;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		for (int numChannels = 400; numChannels <= maxChannels; numChannels *= 2) {
+			DataTransferModel model = TypeInferenceBenchmark.createModel(numChannels);
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+			ModelExtension.extendModel(model);
+			TypeInference.infer(model);
+			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+			CompilationUnitCache cache = new CompilationUnitCache();
+			generate(model, graph, cache);
+
+			// Change the selection of an edge.
+			for (Edge e: graph.getEdges()) {
+				PushPullAttribute attribute = (PushPullAttribute) ((DataFlowEdge) e).getAttribute();
+				if (attribute.getOptions().size() > 1) {
+					List<PushPullValue> options = new ArrayList<>(attribute.getOptions());
+					Collections.reverse(options);
+					attribute.setOptions(options);
+					break;
+				}
+			}
+			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+			System.gc();
+			long start = System.nanoTime();
+			ArrayList<CompilationUnit> codes = generate(model, graph, null);
+			long generated = System.nanoTime();
+			System.gc();
+			long incrementalStart = System.nanoTime();
+			ArrayList<CompilationUnit> incrementalCodes = generate(model, graph, cache);
+			long incrementalGenerated = System.nanoTime();
+			if (!toString(codes).equals(toString(incrementalCodes))) throw new IllegalStateException("The codes generated with the cache differ from those generated without it.");
+			System.out.println(String.format("%5d channels: all %8.2fms  incremental %8.2fms",
+					numChannels, (generated - start) / 1000000.0, (incrementalGenerated - incrementalStart) / 1000000.0));
+			ModelExtension.recoverModel(model);
+		}
+	}
+
+	private static ArrayList<CompilationUnit> generate(DataTransferModel model, DataFlowGraph graph, CompilationUnitCache cache) {
+		CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+		generator.setCache(cache);
+		return generator.generateCode(model, graph, new JavaSpecific());
+	}
+
+	private static String toString(ArrayList<CompilationUnit> codes) {
+		StringBuilder result = new StringBuilder();
+		for (CompilationUnit cu: codes) {
+			result.append(cu.getFileName() + "\n" + CodeEmitter.toString(cu) + "\n");
+		}
+		return result.toString();
+	}
+}
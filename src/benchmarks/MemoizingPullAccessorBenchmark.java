@@ -0,0 +1,147 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.Edge;
+import models.dataFlowModel.DataFlowEdge;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import models.dataFlowModel.PushPullAttribute;
+import models.dataFlowModel.PushPullValue;
+import parser.Parser;
+
+/**
+ * Compares the time to read the last resource of a chain of PULL-style transfers from a list resource
+ * in the prototypes generated with and without memoizing the derived states, and checks that the read states are identical.
+ *
+ * Usage: MemoizingPullAccessorBenchmark [length of the chain] [number of the elements of the list] [number of reads]
+ *
+ */
+public class MemoizingPullAccessorBenchmark {
+	public static void main(String[] args) throws Exception {
+		int length = 10;
+		int numElements = 10000;
+		int numReads = 10000;
+		if (args.length > 0) length = Integer.parseInt(args[0]);
+		if (args.length > 1) numElements = Integer.parseInt(args[1]);
+		if (args.length > 2) numReads = Integer.parseInt(args[2]);
+
+		Object plain = createPrototype(length, false);
+		Object memoized = createPrototype(length, true);
+		Method plainAppend = plain.getClass().getMethod("append", int.class);
+		Method memoizedAppend = memoized.getClass().getMethod("append", int.class);
+		Method plainGetter = plain.getClass().getMethod("getTotal" + length);
+		Method memoizedGetter = memoized.getClass().getMethod("getTotal" + length);
+
+		// Interleave updates and reads.
+		for (int i = 0; i < numElements; i++) {
+			plainAppend.invoke(plain, i);
+			memoizedAppend.invoke(memoized, i);
+			if (i % 100 == 0 && !plainGetter.invoke(plain).equals(memoizedGetter.invoke(memoized))) {
+				throw new IllegalStateException("The memoized state differs from the recomputed state.");
+			}
+		}
+		System.gc();
+		long start = System.nanoTime();
+		Object plainState = null;
+		for (int i = 0; i < numReads; i++) {
+			plainState = plainGetter.invoke(plain);
+		}
+		long read = System.nanoTime();
+		System.gc();
+		long memoizedStart = System.nanoTime();
+		Object memoizedState = null;
+		for (int i = 0; i < numReads; i++) {
+			memoizedState = memoizedGetter.invoke(memoized);
+		}
+		long memoizedRead = System.nanoTime();
+		if (!plainState.equals(memoizedState)) throw new IllegalStateException("The memoized state differs from the recomputed state.");
+		System.out.println(String.format("chain of %d, %d elements, %d reads: recomputed %8.2fms  memoized %8.2fms",
+				length, numElements, numReads, (read - start) / 1000000.0, (memoizedRead - memoizedStart) / 1000000.0));
+	}
+
+	/**
+	 * Generate, compile and instantiate the main component of a prototype of the chain model.
+	 */
+	private static Object createPrototype(int length, boolean memoizing) throws Exception {
+		DataTransferModel model = new Parser(new BufferedReader(new StringReader(createModelText(length)))).doParse();
+		DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		for (Edge e: graph.getEdges()) {
+			// Select PULL-style transfer for all the edges.
+			PushPullAttribute attribute = (PushPullAttribute) ((DataFlowEdge) e).getAttribute();
+			if (attribute.getOptions().size() > 1 && attribute.getOptions().get(0) == PushPullValue.PUSH) {
+				List<PushPullValue> options = new ArrayList<>(attribute.getOptions());
+				Collections.reverse(options);
+				attribute.setOptions(options);
+			}
+		}
+		ModelExtension.extendModel(model);
+		TypeInference.infer(model);
+		DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+		CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+		generator.setMemoizingPullAccessors(memoizing);
+		ArrayList<CompilationUnit> codes = generator.generateCode(model, graph, new JavaSpecific());
+		ModelExtension.recoverModel(model);
+
+		File dir = Files.createTempDirectory("prototype").toFile();
+		List<String> compilerArgs = new ArrayList<>();
+		compilerArgs.add("-nowarn");
+		compilerArgs.add("-d");
+		compilerArgs.add(dir.getPath());
+		for (CompilationUnit cu: codes) {
+			File file = new File(dir, cu.getFileName());
+			CodeEmitter.emitIfChanged(cu, file);
+			compilerArgs.add(file.getPath());
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler.run(null, null, null, compilerArgs.toArray(new String[compilerArgs.size()])) != 0) {
+			throw new IOException("The generated prototype cannot be compiled.");
+		}
+		// The prototype depends only on the standard library, and its classes should not be confused with those on the class path.
+		URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null);
+		return loader.loadClass("Main").getConstructor().newInstance();
+	}
+
+	/**
+	 * Create a model in which the sum of a list resource is followed by a chain of the given length.
+	 */
+	private static String createModelText(int length) {
+		StringBuilder text = new StringBuilder();
+		text.append("channel CIO {\n");
+		text.append("\tout history(h:List, append(x:Int)) == cons(x, h)\n");
+		text.append("}\n");
+		text.append("channel C0 {\n");
+		text.append("\tin history(h, update0(u)) == u\n");
+		text.append("\tout total0(t:Int, update0(u)) == sum(u)\n");
+		text.append("}\n");
+		for (int i = 1; i <= length; i++) {
+			text.append("channel C" + i + " {\n");
+			text.append("\tin total" + (i - 1) + "(s, update" + i + "(u)) == u\n");
+			text.append("\tout total" + i + "(t:Int, update" + i + "(u)) == u + 1\n");
+			text.append("}\n");
+		}
+		return text.toString();
+	}
+}
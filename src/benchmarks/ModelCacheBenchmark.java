@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import models.dataFlowModel.DataTransferModel;
+import parser.ModelCache;
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Compares the time to parse model files of increasing numbers of channels with the time to load the models stored in their caches.
+ *
+ * Usage: ModelCacheBenchmark [max number of channels]
+ *
+ */
+public class ModelCacheBenchmark {
+	public static void main(String[] args) throws ParseException, IOException {
+		int maxChannels = 102400;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		File warmUp = createFile(3200);
+		for (int i = 0; i < 5; i++) {
+			new ModelCache(warmUp).store(parse(warmUp));
+			new ModelCache(warmUp).load();
+		}
+		delete(warmUp);
+		for (int numChannels = 3200; numChannels <= maxChannels; numChannels *= 2) {
+			File file = createFile(numChannels);
+			System.gc();
+			long start = System.nanoTime();
+			DataTransferModel model = parse(file);
+			long parsed = System.nanoTime();
+			ModelCache cache = new ModelCache(file);
+			cache.store(model);
+			long stored = System.nanoTime();
+			model = null;
+			System.gc();
+			long loadStart = System.nanoTime();
+			model = new ModelCache(file).load();
+			long loaded = System.nanoTime();
+			if (model == null) throw new IllegalStateException("The model is not loaded from the cache.");
+			System.out.println(String.format("%6d channels (%5.1f MB): parse %8.2fms  store %8.2fms  load %8.2fms (%5.1f MB)",
+					numChannels, file.length() / (1024.0 * 1024.0), (parsed - start) / 1000000.0, (stored - parsed) / 1000000.0,
+					(loaded - loadStart) / 1000000.0, cache.getCacheFile().length() / (1024.0 * 1024.0)));
+			delete(file);
+		}
+	}
+
+	private static DataTransferModel parse(File file) throws ParseException, IOException {
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			return new Parser(reader).doParse();
+		}
+	}
+
+	private static File createFile(int numChannels) throws IOException {
+		File file = File.createTempFile("benchmark", ".model");
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write(TypeInferenceBenchmark.createModelText(numChannels));
+		}
+		return file;
+	}
+
+	private static void delete(File file) throws IOException {
+		new ModelCache(file).getCacheFile().delete();
+		file.delete();
+	}
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.ArrayList;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import parser.exceptions.ParseException;
+
+/**
+ * Compares the time to generate the codes of models of increasing sizes from their data-flow graphs
+ * with a single thread and with multiple threads, and checks that the generated codes are identical.
+ *
+ * Usage: ParallelCodeGenerationBenchmark [max number of channels] [number of threads]
+ *
+ */
+public class ParallelCodeGenerationBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 6400;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+		if (args.length > 1) numThreads = Integer.parseInt(args[1]);
+
+		for (int numChannels = 400; numChannels <= maxChannels; numChannels *= 2) {
+			DataTransferModel model = TypeInferenceBenchmark.createModel(numChannels);
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+			ModelExtension.extendModel(model);
+			TypeInference.infer(model);
+			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+
+			// Warm up.
+			for (int i = 0; i < 3; i++) {
+				generate(model, graph, 1);
+				generate(model, graph, numThreads);
+			}
+			System.gc();
+			long start = System.nanoTime();
+			String sequential = generate(model, graph, 1);
+			long generated = System.nanoTime();
+			System.gc();
+			long parallelStart = System.nanoTime();
+			String parallel = generate(model, graph, numThreads);
+			long parallelGenerated = System.nanoTime();
+			if (!sequential.equals(parallel)) throw new IllegalStateException("The codes generated in parallel differ from those generated sequentially.");
+			System.out.println(String.format("%5d channels: sequential %8.2fms  %2d threads %8.2fms",
+					numChannels, (generated - start) / 1000000.0, numThreads, (parallelGenerated - parallelStart) / 1000000.0));
+			ModelExtension.recoverModel(model);
+		}
+	}
+
+	private static String generate(DataTransferModel model, DataFlowGraph graph, int numThreads) {
+		CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+		generator.setNumberOfThreads(numThreads);
+		ArrayList<CompilationUnit> codes = generator.generateCode(model, graph, new JavaSpecific());
+		StringBuilder result = new StringBuilder();
+		for (CompilationUnit cu: codes) {
+			result.append(cu.getFileName() + "\n" + CodeEmitter.toString(cu) + "\n");
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Compares the sequential parsing and the parallel parsing of models of increasing numbers of channels.
+ *
+ * Usage: ParallelParserBenchmark [max number of channels]
+ *
+ */
+public class ParallelParserBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 102400;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		String warmUp = TypeInferenceBenchmark.createModelText(3200);
+		for (int i = 0; i < 5; i++) {
+			parse(warmUp, false);
+			parse(warmUp, true);
+		}
+		for (int numChannels = 3200; numChannels <= maxChannels; numChannels *= 2) {
+			String text = TypeInferenceBenchmark.createModelText(numChannels);
+			System.gc();
+			long sequential = parse(text, false);
+			System.gc();
+			long parallel = parse(text, true);
+			System.out.println(String.format("%6d channels (%5.1f MB): sequential %8.2fms  parallel %8.2fms",
+					numChannels, text.length() / (1024.0 * 1024.0), sequential / 1000000.0, parallel / 1000000.0));
+		}
+	}
+
+	private static long parse(String text, boolean parallel) throws ParseException {
+		Parser parser = new Parser(new BufferedReader(new StringReader(text)));
+		parser.setParallel(parallel);
+		long start = System.nanoTime();
+		parser.doParse();
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.view.mxGraph;
+
+import application.editor.stages.DataFlowModelingStage;
+import models.dataFlowModel.DataTransferModel;
+import parser.ParserDTRAM;
+import parser.exceptions.ParseException;
+
+/**
+ * Measures the time to open .dtram files of increasing numbers of nodes, by reading them line by line
+ * and by mapping them into memory.
+ *
+ * Usage: ParserDTRAMBenchmark [max number of channels]
+ *
+ */
+public class ParserDTRAMBenchmark {
+	public static void main(String[] args) throws ParseException, IOException {
+		int maxChannels = 25600;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		File warmUp = createFile(400);
+		for (int i = 0; i < 5; i++) {
+			open(new ParserDTRAM(new BufferedReader(new FileReader(warmUp))));
+			open(new ParserDTRAM(warmUp));
+		}
+		warmUp.delete();
+		for (int numChannels = 400; numChannels <= maxChannels; numChannels *= 2) {
+			// Each copy of the POS model has 4 resources and 4 channels.
+			File file = createFile(numChannels);
+			System.gc();
+			long[] read = open(new ParserDTRAM(new BufferedReader(new FileReader(file))));
+			System.gc();
+			long[] mapped = open(new ParserDTRAM(file));
+			System.out.println(String.format("%6d nodes: read (model %8.2fms  geometry %8.2fms)  mapped (model %8.2fms  geometry %8.2fms)  graph %8.2fms",
+					numChannels * 2, read[0] / 1000000.0, read[2] / 1000000.0, mapped[0] / 1000000.0, mapped[2] / 1000000.0, mapped[1] / 1000000.0));
+			file.delete();
+		}
+	}
+
+	/**
+	 * Open a .dtram file in the same way as the editor.
+	 *
+	 * @return the times to parse the model, to construct the graph and to restore the geometry
+	 */
+	private static long[] open(ParserDTRAM parser) throws ParseException {
+		long start = System.nanoTime();
+		DataTransferModel model = parser.doParseModel();
+		long parsed = System.nanoTime();
+		mxGraph graph = new mxGraph();
+		DataFlowModelingStage stage = new DataFlowModelingStage(new mxGraphComponent(graph));
+		stage.setModel(model);
+		long constructed = System.nanoTime();
+		parser.doParseGeometry(graph);
+		long restored = System.nanoTime();
+		return new long[] {parsed - start, constructed - parsed, restored - constructed};
+	}
+
+	private static File createFile(int numChannels) throws IOException {
+		File file = File.createTempFile("benchmark", ".dtram");
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write("model {\n");
+			writer.write(TypeInferenceBenchmark.createModelText(numChannels));
+			writer.write("}\n");
+			writer.write("geometry {\n");
+			for (int i = 0; i < numChannels / 4; i++) {
+				int y = i * 100;
+				writer.write("\tnode ioc CIO" + i + ":150," + (y + 35) + ",30,30\n");
+				writer.write("\tnode c C1_" + i + ":500," + y + ",30,30\n");
+				writer.write("\tnode c C2_" + i + ":500," + (y + 70) + ",30,30\n");
+				writer.write("\tnode c C3_" + i + ":850," + (y + 70) + ",30,30\n");
+				writer.write("\tnode r payment" + i + ":300," + (y + 35) + ",80,30\n");
+				writer.write("\tnode r points" + i + ":650," + y + ",80,30\n");
+				writer.write("\tnode r history" + i + ":650," + (y + 70) + ",80,30\n");
+				writer.write("\tnode r total" + i + ":1000," + (y + 70) + ",80,30\n");
+			}
+			writer.write("}\n");
+		}
+		return file;
+	}
+}
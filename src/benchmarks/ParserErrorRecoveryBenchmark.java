@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Parses a model with scattered errors in the error recovery mode, and compares the time with that of the parsing
+ * which stops at the first error.
+ *
+ * Usage: ParserErrorRecoveryBenchmark [number of channels] [interval of the errors in channels]
+ *
+ */
+public class ParserErrorRecoveryBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int numChannels = 10000;
+		int interval = 100;
+		if (args.length > 0) numChannels = Integer.parseInt(args[0]);
+		if (args.length > 1) interval = Integer.parseInt(args[1]);
+		String text = createModelTextWithErrors(numChannels, interval);
+
+		// Warm up.
+		for (int i = 0; i < 5; i++) {
+			createParser(text, true).doParse();
+			parseToFirstError(text);
+		}
+		System.gc();
+		Parser parser = createParser(text, true);
+		long start = System.nanoTime();
+		DataTransferModel model = parser.doParse();
+		long recovered = System.nanoTime();
+		int numParsed = model.getChannels().size() + model.getIOChannels().size();
+		System.gc();
+		long firstStart = System.nanoTime();
+		parseToFirstError(text);
+		long first = System.nanoTime();
+		for (ParseException e: parser.getErrors().subList(0, Math.min(5, parser.getErrors().size()))) {
+			System.out.println(e.getClass().getSimpleName() + " " + e.getMessage());
+		}
+		System.out.println(String.format("%d channels: %d errors and %d channels in %.2fms by one parsing with recovery; %.2fms to the first error",
+				numChannels, parser.getErrors().size(), numParsed, (recovered - start) / 1000000.0, (first - firstStart) / 1000000.0));
+	}
+
+	private static Parser createParser(String text, boolean errorRecovery) {
+		Parser parser = new Parser(new BufferedReader(new StringReader(text)));
+		parser.setErrorRecovery(errorRecovery);
+		return parser;
+	}
+
+	private static void parseToFirstError(String text) {
+		try {
+			createParser(text, false).doParse();
+		} catch (ParseException e) {
+		}
+	}
+
+	/**
+	 * Create a model text in which every interval-th channel has one of the typical errors.
+	 */
+	private static String createModelTextWithErrors(int numChannels, int interval) {
+		String[] blocks = TypeInferenceBenchmark.createModelText(numChannels).split("(?=channel )");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < blocks.length; i++) {
+			String block = blocks[i];
+			if (i % interval == interval - 1) {
+				switch ((i / interval) % 4) {
+				case 0: block = block.replaceFirst("==", "="); break;						// ExpectedEquals
+				case 1: block = block.replaceFirst("\\{", ""); break;						// ExpectedLeftCurlyBracket
+				case 2: block = block.replaceFirst("\t(in|out)", "\tinout"); break;		// ExpectedInOrOutOrRefKeyword
+				case 3: block = block.replaceFirst("\\}", ""); break;						// an unclosed block
+				}
+			}
+			text.append(block);
+		}
+		return text.toString();
+	}
+}
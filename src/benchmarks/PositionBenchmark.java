@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.HashMap;
+
+import models.algebra.Constant;
+import models.algebra.Expression;
+import models.algebra.Position;
+import models.algebra.Term;
+import models.algebra.Variable;
+import models.dataConstraintModel.DataConstraintModel;
+
+/**
+ * Measures how the time of sub-term addressing scales with the depth of cons(...) list terms.
+ *
+ * Usage: PositionBenchmark [max depth]
+ *
+ */
+public class PositionBenchmark {
+	public static void main(String[] args) {
+		int maxDepth = 3200;
+		if (args.length > 0) maxDepth = Integer.parseInt(args[0]);
+
+		// Warm up.
+		for (int i = 0; i < 20; i++) {
+			run(createList(200));
+		}
+		for (int depth = 100; depth <= maxDepth; depth *= 2) {
+			Term list = createList(depth);
+			long start = System.nanoTime();
+			long[] elapsed = run(list);
+			long total = System.nanoTime() - start;
+			System.out.println(String.format("depth %5d: getVariables %9.2fms  getSubTerm %9.2fms  replaceSubTerm %9.2fms  total %9.2fms",
+					depth, elapsed[0] / 1000000.0, elapsed[1] / 1000000.0, elapsed[2] / 1000000.0, total / 1000000.0));
+		}
+	}
+
+	private static long[] run(Term list) {
+		long[] elapsed = new long[3];
+		long start = System.nanoTime();
+		HashMap<Position, Variable> variables = list.getVariables();
+		elapsed[0] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (Position pos: variables.keySet()) {
+			if (!(list.getSubTerm(pos) instanceof Variable)) throw new IllegalStateException(pos.toString());
+		}
+		elapsed[1] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		Term newList = (Term) list.clone();
+		Constant zero = new Constant("0", DataConstraintModel.typeInt);
+		for (Position pos: variables.keySet()) {
+			newList.replaceSubTerm(pos, zero);
+		}
+		elapsed[2] = System.nanoTime() - start;
+		return elapsed;
+	}
+
+	/**
+	 * Create a list term cons(x0, cons(x1, ... cons(x{depth-1}, nil))).
+	 *
+	 * @param depth the number of elements
+	 * @return the list term
+	 */
+	public static Term createList(int depth) {
+		Expression list = new Constant(DataConstraintModel.nil);
+		for (int i = depth - 1; i >= 0; i--) {
+			Term cons = new Term(DataConstraintModel.cons);
+			cons.addChild(new Variable("x" + i));
+			cons.addChild(list);
+			list = cons;
+		}
+		return (Term) list;
+	}
+}
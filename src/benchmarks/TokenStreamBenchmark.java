@@ -0,0 +1,45 @@
+package benchmarks;
+
+import parser.Parser.TokenStream;
+
+/**
+ * Measures the throughput of the tokenization of model descriptions.
+ *
+ * Usage: TokenStreamBenchmark [number of channels]
+ *
+ */
+public class TokenStreamBenchmark {
+	public static void main(String[] args) {
+		int numChannels = 40000;
+		if (args.length > 0) numChannels = Integer.parseInt(args[0]);
+		String[] lines = TypeInferenceBenchmark.createModelText(numChannels).split("\n");
+		long size = 0;
+		for (String line: lines) {
+			size += line.length() + 1;
+		}
+
+		// Warm up.
+		for (int i = 0; i < 5; i++) {
+			tokenize(lines);
+		}
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			int numTokens = tokenize(lines);
+			long elapsed = System.nanoTime() - start;
+			System.out.println(String.format("%d lines, %d tokens in %.2fms: %.2f MB/s",
+					lines.length, numTokens, elapsed / 1000000.0, (size / (1024.0 * 1024.0)) / (elapsed / 1000000000.0)));
+		}
+	}
+
+	private static int tokenize(String[] lines) {
+		TokenStream stream = new TokenStream();
+		for (String line: lines) {
+			stream.addLine(line);
+		}
+		int numTokens = 0;
+		while (stream.next() != null) {
+			numTokens++;
+		}
+		return numTokens;
+	}
+}
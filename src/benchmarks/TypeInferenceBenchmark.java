@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import algorithms.TypeInference;
+import models.dataConstraintModel.Channel;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.exceptions.ParseException;
+
+/**
+ * Measures how the time of type inference scales with the number of channels.
+ *
+ * Usage: TypeInferenceBenchmark [max number of channels]
+ *
+ */
+public class TypeInferenceBenchmark {
+	public static void main(String[] args) throws ParseException {
+		int maxChannels = 12800;
+		if (args.length > 0) maxChannels = Integer.parseInt(args[0]);
+
+		// Warm up.
+		for (int i = 0; i < 5; i++) {
+			TypeInference.infer(createModel(400));
+		}
+		for (int numChannels = 200; numChannels <= maxChannels; numChannels *= 2) {
+			DataTransferModel model = createModel(numChannels);
+			long start = System.nanoTime();
+			TypeInference.infer(model);
+			long elapsed = System.nanoTime() - start;
+
+			// Re-infer after an edit of a single channel.
+			Channel channel = model.getChannels().iterator().next();
+			long start2 = System.nanoTime();
+			TypeInference.reinfer(model, channel);
+			long elapsed2 = System.nanoTime() - start2;
+			System.out.println(String.format("%6d channels: infer %10.2fms  reinfer %8.2fms", model.getChannels().size() + model.getIOChannels().size(), elapsed / 1000000.0, elapsed2 / 1000000.0));
+		}
+	}
+
+	/**
+	 * Create a synthetic model that consists of copies of the POS model.
+	 *
+	 * @param numChannels the number of channels (rounded down to a multiple of 4)
+	 * @return a model whose types are not inferred yet
+	 */
+	public static DataTransferModel createModel(int numChannels) throws ParseException {
+		return new Parser(new BufferedReader(new StringReader(createModelText(numChannels)))).doParse();
+	}
+
+	public static String createModelText(int numChannels) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < numChannels / 4; i++) {
+			text.append("channel CIO" + i + " {\n");
+			text.append("\tout payment" + i + "(p:Int, purchase" + i + "(x:Int)) == x\n");
+			text.append("}\n");
+			text.append("channel C3_" + i + " {\n");
+			text.append("\tin history" + i + "(h, update3_" + i + "(u)) == u\n");
+			text.append("\tout total" + i + "(t:Int, update3_" + i + "(u)) == sum(u)\n");
+			text.append("}\n");
+			text.append("channel C1_" + i + " {\n");
+			text.append("\tin payment" + i + "(p, update1_" + i + "(y)) == y\n");
+			text.append("\tout points" + i + "(l:Int, update1_" + i + "(y)) == floor(y * 0.05)\n");
+			text.append("}\n");
+			text.append("channel C2_" + i + " {\n");
+			text.append("\tin payment" + i + "(p, update2_" + i + "(z)) == z\n");
+			text.append("\tout history" + i + "(h:List, update2_" + i + "(z)) == cons(z, h)\n");
+			text.append("}\n");
+		}
+		return text.toString();
+	}
+}
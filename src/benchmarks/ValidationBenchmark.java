@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.List;
+
+import algorithms.Validation;
+import algorithms.Validation.UpdateConflict;
+import models.dataConstraintModel.ResourcePath;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferChannel;
+
+/**
+ * Measures how the time of the update conflict check scales with the number of resources.
+ *
+ * Usage: ValidationBenchmark [max number of resources]
+ *
+ */
+public class ValidationBenchmark {
+	public static void main(String[] args) {
+		int maxResources = 102400;
+		if (args.length > 0) maxResources = Integer.parseInt(args[0]);
+
+		// Warm up.
+		for (int i = 0; i < 5; i++) {
+			new Validation(createGraph(10000, false)).findUpdateConflicts();
+		}
+		for (int numResources = 1600; numResources <= maxResources; numResources *= 2) {
+			for (boolean bCyclic: new boolean[] {false, true}) {
+				DataFlowGraph graph = createGraph(numResources, bCyclic);
+				System.gc();
+				long start = System.nanoTime();
+				List<UpdateConflict> conflicts = new Validation(graph).findUpdateConflicts();
+				long elapsed = System.nanoTime() - start;
+				if (bCyclic != (conflicts.size() == 1)) throw new IllegalStateException(conflicts.toString());
+				System.out.println(String.format("%7d resources (%s): %8.2fms  %d conflicts",
+						numResources, bCyclic ? "cyclic" : "acyclic", elapsed / 1000000.0, conflicts.size()));
+			}
+		}
+	}
+
+	/**
+	 * Create a data-flow graph that consists of a long chain of resources with branches to side resources.
+	 *
+	 * @param numResources the number of resources
+	 * @param bCyclic whether the last resource of the chain flows back to the first one
+	 * @return the data-flow graph
+	 */
+	public static DataFlowGraph createGraph(int numResources, boolean bCyclic) {
+		DataFlowGraph graph = new DataFlowGraph();
+		ResourcePath[] resources = new ResourcePath[numResources];
+		for (int i = 0; i < numResources; i++) {
+			resources[i] = new ResourcePath("r" + i, 0);
+			graph.addNode(resources[i]);
+		}
+		int chainLength = numResources / 2;
+		for (int i = 0; i < chainLength - 1; i++) {
+			graph.addEdge(resources[i], resources[i + 1], new DataTransferChannel("c" + i));
+		}
+		for (int i = chainLength; i < numResources; i++) {
+			graph.addEdge(resources[i - chainLength], resources[i], new DataTransferChannel("s" + i));
+		}
+		if (bCyclic) {
+			graph.addEdge(resources[chainLength - 1], resources[0], new DataTransferChannel("back"));
+		}
+		return graph;
+	}
+}
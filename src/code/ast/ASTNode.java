@@ -10,4 +10,6 @@ public abstract class ASTNode {
 	public void setParent(ASTNode parent) {
 		this.parent = parent;
 	}
+
+	public abstract void accept(ASTVisitor visitor);
 }
@@ -0,0 +1,84 @@
+package code.ast;
+
+/**
+ * A visitor of the nodes of an AST. The children of a node are visited when visit returns true, and then endVisit is called.
+ *
+ */
+public abstract class ASTVisitor {
+	public boolean visit(CompilationUnit node) {
+		return true;
+	}
+
+	public void endVisit(CompilationUnit node) {
+	}
+
+	public boolean visit(ImportDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(ImportDeclaration node) {
+	}
+
+	public boolean visit(AbstractTypeDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(AbstractTypeDeclaration node) {
+	}
+
+	public boolean visit(TypeDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(TypeDeclaration node) {
+	}
+
+	public boolean visit(FieldDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(FieldDeclaration node) {
+	}
+
+	public boolean visit(MethodDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(MethodDeclaration node) {
+	}
+
+	public boolean visit(VariableDeclaration node) {
+		return true;
+	}
+
+	public void endVisit(VariableDeclaration node) {
+	}
+
+	public boolean visit(Throws node) {
+		return true;
+	}
+
+	public void endVisit(Throws node) {
+	}
+
+	public boolean visit(Block node) {
+		return true;
+	}
+
+	public void endVisit(Block node) {
+	}
+
+	public boolean visit(Annotation node) {
+		return true;
+	}
+
+	public void endVisit(Annotation node) {
+	}
+
+	public boolean visit(Modifier node) {
+		return true;
+	}
+
+	public void endVisit(Modifier node) {
+	}
+}
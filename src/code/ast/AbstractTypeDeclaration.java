@@ -10,4 +10,9 @@ public class AbstractTypeDeclaration extends BodyDeclaration {
 	public void setTypeName(String typeName) {
 		this.typeName = typeName;
 	}
+
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
+	}
 }
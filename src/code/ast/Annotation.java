@@ -2,7 +2,6 @@ package code.ast;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 public class Annotation extends ASTNode {
 	private String name = null;
@@ -35,23 +34,12 @@ public class Annotation extends ASTNode {
 		keyValueMap.put(key, value);
 	}
 	
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
+	}
+	
 	public String toString() {
-		String code = "@" + name;
-		Set<String> keySet = keyValueMap.keySet();
-		if (keySet.size() == 0) {
-			return code;
-		} else if (keySet.size() == 1 && keySet.iterator().next().equals("value")) {
-			code += "(" + keyValueMap.get("value").toString() + ")";
-		} else {
-			code += "(";
-			String delimitar = "";
-			for (String key: keySet) {
-				Object value = keyValueMap.get(key);
-				code += delimitar + key + " = \"" + value.toString() + "\"";
-				delimitar = ", ";
-			}
-			code += ")";
-		}
-		return code;			
+		return CodeEmitter.toString(this);
 	}
 }
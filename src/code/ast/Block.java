@@ -1,32 +1,83 @@
 package code.ast;
 
-import java.util.List;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * A block of statements. The statements are kept in a deque that consists of a list of the statements added to the head
+ * in reverse order and a list of the other statements, and are indexed by a hash map,
+ * so that a statement can be added to either end and looked up without scanning the statements.
+ *
+ */
 public class Block extends ASTNode {
-	private List<String> statements = new ArrayList<String>();
+	private List<String> headStatements = new ArrayList<String>();	// in reverse order
+	private List<String> tailStatements = new ArrayList<String>();
+	private Map<String, Integer> statementCounts = new HashMap<String, Integer>();
+	private List<String> statements = new Statements();
 
+	/**
+	 * Get the statements of this block.
+	 *
+	 * @return an unmodifiable view of the statements in order
+	 */
 	public List<String> getStatements() {
 		return statements;
 	}
 
 	public void setStatements(List<String> statements) {
-		this.statements = statements;
+		List<String> newStatements = new ArrayList<String>(statements);
+		headStatements.clear();
+		tailStatements.clear();
+		statementCounts.clear();
+		for (String statement: newStatements) {
+			addStatement(statement);
+		}
 	}
 	
 	public void addFirstStatement(String statement) {
-		statements.add(0, statement);
+		headStatements.add(statement);
+		countStatement(statement);
 	}
 	
 	public void addStatement(String statement) {
-		statements.add(statement);
+		tailStatements.add(statement);
+		countStatement(statement);
+	}
+	
+	public boolean containsStatement(String statement) {
+		return statementCounts.containsKey(statement);
+	}
+	
+	private void countStatement(String statement) {
+		Integer count = statementCounts.get(statement);
+		if (count == null) count = 0;
+		statementCounts.put(statement, count + 1);
+	}
+	
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
 	}
 	
 	public String toString() {
-		String code = "";
-		for (String statement: statements) {
-			code += (statement + "\n");
+		return CodeEmitter.toString(this);
+	}
+	
+	private class Statements extends AbstractList<String> {
+		public String get(int index) {
+			if (index < headStatements.size()) return headStatements.get(headStatements.size() - 1 - index);
+			return tailStatements.get(index - headStatements.size());
+		}
+
+		public int size() {
+			return headStatements.size() + tailStatements.size();
+		}
+
+		public boolean contains(Object o) {
+			return statementCounts.containsKey(o);
 		}
-		return code;
 	}
 }
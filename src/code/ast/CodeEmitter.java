@@ -0,0 +1,363 @@
+package code.ast;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+
+/**
+ * A visitor that emits the source code of an AST to an Appendable, such as a Writer, through a CodeWriter,
+ * without building the code of each node as a string.
+ *
+ */
+public class CodeEmitter extends ASTVisitor {
+	private CodeWriter writer;
+
+	public CodeEmitter(Appendable out) {
+		this.writer = new CodeWriter(out);
+	}
+
+	/**
+	 * Emit the source code of an AST.
+	 *
+	 * @param node the root of the AST
+	 * @param out the destination of the code
+	 */
+	public static void emit(ASTNode node, Appendable out) throws IOException {
+		try {
+			node.accept(new CodeEmitter(out));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Emit the source code of an AST to a file unless the file already contains the same code,
+	 * so that an unchanged file keeps its timestamp. The code is compared with the file while it is emitted,
+	 * and it is written to a temporary file that replaces the file only after a difference is found.
+	 *
+	 * @param node the root of the AST
+	 * @param file the destination of the code
+	 * @return true if the file has been written
+	 */
+	public static boolean emitIfChanged(ASTNode node, File file) throws IOException {
+		try (ComparingWriter out = new ComparingWriter(file)) {
+			emit(node, out);
+			return out.commit();
+		}
+	}
+
+	/**
+	 * Get the source code of an AST as a string.
+	 *
+	 * @param node the root of the AST
+	 * @return the source code
+	 */
+	public static String toString(ASTNode node) {
+		StringBuilder code = new StringBuilder();
+		node.accept(new CodeEmitter(code));
+		return code.toString();
+	}
+
+	@Override
+	public boolean visit(CompilationUnit node) {
+		for (ImportDeclaration imp: node.imports()) {
+			imp.accept(this);
+		}
+		write("\n");
+		for (TypeDeclaration type: node.types()) {
+			type.accept(this);
+		}
+		return false;
+	}
+
+	@Override
+	public boolean visit(ImportDeclaration node) {
+		write("import ");
+		write(node.getName());
+		write(";\n");
+		return false;
+	}
+
+	@Override
+	public boolean visit(TypeDeclaration node) {
+		for (Annotation annotation: node.getAnnotations()) {
+			annotation.accept(this);
+			write("\n");
+		}
+		write("public class ");
+		write(node.getTypeName());
+		write(" {\n");
+		for (FieldDeclaration f: node.getFields()) {
+			write("\t");
+			f.accept(this);
+		}
+		for (MethodDeclaration m: node.getMethods()) {
+			writer.indent();
+			m.accept(this);
+			unindent();
+		}
+		write("}");
+		return false;
+	}
+
+	@Override
+	public boolean visit(FieldDeclaration node) {
+		for (Annotation annotation: node.getAnnotations()) {
+			annotation.accept(this);
+			write("\n");
+		}
+		write("private ");
+		write(node.getType().getInterfaceTypeName());
+		write(" ");
+		write(node.getName());
+		if (node.getInitializer() != null) {
+			write(" = ");
+			write(node.getInitializer());
+		}
+		write(";\n");
+		return false;
+	}
+
+	@Override
+	public boolean visit(MethodDeclaration node) {
+		for (Annotation annotation: node.getAnnotations()) {
+			annotation.accept(this);
+			write("\n");
+		}
+		write("public ");
+		if (node.getReturnType() == null) {
+			if (!node.isConstructor()) write("void ");
+		} else {
+			write(node.getReturnType().getInterfaceTypeName());
+			write(" ");
+		}
+		write(node.getName());
+		write("(");
+		if (node.getParameters() != null) {
+			String delimiter = "";
+			for (VariableDeclaration parameter: node.getParameters()) {
+				write(delimiter);
+				parameter.accept(this);
+				delimiter = ", ";
+			}
+		}
+		write(") ");
+		if (node.getThrows() != null) {
+			node.getThrows().accept(this);
+			write(" ");
+		}
+		write("{\n");
+		if (node.getBody() != null) {
+			writer.indent();
+			node.getBody().accept(this);
+			unindent();
+		}
+		write("}");
+		return false;
+	}
+
+	@Override
+	public boolean visit(VariableDeclaration node) {
+		for (Annotation annotation: node.getAnnotations()) {
+			annotation.accept(this);
+			write(" ");
+		}
+		write(node.getType().getInterfaceTypeName());
+		write(" ");
+		write(node.getName());
+		return false;
+	}
+
+	@Override
+	public boolean visit(Throws node) {
+		write("throws ");
+		String delimiter = "";
+		for (String exception: node.getExceptions()) {
+			write(delimiter);
+			write(exception);
+			delimiter = ", ";
+		}
+		return false;
+	}
+
+	@Override
+	public boolean visit(Block node) {
+		for (String statement: node.getStatements()) {
+			write(statement);
+			write("\n");
+		}
+		return false;
+	}
+
+	@Override
+	public boolean visit(Annotation node) {
+		write("@");
+		write(node.getElementName());
+		Set<String> keySet = node.getParams().keySet();
+		if (keySet.size() == 0) {
+			return false;
+		} else if (keySet.size() == 1 && keySet.iterator().next().equals("value")) {
+			write("(");
+			write(node.getValue("value").toString());
+			write(")");
+		} else {
+			write("(");
+			String delimiter = "";
+			for (String key: keySet) {
+				write(delimiter);
+				write(key);
+				write(" = \"");
+				write(node.getValue(key).toString());
+				write("\"");
+				delimiter = ", ";
+			}
+			write(")");
+		}
+		return false;
+	}
+
+	private void write(String code) {
+		try {
+			writer.write(String.valueOf(code));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void unindent() {
+		try {
+			writer.unindent();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * A writer that compares the code written to it with the contents of a file, chunk by chunk, and writes the code
+	 * to a temporary file next to the file from the first difference on.
+	 */
+	private static class ComparingWriter extends Writer {
+		private File file;
+		private Reader existing = null;				// the rest of the file, while the code is the same as the file
+		private char[] buffer = new char[8192];
+		private int bufferEnd = 0;
+		private int bufferPosition = 0;
+		private long numSameChars = 0;
+		private File tempFile = null;
+		private Writer out = null;						// the temporary file, after a difference is found
+
+		private ComparingWriter(File file) throws IOException {
+			this.file = file;
+			if (file.isFile()) {
+				existing = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.defaultCharset()));
+			} else {
+				startWriting();
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			append(CharBuffer.wrap(cbuf), off, off + len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			append(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(CharSequence csq, int start, int end) throws IOException {
+			if (out == null) {
+				while (start < end) {
+					if (bufferPosition == bufferEnd && !fillBuffer()) break;
+					if (buffer[bufferPosition] != csq.charAt(start)) break;
+					bufferPosition++;
+					numSameChars++;
+					start++;
+				}
+				if (start == end) return this;
+				startWriting();
+			}
+			out.append(csq, start, end);
+			return this;
+		}
+
+		/**
+		 * Replace the file with the code if it differs from the file.
+		 *
+		 * @return true if the file has been replaced
+		 */
+		private boolean commit() throws IOException {
+			if (out == null) {
+				if (bufferPosition < bufferEnd || fillBuffer()) {
+					startWriting();			// the file is longer than the code.
+				} else {
+					existing.close();
+					existing = null;
+					return false;
+				}
+			}
+			out.close();
+			out = null;
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			tempFile = null;
+			return true;
+		}
+
+		private boolean fillBuffer() throws IOException {
+			bufferEnd = existing.read(buffer);
+			bufferPosition = 0;
+			if (bufferEnd > 0) return true;
+			bufferEnd = 0;
+			return false;
+		}
+
+		/**
+		 * Start writing the temporary file with the part of the file that is the same as the code.
+		 */
+		private void startWriting() throws IOException {
+			if (existing != null) {
+				existing.close();
+				existing = null;
+			}
+			File directory = file.getAbsoluteFile().getParentFile();
+			tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), Charset.defaultCharset()));
+			if (numSameChars > 0) {
+				try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.defaultCharset()))) {
+					for (long rest = numSameChars; rest > 0; ) {
+						int n = in.read(buffer, 0, (int) Math.min(buffer.length, rest));
+						if (n < 0) throw new IOException("The file has been changed: " + file);
+						out.write(buffer, 0, n);
+						rest -= n;
+					}
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+		}
+
+		@Override
+		public void close() throws IOException {
+			// Discard the temporary file unless it has been committed.
+			if (existing != null) existing.close();
+			if (out != null) out.close();
+			if (tempFile != null) tempFile.delete();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package code.ast;
+
+import java.io.IOException;
+
+/**
+ * A sink of source code that streams the code to an Appendable and indents the code written between indent() and unindent()
+ * by a tab. The indentation is the same as that of CodeUtil.insertTab applied to the code written at each level, i.e., every line
+ * including an empty line is indented, the empty lines at the end are removed and the last line is terminated by a line break,
+ * but the code is neither split into lines nor copied at each level.
+ *
+ */
+public class CodeWriter {
+	private Appendable out;
+	private int depth = 0;
+	private int[] newLines = new int[8];			// the number of line breaks not written yet at each level
+	private boolean[] lineStarted = new boolean[8];	// whether the current line has been started at each level
+	private boolean[] written = new boolean[8];		// whether any code has been written at each level
+
+	public CodeWriter(Appendable out) {
+		this.out = out;
+	}
+
+	public CodeWriter write(String code) throws IOException {
+		write(depth, code, 0, code.length());
+		return this;
+	}
+
+	/**
+	 * Begin a level of indentation.
+	 */
+	public void indent() {
+		depth++;
+		if (depth == newLines.length) {
+			int[] newNewLines = new int[depth * 2];
+			boolean[] newLineStarted = new boolean[depth * 2];
+			boolean[] newWritten = new boolean[depth * 2];
+			System.arraycopy(newLines, 0, newNewLines, 0, depth);
+			System.arraycopy(lineStarted, 0, newLineStarted, 0, depth);
+			System.arraycopy(written, 0, newWritten, 0, depth);
+			newLines = newNewLines;
+			lineStarted = newLineStarted;
+			written = newWritten;
+		}
+		newLines[depth] = 0;
+		lineStarted[depth] = false;
+		written[depth] = false;
+	}
+
+	/**
+	 * End the current level of indentation.
+	 */
+	public void unindent() throws IOException {
+		if (lineStarted[depth]) {
+			write(depth - 1, "\n", 0, 1);		// terminate the last line.
+		} else if (!written[depth]) {
+			write(depth - 1, "\t\n", 0, 2);		// an empty code is indented as an empty line.
+		}
+		depth--;
+	}
+
+	private void write(int level, CharSequence code, int begin, int end) throws IOException {
+		if (level == 0) {
+			out.append(code, begin, end);
+			return;
+		}
+		if (begin == end) return;
+		written[level] = true;
+		int i = begin;
+		while (i < end) {
+			if (code.charAt(i) == '\n') {
+				newLines[level]++;
+				i++;
+				continue;
+			}
+			int lineEnd = i;
+			while (lineEnd < end && code.charAt(lineEnd) != '\n') lineEnd++;
+			startLine(level);
+			write(level - 1, code, i, lineEnd);
+			i = lineEnd;
+		}
+	}
+
+	private void startLine(int level) throws IOException {
+		for (int i = 0; i < newLines[level]; i++) {
+			if (lineStarted[level]) {
+				write(level - 1, "\n", 0, 1);
+				lineStarted[level] = false;
+			} else {
+				write(level - 1, "\t\n", 0, 2);
+			}
+		}
+		newLines[level] = 0;
+		if (!lineStarted[level]) {
+			write(level - 1, "\t", 0, 1);
+			lineStarted[level] = true;
+		}
+	}
+}
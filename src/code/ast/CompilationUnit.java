@@ -36,15 +36,19 @@ public class CompilationUnit extends ASTNode {
 		return fileName;
 	}
 	
-	public String toString() {
-		String result = "";
-		for (ImportDeclaration imp: imports) {
-			result += imp.toString();
-		}
-		result +="\n";
-		for (TypeDeclaration type: types) {
-			result += type.toString();
+	public void accept(ASTVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (ImportDeclaration imp: imports) {
+				imp.accept(visitor);
+			}
+			for (TypeDeclaration type: types) {
+				type.accept(visitor);
+			}
 		}
-		return result;
+		visitor.endVisit(this);
+	}
+	
+	public String toString() {
+		return CodeEmitter.toString(this);
 	}
 }
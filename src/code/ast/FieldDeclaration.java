@@ -62,16 +62,16 @@ public class FieldDeclaration extends BodyDeclaration implements IAnnotatable {
 		annotations.put(annotation.getElementName(), annotation);
 	}
 
-	public String toString() {
-		String code = "";
-		for (Annotation annotation: getAnnotations()) {
-			code += annotation.toString() + "\n";
-		}
-		if (initializer == null) {
-			code += "private " + type.getInterfaceTypeName() + " " + fieldName + ";\n";
-		} else {
-			code += "private " + type.getInterfaceTypeName() + " " + fieldName + " = " + initializer + ";\n";
+	public void accept(ASTVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (Annotation annotation: getAnnotations()) {
+				annotation.accept(visitor);
+			}
 		}
-		return code;
+		visitor.endVisit(this);
+	}
+
+	public String toString() {
+		return CodeEmitter.toString(this);
 	}
 }
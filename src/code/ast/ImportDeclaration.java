@@ -15,6 +15,11 @@ public class ImportDeclaration {
 		this.name = name;
 	}
 	
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
+	}
+	
 	public String toString() {
 		return "import " + name + ";\n";
 	}
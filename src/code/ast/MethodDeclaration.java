@@ -103,6 +103,10 @@ public class MethodDeclaration extends BodyDeclaration implements IAnnotatable {
 		body.addFirstStatement(statement);
 	}
 	
+	public Throws getThrows() {
+		return thrws;
+	}
+	
 	public void addThrow(String exception) {
 		if (thrws == null) {
 			thrws = new Throws();
@@ -125,34 +129,23 @@ public class MethodDeclaration extends BodyDeclaration implements IAnnotatable {
 		annotations.put(annotation.getElementName(), annotation);
 	}
 	
-	public String toString() {
-		String code = "";
-		for (Annotation annotation: getAnnotations()) {
-			code += annotation.toString() + "\n";
-		}
-		code += "public ";
-		if (returnType == null) {
-			if(!isConstructor) code += "void ";
-		}else {
-			code += returnType.getInterfaceTypeName() + " ";
-		}
-		code += (name + "(");
-		if (parameters != null) {
-			String delimitar = "";
-			for (VariableDeclaration parameter: parameters) {
-				code = code + delimitar + parameter.toString();
-				delimitar = ", ";
+	public void accept(ASTVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (Annotation annotation: getAnnotations()) {
+				annotation.accept(visitor);
 			}
+			if (parameters != null) {
+				for (VariableDeclaration parameter: parameters) {
+					parameter.accept(visitor);
+				}
+			}
+			if (thrws != null) thrws.accept(visitor);
+			if (body != null) body.accept(visitor);
 		}
-		code += ") ";
-		if (thrws != null) {
-			code += thrws.toString() + " ";
-		}
-		code += "{\n";
-		if (body != null) {
-			code += CodeUtil.insertTab(body.toString());
-		}
-		code += "}";
-		return code;
+		visitor.endVisit(this);
+	}
+	
+	public String toString() {
+		return CodeEmitter.toString(this);
 	}
 }
@@ -26,4 +26,9 @@ public class Modifier extends ASTNode {
 	public static boolean isStatic(int flags) {
 		return (flags & STATIC) != 0;
 	}
+
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
+	}
 }
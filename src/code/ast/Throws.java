@@ -17,13 +17,12 @@ public class Throws extends ASTNode {
 		return exceptions;
 	}
 	
+	public void accept(ASTVisitor visitor) {
+		visitor.visit(this);
+		visitor.endVisit(this);
+	}
+	
 	public String toString() {
-		String code = "throws ";
-		String delimiter = "";
-		for (String exception: exceptions) {
-			code += delimiter + exception;
-			delimiter = ", ";
-		}
-		return code;
+		return CodeEmitter.toString(this);
 	}
 }
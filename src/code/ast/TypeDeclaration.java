@@ -67,19 +67,22 @@ public class TypeDeclaration extends AbstractTypeDeclaration implements IAnnotat
 		annotations.put(annotation.getElementName(), annotation);
 	}
 	
-	public String toString() {
-		String code = "";
-		for (Annotation annotation: getAnnotations()) {
-			code += annotation.toString() + "\n";
-		}
-		code += "public class " + typeName + " {\n";
-		for (FieldDeclaration f: fields) {
-			code += "\t" + f.toString();
-		}
-		for (MethodDeclaration m: methods) {
-			code += CodeUtil.insertTab(m.toString());
+	public void accept(ASTVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (Annotation annotation: getAnnotations()) {
+				annotation.accept(visitor);
+			}
+			for (FieldDeclaration f: fields) {
+				f.accept(visitor);
+			}
+			for (MethodDeclaration m: methods) {
+				m.accept(visitor);
+			}
 		}
-		code += "}";
-		return code;
+		visitor.endVisit(this);
+	}
+	
+	public String toString() {
+		return CodeEmitter.toString(this);
 	}
 }
@@ -47,12 +47,16 @@ public class VariableDeclaration extends ASTNode implements IAnnotatable {
 		annotations.put(annotation.getElementName(), annotation);
 	}
 	
-	public String toString() {
-		String code = "";
-		for (Annotation annotation: getAnnotations()) {
-			code += annotation.toString() + " ";
+	public void accept(ASTVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (Annotation annotation: getAnnotations()) {
+				annotation.accept(visitor);
+			}
 		}
-		code += type.getInterfaceTypeName() + " " + variableName;
-		return code;
+		visitor.endVisit(this);
+	}
+	
+	public String toString() {
+		return CodeEmitter.toString(this);
 	}
 }
@@ -8,6 +8,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import code.ast.Block;
 import code.ast.CompilationUnit;
@@ -18,6 +23,7 @@ import models.Edge;
 import models.Node;
 import models.algebra.Expression;
 import models.algebra.Field;
+import models.algebra.NamingContext;
 import models.algebra.Parameter;
 import models.algebra.Symbol;
 import models.algebra.Term;
@@ -49,18 +55,32 @@ public abstract class CodeGenerator {
 	public static final String fieldOfResourceState = "value";
 	public static final String getterOfResourceState = "getValue";
 	public static final String updateMethodName = "update";
-	private static String mainTypeName = null;
+	private String mainTypeName = null;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private DataTransferModel indexedModel = null;
+	private Map<ResourcePath, List<DataTransferChannel>> channelsWithInput = null;		// the channels having each resource as an input
+	private Map<ResourcePath, List<DataTransferChannel>> ioChannelsWithOutput = null;	// the I/O channels having each resource as an output
 		
-	public static String getMainTypeName() {
+	public String getMainTypeName() {
 		return mainTypeName;
 	}
 
-	public static void setMainTypeName(String mainTypeName) {
-		CodeGenerator.mainTypeName = mainTypeName;
+	/**
+	 * Set the name of the main component of the generated codes, e.g., the name of the model file.
+	 * 
+	 * @param mainTypeName the name of the main type (null to use the default name of the language)
+	 */
+	public void setMainTypeName(String mainTypeName) {
+		this.mainTypeName = mainTypeName;
 	}
 	
-	public static void resetMainTypeName() {
-		CodeGenerator.mainTypeName = null;
+	/**
+	 * Set the number of threads to generate the method bodies of the components. The generated codes do not depend on it.
+	 * 
+	 * @param numThreads the number of threads (1 to generate them sequentially)
+	 */
+	public void setNumberOfThreads(int numThreads) {
+		this.numThreads = numThreads;
 	}
 
 	/**
@@ -73,11 +93,13 @@ public abstract class CodeGenerator {
 	 */
 	public ArrayList<CompilationUnit> generateCode(DataTransferModel model, IFlowGraph flowGraph, ILanguageSpecific langSpec) {
 		ArrayList<CompilationUnit> codes = new ArrayList<>();
+		indexChannels(model);
 		
 		// Sort the all components.
 		ArrayList<Set<Node>> components = determineComponentOrder(flowGraph);
 		
 		// Add the main component.
+		String mainTypeName = this.mainTypeName;
 		if (mainTypeName == null) {
 			mainTypeName = langSpec.getMainComponentName();
 		}
@@ -86,8 +108,13 @@ public abstract class CodeGenerator {
 		CompilationUnit mainCU = langSpec.newCompilationUnit(mainComponent);
 		codes.add(mainCU);
 		
-		// Generate the other components.
-		generateCodeFromFlowGraph(model, flowGraph, components, mainComponent, mainConstructor, codes, langSpec);
+		// Generate the other components, whose temporary variables are named in a naming context of this generation.
+		NamingContext previousContext = NamingContext.enter(new NamingContext());
+		try {
+			generateCodeFromFlowGraph(model, flowGraph, components, mainComponent, mainConstructor, codes, langSpec);
+		} finally {
+			NamingContext.exit(previousContext);
+		}
 		
 		return codes;
 	}
@@ -95,6 +122,110 @@ public abstract class CodeGenerator {
 	public abstract void generateCodeFromFlowGraph(DataTransferModel model, IFlowGraph flowGraph, ArrayList<Set<Node>> components,
 			TypeDeclaration mainComponent, MethodDeclaration mainConstructor, ArrayList<CompilationUnit> codes, ILanguageSpecific langSpec);
 	
+	/**
+	 * Generate the bodies of the methods after all the components and their methods are declared.
+	 * The body generators of each component are run in order in a naming context of the component, and those of different components
+	 * are run in parallel, since they only read the model and fill the methods of their own component.
+	 * 
+	 * @param bodyGenerators the generators of the method bodies of each component
+	 */
+	protected void generateMethodBodies(List<List<Runnable>> bodyGenerators) {
+		List<Runnable> componentGenerators = new ArrayList<>();
+		for (final List<Runnable> generators: bodyGenerators) {
+			componentGenerators.add(new Runnable() {
+				public void run() {
+					NamingContext previousContext = NamingContext.enter(new NamingContext());
+					try {
+						for (Runnable generator: generators) {
+							generator.run();
+						}
+					} finally {
+						NamingContext.exit(previousContext);
+					}
+				}
+			});
+		}
+		if (numThreads <= 1 || componentGenerators.size() <= 1) {
+			for (Runnable generator: componentGenerators) {
+				generator.run();
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, componentGenerators.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Runnable generator: componentGenerators) {
+				futures.add(executor.submit(generator));
+			}
+			for (Future<?> future: futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+					if (e.getCause() instanceof Error) throw (Error) e.getCause();
+					throw new IllegalStateException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new CancellationException();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Index the channels of a model by their input resources and the I/O channels by their output resources,
+	 * so that the channels related to each component are found without visiting all the channels.
+	 * 
+	 * @param model architecture model
+	 */
+	private void indexChannels(DataTransferModel model) {
+		channelsWithInput = new HashMap<>();
+		for (Channel ch: model.getChannels()) {
+			for (ResourcePath res: ((DataTransferChannel) ch).getInputResources()) {
+				List<DataTransferChannel> channels = channelsWithInput.get(res);
+				if (channels == null) {
+					channels = new ArrayList<>();
+					channelsWithInput.put(res, channels);
+				}
+				channels.add((DataTransferChannel) ch);
+			}
+		}
+		ioChannelsWithOutput = new HashMap<>();
+		for (Channel ch: model.getIOChannels()) {
+			for (ResourcePath res: ((DataTransferChannel) ch).getOutputResources()) {
+				List<DataTransferChannel> channels = ioChannelsWithOutput.get(res);
+				if (channels == null) {
+					channels = new ArrayList<>();
+					ioChannelsWithOutput.put(res, channels);
+				}
+				channels.add((DataTransferChannel) ch);
+			}
+		}
+		indexedModel = model;
+	}
+	
+	/**
+	 * Get the channels having a resource as an input in the order of the channels of a model.
+	 */
+	protected List<DataTransferChannel> getChannelsWithInput(DataTransferModel model, ResourcePath res) {
+		if (model != indexedModel) indexChannels(model);
+		List<DataTransferChannel> channels = channelsWithInput.get(res);
+		if (channels == null) return new ArrayList<>();
+		return channels;
+	}
+	
+	/**
+	 * Get the I/O channels having a resource as an output in the order of the I/O channels of a model.
+	 */
+	protected List<DataTransferChannel> getIOChannelsWithOutput(DataTransferModel model, ResourcePath res) {
+		if (model != indexedModel) indexChannels(model);
+		List<DataTransferChannel> channels = ioChannelsWithOutput.get(res);
+		if (channels == null) return new ArrayList<>();
+		return channels;
+	}
+	
 	private static ArrayList<Set<Node>> determineComponentOrder(IFlowGraph graph) {
 		ArrayList<Set<Node>> objects = new ArrayList<>();
 		Set<Set<Node>> visited = new HashSet<>();
@@ -211,15 +342,12 @@ public abstract class CodeGenerator {
 		// For the refs. 
 		if (resNode != null) {
 			Set<ResourcePath> refs = new HashSet<>();
-			for (Channel cg : model.getChannels()) {
-				DataTransferChannel ch = (DataTransferChannel) cg;
-				if (ch.getInputResources().contains(resNode.getResource())) {
-					for (ResourcePath id: ch.getReferenceResources()) {
-						if (!refs.contains(id) && !depends.contains(id)) {
-							refs.add(id);
-							String refResName = id.getResourceName();
-							parameters.add(refResName);
-						}
+			for (DataTransferChannel ch : getChannelsWithInput(model, resNode.getResource())) {
+				for (ResourcePath id: ch.getReferenceResources()) {
+					if (!refs.contains(id) && !depends.contains(id)) {
+						refs.add(id);
+						String refResName = id.getResourceName();
+						parameters.add(refResName);
 					}
 				}
 			}
@@ -283,17 +411,14 @@ public abstract class CodeGenerator {
 	protected void declareFieldsToReferenceResources(DataTransferModel model, ResourceNode resourceNode, TypeDeclaration component, MethodDeclaration constructor,
 			final List<ResourcePath> depends, ILanguageSpecific langSpec) {
 		Set<ResourcePath> refs = new HashSet<>();
-		for (Channel ch : model.getChannels()) {
-			DataTransferChannel c = (DataTransferChannel) ch;
-			if (c.getInputResources().contains(resourceNode.getResource())) {
-				for (ResourcePath id: c.getReferenceResources()) {
-					if (!refs.contains(id) && !depends.contains(id)) {
-						refs.add(id);
-						String refResName = langSpec.toComponentName(id.getResourceName());
-						component.addField(langSpec.newFieldDeclaration(new Type(refResName, refResName), id.getResourceName()));
-						constructor.addParameter(langSpec.newVariableDeclaration(new Type(refResName, refResName), id.getResourceName()));						
-						constructor.getBody().addStatement(langSpec.getFieldAccessor(id.getResourceName()) + langSpec.getAssignment() + id.getResourceName() + langSpec.getStatementDelimiter());
-					}
+		for (DataTransferChannel c : getChannelsWithInput(model, resourceNode.getResource())) {
+			for (ResourcePath id: c.getReferenceResources()) {
+				if (!refs.contains(id) && !depends.contains(id)) {
+					refs.add(id);
+					String refResName = langSpec.toComponentName(id.getResourceName());
+					component.addField(langSpec.newFieldDeclaration(new Type(refResName, refResName), id.getResourceName()));
+					constructor.addParameter(langSpec.newVariableDeclaration(new Type(refResName, refResName), id.getResourceName()));						
+					constructor.getBody().addStatement(langSpec.getFieldAccessor(id.getResourceName()) + langSpec.getAssignment() + id.getResourceName() + langSpec.getStatementDelimiter());
 				}
 			}
 		}
@@ -1,8 +1,10 @@
 package generators;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,13 +20,14 @@ import models.Node;
 import models.algebra.Expression;
 import models.algebra.InvalidMessage;
 import models.algebra.ParameterizedIdentifierIsFutureWork;
+import models.algebra.Symbol;
 import models.algebra.Term;
 import models.algebra.Type;
 import models.algebra.UnificationFailed;
 import models.algebra.ValueUndefined;
 import models.algebra.Variable;
-import models.dataConstraintModel.Channel;
 import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.DataConstraintModel;
 import models.dataConstraintModel.ResourcePath;
 import models.dataFlowModel.DataFlowEdge;
 import models.dataFlowModel.DataTransferChannel;
@@ -38,16 +41,62 @@ import models.dataFlowModel.StoreAttribute;
 import models.dataFlowModel.DataTransferChannel.IResourceStateAccessor;
 
 public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
+	private static final String fieldOfStateVersion = "stateVersion";
+	private static final String fieldOfCachedStateVersion = "cachedStateVersion";
+	private static final String getterOfStateVersion = "getStateVersion";
+	private CompilationUnitCache cache = null;
+	private boolean memoizingPullAccessors = false;
+	private Set<ResourcePath> versionedResources = new HashSet<>();		// the resources whose state versions are counted
+	
+	/**
+	 * Set the cache of the units generated last time, which are reused for the components whose inputs have not been changed.
+	 * 
+	 * @param cache the cache of the units, or null to generate all the components
+	 */
+	public void setCache(CompilationUnitCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Set whether the getters of the resources whose states are derived by PULL-style transfer memoize the states.
+	 * The resources read by such getters count up the versions of their states on every update, and each getter recomputes
+	 * the state only when the sum of the versions of its inputs has been changed since the last computation.
+	 * 
+	 * @param memoizingPullAccessors true to memoize the derived states, false to recompute them on every read
+	 */
+	public void setMemoizingPullAccessors(boolean memoizingPullAccessors) {
+		this.memoizingPullAccessors = memoizingPullAccessors;
+	}
 
 	public void generateCodeFromFlowGraph(DataTransferModel model, IFlowGraph flowGraph, ArrayList<Set<Node>> components,
 			TypeDeclaration mainComponent, MethodDeclaration mainConstructor, ArrayList<CompilationUnit> codes, ILanguageSpecific langSpec) {
+		// Determine the resources whose state versions are read to memoize the derived states.
+		versionedResources = getVersionedResources(components, langSpec);
+		
 		// For each of other components.
+		List<List<Runnable>> bodyGenerators = new ArrayList<>();
+		Map<String, String> fingerprints = new HashMap<>();
+		Map<String, CompilationUnit> generatedUnits = new LinkedHashMap<>();
 		for (Set<Node> componentNodeSet: components) {
 			// Declare this resource.
 			Node componentNode = componentNodeSet.iterator().next();
 			ResourceNode resourceNode = (ResourceNode) componentNode;
 			String resourceName = langSpec.toComponentName(resourceNode.getResource().getResourceName());
 			TypeDeclaration component = langSpec.newTypeDeclaration(resourceName);
+			List<Runnable> bodies = new ArrayList<>();
+			
+			// Reuse the unit generated last time if the inputs of this component have not been changed.
+			CompilationUnit cachedUnit = null;
+			if (cache != null) {
+				String fingerprint = getFingerprint(resourceNode, model, langSpec);
+				if (fingerprint != null) {
+					fingerprints.put(resourceName, fingerprint);
+					cachedUnit = cache.getUnit(resourceName, fingerprint);
+				}
+			}
+			if (cachedUnit == null) {
+				bodyGenerators.add(bodies);
+			}
 			
 			// Declare the constructor and the fields to refer to other resources.
 			List<ResourcePath> depends = new ArrayList<>();
@@ -59,14 +108,29 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 			ResourcePath res = resourceNode.getResource();
 			Type resStateType = res.getResourceStateType();
 			
-			// Declare the field in this resource to store the state.
-			if (((StoreAttribute) resourceNode.getAttribute()).isStored()) {
+			// Declare the field in this resource to store (or to memoize) the state.
+			if (((StoreAttribute) resourceNode.getAttribute()).isStored() || versionedResources.contains(res)) {
 				FieldDeclaration stateField = langSpec.newFieldDeclaration(resStateType, fieldOfResourceState, langSpec.getFieldInitializer(resStateType, res.getInitialValue()));
 				component.addField(stateField);
 			}
 			
+			// Declare the fields in this resource to count the versions of the state.
+			if (versionedResources.contains(res)) {
+				if (hasOwnStateVersion(resourceNode)) {
+					component.addField(langSpec.newFieldDeclaration(DataConstraintModel.typeLong, fieldOfStateVersion));
+				}
+				if (!((StoreAttribute) resourceNode.getAttribute()).isStored()) {
+					component.addField(langSpec.newFieldDeclaration(DataConstraintModel.typeLong, fieldOfCachedStateVersion, "-1"));
+				}
+			}
+			
 			// Declare the getter method in this resource to obtain the state.
-			MethodDeclaration getter = declareGetterMethod(resourceNode, component, resStateType, langSpec);
+			MethodDeclaration getter = declareGetterMethod(resourceNode, component, resStateType, bodies, langSpec);
+			
+			// Declare the getter method in this resource to obtain the version of the state.
+			if (versionedResources.contains(res)) {
+				declareStateVersionGetterMethod(resourceNode, component, langSpec);
+			}
 			
 			// Declare the accessor method in the main component to call the getter method.
 			declareAccessorInMainComponent(mainComponent, res, langSpec);
@@ -75,18 +139,153 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 			declareFieldsToReferenceResources(model, resourceNode, component, constructor, depends, langSpec);
 			
 			// Declare cache fields and update methods in this resource.
-			List<MethodDeclaration> updates = declareCacheFieldsAndUpdateMethods(resourceNode, component, langSpec);
+			List<MethodDeclaration> updates = declareCacheFieldsAndUpdateMethods(resourceNode, component, bodies, langSpec);
 			
 			// Declare input methods in this component and the main component.
-			List<MethodDeclaration> inputs = declareInputMethodsInThisAndMainComponents(resourceNode, component, mainComponent, model, langSpec);
+			List<MethodDeclaration> inputs = declareInputMethodsInThisAndMainComponents(resourceNode, component, mainComponent, model, bodies, langSpec);
 				
 			if (constructor.getParameters() == null) {
 				component.removeMethod(constructor);
 			}
 						
 			// Add compilation unit for this component.
-			CompilationUnit cu = langSpec.newCompilationUnit(component);
-			codes.add(cu);
+			if (cachedUnit != null) {
+				codes.add(cachedUnit);
+			} else {
+				CompilationUnit cu = langSpec.newCompilationUnit(component);
+				codes.add(cu);
+				generatedUnits.put(resourceName, cu);
+			}
+		}
+		
+		// Generate the bodies of the methods declared above.
+		generateMethodBodies(bodyGenerators);
+		
+		// Cache the generated units.
+		if (cache != null) {
+			for (String componentName: generatedUnits.keySet()) {
+				if (fingerprints.get(componentName) != null) {
+					cache.putUnit(componentName, fingerprints.get(componentName), generatedUnits.get(componentName));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the fingerprint of the inputs of the generation of a component, which consist of its resource, the incoming and outgoing
+	 * data-flow edges with their push/pull attributes, and the state transitions of the channels referred to by them.
+	 * 
+	 * @param resourceNode the resource node of the component
+	 * @param model architecture model
+	 * @param langSpec specified language
+	 * @return the fingerprint, or null if the component should always be generated
+	 */
+	private String getFingerprint(ResourceNode resourceNode, DataTransferModel model, ILanguageSpecific langSpec) {
+		StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(langSpec.getClass().getName()).append('\n');
+		appendResource(fingerprint, resourceNode.getResource());
+		fingerprint.append(((StoreAttribute) resourceNode.getAttribute()).isStored()).append('\n');
+		fingerprint.append(versionedResources.contains(resourceNode.getResource())).append('\n');
+		for (Edge e: resourceNode.getInEdges()) {
+			DataFlowEdge dIn = (DataFlowEdge) e;
+			fingerprint.append("in ").append(((PushPullAttribute) dIn.getAttribute()).getOptions().get(0)).append(' ');
+			appendResource(fingerprint, ((ResourceNode) dIn.getSource()).getResource());
+			appendChannel(fingerprint, dIn.getChannel());
+		}
+		for (Edge e: resourceNode.getOutEdges()) {
+			DataFlowEdge dOut = (DataFlowEdge) e;
+			fingerprint.append("out ").append(((PushPullAttribute) dOut.getAttribute()).getOptions().get(0)).append(' ');
+			appendResource(fingerprint, ((ResourceNode) dOut.getDestination()).getResource());
+			appendChannel(fingerprint, dOut.getChannel());
+		}
+		for (DataTransferChannel ch: getChannelsWithInput(model, resourceNode.getResource())) {
+			// for the fields to refer to reference resources.
+			for (ResourcePath ref: ch.getReferenceResources()) {
+				fingerprint.append("ref ");
+				appendResource(fingerprint, ref);
+			}
+		}
+		for (DataTransferChannel ch: getIOChannelsWithOutput(model, resourceNode.getResource())) {
+			for (ChannelMember out: ch.getOutputChannelMembers()) {
+				if (out.getResource().equals(resourceNode.getResource())) {
+					// A parameter of an input method without its type may be given a type by another component.
+					Expression message = out.getStateTransition().getMessageExpression();
+					if (message != null) {
+						for (Variable var: message.getVariables().values()) {
+							if (var.getType() == null) return null;
+						}
+					}
+					fingerprint.append("io ");
+					appendChannel(fingerprint, ch);
+				}
+			}
+		}
+		return fingerprint.toString();
+	}
+	
+	private void appendResource(StringBuilder fingerprint, ResourcePath res) {
+		fingerprint.append(res.getResourceName()).append(':');
+		appendType(fingerprint, res.getResourceStateType());
+		fingerprint.append('=');
+		appendExpression(fingerprint, res.getInitialValue());
+		fingerprint.append('\n');
+	}
+	
+	private void appendChannel(StringBuilder fingerprint, DataTransferChannel ch) {
+		fingerprint.append("channel ").append(ch.getChannelName()).append('\n');
+		for (ChannelMember in: ch.getInputChannelMembers()) {
+			fingerprint.append("\tin ");
+			appendChannelMember(fingerprint, in);
+		}
+		for (ChannelMember ref: ch.getReferenceChannelMembers()) {
+			fingerprint.append("\tref ");
+			appendChannelMember(fingerprint, ref);
+		}
+		for (ChannelMember out: ch.getOutputChannelMembers()) {
+			fingerprint.append("\tout ");
+			appendChannelMember(fingerprint, out);
+		}
+	}
+	
+	private void appendChannelMember(StringBuilder fingerprint, ChannelMember member) {
+		appendResource(fingerprint, member.getResource());
+		fingerprint.append("\t\t");
+		appendExpression(fingerprint, member.getStateTransition().getCurStateExpression());
+		fingerprint.append(", ");
+		appendExpression(fingerprint, member.getStateTransition().getMessageExpression());
+		fingerprint.append(" == ");
+		appendExpression(fingerprint, member.getStateTransition().getNextStateExpression());
+		fingerprint.append('\n');
+	}
+	
+	private void appendExpression(StringBuilder fingerprint, Expression exp) {
+		if (exp instanceof Variable) {
+			fingerprint.append(((Variable) exp).getName()).append(':');
+			appendType(fingerprint, ((Variable) exp).getType());
+		} else if (exp instanceof Term) {
+			// The implementation of the symbol and the types of the subterms are also reflected in the code.
+			Term term = (Term) exp;
+			Symbol symbol = term.getSymbol();
+			fingerprint.append(exp.getClass().getSimpleName()).append(' ').append(symbol.getName()).append('/').append(symbol.getArity())
+				.append('/').append(symbol.getImplName()).append('/').append(symbol.getImplOperatorType())
+				.append('/').append(Arrays.toString(symbol.getImplParamOrder())).append(':');
+			appendType(fingerprint, term.getType());
+			fingerprint.append('(');
+			for (Expression child: term.getChildren()) {
+				appendExpression(fingerprint, child);
+				fingerprint.append(',');
+			}
+			fingerprint.append(')');
+		} else {
+			fingerprint.append(exp);
+		}
+	}
+	
+	private void appendType(StringBuilder fingerprint, Type type) {
+		if (type == null) {
+			fingerprint.append("null");
+		} else {
+			fingerprint.append(type.getTypeName()).append('<').append(type.getImplementationTypeName()).append('|').append(type.getInterfaceTypeName()).append('>');
 		}
 	}
 	
@@ -117,11 +316,20 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 		return constructor;
 	}
 
-	private MethodDeclaration declareGetterMethod(ResourceNode resourceNode, TypeDeclaration component, Type resStateType, ILanguageSpecific langSpec) {
+	private MethodDeclaration declareGetterMethod(final ResourceNode resourceNode, TypeDeclaration component, final Type resStateType, 
+			List<Runnable> bodies, final ILanguageSpecific langSpec) {
 		// Declare the getter method of the resource state.
-		MethodDeclaration getter = langSpec.newMethodDeclaration(getterOfResourceState, resStateType);
+		final MethodDeclaration getter = langSpec.newMethodDeclaration(getterOfResourceState, resStateType);
 		component.addMethod(getter);
-		
+		bodies.add(new Runnable() {
+			public void run() {
+				fillGetterMethod(resourceNode, getter, resStateType, langSpec);
+			}
+		});
+		return getter;
+	}
+	
+	private void fillGetterMethod(ResourceNode resourceNode, MethodDeclaration getter, Type resStateType, ILanguageSpecific langSpec) {
 		if (((StoreAttribute) resourceNode.getAttribute()).isStored()) {
 			fillGetterMethodToReturnStateField(getter, resStateType, langSpec);
 		} else {	
@@ -151,13 +359,17 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 				for (ChannelMember out: ch.getOutputChannelMembers()) {
 					if (out.getResource().equals(resourceNode.getResource())) {
 						String[] sideEffects = new String[] {""};
+						String curState;
 						if (!isContainedPush) {
 							// All incoming edges are in PULL-style.
-							String curState = ch.deriveUpdateExpressionOf(out, getPullAccessor()).toImplementation(sideEffects);
-							getter.addStatement(sideEffects[0] + langSpec.getReturnStatement(curState) + langSpec.getStatementDelimiter());
+							curState = ch.deriveUpdateExpressionOf(out, getPullAccessor()).toImplementation(sideEffects);
 						} else {
 							// At least one incoming edge is in PUSH-style.
-							String curState = ch.deriveUpdateExpressionOf(out, getPullAccessor(), inputResourceToStateAccessor).toImplementation(sideEffects);
+							curState = ch.deriveUpdateExpressionOf(out, getPullAccessor(), inputResourceToStateAccessor).toImplementation(sideEffects);
+						}
+						if (versionedResources.contains(resourceNode.getResource())) {
+							fillGetterMethodToMemoizeState(getter, resStateType, sideEffects[0], curState, langSpec);
+						} else {
 							getter.addStatement(sideEffects[0] + langSpec.getReturnStatement(curState) + langSpec.getStatementDelimiter());
 						}
 						break;
@@ -168,16 +380,110 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 				e.printStackTrace();
 			}
 		}
+	}
+	
+	private void fillGetterMethodToMemoizeState(MethodDeclaration getter, Type resStateType, String sideEffect, String curState, ILanguageSpecific langSpec) {
+		// long curStateVersion = this.getStateVersion();
+		String curVersion = "curStateVersion";
+		getter.addStatement(langSpec.getVariableDeclaration(DataConstraintModel.typeLong.getInterfaceTypeName(), curVersion)
+				+ langSpec.getAssignment() + langSpec.getMethodInvocation(getterOfStateVersion) + langSpec.getStatementDelimiter());
 		
-		return getter;
+		// Recompute the state only when the version of any input has been changed.
+		String cachedVersion = langSpec.getFieldAccessor(fieldOfCachedStateVersion);
+		String recomputation = sideEffect + langSpec.getFieldAccessor(fieldOfResourceState) + langSpec.getAssignment() + curState + langSpec.getStatementDelimiter() + "\n"
+				+ cachedVersion + langSpec.getAssignment() + curVersion + langSpec.getStatementDelimiter();
+		getter.addStatement(langSpec.getIfStatement(langSpec.getInequality(cachedVersion, curVersion), recomputation));
+		fillGetterMethodToReturnStateField(getter, resStateType, langSpec);
+	}
+	
+	private void declareStateVersionGetterMethod(ResourceNode resourceNode, TypeDeclaration component, ILanguageSpecific langSpec) {
+		MethodDeclaration versionGetter = langSpec.newMethodDeclaration(getterOfStateVersion, DataConstraintModel.typeLong);
+		List<String> versions = new ArrayList<>();
+		if (hasOwnStateVersion(resourceNode)) {
+			versions.add(langSpec.getFieldAccessor(fieldOfStateVersion));
+		}
+		if (!((StoreAttribute) resourceNode.getAttribute()).isStored()) {
+			for (ResourcePath pulledRes: getPulledResources(resourceNode)) {
+				versions.add(langSpec.getMethodInvocation(langSpec.getFieldAccessor(pulledRes.getResourceName()), getterOfStateVersion));
+			}
+		}
+		// The sum of the versions is counted up whenever any of the versions is counted up.
+		String version = String.join(" + ", versions);
+		versionGetter.addStatement(langSpec.getReturnStatement(version) + langSpec.getStatementDelimiter());		// return this.stateVersion + this.src.getStateVersion() ...;
+		component.addMethod(versionGetter);
 	}
 	
-	private List<MethodDeclaration> declareCacheFieldsAndUpdateMethods(ResourceNode resourceNode, TypeDeclaration component, ILanguageSpecific langSpec) {
+	/**
+	 * Whether a resource counts the version of its own state, which is updated by its update or input methods.
+	 */
+	private boolean hasOwnStateVersion(ResourceNode resourceNode) {
+		if (((StoreAttribute) resourceNode.getAttribute()).isStored()) return true;
+		for (Edge eIn: resourceNode.getInEdges()) {
+			// for the cache of the source resource of PUSH-style transfer.
+			if (((PushPullAttribute) ((DataFlowEdge) eIn).getAttribute()).getOptions().get(0) == PushPullValue.PUSH) return true;
+		}
+		return false;
+	}
+	
+	private String getStateVersionIncrement(ILanguageSpecific langSpec) {
+		String version = langSpec.getFieldAccessor(fieldOfStateVersion);
+		return version + langSpec.getAssignment() + version + " + 1" + langSpec.getStatementDelimiter();		// this.stateVersion = this.stateVersion + 1;
+	}
+	
+	/**
+	 * Get the resources whose state versions are counted, which are the resources whose states are derived by PULL-style transfer
+	 * and the resources read to derive them.
+	 * 
+	 * @param components the components of the model
+	 * @param langSpec specified language
+	 * @return the resources, which are empty unless the derived states are memoized
+	 */
+	private Set<ResourcePath> getVersionedResources(ArrayList<Set<Node>> components, ILanguageSpecific langSpec) {
+		Set<ResourcePath> versionedResources = new HashSet<>();
+		if (!memoizingPullAccessors || !langSpec.declareField()) return versionedResources;
+		for (Set<Node> componentNodeSet: components) {
+			ResourceNode resourceNode = (ResourceNode) componentNodeSet.iterator().next();
+			if (!((StoreAttribute) resourceNode.getAttribute()).isStored()) {
+				versionedResources.add(resourceNode.getResource());
+				versionedResources.addAll(getPulledResources(resourceNode));
+			}
+		}
+		return versionedResources;
+	}
+	
+	/**
+	 * Get the resources read by the getter of a resource whose state is derived by PULL-style transfer.
+	 * 
+	 * @param resourceNode the resource node whose state is not stored
+	 * @return the source resources of PULL-style transfer and the reference resources of the channel
+	 */
+	private List<ResourcePath> getPulledResources(ResourceNode resourceNode) {
+		List<ResourcePath> pulledResources = new ArrayList<>();
+		DataTransferChannel ch = null;
+		for (Edge eIn: resourceNode.getInEdges()) {
+			DataFlowEdge dIn = (DataFlowEdge) eIn;
+			if (((PushPullAttribute) dIn.getAttribute()).getOptions().get(0) != PushPullValue.PUSH) {
+				ResourcePath srcRes = ((ResourceNode) dIn.getSource()).getResource();
+				if (!pulledResources.contains(srcRes)) pulledResources.add(srcRes);
+				ch = dIn.getChannel();
+			}
+		}
+		if (ch != null) {
+			// for reference channel members (of the same channel as that of the getter).
+			for (ChannelMember c: ch.getReferenceChannelMembers()) {
+				ResourcePath refRes = c.getResource();
+				if (!refRes.equals(resourceNode.getResource()) && !pulledResources.contains(refRes)) pulledResources.add(refRes);
+			}
+		}
+		return pulledResources;
+	}
+	
+	private List<MethodDeclaration> declareCacheFieldsAndUpdateMethods(final ResourceNode resourceNode, TypeDeclaration component, 
+			List<Runnable> bodies, final ILanguageSpecific langSpec) {
 		// Declare cash fields and update methods in the component.
-		String resComponentName = langSpec.toComponentName(resourceNode.getResource().getResourceName());
 		List<MethodDeclaration> updateMethods = new ArrayList<>();
 		for (Edge e: resourceNode.getInEdges()) {
-			DataFlowEdge re = (DataFlowEdge) e;
+			final DataFlowEdge re = (DataFlowEdge) e;
 			ResourcePath srcRes = ((ResourceNode) re.getSource()).getResource();
 			String srcResName = srcRes.getResourceName();
 			String srcResComponentName = langSpec.toComponentName(srcResName);
@@ -194,36 +500,10 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 						vars.add(langSpec.newVariableDeclaration(ref.getResourceStateType(), ref.getResourceName()));
 					}
 				}
-				MethodDeclaration update = langSpec.newMethodDeclaration(updateMethodName + srcResComponentName, false, null, vars);
+				final MethodDeclaration update = langSpec.newMethodDeclaration(updateMethodName + srcResComponentName, false, null, vars);
 				component.addMethod(update);
 				updateMethods.add(update);
 				
-				// Add a statement to update the state field
-				if (((StoreAttribute) resourceNode.getAttribute()).isStored()) {
-					try {
-						for (ChannelMember out: re.getChannel().getOutputChannelMembers()) {
-							if (out.getResource().equals(resourceNode.getResource())) {
-								Expression updateExp = re.getChannel().deriveUpdateExpressionOf(out, getPushAccessor());
-								String[] sideEffects = new String[] {""};
-								String curState = updateExp.toImplementation(sideEffects);
-								String updateStatement;
-								if (updateExp instanceof Term && ((Term) updateExp).getSymbol().isImplWithSideEffect()) {
-									updateStatement = sideEffects[0];
-								} else {
-									updateStatement = sideEffects[0] + langSpec.getFieldAccessor(fieldOfResourceState) + langSpec.getAssignment() + curState + langSpec.getStatementDelimiter();	// this.value = ...
-								}
-								if (update.getBody() == null || !update.getBody().getStatements().contains(updateStatement)) {
-									update.addFirstStatement(updateStatement);
-								}							
-								break;
-							}
-						}
-					} catch (ParameterizedIdentifierIsFutureWork | ResolvingMultipleDefinitionIsFutureWork
-							| InvalidMessage | UnificationFailed | ValueUndefined e1) {
-						e1.printStackTrace();
-					}
-				}
-				
 				// Declare the field to cache the state of the source resource in the type of the destination resource.
 				if (resourceNode.getIndegree() > 1) {
 					// If incoming edges are multiple
@@ -236,60 +516,103 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 						component.addField(cacheField);
 						
 					}
-					// Update the cache field.
-					String cashStatement = langSpec.getFieldAccessor(srcResName) + langSpec.getAssignment() + srcResName + langSpec.getStatementDelimiter();
-					if (update.getBody() == null || !update.getBody().getStatements().contains(cashStatement)) {
-						update.addFirstStatement(cashStatement);
+				}
+				bodies.add(new Runnable() {
+					public void run() {
+						fillUpdateMethod(resourceNode, re, update, langSpec);
+					}
+				});
+			}
+		}
+		return updateMethods;
+	}
+	
+	private void fillUpdateMethod(ResourceNode resourceNode, DataFlowEdge re, MethodDeclaration update, ILanguageSpecific langSpec) {
+		String resComponentName = langSpec.toComponentName(resourceNode.getResource().getResourceName());
+		String srcResName = ((ResourceNode) re.getSource()).getResource().getResourceName();
+		// Add a statement to update the state field
+		if (((StoreAttribute) resourceNode.getAttribute()).isStored()) {
+			try {
+				for (ChannelMember out: re.getChannel().getOutputChannelMembers()) {
+					if (out.getResource().equals(resourceNode.getResource())) {
+						Expression updateExp = re.getChannel().deriveUpdateExpressionOf(out, getPushAccessor());
+						String[] sideEffects = new String[] {""};
+						String curState = updateExp.toImplementation(sideEffects);
+						String updateStatement;
+						if (updateExp instanceof Term && ((Term) updateExp).getSymbol().isImplWithSideEffect()) {
+							updateStatement = sideEffects[0];
+						} else {
+							updateStatement = sideEffects[0] + langSpec.getFieldAccessor(fieldOfResourceState) + langSpec.getAssignment() + curState + langSpec.getStatementDelimiter();	// this.value = ...
+						}
+						if (update.getBody() == null || !update.getBody().containsStatement(updateStatement)) {
+							update.addFirstStatement(updateStatement);
+						}							
+						break;
 					}
 				}
-				
-				// Add an invocation to another update method (for a chain of update method invocations).
-				for (Edge eOut: resourceNode.getOutEdges()) {
-					DataFlowEdge dOut = (DataFlowEdge) eOut;
-					if (((PushPullAttribute) dOut.getAttribute()).getOptions().get(0) == PushPullValue.PUSH) {
-						// PUSH transfer
-						Map<MethodDeclaration, Set<ResourcePath>> referredResources = new HashMap<>(); 
-						List<String> params = new ArrayList<>();
-						params.add(langSpec.getFieldAccessor(fieldOfResourceState));
-						Set<ResourcePath> referredSet = referredResources.get(update);
-						for (ChannelMember rc: re.getChannel().getReferenceChannelMembers()) {
-							// to get the value of reference member.
-							ResourcePath ref = rc.getResource();
-							if (referredSet == null) {
-								referredSet = new HashSet<>();
-								referredResources.put(update, referredSet);
-							}
-							if (!ref.equals(resourceNode.getResource())) {
-								String refVarName = ref.getResourceName();
-								if (!referredSet.contains(ref)) {
-									referredSet.add(ref);
-									Expression refGetter = getPullAccessor().getCurrentStateAccessorFor(ref, ((ResourceNode) dOut.getSource()).getResource());
-									String[] sideEffects = new String[] {""};
-									String refExp = refGetter.toImplementation(sideEffects);
-									String refTypeName = ref.getResourceStateType().getInterfaceTypeName();
-									update.addFirstStatement(sideEffects[0] + langSpec.getVariableDeclaration(refTypeName, refVarName) + langSpec.getAssignment() + refExp + langSpec.getStatementDelimiter());
-								}
-								params.add(refVarName);
-							}
+			} catch (ParameterizedIdentifierIsFutureWork | ResolvingMultipleDefinitionIsFutureWork
+					| InvalidMessage | UnificationFailed | ValueUndefined e1) {
+				e1.printStackTrace();
+			}
+		}
+		
+		// Update the cache field.
+		if (resourceNode.getIndegree() > 1) {
+			// If incoming edges are multiple
+			String cashStatement = langSpec.getFieldAccessor(srcResName) + langSpec.getAssignment() + srcResName + langSpec.getStatementDelimiter();
+			if (update.getBody() == null || !update.getBody().containsStatement(cashStatement)) {
+				update.addFirstStatement(cashStatement);
+			}
+		}
+		
+		// Count up the version of the state.
+		if (versionedResources.contains(resourceNode.getResource()) && hasOwnStateVersion(resourceNode)) {
+			update.addStatement(getStateVersionIncrement(langSpec));
+		}
+		
+		// Add an invocation to another update method (for a chain of update method invocations).
+		for (Edge eOut: resourceNode.getOutEdges()) {
+			DataFlowEdge dOut = (DataFlowEdge) eOut;
+			if (((PushPullAttribute) dOut.getAttribute()).getOptions().get(0) == PushPullValue.PUSH) {
+				// PUSH transfer
+				Map<MethodDeclaration, Set<ResourcePath>> referredResources = new HashMap<>(); 
+				List<String> params = new ArrayList<>();
+				params.add(langSpec.getFieldAccessor(fieldOfResourceState));
+				Set<ResourcePath> referredSet = referredResources.get(update);
+				for (ChannelMember rc: re.getChannel().getReferenceChannelMembers()) {
+					// to get the value of reference member.
+					ResourcePath ref = rc.getResource();
+					if (referredSet == null) {
+						referredSet = new HashSet<>();
+						referredResources.put(update, referredSet);
+					}
+					if (!ref.equals(resourceNode.getResource())) {
+						String refVarName = ref.getResourceName();
+						if (!referredSet.contains(ref)) {
+							referredSet.add(ref);
+							Expression refGetter = getPullAccessor().getCurrentStateAccessorFor(ref, ((ResourceNode) dOut.getSource()).getResource());
+							String[] sideEffects = new String[] {""};
+							String refExp = refGetter.toImplementation(sideEffects);
+							String refTypeName = ref.getResourceStateType().getInterfaceTypeName();
+							update.addFirstStatement(sideEffects[0] + langSpec.getVariableDeclaration(refTypeName, refVarName) + langSpec.getAssignment() + refExp + langSpec.getStatementDelimiter());
 						}
-						update.addStatement(langSpec.getMethodInvocation(langSpec.getFieldAccessor(((ResourceNode) dOut.getDestination()).getResource().getResourceName()), 
-																			updateMethodName + resComponentName, 
-																			params) + langSpec.getStatementDelimiter());	// this.dst.updateSrc(value, refParams);
+						params.add(refVarName);
 					}
 				}
+				update.addStatement(langSpec.getMethodInvocation(langSpec.getFieldAccessor(((ResourceNode) dOut.getDestination()).getResource().getResourceName()), 
+																	updateMethodName + resComponentName, 
+																	params) + langSpec.getStatementDelimiter());	// this.dst.updateSrc(value, refParams);
 			}
 		}
-		return updateMethods;
 	}
 	
-	private List<MethodDeclaration> declareInputMethodsInThisAndMainComponents(ResourceNode resourceNode, TypeDeclaration component,
-			TypeDeclaration mainComponent, DataTransferModel model, ILanguageSpecific langSpec) {
+	private List<MethodDeclaration> declareInputMethodsInThisAndMainComponents(final ResourceNode resourceNode, TypeDeclaration component,
+			TypeDeclaration mainComponent, DataTransferModel model, List<Runnable> bodies, final ILanguageSpecific langSpec) {
 		// Declare input methods.
 		String resName = resourceNode.getResource().getResourceName();
-		String resComponentName = langSpec.toComponentName(resName);
 		List<MethodDeclaration> inputMethods = new ArrayList<>();
-		for (Channel ch : model.getIOChannels()) {
-			for (ChannelMember out : ((DataTransferChannel) ch).getOutputChannelMembers()) {
+		for (DataTransferChannel ch : getIOChannelsWithOutput(model, resourceNode.getResource())) {
+			for (ChannelMember out : ch.getOutputChannelMembers()) {
 				if (out.getResource().equals(resourceNode.getResource())) {
 					Expression message = out.getStateTransition().getMessageExpression();
 					MethodDeclaration input = null;
@@ -351,62 +674,80 @@ public class CodeGeneratorFromDataFlowGraph extends CodeGenerator {
 					}
 					
 					if (input != null) {
-						// Add a statement to update the state field to the input method.
-						try {
-							String[] sideEffects = new String[] {""};
-							Expression updateExp;
-							updateExp = ((DataTransferChannel) ch).deriveUpdateExpressionOf(out, getPullAccessor());
-							String newState = updateExp.toImplementation(sideEffects);
-							String updateStatement;
-							if (updateExp instanceof Term && ((Term) updateExp).getSymbol().isImplWithSideEffect()) {
-								updateStatement = sideEffects[0];	
-							} else {
-								updateStatement = sideEffects[0] + langSpec.getFieldAccessor(fieldOfResourceState) + langSpec.getAssignment() + newState + langSpec.getStatementDelimiter();
+						// Add statements to the input method after all the components are declared.
+						final MethodDeclaration declaredInput = input;
+						final DataTransferChannel ioChannel = ch;
+						final ChannelMember outMember = out;
+						bodies.add(new Runnable() {
+							public void run() {
+								fillInputMethod(resourceNode, declaredInput, ioChannel, outMember, langSpec);
 							}
-							input.addFirstStatement(updateStatement);
-						} catch (ParameterizedIdentifierIsFutureWork | ResolvingMultipleDefinitionIsFutureWork
-								| InvalidMessage | UnificationFailed | ValueUndefined e) {
-							e.printStackTrace();
-						}
-												
-						// Add an invocation to an update method (for a chain of update method invocations).
-						for (Edge eOut: resourceNode.getOutEdges()) {
-							DataFlowEdge dOut = (DataFlowEdge) eOut;
-							if (((PushPullAttribute) dOut.getAttribute()).getOptions().get(0) == PushPullValue.PUSH) {
-								// PUSH transfer
-								Map<MethodDeclaration, Set<ResourcePath>> referredResources = new HashMap<>(); 
-								List<String> params = new ArrayList<>();
-								params.add(langSpec.getFieldAccessor(fieldOfResourceState));
-								Set<ResourcePath> referredSet = referredResources.get(input);
-								for (ChannelMember rc: ((DataTransferChannel) ch).getReferenceChannelMembers()) {
-									// to get the value of reference member.
-									ResourcePath ref = rc.getResource();
-									if (referredSet == null) {
-										referredSet = new HashSet<>();
-										referredResources.put(input, referredSet);
-									}
-									if (!ref.equals(resourceNode.getResource())) {
-										String refVarName = ref.getResourceName();
-										if (!referredSet.contains(ref)) {
-											referredSet.add(ref);
-											Expression refGetter = getPullAccessor().getCurrentStateAccessorFor(ref, ((ResourceNode) dOut.getSource()).getResource());
-											String[] sideEffects = new String[] {""};
-											String refExp = refGetter.toImplementation(sideEffects);
-											String refTypeName = ref.getResourceStateType().getInterfaceTypeName();
-											input.addFirstStatement(sideEffects[0] + langSpec.getVariableDeclaration(refTypeName, refVarName) + langSpec.getAssignment() + refExp + langSpec.getStatementDelimiter());
-										}
-										params.add(refVarName);
-									}
-								}
-								input.addStatement(langSpec.getMethodInvocation(langSpec.getFieldAccessor(((ResourceNode) dOut.getDestination()).getResource().getResourceName()), 
-																					updateMethodName + resComponentName, 
-																					params) + langSpec.getStatementDelimiter());	// this.dst.updateSrc(value, refParams);
-							}
-						}
+						});
 					}
 				}
 			}
 		}
 		return inputMethods;
 	}
-}
+	
+	private void fillInputMethod(ResourceNode resourceNode, MethodDeclaration input, DataTransferChannel ch, ChannelMember out, ILanguageSpecific langSpec) {
+		String resComponentName = langSpec.toComponentName(resourceNode.getResource().getResourceName());
+		// Add a statement to update the state field to the input method.
+		try {
+			String[] sideEffects = new String[] {""};
+			Expression updateExp;
+			updateExp = ch.deriveUpdateExpressionOf(out, getPullAccessor());
+			String newState = updateExp.toImplementation(sideEffects);
+			String updateStatement;
+			if (updateExp instanceof Term && ((Term) updateExp).getSymbol().isImplWithSideEffect()) {
+				updateStatement = sideEffects[0];	
+			} else {
+				updateStatement = sideEffects[0] + langSpec.getFieldAccessor(fieldOfResourceState) + langSpec.getAssignment() + newState + langSpec.getStatementDelimiter();
+			}
+			input.addFirstStatement(updateStatement);
+		} catch (ParameterizedIdentifierIsFutureWork | ResolvingMultipleDefinitionIsFutureWork
+				| InvalidMessage | UnificationFailed | ValueUndefined e) {
+			e.printStackTrace();
+		}
+		
+		// Count up the version of the state.
+		if (versionedResources.contains(resourceNode.getResource()) && hasOwnStateVersion(resourceNode)) {
+			input.addStatement(getStateVersionIncrement(langSpec));
+		}
+		
+		// Add an invocation to an update method (for a chain of update method invocations).
+		for (Edge eOut: resourceNode.getOutEdges()) {
+			DataFlowEdge dOut = (DataFlowEdge) eOut;
+			if (((PushPullAttribute) dOut.getAttribute()).getOptions().get(0) == PushPullValue.PUSH) {
+				// PUSH transfer
+				Map<MethodDeclaration, Set<ResourcePath>> referredResources = new HashMap<>(); 
+				List<String> params = new ArrayList<>();
+				params.add(langSpec.getFieldAccessor(fieldOfResourceState));
+				Set<ResourcePath> referredSet = referredResources.get(input);
+				for (ChannelMember rc: ch.getReferenceChannelMembers()) {
+					// to get the value of reference member.
+					ResourcePath ref = rc.getResource();
+					if (referredSet == null) {
+						referredSet = new HashSet<>();
+						referredResources.put(input, referredSet);
+					}
+					if (!ref.equals(resourceNode.getResource())) {
+						String refVarName = ref.getResourceName();
+						if (!referredSet.contains(ref)) {
+							referredSet.add(ref);
+							Expression refGetter = getPullAccessor().getCurrentStateAccessorFor(ref, ((ResourceNode) dOut.getSource()).getResource());
+							String[] sideEffects = new String[] {""};
+							String refExp = refGetter.toImplementation(sideEffects);
+							String refTypeName = ref.getResourceStateType().getInterfaceTypeName();
+							input.addFirstStatement(sideEffects[0] + langSpec.getVariableDeclaration(refTypeName, refVarName) + langSpec.getAssignment() + refExp + langSpec.getStatementDelimiter());
+						}
+						params.add(refVarName);
+					}
+				}
+				input.addStatement(langSpec.getMethodInvocation(langSpec.getFieldAccessor(((ResourceNode) dOut.getDestination()).getResource().getResourceName()), 
+																	updateMethodName + resComponentName, 
+																	params) + langSpec.getStatementDelimiter());	// this.dst.updateSrc(value, refParams);
+			}
+		}
+	}
+}
\ No newline at end of file
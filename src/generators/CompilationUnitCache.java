@@ -0,0 +1,39 @@
+package generators;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import code.ast.CompilationUnit;
+
+/**
+ * A cache of the compilation units generated for the components of a model. Each unit is kept with the fingerprint
+ * of the inputs of its generation, so that a component whose inputs have not been changed since the last generation
+ * is not generated again.
+ *
+ */
+public class CompilationUnitCache {
+	private Map<String, String> fingerprints = new HashMap<>();
+	private Map<String, CompilationUnit> units = new HashMap<>();
+
+	/**
+	 * Get the unit generated last time for a component.
+	 *
+	 * @param componentName the name of the component
+	 * @param fingerprint the fingerprint of the current inputs of the component
+	 * @return the unit, or null if the inputs have been changed
+	 */
+	public CompilationUnit getUnit(String componentName, String fingerprint) {
+		if (!fingerprint.equals(fingerprints.get(componentName))) return null;
+		return units.get(componentName);
+	}
+
+	public void putUnit(String componentName, String fingerprint, CompilationUnit unit) {
+		fingerprints.put(componentName, fingerprint);
+		units.put(componentName, unit);
+	}
+
+	public void clear() {
+		fingerprints.clear();
+		units.clear();
+	}
+}
@@ -15,7 +15,6 @@ import models.dataFlowModel.*;
  *
  */
 public class DataTransferMethodAnalyzer {
-	static private HashSet<Node> reachableNodes = new HashSet<>();
 
 	/**
 	 * Determine whether each resource state is stored or not depending on selected data transfer methods.
@@ -23,14 +22,14 @@ public class DataTransferMethodAnalyzer {
 	 * @param graph a data flow graph (in/out)
 	 */
 	static public void decideToStoreResourceStates(DataFlowGraph graph) {
-		reachableNodes.clear();
+		HashSet<Node> reachableNodes = new HashSet<>();
 		for (Node n : graph.getNodes()) {
 			ResourceNode resource = (ResourceNode) n;
-			trackNode(resource);
+			trackNode(resource, reachableNodes);
 		}
 	}
 
-	static private void trackNode(ResourceNode resource) {
+	static private void trackNode(ResourceNode resource, HashSet<Node> reachableNodes) {
 		if (reachableNodes.contains(resource))
 			return;
 		reachableNodes.add(resource);
@@ -38,7 +37,7 @@ public class DataTransferMethodAnalyzer {
 		for (Edge e : resource.getInEdges()) {
 			if (((PushPullAttribute) e.getAttribute()).getOptions().get(0) != PushPullValue.PUSH) {
 				// Traverse pull edges only.
-				trackNode((ResourceNode) e.getSource());
+				trackNode((ResourceNode) e.getSource(), reachableNodes);
 				flag = false;
 			}
 		}
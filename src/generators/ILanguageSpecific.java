@@ -38,6 +38,8 @@ public interface ILanguageSpecific {
 	String getTupleGet(String tupleExp, int idx, int length);
 	String getDecomposedTuple(String tupleExp, VariableDeclaration tupleVar, List<VariableDeclaration> vars);
 	String getAssignment();
+	String getInequality(String left, String right);
+	String getIfStatement(String condition, String statements);
 	String getStatementDelimiter();
 	String getStringDelimiter();
 	boolean isValueType(Type type);
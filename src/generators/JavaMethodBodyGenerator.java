@@ -74,14 +74,14 @@ public class JavaMethodBodyGenerator {
 								} else {
 									updateStatement = sideEffects[0] + "value = " + curState + ";";
 								}
-								if (update.getBody() == null || !update.getBody().getStatements().contains(updateStatement)) {
+								if (update.getBody() == null || !update.getBody().containsStatement(updateStatement)) {
 									update.addFirstStatement(updateStatement);
 								}
 							}
 							if (dst.getIndegree() > 1) {
 								// update a cash of src side resource (when incoming edges are multiple)
 								String cashStatement = "this." + srcResourceName + " = " + srcResourceName + ";";
-								if (update.getBody() == null || !update.getBody().getStatements().contains(cashStatement)) {
+								if (update.getBody() == null || !update.getBody().containsStatement(cashStatement)) {
 									update.addFirstStatement(cashStatement);
 								}								
 							}
@@ -239,7 +239,7 @@ public class JavaMethodBodyGenerator {
 								} else {
 									updateStatement = sideEffects[0] + "this.value = " + newState + ";";
 								}
-								if (input.getBody() == null || !input.getBody().getStatements().contains(updateStatement)) {
+								if (input.getBody() == null || !input.getBody().containsStatement(updateStatement)) {
 									input.addFirstStatement(updateStatement);
 								}
 								if (mainType != null) {
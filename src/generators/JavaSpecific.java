@@ -3,6 +3,7 @@ package generators;
 import java.util.ArrayList;
 import java.util.List;
 
+import code.ast.CodeUtil;
 import code.ast.CompilationUnit;
 import code.ast.FieldDeclaration;
 import code.ast.ImportDeclaration;
@@ -193,6 +194,16 @@ public class JavaSpecific implements ILanguageSpecific {
 		return " = ";
 	}
 
+	@Override
+	public String getInequality(String left, String right) {
+		return left + " != " + right;
+	}
+
+	@Override
+	public String getIfStatement(String condition, String statements) {
+		return "if (" + condition + ") {\n" + CodeUtil.insertTab(statements) + "}";
+	}
+
 	@Override
 	public String getStatementDelimiter() {
 		return ";";
@@ -51,6 +51,8 @@ public class JerseyMethodBodyGenerator {
 			}
 		}
 		
+		TypeInference typeInference = TypeInference.getTypeInference(model);
+
 		// Generate the body of each update or getter method.
 		try {
 			Set<MethodDeclaration> chainedCalls = new HashSet<>();
@@ -94,7 +96,7 @@ public class JerseyMethodBodyGenerator {
 								} else {
 									updateStatement = sideEffects[0] + "this.value = " + curState + ";";
 								}
-								if (update.getBody() == null || !update.getBody().getStatements().contains(updateStatement)) {
+								if (update.getBody() == null || !update.getBody().containsStatement(updateStatement)) {
 									// add an update statement of the state of dst side resource.
 									update.addFirstStatement(updateStatement);
 								}
@@ -102,7 +104,7 @@ public class JerseyMethodBodyGenerator {
 							if (dst.getIndegree() > 1) {
 								// update a cash of src side resource (when incoming edges are multiple)
 								String cashStatement = "this." + srcResourceName + " = " + srcResourceName + ";";
-								if (update.getBody() == null || !update.getBody().getStatements().contains(cashStatement)) {
+								if (update.getBody() == null || !update.getBody().containsStatement(cashStatement)) {
 									update.addFirstStatement(cashStatement);
 								}								
 							}
@@ -112,15 +114,15 @@ public class JerseyMethodBodyGenerator {
 								String paramName = param.getName();
 								String paramConverter = "";
 								if (DataConstraintModel.typeList.isAncestorOf(paramType) && paramType != DataConstraintModel.typeList) {
-									Type compType = TypeInference.getListComponentType(paramType);
+									Type compType = typeInference.getListComponentType(paramType);
 									if (DataConstraintModel.typeTuple.isAncestorOf(compType)) {
 										param.setType(DataConstraintModel.typeListStr);
 										param.setName(paramName + "_json");
 										paramConverter += paramType.getInterfaceTypeName() + " " + paramName + " = new " + paramType.getImplementationTypeName() + "();\n";
 										paramConverter += "for (String str: " + param.getName() + ") {\n";
-										String mapTypeName = convertFromEntryToMapType(compType);
+										String mapTypeName = convertFromEntryToMapType(typeInference, compType);
 										paramConverter += "\t" + mapTypeName + " i = new ObjectMapper().readValue(str, HashMap.class);\n";
-										paramConverter += "\t" + paramName + ".add(" + getCodeForConversionFromMapToTuple(compType, "i") + ");\n";
+										paramConverter += "\t" + paramName + ".add(" + getCodeForConversionFromMapToTuple(typeInference, compType, "i") + ");\n";
 										paramConverter += "}";
 										update.addThrow("JsonProcessingException");
 									} else if (DataConstraintModel.typePair.isAncestorOf(compType)) {
@@ -128,7 +130,7 @@ public class JerseyMethodBodyGenerator {
 										param.setName(paramName + "_json");
 										paramConverter += paramType.getInterfaceTypeName() + " " + paramName + " = new " + paramType.getImplementationTypeName() + "();\n";
 										paramConverter += "for (String str: " + param.getName() + ") {\n";
-										String mapTypeName = convertFromEntryToMapType(compType);
+										String mapTypeName = convertFromEntryToMapType(typeInference, compType);
 										paramConverter += "\t" + mapTypeName + " i = new ObjectMapper().readValue(str, HashMap.class);\n";
 										paramConverter += "\t" + paramName + ".add(" + getCodeForConversionFromMapToPair(compType, "i") + ");\n";
 										paramConverter += "}";
@@ -142,9 +144,9 @@ public class JerseyMethodBodyGenerator {
 									param.setName(paramName + "_json");
 									paramConverter += paramType.getInterfaceTypeName() + " " + paramName + ";\n";
 									paramConverter += "{\n";
-									String mapTypeName = convertFromEntryToMapType(paramType);
+									String mapTypeName = convertFromEntryToMapType(typeInference, paramType);
 									paramConverter += "\t" + mapTypeName + " i = new ObjectMapper().readValue(" + paramName + "_json" + ", HashMap.class);\n";
-									paramConverter += "\t" + paramName + " = " + getCodeForConversionFromMapToTuple(paramType, "i") + ";\n";
+									paramConverter += "\t" + paramName + " = " + getCodeForConversionFromMapToTuple(typeInference, paramType, "i") + ";\n";
 									paramConverter += "}";
 									update.addThrow("JsonProcessingException");
 								} else if (DataConstraintModel.typePair.isAncestorOf(paramType)) {
@@ -152,7 +154,7 @@ public class JerseyMethodBodyGenerator {
 									param.setName(paramName + "_json");
 									paramConverter += paramType.getInterfaceTypeName() + " " + paramName + ";\n";
 									paramConverter += "{\n";
-									String mapTypeName = convertFromEntryToMapType(paramType);
+									String mapTypeName = convertFromEntryToMapType(typeInference, paramType);
 									paramConverter += "\t" + mapTypeName + " i = new ObjectMapper().readValue(" + paramName + "_json" + ", HashMap.class);\n";
 									paramConverter += "\t" + paramName + " = " + getCodeForConversionFromMapToPair(paramType, "i") + ";\n";
 									paramConverter += "}";
@@ -162,9 +164,9 @@ public class JerseyMethodBodyGenerator {
 									param.setName(paramName + "_json");
 									paramConverter += paramType.getInterfaceTypeName() + " " + paramName + " = " + "new " + paramType.getImplementationTypeName() + "();\n";
 									paramConverter += "{\n";
-									String mapTypeName = convertFromEntryToMapType(paramType);
+									String mapTypeName = convertFromEntryToMapType(typeInference, paramType);
 									paramConverter += "\t" + mapTypeName + " i = new ObjectMapper().readValue(" + paramName + "_json" + ", HashMap.class);\n";
-									paramConverter += "\t" + getCodeForConversionFromMapToMap(paramType, "i", paramName) + "\n";
+									paramConverter += "\t" + getCodeForConversionFromMapToMap(typeInference, paramType, "i", paramName) + "\n";
 									paramConverter += "}";
 									update.addThrow("JsonProcessingException");
 								}
@@ -201,7 +203,7 @@ public class JerseyMethodBodyGenerator {
 												Type refResourceType = ref.getResourceStateType();
 												if (!referredSet.contains(ref)) {
 													referredSet.add(ref);
-													generatePullDataTransfer(srcUpdate, refResourceName, refResourceType);
+													generatePullDataTransfer(typeInference, srcUpdate, refResourceName, refResourceType);
 												}
 												// Value of a reference side resource.
 												params.add(new AbstractMap.SimpleEntry<>(refResourceType, new AbstractMap.SimpleEntry<>(refResourceName, refResourceName)));
@@ -216,14 +218,14 @@ public class JerseyMethodBodyGenerator {
 										// The first call to an update method in this method
 										// Value of the source side (input side) resource.
 										params.add(0, new AbstractMap.SimpleEntry<>(src.getResource().getResourceStateType(), new AbstractMap.SimpleEntry<>(srcResourceName, "this.value")));
-										srcUpdate.addStatement(getHttpMethodParamsStatement(srcType.getTypeName(), params, true));
+										srcUpdate.addStatement(getHttpMethodParamsStatement(typeInference, srcType.getTypeName(), params, true));
 										srcUpdate.addStatement("String result = " + getHttpMethodCallStatement(baseURL, dstResourceName, srcResName, httpMethod));
 										chainedCalls.add(srcUpdate);
 									} else {
 										// After the second time of call to update methods in this method
 										// Value of the source side (input side) resource.
 										params.add(0, new AbstractMap.SimpleEntry<>(src.getResource().getResourceStateType(), new AbstractMap.SimpleEntry<>(srcResourceName, "this.value")));
-										srcUpdate.addStatement(getHttpMethodParamsStatement(srcType.getTypeName(), params, false));
+										srcUpdate.addStatement(getHttpMethodParamsStatement(typeInference, srcType.getTypeName(), params, false));
 										srcUpdate.addStatement("result = " + getHttpMethodCallStatement(baseURL, dstResourceName, srcResName, httpMethod));
 									}
 									srcUpdate.addThrow("JsonProcessingException");
@@ -244,7 +246,7 @@ public class JerseyMethodBodyGenerator {
 										Type refResourceType = ref.getResourceStateType();
 										if (!referredSet.contains(ref)) {
 											referredSet.add(ref);
-											generatePullDataTransfer(srcInput, refResourceName, refResourceType);
+											generatePullDataTransfer(typeInference, srcInput, refResourceName, refResourceType);
 										}
 										// Value of a reference side resource.
 										params.add(new AbstractMap.SimpleEntry<>(refResourceType, new AbstractMap.SimpleEntry<>(refResourceName, refResourceName)));
@@ -258,14 +260,14 @@ public class JerseyMethodBodyGenerator {
 									// First call to an update method in this method
 									// Value of the source side (input side) resource.
 									params.add(0, new AbstractMap.SimpleEntry<>(src.getResource().getResourceStateType(), new AbstractMap.SimpleEntry<>(srcResourceName, "this.value")));
-									srcInput.addStatement(getHttpMethodParamsStatement(srcType.getTypeName(), params, true));
+									srcInput.addStatement(getHttpMethodParamsStatement(typeInference, srcType.getTypeName(), params, true));
 									srcInput.addStatement("String result = " + getHttpMethodCallStatement(baseURL, dstResourceName, srcResName, httpMethod));
 									chainedCalls.add(srcInput);
 								} else {
 									// After the second time of call to update methods in this method
 									// Value of the source side (input side) resource.
 									params.add(0, new AbstractMap.SimpleEntry<>(src.getResource().getResourceStateType(), new AbstractMap.SimpleEntry<>(srcResourceName, "this.value")));
-									srcInput.addStatement(getHttpMethodParamsStatement(srcType.getTypeName(), params, false));
+									srcInput.addStatement(getHttpMethodParamsStatement(typeInference, srcType.getTypeName(), params, false));
 									srcInput.addStatement("result = " + getHttpMethodCallStatement(baseURL, dstResourceName, srcResName, httpMethod));
 								}
 								srcInput.addThrow("JsonProcessingException");
@@ -282,12 +284,12 @@ public class JerseyMethodBodyGenerator {
 								for (ChannelMember c: d.getChannel().getReferenceChannelMembers()) {
 									String refResourceName = c.getResource().getResourceName();
 									Type refResourceType = c.getResource().getResourceStateType();
-									generatePullDataTransfer(getter, refResourceName, refResourceType);
+									generatePullDataTransfer(typeInference, getter, refResourceName, refResourceType);
 								}
 							}
 							// get src side resource state by pull data transfer.
 							Type srcResourceType = src.getResource().getResourceStateType();
-							generatePullDataTransfer(getter, srcResourceName, srcResourceType);
+							generatePullDataTransfer(typeInference, getter, srcResourceName, srcResourceType);
 						} 
 					}
 				}
@@ -319,7 +321,7 @@ public class JerseyMethodBodyGenerator {
 								} else {
 									updateStatement = sideEffects[0] + "this.value = " + newState + ";";
 								}
-								if (input.getBody() == null || !input.getBody().getStatements().contains(updateStatement)) {
+								if (input.getBody() == null || !input.getBody().containsStatement(updateStatement)) {
 									input.addFirstStatement(updateStatement);
 								}
 							}
@@ -334,20 +336,20 @@ public class JerseyMethodBodyGenerator {
 		return codes;
 	}
 
-	private static void generatePullDataTransfer(MethodDeclaration methodBody, String fromResourceName, Type fromResourceType) {
+	private static void generatePullDataTransfer(TypeInference typeInference, MethodDeclaration methodBody, String fromResourceName, Type fromResourceType) {
 		String varName = new String(fromResourceName);
 		String respTypeName = fromResourceType.getInterfaceTypeName();
 		String respImplTypeName = fromResourceType.getImplementationTypeName();
 		String respConverter = "";
 		if (DataConstraintModel.typeList.isAncestorOf(fromResourceType) && fromResourceType != DataConstraintModel.typeList) {
-			Type compType = TypeInference.getListComponentType(fromResourceType);
+			Type compType = typeInference.getListComponentType(fromResourceType);
 			if (DataConstraintModel.typeTuple.isAncestorOf(compType)) {
 				varName += "_json";
-				String mapTypeName = convertFromEntryToMapType(compType);
+				String mapTypeName = convertFromEntryToMapType(typeInference, compType);
 				respTypeName = "List<" + mapTypeName + ">";
 				respConverter += fromResourceType.getInterfaceTypeName() + " " + fromResourceName + " = new " + fromResourceType.getImplementationTypeName() + "();\n";
 				respConverter += "for (" + mapTypeName + " i: " + varName + ") {\n";
-				respConverter += "\t" + fromResourceName + ".add(" + getCodeForConversionFromMapToTuple(compType, "i") + ");\n";
+				respConverter += "\t" + fromResourceName + ".add(" + getCodeForConversionFromMapToTuple(typeInference, compType, "i") + ");\n";
 				respConverter += "}";
 				methodBody.addThrow("JsonProcessingException");
 			} else if (DataConstraintModel.typeMap.isAncestorOf(compType)) {
@@ -355,19 +357,19 @@ public class JerseyMethodBodyGenerator {
 			}
 		} else if (DataConstraintModel.typeTuple.isAncestorOf(fromResourceType)) {
 			varName += "_json";
-			respTypeName = convertFromEntryToMapType(fromResourceType);
-			respConverter += fromResourceType.getInterfaceTypeName() + " " + fromResourceName + " = " + getCodeForConversionFromMapToTuple(fromResourceType, varName) + ";";
+			respTypeName = convertFromEntryToMapType(typeInference, fromResourceType);
+			respConverter += fromResourceType.getInterfaceTypeName() + " " + fromResourceName + " = " + getCodeForConversionFromMapToTuple(typeInference, fromResourceType, varName) + ";";
 			respImplTypeName = "HashMap";
 		} else if (DataConstraintModel.typePair.isAncestorOf(fromResourceType)) {
 			varName += "_json";
-			respTypeName = convertFromEntryToMapType(fromResourceType);
+			respTypeName = convertFromEntryToMapType(typeInference, fromResourceType);
 			respConverter += fromResourceType.getInterfaceTypeName() + " " + fromResourceName + " = " + getCodeForConversionFromMapToPair(fromResourceType, varName) + ";";
 			respImplTypeName = "HashMap";
 		} else if (DataConstraintModel.typeMap.isAncestorOf(fromResourceType)) {
 			varName += "_json";
-			respTypeName = convertFromEntryToMapType(fromResourceType);
+			respTypeName = convertFromEntryToMapType(typeInference, fromResourceType);
 			respConverter += fromResourceType.getInterfaceTypeName() + " " + fromResourceName + " = new " + fromResourceType.getImplementationTypeName() + "();\n";
-			respConverter += getCodeForConversionFromMapToMap(fromResourceType, varName, fromResourceName);
+			respConverter += getCodeForConversionFromMapToMap(typeInference, fromResourceType, varName, fromResourceName);
 			respImplTypeName = "HashMap";
 		}
 		if (respConverter.length() > 0) {
@@ -376,10 +378,10 @@ public class JerseyMethodBodyGenerator {
 		methodBody.addFirstStatement(respTypeName + " " + varName + " = " + getHttpMethodCallStatementWithResponse(baseURL, fromResourceName, "get", respImplTypeName));
 	}
 
-	private static String convertFromEntryToMapType(Type type) {
+	private static String convertFromEntryToMapType(TypeInference typeInference, Type type) {
 		String mapTypeName = null;
 		if (DataConstraintModel.typePair.isAncestorOf(type)) {
-			Type compType = TypeInference.getPairComponentType(type);
+			Type compType = typeInference.getPairComponentType(type);
 			String wrapperType = DataConstraintModel.getWrapperType(compType);
 			if (wrapperType != null) {
 				mapTypeName = "Map<String, " + wrapperType + ">";
@@ -387,7 +389,7 @@ public class JerseyMethodBodyGenerator {
 				mapTypeName = "Map<String, " + compType.getInterfaceTypeName() + ">";
 			}
 		} else if (DataConstraintModel.typeMap.isAncestorOf(type)) {
-			List<Type> compTypes = TypeInference.getMapComponentTypes(type);
+			List<Type> compTypes = typeInference.getMapComponentTypes(type);
 			String wrapperType = DataConstraintModel.getWrapperType(compTypes.get(1));
 			if (wrapperType != null) {
 				mapTypeName = "Map<String, " + wrapperType + ">";
@@ -407,9 +409,9 @@ public class JerseyMethodBodyGenerator {
 		return mapTypeName;
 	}
 
-	private static String getCodeForConversionFromMapToTuple(Type tupleType, String mapVar) {
+	private static String getCodeForConversionFromMapToTuple(TypeInference typeInference, Type tupleType, String mapVar) {
 		String decoded = "$x";
-		List<Type> elementsTypes = TypeInference.getTupleComponentTypes(tupleType);
+		List<Type> elementsTypes = typeInference.getTupleComponentTypes(tupleType);
 		String elementBase = mapVar;
 		for (Type elmType: elementsTypes.subList(0, elementsTypes.size() - 1)) {
 			elementBase += ".entrySet().iterator().next()";
@@ -438,8 +440,8 @@ public class JerseyMethodBodyGenerator {
 		return decoded;
 	}
 
-	private static String getCodeForConversionFromMapToMap(Type mapType, String mapVal, String mapVar) {
-		List<Type> elementsTypes = TypeInference.getMapComponentTypes(mapType);
+	private static String getCodeForConversionFromMapToMap(TypeInference typeInference, Type mapType, String mapVal, String mapVar) {
+		List<Type> elementsTypes = typeInference.getMapComponentTypes(mapType);
 		Type keyType = elementsTypes.get(0);
 		Type valType = elementsTypes.get(1);
 		String keyVal = null;
@@ -460,7 +462,7 @@ public class JerseyMethodBodyGenerator {
 		return decoded;
 	}
 
-	private static String getHttpMethodParamsStatement(String callerResourceName, List<Map.Entry<Type, Map.Entry<String, String>>> params, boolean isFirstCall) {
+	private static String getHttpMethodParamsStatement(TypeInference typeInference, String callerResourceName, List<Map.Entry<Type, Map.Entry<String, String>>> params, boolean isFirstCall) {
 		String statements = "";
 		if (isFirstCall) {
 			statements += "Form ";
@@ -471,7 +473,7 @@ public class JerseyMethodBodyGenerator {
 			String paramName = param.getValue().getKey();
 			String value = param.getValue().getValue();
 			if (DataConstraintModel.typeList.isAncestorOf(paramType)) {
-				Type compType = TypeInference.getListComponentType(paramType);
+				Type compType = typeInference.getListComponentType(paramType);
 				String wrapperType = DataConstraintModel.getWrapperType(compType);
 				if (wrapperType == null) {
 					statements += "for (" + compType.getInterfaceTypeName() + " i: " + value + ") {\n";
@@ -1,70 +1,115 @@
 package models;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+/**
+ * Directed graph whose nodes are numbered by dense ids from 0 to getNumberOfNodes() - 1.
+ * The edges of each node are held by the node itself, so the edges of a node can be removed in O(degree).
+ *
+ */
 public class DirectedGraph {
 	private Set<Node> nodes = null;
 	private Set<Edge> edges = null;
-	
+	private List<Node> nodeList = null;
+
 	public DirectedGraph() {
 		nodes = new HashSet<>();
 		edges = new HashSet<>();
+		nodeList = new ArrayList<>();
 	}
-	
+
 	public Set<Node> getNodes() {
 		return nodes;
 	}
-	
+
 	public void setNodes(Set<Node> nodes) {
 		this.nodes = nodes;
+		nodeList = new ArrayList<>();
+		for (Node node: nodes) {
+			node.setId(nodeList.size());
+			nodeList.add(node);
+		}
+	}
+
+	/**
+	 * Get a node by its id.
+	 *
+	 * @param id the id of the node
+	 * @return the node
+	 */
+	public Node getNode(int id) {
+		return nodeList.get(id);
 	}
-	
+
+	public int getNumberOfNodes() {
+		return nodeList.size();
+	}
+
 	public void addNode(Node node) {
-		nodes.add(node);
+		simpleAddNode(node);
 	}
-	
+
 	public void removeNode(Node node) {
-		nodes.remove(node);
+		if (!nodes.remove(node)) return;
+		for (Edge edge: node.getInEdges()) {
+			edges.remove(edge);
+			if (edge.getSource() != node) edge.getSource().removeOutEdge(edge);
+		}
+		for (Edge edge: node.getOutEdges()) {
+			edges.remove(edge);
+			if (edge.getDestination() != node) edge.getDestination().removeInEdge(edge);
+		}
 		node.clearInEdges();
 		node.clearOutEdges();
-		for (Edge edge: edges) {
-			if (edge.getSource().equals(node)) {
-				edges.remove(edge);
-			} else if (edge.getDestination().equals(node)) {
-				edges.remove(edge);
-			}
+
+		// Move the last node to the id of the removed node.
+		int id = node.getId();
+		Node last = nodeList.remove(nodeList.size() - 1);
+		if (last != node) {
+			nodeList.set(id, last);
+			last.setId(id);
 		}
+		node.setId(-1);
 	}
-	
+
 	public Set<Edge> getEdges() {
 		return edges;
 	}
-	
+
 	public void setEdges(Set<Edge> edges) {
 		this.edges = edges;
 		for (Edge edge: edges) {
-			if (!nodes.contains(edge.getSource())) nodes.add(edge.getSource());
-			if (!nodes.contains(edge.getDestination())) nodes.add(edge.getDestination());
-			edge.getSource().addOutEdge(edge);
-			edge.getDestination().addInEdge(edge);
+			simpleAddNode(edge.getSource());
+			simpleAddNode(edge.getDestination());
+			if (!edge.getSource().getOutEdges().contains(edge)) edge.getSource().addOutEdge(edge);
+			if (!edge.getDestination().getInEdges().contains(edge)) edge.getDestination().addInEdge(edge);
 		}
 	}
-	
+
 	public void addEdge(Edge edge) {
-		edges.add(edge);
-		if (!nodes.contains(edge.getSource())) nodes.add(edge.getSource());
-		if (!nodes.contains(edge.getDestination())) nodes.add(edge.getDestination());
+		if (!edges.add(edge)) return;
+		simpleAddNode(edge.getSource());
+		simpleAddNode(edge.getDestination());
 		edge.getSource().addOutEdge(edge);
 		edge.getDestination().addInEdge(edge);
 	}
-	
+
 	public void removeEdge(Edge edge) {
 		edges.remove(edge);
 		edge.getSource().removeOutEdge(edge);
 		edge.getDestination().removeInEdge(edge);
 	}
-	
+
+	protected void simpleAddNode(Node node) {
+		if (nodes.add(node)) {
+			node.setId(nodeList.size());
+			nodeList.add(node);
+		}
+	}
+
 	protected void simpleAddEdge(Edge edge) {
 		edges.add(edge);
 	}
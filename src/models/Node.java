@@ -1,19 +1,35 @@
 package models;
 
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Iterator;
 
 public class Node implements Cloneable, Serializable {
 	protected Collection<Edge> inEdges = null;
 	protected Collection<Edge> outEdges = null;
 	private NodeAttribute attribute;
+	private int id = -1;
+	private transient Collection<Node> predecessors = null;
+	private transient Collection<Node> successors = null;
 	
 	public Node() {
-		inEdges = new HashSet<>();
-		outEdges = new HashSet<>();
+		inEdges = new ArrayList<>();
+		outEdges = new ArrayList<>();
+	}
+	
+	/**
+	 * Get the dense id of this node in the graph that contains it.
+	 * 
+	 * @return the id, or -1 if this node is not contained in any graph
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	void setId(int id) {
+		this.id = id;
 	}
 	
 	public Collection<Edge> getInEdges() {
@@ -64,18 +80,64 @@ public class Node implements Cloneable, Serializable {
 		return outEdges.size();
 	}
 	
+	/**
+	 * Get the predecessors of this node. The returned collection is a read-only view of the in-edges,
+	 * so it reflects later changes of them.
+	 * 
+	 * @return the predecessors
+	 */
 	public Collection<Node> getPredecessors() {
-		Collection<Node> predecessors = new ArrayList<Node>();
-		for (Edge edge: inEdges) {
-			predecessors.add(edge.getSource());
+		if (predecessors == null) {
+			predecessors = new AbstractCollection<Node>() {
+				@Override
+				public Iterator<Node> iterator() {
+					Iterator<Edge> edgeIterator = inEdges.iterator();
+					return new Iterator<Node>() {
+						public boolean hasNext() {
+							return edgeIterator.hasNext();
+						}
+						public Node next() {
+							return edgeIterator.next().getSource();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return inEdges.size();
+				}
+			};
 		}
 		return predecessors;
 	}
 	
+	/**
+	 * Get the successors of this node. The returned collection is a read-only view of the out-edges,
+	 * so it reflects later changes of them.
+	 * 
+	 * @return the successors
+	 */
 	public Collection<Node> getSuccessors() {
-		Collection<Node> successors = new ArrayList<Node>();
-		for (Edge edge: outEdges) {
-			successors.add(edge.getDestination());
+		if (successors == null) {
+			successors = new AbstractCollection<Node>() {
+				@Override
+				public Iterator<Node> iterator() {
+					Iterator<Edge> edgeIterator = outEdges.iterator();
+					return new Iterator<Node>() {
+						public boolean hasNext() {
+							return edgeIterator.hasNext();
+						}
+						public Node next() {
+							return edgeIterator.next().getDestination();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return outEdges.size();
+				}
+			};
 		}
 		return successors;
 	}
@@ -0,0 +1,65 @@
+package models.algebra;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A context in which the names of the temporary variables in the implementations of expressions are numbered.
+ * The names generated in a context are numbered independently of the code generated in other contexts,
+ * which may be generated in parallel. The names generated outside of any context are numbered in a global context.
+ *
+ */
+public class NamingContext {
+	private static final NamingContext globalContext = new NamingContext();
+	private static final ThreadLocal<NamingContext> currentContext = new ThreadLocal<>();
+	private Map<Object, Integer> counts = new HashMap<>();
+
+	/**
+	 * Get the naming context of the current thread.
+	 *
+	 * @return the context entered last in this thread, or the global context
+	 */
+	public static NamingContext getCurrentContext() {
+		NamingContext context = currentContext.get();
+		if (context == null) return globalContext;
+		return context;
+	}
+
+	/**
+	 * Make a context the naming context of the current thread.
+	 *
+	 * @param context a naming context
+	 * @return the previous context, which should be restored by exit
+	 */
+	public static NamingContext enter(NamingContext context) {
+		NamingContext previous = currentContext.get();
+		currentContext.set(context);
+		return previous;
+	}
+
+	/**
+	 * Restore the naming context of the current thread.
+	 *
+	 * @param previous the context returned by enter
+	 */
+	public static void exit(NamingContext previous) {
+		if (previous == null) {
+			currentContext.remove();
+		} else {
+			currentContext.set(previous);
+		}
+	}
+
+	/**
+	 * Get the number of a new name generated by a generator in this context.
+	 *
+	 * @param generator the generator of the name
+	 * @return 0, 1, 2, ... in the order of the calls for the generator
+	 */
+	public synchronized int newNumber(Object generator) {
+		Integer count = counts.get(generator);
+		if (count == null) count = 0;
+		counts.put(generator, count + 1);
+		return count;
+	}
+}
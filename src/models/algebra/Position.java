@@ -3,50 +3,144 @@ package models.algebra;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Immutable position of a sub-term. The orders of the position are held in an int array, and the head of them is
+ * pointed by a cursor so that the tail of a position can share the array.
+ *
+ */
 public class Position implements Cloneable {
-	private ArrayList<Integer> orders = new ArrayList<Integer>();
-	
+	private static final int[] NO_ORDERS = new int[0];
+	private final int[] orders;
+	private final int head;
+	private int hash = 0;
+
 	public Position() {
+		this(NO_ORDERS, 0);
+	}
+
+	public Position(int... orders) {
+		this(orders.clone(), 0);
+	}
+
+	public Position(List<Integer> orders) {
+		this(toArray(orders), 0);
 	}
-	
-	public Position(ArrayList<Integer> orders) {
+
+	private Position(int[] orders, int head) {
 		this.orders = orders;
+		this.head = head;
 	}
-	
-	public void addHeadOrder(int order) {
-		orders.add(0, order);
+
+	private static int[] toArray(List<Integer> orders) {
+		int[] array = new int[orders.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = orders.get(i);
+		}
+		return array;
 	}
-	
-	public int removeHeadOrder() {
-		return orders.remove(0);
+
+	/**
+	 * Get the order of the child at the top of this position.
+	 *
+	 * @return the order of the head
+	 */
+	public int getHeadOrder() {
+		return orders[head];
+	}
+
+	/**
+	 * Get the position relative to the child at the top of this position. The returned position shares the orders with this position.
+	 *
+	 * @return the tail of this position
+	 */
+	public Position getTail() {
+		return new Position(orders, head + 1);
+	}
+
+	/**
+	 * Get the position of a child of the sub-term at this position.
+	 *
+	 * @param order the order of the child
+	 * @return the extended position
+	 */
+	public Position append(int order) {
+		int length = length();
+		int[] newOrders = new int[length + 1];
+		System.arraycopy(orders, head, newOrders, 0, length);
+		newOrders[length] = order;
+		return new Position(newOrders, 0);
+	}
+
+	/**
+	 * Get the position of a child of the sub-term at a given path without allocating the intermediate positions.
+	 *
+	 * @param path the orders from the root
+	 * @param length the length of the path
+	 * @return a new position
+	 */
+	static Position fromPath(int[] path, int length) {
+		int[] newOrders = new int[length];
+		System.arraycopy(path, 0, newOrders, 0, length);
+		return new Position(newOrders, 0);
+	}
+
+	public int length() {
+		return orders.length - head;
+	}
+
+	public int getOrder(int depth) {
+		return orders[head + depth];
 	}
 
 	public List<Integer> getOrders() {
-		return orders;
+		List<Integer> list = new ArrayList<>(length());
+		for (int i = head; i < orders.length; i++) {
+			list.add(orders[i]);
+		}
+		return list;
 	}
-	
+
 	public boolean isEmpty() {
-		return (orders == null || orders.size() == 0);
+		return head >= orders.length;
 	}
 
 	public boolean isAncestorOf(Position another) {
-		if (another.orders.size() < this.orders.size()) return false;
-		for (int i = 0; i < orders.size(); i++) {
-			if (this.orders.get(i) != another.orders.get(i)) return false;
+		if (another.length() < this.length()) return false;
+		for (int i = 0; i < length(); i++) {
+			if (this.getOrder(i) != another.getOrder(i)) return false;
 		}
 		return true;
 	}
-	
+
 	public Object clone() {
-		return new Position((ArrayList<Integer>) orders.clone());
+		return new Position(orders, head);
 	}
-	
+
 	public boolean equals(Object another) {
+		if (this == another) return true;
 		if (!(another instanceof Position)) return false;
-		return orders.equals(((Position) another).orders);
+		Position anotherPos = (Position) another;
+		if (length() != anotherPos.length()) return false;
+		for (int i = 0; i < length(); i++) {
+			if (getOrder(i) != anotherPos.getOrder(i)) return false;
+		}
+		return true;
 	}
-	
+
 	public int hashCode() {
-		return orders.hashCode();
+		int h = hash;
+		if (h == 0) {
+			// The same as the hash code of the list of the orders.
+			h = 1;
+			for (int i = head; i < orders.length; i++) {
+				h = 31 * h + orders[i];
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	public String toString() {
+		return getOrders().toString();
 	}
 }
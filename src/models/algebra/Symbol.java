@@ -10,6 +10,7 @@ public class Symbol {
 	protected models.algebra.Type[] signature = null;
 	protected int[] implParamOrder = null;
 	protected IImplGenerator generator = null;
+	protected int id = -1;			// -1: not numbered by a parser
 	
 	public Symbol(String name) {
 		this.name = name;
@@ -66,6 +67,14 @@ public class Symbol {
 		}
 	}
 	
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
 	public void setArity(int arity) {
 		this.arity = arity;
 	}
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
 
 public class Term extends Expression {
 	protected Symbol symbol = null;
@@ -31,6 +30,10 @@ public class Term extends Expression {
 	public Symbol getSymbol() {
 		return symbol;
 	}
+
+	public void setSymbol(Symbol symbol) {
+		this.symbol = symbol;
+	}
 	
 	public int getArity() {
 		return symbol.getArity();
@@ -47,6 +50,11 @@ public class Term extends Expression {
 		}
 		return type;
 	}
+	
+	// The type given to this term itself, without the one given by the signature of its symbol.
+	public Type getOwnType() {
+		return type;
+	}
 		
 	public boolean addChild(Expression child) {
 		if (getArity() != -1 && children.size() >= getArity()) return false;
@@ -69,49 +77,65 @@ public class Term extends Expression {
 	
 	public <T extends Expression> HashMap<Position, T> getSubTerms(Class<T> clazz) {
 		HashMap<Position, T> subTerms = new HashMap<>();
+		collectSubTerms(clazz, new int[8], 0, subTerms);
+		return subTerms;
+	}
+	
+	private <T extends Expression> int[] collectSubTerms(Class<T> clazz, int[] path, int depth, HashMap<Position, T> subTerms) {
 		if (clazz == this.getClass()) {
-			subTerms.put(new Position(), (T) this);
+			subTerms.put(Position.fromPath(path, depth), (T) this);
 		}
+		if (depth >= path.length) path = Arrays.copyOf(path, path.length * 2);
 		for (int i = 0; i < children.size(); i++) {
-			HashMap<Position, T> terms = children.get(i).getSubTerms(clazz);
-			for (Entry<Position, T> term: terms.entrySet()) {
-				Position pos = term.getKey();
-				pos.addHeadOrder(i);
-				subTerms.put(pos, term.getValue());
+			Expression child = children.get(i);
+			path[depth] = i;
+			if (child instanceof Term) {
+				path = ((Term) child).collectSubTerms(clazz, path, depth + 1, subTerms);
+			} else if (clazz == child.getClass()) {
+				subTerms.put(Position.fromPath(path, depth + 1), (T) child);
 			}
 		}
-		return subTerms;
+		return path;
 	}
 	
 	public Expression getSubTerm(Position pos) {
-		if (pos.isEmpty()) return this;
-		pos = (Position) pos.clone();
-		int i = pos.removeHeadOrder();
-		if (i >= children.size()) return null;
-		return children.get(i).getSubTerm(pos);
+		Expression subTerm = this;
+		for (int d = 0; d < pos.length(); d++) {
+			if (!(subTerm instanceof Term)) return null;
+			List<Expression> subTermChildren = ((Term) subTerm).children;
+			int i = pos.getOrder(d);
+			if (i >= subTermChildren.size()) return null;
+			subTerm = subTermChildren.get(i);
+		}
+		return subTerm;
 	}
 	
 	public Term substitute(Variable variable, Expression value) {
 		Term newTerm = (Term) this.clone();
-		HashMap<Position, Variable> variables = getVariables();
-		for (Entry<Position, Variable> varEnt: variables.entrySet()) {
-			if (varEnt.getValue().equals(variable)) {
-				newTerm.replaceSubTerm(varEnt.getKey(), value);
+		newTerm.replaceVariable(variable, value);
+		return newTerm;
+	}
+	
+	private void replaceVariable(Variable variable, Expression value) {
+		for (int i = 0; i < children.size(); i++) {
+			Expression child = children.get(i);
+			if (child instanceof Variable) {
+				if (child.equals(variable)) children.set(i, value);
+			} else if (child instanceof Term) {
+				((Term) child).replaceVariable(variable, value);
 			}
 		}
-		return newTerm;
 	}
 	
 	public void replaceSubTerm(Position pos, Expression newSubTerm) {
 		if (pos.isEmpty()) return;
-		pos = (Position) pos.clone();
-		int i = pos.removeHeadOrder();
-		if (pos.isEmpty()) {
-			children.set(i, newSubTerm);
-		} else {
-			if (!(children.get(i) instanceof Term)) return;
-			((Term) children.get(i)).replaceSubTerm(pos, newSubTerm);
+		Term parent = this;
+		for (int d = 0; d < pos.length() - 1; d++) {
+			Expression child = parent.children.get(pos.getOrder(d));
+			if (!(child instanceof Term)) return;
+			parent = (Term) child;
 		}
+		parent.children.set(pos.getOrder(pos.length() - 1), newSubTerm);
 	}
 	
 	@Override
@@ -183,8 +207,8 @@ public class Term extends Expression {
 	@Override
 	public Expression getInverseMap(Expression outputValue, Position targetPos) {
 		if (targetPos.isEmpty()) return outputValue;
-		targetPos = (Position) targetPos.clone();
-		int i = targetPos.removeHeadOrder();
+		int i = targetPos.getHeadOrder();
+		targetPos = targetPos.getTail();
 		Symbol[] inverseSymbols = symbol.getInverses();
 		if (inverseSymbols == null || i >= inverseSymbols.length || inverseSymbols[i] == null) return null;
 		Term inverseMap = new Term(inverseSymbols[i]);
@@ -222,9 +246,18 @@ public class Term extends Expression {
 		return true;
 	}
 	
+	/**
+	 * Get the structural hash code of this term, which is consistent with equals, so that the terms with the same symbol
+	 * are spread over hash tables. The type is not hashed, so the hash code does not change when a type is inferred.
+	 * It is computed on each call, since the children of a term can be edited in place.
+	 */
 	@Override
 	public int hashCode() {
-		return symbol.hashCode();
+		int hash = symbol.hashCode();
+		for (Expression e: children) {
+			hash = 31 * hash + (e == null ? 0 : e.hashCode());
+		}
+		return hash;
 	}
 	
 	
@@ -1,6 +1,6 @@
 package models.dataConstraintModel;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import models.algebra.Variable;
@@ -9,21 +9,21 @@ public class Channel {
 	protected String channelName;
 	protected Set<Selector> selectors = null;
 	protected Set<ChannelMember> channelMembers = null;
-	protected String sourceText = null;
+	protected CharSequence sourceText = null;
 	
 	public Channel(String channelName) {
 		this.channelName = channelName;
-		selectors = new HashSet<>();
-		channelMembers = new HashSet<>();
+		selectors = new LinkedHashSet<>();
+		channelMembers = new LinkedHashSet<>();
 	}
 	
 	public Channel(String channelName, Set<Variable> variables) {
 		this.channelName = channelName;
-		selectors = new HashSet<>();
+		selectors = new LinkedHashSet<>();
 		for (Variable var: variables) {
 			selectors.add(new Selector(var));
 		}
-		channelMembers = new HashSet<>();
+		channelMembers = new LinkedHashSet<>();
 	}
 
 	public String getChannelName() {
@@ -72,7 +72,7 @@ public class Channel {
 	}
 
 	public Set<ResourcePath> getResources() {
-		Set<ResourcePath> resources = new HashSet<>();
+		Set<ResourcePath> resources = new LinkedHashSet<>();
 		for (ChannelMember member: channelMembers) {
 			resources.add(member.getResource());
 		}
@@ -83,7 +83,13 @@ public class Channel {
 		return channelName;
 	}
 	
-	public void setSourceText(String sourceText) {
+	/**
+	 * Set the source text of this channel. It can be a view of the source of the whole model,
+	 * which is materialized only when getSourceText() is called.
+	 * 
+	 * @param sourceText the source text
+	 */
+	public void setSourceText(CharSequence sourceText) {
 		this.sourceText = sourceText;
 	}
 	
@@ -91,6 +97,9 @@ public class Channel {
 		if (sourceText == null) {
 			return toString();
 		}
-		return sourceText;
+		if (!(sourceText instanceof String)) {
+			sourceText = sourceText.toString();
+		}
+		return (String) sourceText;
 	}
 }
@@ -5,6 +5,7 @@ import java.util.HashMap;
 
 import models.algebra.Expression;
 import models.algebra.LambdaAbstraction;
+import models.algebra.NamingContext;
 import models.algebra.Symbol;
 import models.algebra.Term;
 import models.algebra.Type;
@@ -67,10 +68,9 @@ public class DataConstraintModel {
 	});
 	public static final Symbol null_ = new Symbol("null", 0, Symbol.Type.PREFIX, "null", Symbol.Type.PREFIX);
 	public static final Symbol cond = new Symbol("if", 3, Symbol.Type.PREFIX, new Symbol.IImplGenerator() {
-		final int count[] = {0};
 		@Override
 		public String generate(Type type, String[] children, String[] childrenSideEffects, String[] sideEffect) {
-			String temp = "temp_if" + count[0];
+			String temp = "temp_if" + NamingContext.getCurrentContext().newNumber(this);
 			String impl = ""; 
 			
 			impl += type.getInterfaceTypeName() + " " + temp + ";\n";
@@ -85,7 +85,6 @@ public class DataConstraintModel {
 			
 			sideEffect[0] += impl;
 			
-			count[0]++;
 			return temp;
 		}
 	});
@@ -133,10 +132,9 @@ public class DataConstraintModel {
 	public static final Symbol right = new Symbol("right", 1, Symbol.Type.PREFIX, "getRight", Symbol.Type.METHOD);
 	public static final Symbol insert = new Symbol("insert", 3, Symbol.Type.PREFIX, "put", Symbol.Type.METHOD_WITH_SIDE_EFFECT);
 	public static final Symbol lookup = new Symbol("lookup", 2, Symbol.Type.PREFIX, new Symbol.IImplGenerator() {
-		final int count[] = {0};
 		@Override
 		public String generate(Type type, String[] childrenImpl, String[] childrenSideEffects, String[] sideEffect) {
-			String temp = "temp_get" + count[0];
+			String temp = "temp_get" + NamingContext.getCurrentContext().newNumber(this);
 			String impl = childrenSideEffects[0] + childrenSideEffects[1];
 			impl += type.getInterfaceTypeName() + " " + temp + ";\n";
 			impl += "if (" + childrenImpl[0] + ".get(" + childrenImpl[1] + ") != null) {\n";
@@ -145,7 +143,6 @@ public class DataConstraintModel {
 			impl += "\t" + temp + " = " + getDefaultValue(type) + ";\n";
 			impl += "}";
 			sideEffect[0] = impl;
-			count[0]++;
 			return temp;
 		}
 	});
@@ -387,14 +384,26 @@ public class DataConstraintModel {
 		return types.get(name);
 	}
 	
+	public Collection<Type> getTypes() {
+		return types.values();
+	}
+	
 	public void addSymbol(Symbol symbol) {
 		symbols.put(symbol.getName(), symbol);
 	}
 	
+	public void removeSymbol(String name) {
+		symbols.remove(name);
+	}
+	
 	public Symbol getSymbol(String name) {
 		return symbols.get(name);
 	}
 	
+	public Collection<Symbol> getSymbols() {
+		return symbols.values();
+	}
+	
 	public static String getWrapperType(Type type) {
 		if (type == typeInt) {
 			return "Integer";
@@ -62,8 +62,8 @@ public class JsonAccessor extends Term {
 	@Override
 	public Expression getInverseMap(Expression outputValue, Position targetPos) {
 		if (targetPos.isEmpty()) return outputValue;
-		targetPos = (Position) targetPos.clone();
-		int i = targetPos.removeHeadOrder();
+		int i = targetPos.getHeadOrder();
+		targetPos = targetPos.getTail();
 		Symbol[] inverseSymbols = symbol.getInverses();
 		if (i == 0) {
 			if (symbol.equals(DataConstraintModel.dot) && getChildren().size() >= 2) {
@@ -8,6 +8,7 @@ public class ResourcePath {
 	private String resourceName = null;
 	private Type resourceStateType = null;
 	private int numParameters = 0;
+	private int id = -1;			// -1: not numbered by a parser
 	private Expression initialValue = null;
 	protected String initText = null;
 	
@@ -26,6 +27,14 @@ public class ResourcePath {
 		return resourceName;
 	}
 	
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
 	public int getNumberOfParameters() {
 		return numParameters;
 	}
@@ -2,6 +2,9 @@ package models.dataConstraintModel;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import models.algebra.Constant;
@@ -18,12 +21,22 @@ public class StateTransition {
 	private Expression nextStateExpression = null;
 	private Expression messageExpression = null;
 	
+	/**
+	 * The positions of each variable in the above expressions. They are built when they are first used
+	 * and discarded when the expressions are replaced. They are volatile since they may be built by the threads
+	 * generating the codes of different components at the same time.
+	 */
+	private volatile Map<Variable, List<Position>> curStateVariables = null;
+	private volatile Map<Variable, List<Position>> nextStateVariables = null;
+	private volatile Map<Variable, List<Position>> messageVariables = null;
+	
 	public Expression getCurStateExpression() {
 		return curStateExpression;
 	}
 	
 	public void setCurStateExpression(Expression curStateExpression) {
 		this.curStateExpression = curStateExpression;
+		this.curStateVariables = null;
 	}
 	
 	public Expression getNextStateExpression() {
@@ -32,6 +45,7 @@ public class StateTransition {
 	
 	public void setNextStateExpression(Expression nextStateExpression) {
 		this.nextStateExpression = nextStateExpression;
+		this.nextStateVariables = null;
 	}
 
 	public Expression getMessageExpression() {
@@ -40,11 +54,54 @@ public class StateTransition {
 
 	public void setMessageExpression(Expression messageExpression) {
 		this.messageExpression = messageExpression;
+		this.messageVariables = null;
+	}
+	
+	private Map<Variable, List<Position>> getCurStateVariables() {
+		Map<Variable, List<Position>> variables = curStateVariables;
+		if (variables == null) {
+			variables = createVariableIndex(curStateExpression);
+			curStateVariables = variables;
+		}
+		return variables;
+	}
+	
+	private Map<Variable, List<Position>> getNextStateVariables() {
+		Map<Variable, List<Position>> variables = nextStateVariables;
+		if (variables == null) {
+			variables = createVariableIndex(nextStateExpression);
+			nextStateVariables = variables;
+		}
+		return variables;
+	}
+	
+	private Map<Variable, List<Position>> getMessageVariables() {
+		Map<Variable, List<Position>> variables = messageVariables;
+		if (variables == null) {
+			variables = createVariableIndex(messageExpression);
+			messageVariables = variables;
+		}
+		return variables;
+	}
+	
+	private static Map<Variable, List<Position>> createVariableIndex(Expression exp) {
+		Map<Variable, List<Position>> variables = new LinkedHashMap<>();
+		if (exp == null) return variables;
+		for (Entry<Position, Variable> varEnt: exp.getVariables().entrySet()) {
+			List<Position> positions = variables.get(varEnt.getValue());
+			if (positions == null) {
+				positions = new ArrayList<>();
+				variables.put(varEnt.getValue(), positions);
+			}
+			positions.add(varEnt.getKey());
+		}
+		return variables;
 	}
 	
 	public boolean isRightUnary() {
-		for (Position pos : curStateExpression.getVariables().keySet()) {
-			if (nextStateExpression.contains(curStateExpression.getVariables().get(pos))) return false;
+		Map<Variable, List<Position>> nextStateVars = getNextStateVariables();
+		for (Variable var: getCurStateVariables().keySet()) {
+			if (nextStateVars.containsKey(var)) return false;
 		}
 		return true;
 	}
@@ -53,60 +110,64 @@ public class StateTransition {
 		HashMap<Variable, ArrayList<Expression>> bindings = new HashMap<>();
 		
 		Expression curStateTerm = getCurStateExpression();
-		HashMap<Position, Variable> curStateVars = curStateTerm.getVariables();		
-		for (Entry<Position, Variable> curStateVarEnt: curStateVars.entrySet()) {
-			Variable var = curStateVarEnt.getValue();
-			Position varPos = curStateVarEnt.getKey();
-			Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
-			if (valueCalc != null) {
-				if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
-					valueCalc = ((Term) valueCalc).reduce();
-				}
-				ArrayList<Expression> values = bindings.get(var);
-				if (values == null) {
-					values = new ArrayList<Expression>();
-					bindings.put(var, values);
+		for (Entry<Variable, List<Position>> curStateVarEnt: getCurStateVariables().entrySet()) {
+			Variable var = curStateVarEnt.getKey();
+			for (Position varPos: curStateVarEnt.getValue()) {
+				Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
+				if (valueCalc != null) {
+					if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
+						valueCalc = ((Term) valueCalc).reduce();
+					}
+					ArrayList<Expression> values = bindings.get(var);
+					if (values == null) {
+						values = new ArrayList<Expression>();
+						bindings.put(var, values);
+					}
+					values.add(valueCalc);
 				}
-				values.add(valueCalc);
 			}
 		}
 		
 		Expression nextStateTerm = (Expression) getNextStateExpression().clone();
+		Map<Variable, List<Position>> nextStateVars = getNextStateVariables();
+		boolean bSubstituted = false;
 		for (Variable var: bindings.keySet()) {
-			HashMap<Position, Variable> vars2 = nextStateTerm.getVariables();
-			for (Variable var2: vars2.values()) {
-				if (var.equals(var2) && bindings.get(var).size() == 1) {
-					if (nextStateTerm instanceof Term) {
-						nextStateTerm = ((Term) nextStateTerm).substitute(var, bindings.get(var).get(0));
-					} else if (nextStateTerm instanceof Variable && nextStateTerm.equals(var)) {
-						nextStateTerm = bindings.get(var).get(0);
-					}
+			if (nextStateVars.containsKey(var) && bindings.get(var).size() == 1) {
+				if (nextStateTerm instanceof Term) {
+					nextStateTerm = ((Term) nextStateTerm).substitute(var, bindings.get(var).get(0));
+					bSubstituted = true;
+				} else if (nextStateTerm instanceof Variable && nextStateTerm.equals(var)) {
+					nextStateTerm = bindings.get(var).get(0);
+					bSubstituted = true;
 				}
 			}
 		}
+		if (bSubstituted) {
+			// The positions of the remaining variables are changed by the substitution.
+			nextStateVars = createVariableIndex(nextStateTerm);
+		}
 		
-		HashMap<Position, Variable> nextStateVars = nextStateTerm.getVariables();
-		for (Entry<Position, Variable> nextStateVarEnt: nextStateVars.entrySet()) {
-			Variable var = nextStateVarEnt.getValue();
-			Position varPos = nextStateVarEnt.getKey();
-			Expression valueCalc = nextStateTerm.getInverseMap(nextStateValue, varPos);
-			if (valueCalc != null) {
-				if (valueCalc instanceof Term) {
-					valueCalc = ((Term) valueCalc).reduce();
-				}
-				ArrayList<Expression> values = bindings.get(var);
-				if (values == null) {
-					values = new ArrayList<Expression>();
-					bindings.put(var, values);
+		for (Entry<Variable, List<Position>> nextStateVarEnt: nextStateVars.entrySet()) {
+			Variable var = nextStateVarEnt.getKey();
+			for (Position varPos: nextStateVarEnt.getValue()) {
+				Expression valueCalc = nextStateTerm.getInverseMap(nextStateValue, varPos);
+				if (valueCalc != null) {
+					if (valueCalc instanceof Term) {
+						valueCalc = ((Term) valueCalc).reduce();
+					}
+					ArrayList<Expression> values = bindings.get(var);
+					if (values == null) {
+						values = new ArrayList<Expression>();
+						bindings.put(var, values);
+					}
+					values.add(valueCalc);
 				}
-				values.add(valueCalc);
 			}
 		}
 		
 		Expression messageTerm = getMessageExpression();
 		if (!(messageTerm instanceof Term) && !(messageTerm instanceof Variable)) throw new InvalidMessage();
-		HashMap<Position, Variable> messageVars = messageTerm.getVariables();
-		for (Variable var: messageVars.values()) {
+		for (Variable var: getMessageVariables().keySet()) {
 			if (bindings.get(var) != null) {
 				if (bindings.get(var).size() > 1) throw new ResolvingMultipleDefinitionIsFutureWork();
 				if (messageTerm instanceof Term) {
@@ -125,28 +186,27 @@ public class StateTransition {
 		HashMap<Variable, ArrayList<Expression>> bindings = new HashMap<>();
 		
 		Expression curStateTerm = getCurStateExpression();
-		HashMap<Position, Variable> curStateVars = curStateTerm.getVariables();		
-		for (Entry<Position, Variable> curStateVarEnt: curStateVars.entrySet()) {
-			Variable var = curStateVarEnt.getValue();
-			Position varPos = curStateVarEnt.getKey();
-			Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
-			if (valueCalc != null) {
-				if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
-					valueCalc = ((Term) valueCalc).reduce();
-				}
-				ArrayList<Expression> values = bindings.get(var);
-				if (values == null) {
-					values = new ArrayList<Expression>();
-					bindings.put(var, values);
+		for (Entry<Variable, List<Position>> curStateVarEnt: getCurStateVariables().entrySet()) {
+			Variable var = curStateVarEnt.getKey();
+			for (Position varPos: curStateVarEnt.getValue()) {
+				Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
+				if (valueCalc != null) {
+					if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
+						valueCalc = ((Term) valueCalc).reduce();
+					}
+					ArrayList<Expression> values = bindings.get(var);
+					if (values == null) {
+						values = new ArrayList<Expression>();
+						bindings.put(var, values);
+					}
+					values.add(valueCalc);
 				}
-				values.add(valueCalc);
 			}
 		}
 		
 		Expression messageTerm = getMessageExpression();
 		if (!(messageTerm instanceof Term) && !(messageTerm instanceof Variable)) throw new InvalidMessage();
-		HashMap<Position, Variable> messageVars = messageTerm.getVariables();
-		for (Variable var: messageVars.values()) {
+		for (Variable var: getMessageVariables().keySet()) {
 			if (bindings.get(var) != null) {
 				if (bindings.get(var).size() > 1) throw new ResolvingMultipleDefinitionIsFutureWork();
 				if (messageTerm instanceof Term) {
@@ -166,30 +226,29 @@ public class StateTransition {
 		HashMap<Variable, Expression> bindings = new HashMap<>();
 
 		Expression curStateTerm = getCurStateExpression();
-		HashMap<Position, Variable> curStateVars = curStateTerm.getVariables();
-		for (Entry<Position, Variable> curStateVarEnt: curStateVars.entrySet()) {
-			Variable var = curStateVarEnt.getValue();
-			Position varPos = curStateVarEnt.getKey();
-			Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
-			if (valueCalc != null) {
-				if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
-					valueCalc = ((Term) valueCalc).reduce();
+		for (Entry<Variable, List<Position>> curStateVarEnt: getCurStateVariables().entrySet()) {
+			Variable var = curStateVarEnt.getKey();
+			for (Position varPos: curStateVarEnt.getValue()) {
+				Expression valueCalc = curStateTerm.getInverseMap(curStateValue, varPos);
+				if (valueCalc != null) {
+					if (valueCalc instanceof Term && !(valueCalc instanceof Constant)) {
+						valueCalc = ((Term) valueCalc).reduce();
+					}
+					if (bindings.get(var) != null) throw new ResolvingMultipleDefinitionIsFutureWork();
+					bindings.put(var, valueCalc);
 				}
-				if (bindings.get(var) != null) throw new ResolvingMultipleDefinitionIsFutureWork();
-				bindings.put(var, valueCalc);
 			}
 		}
 		
-		Expression messageTerm = getMessageExpression();
-		HashMap<Position, Variable> messageVars = messageTerm.getVariables();
 		if (concreteMessage != null) {
-			for (Entry<Position, Variable> messageVarEnt: messageVars.entrySet()) {
-				Variable var = messageVarEnt.getValue();
-				Position varPos = messageVarEnt.getKey();
-				Expression valueCalc = concreteMessage.getSubTerm(varPos);
-				if (valueCalc != null) {
-					if (bindings.get(var) != null) throw new ResolvingMultipleDefinitionIsFutureWork();
-					bindings.put(var, valueCalc);
+			for (Entry<Variable, List<Position>> messageVarEnt: getMessageVariables().entrySet()) {
+				Variable var = messageVarEnt.getKey();
+				for (Position varPos: messageVarEnt.getValue()) {
+					Expression valueCalc = concreteMessage.getSubTerm(varPos);
+					if (valueCalc != null) {
+						if (bindings.get(var) != null) throw new ResolvingMultipleDefinitionIsFutureWork();
+						bindings.put(var, valueCalc);
+					}
 				}
 			}
 		}
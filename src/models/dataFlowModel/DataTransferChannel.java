@@ -2,6 +2,7 @@ package models.dataFlowModel;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import models.algebra.Expression;
@@ -22,9 +23,9 @@ public class DataTransferChannel extends Channel {
 	
 	public DataTransferChannel(String channelName) {
 		super(channelName);
-		inputChannelMembers = new HashSet<>();
-		outputChannelMembers = new HashSet<>();
-		referenceChannelMembers = new HashSet<>();
+		inputChannelMembers = new LinkedHashSet<>();
+		outputChannelMembers = new LinkedHashSet<>();
+		referenceChannelMembers = new LinkedHashSet<>();
 	}
 	
 	public Set<ChannelMember> getInputChannelMembers() {
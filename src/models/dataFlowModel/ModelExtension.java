@@ -1,29 +1,30 @@
 package models.dataFlowModel;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import models.algebra.NamingContext;
 import models.algebra.Symbol;
 import models.algebra.Type;
 import models.dataConstraintModel.DataConstraintModel;
 
 public class ModelExtension {
-	private static Symbol.Memento floorMem;
-	private static Symbol.Memento sumMem;
-	private static Symbol.Memento mergeMem;
-	private static Symbol.Memento extractFaceDownMem;
-	private static Symbol.Memento sortByKeyMem;
+	private static final Map<DataTransferModel, Map<Symbol, Symbol.Memento>> mementos = Collections.synchronizedMap(new WeakHashMap<>());	// per extended model.
 
 	public static void extendModel(DataTransferModel model) {
+		Map<Symbol, Symbol.Memento> modelMementos = new IdentityHashMap<>();
+		mementos.put(model, modelMementos);
 		Symbol floor = model.getSymbol("floor");
-		floorMem = null;
 		if (floor != null) {
-			floorMem = floor.createMemento();
+			modelMementos.put(floor, floor.createMemento());
 			floor.setImplName("(int)Math.floor");
 			floor.setImplOperatorType(Symbol.Type.PREFIX);
 		}
 		Symbol sum = model.getSymbol("sum");
-		sumMem = null;
 		if (sum != null) {
-			sumMem = sum.createMemento();
-			final int[] count = new int[] {0};
+			modelMementos.put(sum, sum.createMemento());
 			sum.setGenerator(new Symbol.IImplGenerator() {
 				@Override
 				public String generate(Type type, String[] children, String[] childrenSideEffects, String[] sideEffect) {
@@ -34,13 +35,13 @@ public class ModelExtension {
 							compType = interfaceType.substring(interfaceType.indexOf("<") + 1, interfaceType.lastIndexOf(">"));
 						}						
 					}
-					count[0]++;
-					String impl = compType + " " + "temp_sum" + count[0] + " = 0;\n";
+					int count = NamingContext.getCurrentContext().newNumber(this) + 1;
+					String impl = compType + " " + "temp_sum" + count + " = 0;\n";
 					impl += "for (" + compType + " x: " + children[0] + ") {\n";
-					impl += "\t" + "temp_sum" + count[0] + " += x;\n";
+					impl += "\t" + "temp_sum" + count + " += x;\n";
 					impl += "}\n";
 					sideEffect[0] = sideEffect[0] + impl;
-					return "temp_sum" + count[0];
+					return "temp_sum" + count;
 				}
 			});
 			sum.setImplOperatorType(Symbol.Type.GENERATIVE);
@@ -49,11 +50,9 @@ public class ModelExtension {
 //			sum.setImplOperatorType(Symbol.Type.METHOD);
 		}
 		Symbol merge = model.getSymbol("merge");
-		mergeMem = null;
 		if (merge != null) {
-			mergeMem = merge.createMemento();
+			modelMementos.put(merge, merge.createMemento());
 			merge.setArity(2);
-			final int[] count = new int[] {0};
 			merge.setGenerator(new Symbol.IImplGenerator() {
 				@Override
 				public String generate(Type type, String[] childrenImpl, String[] childrenSideEffects, String[] sideEffect) {
@@ -71,9 +70,9 @@ public class ModelExtension {
 					if (compType.startsWith("Map.Entry")) {
 						idxGetter = ".getKey()";
 					}
-					count[0]++;
+					int count = NamingContext.getCurrentContext().newNumber(this) + 1;
 					String impl = "";
-					impl += "" + interfaceType + " temp_l" + count[0] + " = new " + implType + "();\n";
+					impl += "" + interfaceType + " temp_l" + count + " = new " + implType + "();\n";
 					impl += "{\n";
 					impl += "\tIterator<" + compType + "> i1 = " + childrenImpl[0] + ".iterator();\n";
 					impl += "\tIterator<" + compType + "> i2 = " + childrenImpl[1] + ".iterator();\n";
@@ -87,25 +86,24 @@ public class ModelExtension {
 					impl += "\t\t\tt2 = i2.next();\n";
 					impl += "\t\t}\n";
 					impl += "\t\tif (t1 == null || (t2 != null && t1" + idxGetter + " < t2" + idxGetter + ")) {\n";
-					impl += "\t\t\ttemp_l"  + count[0] +".add(t2);\n";
+					impl += "\t\t\ttemp_l"  + count +".add(t2);\n";
 					impl += "\t\t\tt2 = null;\n";
 					impl += "\t\t} else {\n";
-					impl += "\t\t\ttemp_l" + count[0] + ".add(t1);\n";
+					impl += "\t\t\ttemp_l" + count + ".add(t1);\n";
 					impl += "\t\t\tt1 = null;\n";
 					impl += "\t\t}\n";
 					impl += "\t}\n";
 					impl += "}\n";
 					sideEffect[0] = sideEffect[0] + impl;
-					return "temp_l" + count[0];
+					return "temp_l" + count;
 				}
 			});
 			merge.setImplOperatorType(Symbol.Type.GENERATIVE);
 			merge.setSignature(new Type[] {DataConstraintModel.typeList, DataConstraintModel.typeList, DataConstraintModel.typeList});
 		}		
 		Symbol extractFaceDown = model.getSymbol("extractFaceDown");
-		extractFaceDownMem = null;
 		if (extractFaceDown != null) {
-			extractFaceDownMem = extractFaceDown.createMemento();
+			modelMementos.put(extractFaceDown, extractFaceDown.createMemento());
 			extractFaceDown.setArity(1);
 			extractFaceDown.setGenerator(new Symbol.IImplGenerator() {
 				@Override
@@ -118,9 +116,8 @@ public class ModelExtension {
 		}
 		
 		Symbol sortByKey = model.getSymbol("sortByKey");
-		sortByKeyMem = null;
 		if(sortByKey != null) {
-			sortByKeyMem = sortByKey.createMemento();
+			modelMementos.put(sortByKey, sortByKey.createMemento());
 			sortByKey.setArity(1);
 			sortByKey.setGenerator(new Symbol.IImplGenerator() {
 				@Override
@@ -151,15 +148,10 @@ public class ModelExtension {
 	}
 	
 	public static void recoverModel(DataTransferModel model) {
-		Symbol floor = model.getSymbol("floor");		
-		if (floor != null) floor.setMemento(floorMem);
-		Symbol sum = model.getSymbol("sum");
-		if (sum != null) sum.setMemento(sumMem);
-		Symbol merge = model.getSymbol("merge");
-		if (merge != null) merge.setMemento(mergeMem);		
-		Symbol extractFaceDown = model.getSymbol("extractFaceDown");
-		if (extractFaceDown != null) extractFaceDown.setMemento(extractFaceDownMem);
-		Symbol sortByKey = model.getSymbol("sortByKey");
-		if (sortByKey != null) sortByKey.setMemento(sortByKeyMem);
+		Map<Symbol, Symbol.Memento> modelMementos = mementos.remove(model);
+		if (modelMementos == null) return;
+		for (Map.Entry<Symbol, Symbol.Memento> memento: modelMementos.entrySet()) {
+			memento.getKey().setMemento(memento.getValue());
+		}
 	}
 }
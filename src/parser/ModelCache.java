@@ -0,0 +1,794 @@
+package parser;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import models.algebra.Constant;
+import models.algebra.Expression;
+import models.algebra.Field;
+import models.algebra.LambdaAbstraction;
+import models.algebra.Parameter;
+import models.algebra.Symbol;
+import models.algebra.Term;
+import models.algebra.Type;
+import models.algebra.Variable;
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.DataConstraintModel;
+import models.dataConstraintModel.JsonAccessor;
+import models.dataConstraintModel.JsonType;
+import models.dataConstraintModel.ResourcePath;
+import models.dataConstraintModel.Selector;
+import models.dataConstraintModel.StateTransition;
+import models.dataFlowModel.DataTransferChannel;
+import models.dataFlowModel.DataTransferModel;
+
+/**
+ * A binary snapshot of a parsed model, stored in a cache directory and keyed by the hash of the contents of the source file.
+ * A snapshot is loaded by one sequential read without tokenizing or parsing the source.
+ * The default cache directory is in the home directory of the user, and on a POSIX file system a snapshot is loaded only if
+ * it and its directory are owned by the user and cannot be written by the others, since the implementations of the symbols
+ * in a snapshot are copied into the generated code.
+ *
+ * In a snapshot, each string, type, symbol, resource path, selector and expression is written once at its first occurrence
+ * and is referred to by its number after that, so that the sharing of them in the model is restored as it was.
+ * The predefined types and symbols of DataConstraintModel are referred to, not copied. Since they are referred to by their numbers,
+ * the names and the definitions of them are hashed together with the source, so that a snapshot is not loaded after they are changed.
+ *
+ */
+public class ModelCache {
+	private static final String APPLICATION_DIRECTORY = ".TwoStagesModelingTool";
+	private static final String CACHE_DIRECTORY = "cache";
+	private static final String CACHE_SUFFIX = ".compiled";
+	private static final int MAGIC = 0x44544d43;		// "DTMC"
+	private static final int VERSION = 3;
+	private static final Type[] PREDEFINED_TYPES;
+	private static final Symbol[] PREDEFINED_SYMBOLS;
+	private static final String PREDEFINED_TABLES;		// the description of the predefined types and symbols, which is hashed with the source.
+	private static final Map<Symbol, Integer> PREDEFINED_SYMBOL_NUMBERS = new IdentityHashMap<>();
+
+	// The kinds of types.
+	private static final int TYPE = 0;
+	private static final int JSON_TYPE = 1;
+
+	// The kinds of symbols.
+	private static final int PREDEFINED_SYMBOL = 0;
+	private static final int SYMBOL = 1;
+	private static final int LAMBDA_ABSTRACTION = 2;
+
+	// The kinds of expressions.
+	private static final int VARIABLE = 0;
+	private static final int TERM = 1;
+	private static final int CONSTANT = 2;
+	private static final int FIELD = 3;
+	private static final int PARAMETER = 4;
+	private static final int JSON_ACCESSOR = 5;
+
+	// The roles of channel members.
+	private static final int INPUT = 0;
+	private static final int OUTPUT = 1;
+	private static final int REFERENCE = 2;
+
+	static {
+		// The predefined types and symbols are the constants of DataConstraintModel, numbered in the order of their names.
+		java.lang.reflect.Field[] fields = DataConstraintModel.class.getFields();
+		Arrays.sort(fields, Comparator.comparing(java.lang.reflect.Field::getName));
+		List<Type> types = new ArrayList<>();
+		List<Symbol> symbols = new ArrayList<>();
+		StringBuilder tables = new StringBuilder();
+		try {
+			for (java.lang.reflect.Field field: fields) {
+				if (!Modifier.isStatic(field.getModifiers()) || !Modifier.isFinal(field.getModifiers())) continue;
+				Object value = field.get(null);
+				if (value instanceof Type) {
+					Type type = (Type) value;
+					types.add(type);
+					tables.append("type " + field.getName() + " " + type.getTypeName() + " " + type.getImplementationTypeName() + " " + type.getInterfaceTypeName() + "\n");
+				} else if (value instanceof Symbol) {
+					Symbol symbol = (Symbol) value;
+					PREDEFINED_SYMBOL_NUMBERS.put(symbol, symbols.size());
+					symbols.add(symbol);
+					tables.append("symbol " + field.getName() + " " + symbol.getName() + " " + symbol.getOperatorType() + " " + symbol.getImplName() + "\n");
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+		PREDEFINED_TYPES = types.toArray(new Type[types.size()]);
+		PREDEFINED_SYMBOLS = symbols.toArray(new Symbol[symbols.size()]);
+		PREDEFINED_TABLES = tables.toString();
+	}
+
+	private final File cacheFile;
+	private final byte[] hash;
+
+	/**
+	 * Create the cache of a source file in the default cache directory. The contents of the source file are hashed at this point.
+	 *
+	 * @param source a .model or .dtram file
+	 * @throws IOException if the source file cannot be read
+	 */
+	public ModelCache(File source) throws IOException {
+		this(source, getDefaultDirectory());
+	}
+
+	/**
+	 * Create the cache of a source file in a given directory. The contents of the source file are hashed at this point.
+	 *
+	 * @param source a .model or .dtram file
+	 * @param directory the directory where the snapshot is stored
+	 * @throws IOException if the source file cannot be read
+	 */
+	public ModelCache(File source, File directory) throws IOException {
+		try (InputStream in = new FileInputStream(source)) {
+			// The snapshots of files of the same name are distinguished by the hash of their paths.
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] pathHash = digest.digest(source.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+			this.cacheFile = new File(directory, source.getName() + "." + toHexString(pathHash, 8) + CACHE_SUFFIX);
+
+			// A snapshot is valid only for the same contents of the source and the same predefined types and symbols.
+			digest.update(PREDEFINED_TABLES.getBytes(StandardCharsets.UTF_8));
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+			this.hash = digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * Get the directory where the snapshots are stored by default, which is in the home directory of the user.
+	 *
+	 * @return the default cache directory
+	 */
+	public static File getDefaultDirectory() {
+		return new File(new File(System.getProperty("user.home"), APPLICATION_DIRECTORY), CACHE_DIRECTORY);
+	}
+
+	/**
+	 * Load the model stored for the current contents of the source file.
+	 *
+	 * @return the model, or null if no model has been stored for the current contents or the stored one cannot be read
+	 */
+	public DataTransferModel load() {
+		if (!cacheFile.exists()) return null;
+		try {
+			if (!isPrivate(cacheFile.getParentFile().toPath()) || !isPrivate(cacheFile.toPath())) return null;
+			ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+			byte[] cachedHash = new byte[in.get() & 0xff];
+			in.get(cachedHash);
+			if (!Arrays.equals(hash, cachedHash)) return null;
+			return new ModelReader(in).readModel();
+		} catch (IOException | RuntimeException e) {
+			// The source should be parsed again.
+			return null;
+		}
+	}
+
+	/**
+	 * Store a model parsed from the current contents of the source file.
+	 * The model should be stored before it is modified, i.e., just after it is parsed.
+	 *
+	 * @param model the parsed model
+	 */
+	public void store(DataTransferModel model) {
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+		try {
+			Path directory = cacheFile.getParentFile().toPath();
+			boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+			if (posix) {
+				Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} else {
+				Files.createDirectories(directory);
+			}
+			ModelWriter writer = new ModelWriter();
+			writer.writeModel(model);
+			try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeByte(hash.length);
+				out.write(hash);
+				out.write(writer.bytes, 0, writer.size);
+			}
+			if (posix) Files.setPosixFilePermissions(tempFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			tempFile.delete();
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Check that a file is owned by the user and cannot be written by the others, on a POSIX file system.
+	 * On other file systems, the access to the home directory of the user is left to the system.
+	 *
+	 * @param path a file or a directory
+	 * @return true if the file can be trusted
+	 */
+	private static boolean isPrivate(Path path) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+		if (view == null) return true;
+		PosixFileAttributes attributes = view.readAttributes();
+		if (!attributes.owner().getName().equals(System.getProperty("user.name"))) return false;
+		Set<PosixFilePermission> permissions = attributes.permissions();
+		return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+	}
+
+	private static String toHexString(byte[] bytes, int length) {
+		StringBuilder hex = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			hex.append(String.format("%02x", bytes[i]));
+		}
+		return hex.toString();
+	}
+
+	private static class ModelWriter {
+		private byte[] bytes = new byte[1 << 16];
+		private int size = 0;
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final Map<Type, Integer> types = new IdentityHashMap<>();
+		private final Map<Symbol, Integer> symbols = new IdentityHashMap<>();
+		private final Map<ResourcePath, Integer> resources = new IdentityHashMap<>();
+		private final Map<Selector, Integer> selectors = new IdentityHashMap<>();
+		private final Map<Expression, Integer> expressions = new IdentityHashMap<>();
+
+		private ModelWriter() {
+			for (Type type: PREDEFINED_TYPES) {
+				types.put(type, types.size());
+			}
+		}
+
+		private void writeModel(DataTransferModel model) throws IOException {
+			writeInt(model.getTypes().size());
+			for (Type type: model.getTypes()) {
+				writeType(type);
+			}
+			writeInt(model.getSymbols().size());
+			for (Symbol symbol: model.getSymbols()) {
+				writeSymbol(symbol);
+			}
+			writeInt(model.getResourcePaths().size());
+			for (ResourcePath resource: model.getResourcePaths()) {
+				writeResource(resource);
+			}
+			writeInt(model.getIOChannels().size());
+			for (Channel channel: model.getIOChannels()) {
+				writeChannel(channel);
+			}
+			writeInt(model.getChannels().size());
+			for (Channel channel: model.getChannels()) {
+				writeChannel(channel);
+			}
+		}
+
+		private void writeChannel(Channel channel) throws IOException {
+			if (channel.getClass() != DataTransferChannel.class) throw new IOException("Unsupported channel: " + channel.getClass().getName());
+			DataTransferChannel dtChannel = (DataTransferChannel) channel;
+			writeString(channel.getChannelName());
+			writeText(channel.getSourceText());
+			writeInt(channel.getChannelMembers().size());
+			for (ChannelMember member: channel.getChannelMembers()) {
+				if (dtChannel.getInputChannelMembers().contains(member)) {
+					writeInt(INPUT);
+				} else if (dtChannel.getOutputChannelMembers().contains(member)) {
+					writeInt(OUTPUT);
+				} else if (dtChannel.getReferenceChannelMembers().contains(member)) {
+					writeInt(REFERENCE);
+				} else {
+					throw new IOException("Unsupported channel member: " + member);
+				}
+				writeResource(member.getResource());
+				writeInt(member.getSelectors().size());
+				for (Selector selector: member.getSelectors()) {
+					writeSelector(selector);
+				}
+				StateTransition stateTransition = member.getStateTransition();
+				writeExpression(stateTransition.getCurStateExpression());
+				writeExpression(stateTransition.getMessageExpression());
+				writeExpression(stateTransition.getNextStateExpression());
+			}
+			writeInt(channel.getChannelSelectors().size());
+			for (Selector selector: channel.getChannelSelectors()) {
+				writeSelector(selector);
+			}
+		}
+
+		private void writeResource(ResourcePath resource) throws IOException {
+			if (writeReference(resources, resource)) return;
+			writeString(resource.getResourceName());
+			writeInt(resource.getNumberOfParameters());
+			writeType(resource.getResourceStateType());
+			writeExpression(resource.getInitialValue());
+			writeText(resource.getInitText());
+		}
+
+		private void writeSelector(Selector selector) throws IOException {
+			if (writeReference(selectors, selector)) return;
+			writeExpression(selector.getVariable());
+		}
+
+		private void writeExpression(Expression exp) throws IOException {
+			if (writeReference(expressions, exp)) return;
+			if (exp instanceof Variable) {
+				writeInt(VARIABLE);
+				writeString(((Variable) exp).getName());
+				writeType(((Variable) exp).getType());
+				return;
+			}
+			if (!(exp instanceof Term)) throw new IOException("Unsupported expression: " + exp.getClass().getName());
+			Term term = (Term) exp;
+			if (term.getClass() == Term.class) {
+				writeInt(TERM);
+			} else if (term.getClass() == Constant.class) {
+				writeInt(CONSTANT);
+			} else if (term.getClass() == Field.class) {
+				writeInt(FIELD);
+			} else if (term.getClass() == Parameter.class) {
+				writeInt(PARAMETER);
+			} else if (term.getClass() == JsonAccessor.class) {
+				writeInt(JSON_ACCESSOR);
+			} else {
+				throw new IOException("Unsupported expression: " + exp.getClass().getName());
+			}
+			writeSymbol(term.getSymbol());
+			writeType(term.getOwnType());
+			writeInt(term.getChildren().size());
+			for (Expression child: term.getChildren()) {
+				writeExpression(child);
+			}
+		}
+
+		private void writeSymbol(Symbol symbol) throws IOException {
+			if (writeReference(symbols, symbol)) return;
+			Integer predefined = PREDEFINED_SYMBOL_NUMBERS.get(symbol);
+			if (predefined != null) {
+				writeInt(PREDEFINED_SYMBOL);
+				writeInt(predefined);
+				return;
+			}
+			if (symbol.isImplGenerative()) throw new IOException("Unsupported symbol: " + symbol.getName());
+			if (symbol instanceof LambdaAbstraction) {
+				writeInt(LAMBDA_ABSTRACTION);
+				List<Variable> variables = ((LambdaAbstraction) symbol).getVariables();
+				writeInt(variables.size());
+				for (Variable variable: variables) {
+					writeExpression(variable);
+				}
+				writeExpression(((LambdaAbstraction) symbol).getTerm());
+			} else {
+				writeInt(SYMBOL);
+				writeString(symbol.getName());
+				writeInt(symbol.getOperatorType().ordinal());
+				int[] implParamOrder = symbol.getImplParamOrder();
+				if (implParamOrder == null) {
+					writeInt(0);
+				} else {
+					writeInt(implParamOrder.length + 1);
+					for (int i: implParamOrder) {
+						writeInt(i);
+					}
+				}
+			}
+			writeString(symbol.getImplName());
+			writeInt(symbol.getImplOperatorType().ordinal());
+			writeInt(symbol.getArity() + 1);
+			Symbol[] inverses = symbol.getInverses();
+			if (inverses == null) {
+				writeInt(0);
+			} else {
+				writeInt(inverses.length + 1);
+				for (Symbol inverse: inverses) {
+					writeSymbol(inverse);
+				}
+			}
+			writeTypes(symbol.getSignature());
+		}
+
+		private void writeTypes(Type[] typeArray) throws IOException {
+			if (typeArray == null) {
+				writeInt(0);
+				return;
+			}
+			writeInt(typeArray.length + 1);
+			for (Type type: typeArray) {
+				writeType(type);
+			}
+		}
+
+		private void writeType(Type type) throws IOException {
+			if (writeReference(types, type)) return;
+			if (type.getClass() == Type.class) {
+				writeInt(TYPE);
+			} else if (type.getClass() == JsonType.class) {
+				writeInt(JSON_TYPE);
+			} else {
+				throw new IOException("Unsupported type: " + type.getClass().getName());
+			}
+			writeString(type.getTypeName());
+			writeString(type.getImplementationTypeName());
+			writeString(type.getInterfaceTypeName());
+			writeInt(type.getParentTypes().size());
+			for (Type parentType: type.getParentTypes()) {
+				writeType(parentType);
+			}
+			if (type instanceof JsonType) {
+				Map<String, Type> memberTypes = ((JsonType) type).getMemberTypes();
+				writeInt(memberTypes.size());
+				for (Map.Entry<String, Type> memberType: memberTypes.entrySet()) {
+					writeString(memberType.getKey());
+					writeType(memberType.getValue());
+				}
+				writeType(((JsonType) type).getElementType());
+			}
+		}
+
+		/**
+		 * Write the reference to an object, which is 0 for null, 1 for a new object and the number of the object plus 2 otherwise.
+		 * A new object should be written just after its reference.
+		 *
+		 * @return true if the object has been written before or is null
+		 */
+		private <T> boolean writeReference(Map<T, Integer> table, T object) {
+			if (object == null) {
+				writeInt(0);
+				return true;
+			}
+			Integer number = table.putIfAbsent(object, table.size());
+			if (number != null) {
+				writeInt(number + 2);
+				return true;
+			}
+			writeInt(1);
+			return false;
+		}
+
+		private void writeString(String string) {
+			if (writeReference(strings, string)) return;
+			writeBytes(string.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Write a source text, which is not shared.
+		 */
+		private void writeText(String text) {
+			if (text == null) {
+				writeInt(0);
+				return;
+			}
+			writeInt(1);
+			writeBytes(text.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void writeBytes(byte[] encoded) {
+			writeInt(encoded.length);
+			ensureCapacity(encoded.length);
+			System.arraycopy(encoded, 0, bytes, size, encoded.length);
+			size += encoded.length;
+		}
+
+		/**
+		 * Write a non-negative integer in 7 bits per byte.
+		 */
+		private void writeInt(int n) {
+			ensureCapacity(5);
+			while ((n & ~0x7f) != 0) {
+				bytes[size++] = (byte) ((n & 0x7f) | 0x80);
+				n >>>= 7;
+			}
+			bytes[size++] = (byte) n;
+		}
+
+		private void ensureCapacity(int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+		}
+	}
+
+	private static class ModelReader {
+		private final ByteBuffer in;
+		private final List<String> strings = new ArrayList<>();
+		private final List<Type> types = new ArrayList<>();
+		private final List<Symbol> symbols = new ArrayList<>();
+		private final List<ResourcePath> resources = new ArrayList<>();
+		private final List<Selector> selectors = new ArrayList<>();
+		private final List<Expression> expressions = new ArrayList<>();
+
+		private ModelReader(ByteBuffer in) {
+			this.in = in;
+			types.addAll(Arrays.asList(PREDEFINED_TYPES));
+		}
+
+		private DataTransferModel readModel() throws IOException {
+			DataTransferModel model = new DataTransferModel();
+			int numTypes = readInt();
+			for (int i = 0; i < numTypes; i++) {
+				model.addType(readType());
+			}
+			int numSymbols = readInt();
+			for (int i = 0; i < numSymbols; i++) {
+				model.addSymbol(readSymbol());
+			}
+			int numResources = readInt();
+			for (int i = 0; i < numResources; i++) {
+				model.addResourcePath(readResource());
+			}
+			int numIOChannels = readInt();
+			for (int i = 0; i < numIOChannels; i++) {
+				model.addIOChannel(readChannel());
+			}
+			int numChannels = readInt();
+			for (int i = 0; i < numChannels; i++) {
+				model.addChannel(readChannel());
+			}
+			if (in.hasRemaining()) throw new IOException("Unexpected data");
+			return model;
+		}
+
+		private DataTransferChannel readChannel() throws IOException {
+			DataTransferChannel channel = new DataTransferChannel(readString());
+			String sourceText = readText();
+			int numMembers = readInt();
+			for (int i = 0; i < numMembers; i++) {
+				int role = readInt();
+				ChannelMember member = new ChannelMember(readResource());
+				int numSelectors = readInt();
+				for (int j = 0; j < numSelectors; j++) {
+					member.addSelector(readSelector());
+				}
+				StateTransition stateTransition = new StateTransition();
+				stateTransition.setCurStateExpression(readExpression());
+				stateTransition.setMessageExpression(readExpression());
+				stateTransition.setNextStateExpression(readExpression());
+				member.setStateTransition(stateTransition);
+				if (role == INPUT) {
+					channel.addChannelMemberAsInput(member);
+				} else if (role == OUTPUT) {
+					channel.addChannelMemberAsOutput(member);
+				} else if (role == REFERENCE) {
+					channel.addChannelMemberAsReference(member);
+				} else {
+					throw new IOException("Wrong channel member: " + role);
+				}
+			}
+			int numSelectors = readInt();
+			for (int i = 0; i < numSelectors; i++) {
+				channel.addSelector(readSelector());
+			}
+			channel.setSourceText(sourceText);
+			return channel;
+		}
+
+		private ResourcePath readResource() throws IOException {
+			int number = readReference(resources);
+			if (number < resources.size()) return number < 0 ? null : resources.get(number);
+			resources.add(null);
+			String resourceName = readString();
+			int numParameters = readInt();
+			ResourcePath resource = new ResourcePath(resourceName, readType(), numParameters);
+			resource.setInitialValue(readExpression());
+			resource.setInitText(readText());
+			resources.set(number, resource);
+			return resource;
+		}
+
+		private Selector readSelector() throws IOException {
+			int number = readReference(selectors);
+			if (number < selectors.size()) return number < 0 ? null : selectors.get(number);
+			selectors.add(null);
+			Selector selector = new Selector((Variable) readExpression());
+			selectors.set(number, selector);
+			return selector;
+		}
+
+		private Expression readExpression() throws IOException {
+			int number = readReference(expressions);
+			if (number < expressions.size()) return number < 0 ? null : expressions.get(number);
+			expressions.add(null);
+			int kind = readInt();
+			Expression exp;
+			if (kind == VARIABLE) {
+				String name = readString();
+				exp = new Variable(name, readType());
+			} else {
+				Symbol symbol = readSymbol();
+				Term term;
+				switch (kind) {
+				case TERM:
+					term = new Term(symbol);
+					break;
+				case CONSTANT:
+					term = new Constant(symbol);
+					break;
+				case FIELD:
+					term = new Field(symbol);
+					break;
+				case PARAMETER:
+					term = new Parameter(symbol);
+					break;
+				case JSON_ACCESSOR:
+					term = new JsonAccessor(symbol);
+					break;
+				default:
+					throw new IOException("Wrong expression: " + kind);
+				}
+				term.setType(readType());
+				int numChildren = readInt();
+				for (int i = 0; i < numChildren; i++) {
+					term.addChild(readExpression(), true);
+				}
+				exp = term;
+			}
+			expressions.set(number, exp);
+			return exp;
+		}
+
+		private Symbol readSymbol() throws IOException {
+			int number = readReference(symbols);
+			if (number < symbols.size()) return number < 0 ? null : symbols.get(number);
+			symbols.add(null);
+			int kind = readInt();
+			Symbol symbol;
+			if (kind == PREDEFINED_SYMBOL) {
+				symbol = PREDEFINED_SYMBOLS[readInt()];
+				symbols.set(number, symbol);
+				return symbol;
+			} else if (kind == LAMBDA_ABSTRACTION) {
+				int numVariables = readInt();
+				List<Variable> variables = new ArrayList<>();
+				for (int i = 0; i < numVariables; i++) {
+					variables.add((Variable) readExpression());
+				}
+				symbol = new LambdaAbstraction(variables, (Term) readExpression());
+				symbol.setImplName(readString());
+			} else if (kind == SYMBOL) {
+				String name = readString();
+				Symbol.Type operatorType = Symbol.Type.values()[readInt()];
+				int[] implParamOrder = null;
+				int numParams = readInt();
+				if (numParams > 0) {
+					implParamOrder = new int[numParams - 1];
+					for (int i = 0; i < implParamOrder.length; i++) {
+						implParamOrder[i] = readInt();
+					}
+				}
+				String implName = readString();
+				symbol = new Symbol(name, 0, operatorType, implName, operatorType, implParamOrder);
+			} else {
+				throw new IOException("Wrong symbol: " + kind);
+			}
+			symbol.setImplOperatorType(Symbol.Type.values()[readInt()]);
+			symbol.setArity(readInt() - 1);
+			symbols.set(number, symbol);
+			int numInverses = readInt();
+			if (numInverses > 0) {
+				Symbol[] inverses = new Symbol[numInverses - 1];
+				for (int i = 0; i < inverses.length; i++) {
+					inverses[i] = readSymbol();
+				}
+				symbol.setInverses(inverses);
+			}
+			symbol.setSignature(readTypes());
+			return symbol;
+		}
+
+		private Type[] readTypes() throws IOException {
+			int length = readInt();
+			if (length == 0) return null;
+			Type[] typeArray = new Type[length - 1];
+			for (int i = 0; i < typeArray.length; i++) {
+				typeArray[i] = readType();
+			}
+			return typeArray;
+		}
+
+		private Type readType() throws IOException {
+			int number = readReference(types);
+			if (number < types.size()) return number < 0 ? null : types.get(number);
+			types.add(null);
+			int kind = readInt();
+			String typeName = readString();
+			String implementationTypeName = readString();
+			String interfaceTypeName = readString();
+			Type type;
+			if (kind == TYPE) {
+				type = new Type(typeName, implementationTypeName, interfaceTypeName);
+			} else if (kind == JSON_TYPE) {
+				type = new JsonType(typeName, implementationTypeName, interfaceTypeName);
+			} else {
+				throw new IOException("Wrong type: " + kind);
+			}
+			types.set(number, type);
+			int numParentTypes = readInt();
+			for (int i = 0; i < numParentTypes; i++) {
+				type.addParentType(readType());
+			}
+			if (type instanceof JsonType) {
+				int numMemberTypes = readInt();
+				for (int i = 0; i < numMemberTypes; i++) {
+					String key = readString();
+					((JsonType) type).addMemberType(key, readType());
+				}
+				((JsonType) type).setElementType(readType());
+			}
+			return type;
+		}
+
+		/**
+		 * Read the reference to an object.
+		 *
+		 * @return the number of the object, which is the size of the table if the object follows the reference, or -1 for null
+		 */
+		private <T> int readReference(List<T> table) throws IOException {
+			int reference = readInt();
+			if (reference == 0) return -1;
+			if (reference == 1) return table.size();
+			if (reference - 2 >= table.size()) throw new IOException("Wrong reference: " + reference);
+			return reference - 2;
+		}
+
+		private String readString() throws IOException {
+			int number = readReference(strings);
+			if (number < strings.size()) return number < 0 ? null : strings.get(number);
+			String string = readBytes();
+			strings.add(string);
+			return string;
+		}
+
+		private String readText() {
+			if (readInt() == 0) return null;
+			return readBytes();
+		}
+
+		private String readBytes() {
+			int length = readInt();
+			String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+			in.position(in.position() + length);
+			return string;
+		}
+
+		private int readInt() {
+			int n = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = in.get();
+				n |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return n;
+		}
+	}
+}
@@ -2,9 +2,22 @@ package parser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import models.algebra.Constant;
 import models.algebra.Expression;
@@ -30,12 +43,21 @@ import parser.exceptions.ExpectedLeftCurlyBracket;
 import parser.exceptions.ExpectedRHSExpression;
 import parser.exceptions.ExpectedRightBracket;
 import parser.exceptions.ExpectedStateTransition;
+import parser.exceptions.ParseException;
 import parser.exceptions.WrongJsonExpression;
 import parser.exceptions.WrongLHSExpression;
 import parser.exceptions.WrongRHSExpression;
 
 public class Parser {		
 	protected TokenStream stream;
+	private boolean parallel = false;
+	private int minBlocksPerTask = MIN_BLOCKS_PER_TASK;
+	private boolean errorRecovery = false;
+	private List<ParseException> errors = new ArrayList<>();
+	private List<Runnable> undoLog = null;		// the changes of the model by the block being parsed in the error recovery mode.
+
+	private static final int MIN_BLOCKS_PER_TASK = 64;		// the minimum number of channels parsed by a task in parallel.
+	private static final Set<Symbol> PREDEFINED_SYMBOLS = Collections.newSetFromMap(new IdentityHashMap<>());	// shared by all the models, never changed by the parser.
 
 	public static final String CHANNEL = "channel";
 	public static final String INIT = "init";
@@ -70,21 +92,16 @@ public class Parser {
 	public static final String DOT = ".";
 	public static final String DOT_REGX = "\\.";
 
+	static {
+		PREDEFINED_SYMBOLS.addAll(new DataTransferModel().getSymbols());
+	}
+
 	public Parser(final TokenStream stream) {
 		this.stream = stream;
 	}
 
 	public Parser(final BufferedReader reader) {		
-		this.stream = new TokenStream();
-		try {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				stream.addLine(line);
-			}
-			reader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		this.stream = new TokenStream(reader);
 	}
 	
 	public DataTransferModel doParse() 
@@ -93,18 +110,316 @@ public class Parser {
 		return parseDataFlowModel();
 	}
 
+	/**
+	 * Set whether the channels are parsed in parallel on the fork-join pool. They are parsed sequentially on a single processor.
+	 * In the parallel mode, the rest of the source is read into memory before the channels are parsed.
+	 * 
+	 * @param parallel true to parse the channels in parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel && Runtime.getRuntime().availableProcessors() > 1;
+		this.minBlocksPerTask = MIN_BLOCKS_PER_TASK;
+	}
+
+	/**
+	 * Set whether the channels are parsed in parallel on the fork-join pool, with the minimum number of the channels parsed by a task.
+	 * The channels are split into tasks even on a single processor.
+	 * 
+	 * @param parallel true to parse the channels in parallel
+	 * @param minBlocksPerTask the minimum number of the "channel" and "init" blocks parsed by a task
+	 */
+	public void setParallel(boolean parallel, int minBlocksPerTask) {
+		this.parallel = parallel;
+		this.minBlocksPerTask = minBlocksPerTask;
+	}
+
+	/**
+	 * Set whether the parsing is continued after errors. In the error recovery mode, a block that has an error is skipped
+	 * to the next "channel" or "init" block, or to the "}" that closes the model, and the model of the other blocks is returned.
+	 * The errors are collected in {@link #getErrors()} with their lines and columns instead of being thrown.
+	 * 
+	 * @param errorRecovery true to continue the parsing after errors
+	 */
+	public void setErrorRecovery(boolean errorRecovery) {
+		this.errorRecovery = errorRecovery;
+	}
+
+	/**
+	 * Get the errors found by the last parsing in the error recovery mode.
+	 * 
+	 * @return the errors in the order of the source
+	 */
+	public List<ParseException> getErrors() {
+		return errors;
+	}
+
 	public DataTransferModel parseDataFlowModel() 
 			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, 
 			ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment, WrongJsonExpression, ExpectedColon {
-		DataTransferModel model = new DataTransferModel();
+		errors.clear();
+		DataTransferModel model = null;
+		if (parallel) model = parseChannelsInParallel();
+		if (model == null) model = new DataTransferModel();
 		DataTransferChannel channel;
-		while ((channel = parseChannel(model)) != null) {
-			if (channel.getInputChannelMembers().size() == 0) {
-				model.addIOChannel(channel);
-			} else {
-				model.addChannel(channel);
+		if (!errorRecovery) {
+			while ((channel = parseChannel(model)) != null) {
+				addChannel(model, channel);
+			}
+			return model;
+		}
+		Token token;
+		while ((token = stream.checkNextToken()) != null) {
+			undoLog = new ArrayList<>();
+			try {
+				if ((channel = parseChannel(model)) == null) break;
+				addChannel(model, channel);
+			} catch (ParseException | RuntimeException e) {
+				// Undo the changes of the model by the block in the reverse order.
+				for (int i = undoLog.size() - 1; i >= 0; i--) {
+					undoLog.get(i).run();
+				}
+				Token errorToken = stream.getLastToken();
+				if (errorToken == null || errorToken.getOffset() < token.getOffset()) errorToken = token;
+				ParseException error;
+				if (e instanceof ParseException) {
+					error = (ParseException) e;
+				} else {
+					// e.g., a number that is too large or the end of the source in an expression.
+					error = new ParseException(errorToken.getLine());
+					error.initCause(e);
+				}
+				error.setPosition(errorToken.getLine(), errorToken.getColumn());
+				errors.add(error);
+				skipBlock(token.getOffset(), errorToken.getOffset());
+			} finally {
+				undoLog = null;
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Add a resource path to a model, which is removed again if the block being parsed has an error.
+	 */
+	private void addResourcePath(DataTransferModel model, ResourcePath resource) {
+		if (model instanceof PartialModel) resource.setId(((PartialModel) model).numResources++);
+		model.addResourcePath(resource);
+		if (undoLog != null) undoLog.add(() -> model.removeResourcePath(resource.getResourceName()));
+	}
+
+	/**
+	 * Add a symbol to a model, which is removed again if the block being parsed has an error.
+	 */
+	private void addSymbol(DataTransferModel model, Symbol symbol) {
+		Symbol hidden = model.getSymbol(symbol.getName());
+		if (model instanceof PartialModel) ((PartialModel) model).numberSymbol(symbol);
+		model.addSymbol(symbol);
+		if (undoLog != null) {
+			undoLog.add(() -> {
+				if (hidden == null) {
+					model.removeSymbol(symbol.getName());
+				} else {
+					model.addSymbol(hidden);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Get the symbol of a function applied to a number of arguments. A predefined symbol is not changed, since it is shared
+	 * by all the models. If it is applied to another number of arguments than its arity, the model gets its own symbol instead.
+	 */
+	private Symbol getFunctionSymbol(DataTransferModel model, Symbol symbol, int arity) {
+		if (!PREDEFINED_SYMBOLS.contains(symbol)) {
+			setArity(symbol, arity);
+			return symbol;
+		}
+		if (symbol.getArity() == arity || symbol.getArity() < 0) return symbol;		// including the variadic ones.
+		return addOwnSymbol(model, symbol.getName(), arity);
+	}
+
+	/**
+	 * Add a symbol of the model that hides the predefined symbol of the same name.
+	 */
+	private Symbol addOwnSymbol(DataTransferModel model, String name, int arity) {
+		Symbol symbol = new Symbol(name, arity);
+		addSymbol(model, symbol);
+		if (model instanceof PartialModel) {
+			((PartialModel) model).isConsistent = false;		// the other runs have referred to the predefined symbol.
+		}
+		return symbol;
+	}
+
+	private void setInitialValue(ResourcePath resource, Expression initialValue, String initText) {
+		if (undoLog != null) {
+			Expression oldValue = resource.getInitialValue();
+			String oldText = resource.getInitText();
+			undoLog.add(() -> {
+				resource.setInitialValue(oldValue);
+				resource.setInitText(oldText);
+			});
+		}
+		resource.setInitialValue(initialValue);
+		resource.setInitText(initText);
+	}
+
+	private void setResourceStateType(ResourcePath resource, Type resourceStateType) {
+		if (undoLog != null) {
+			Type oldType = resource.getResourceStateType();
+			Expression initialValue = resource.getInitialValue();
+			Type oldValueType = (initialValue instanceof Term) ? ((Term) initialValue).getOwnType() : null;
+			undoLog.add(() -> {
+				resource.setResourceStateType(oldType);
+				if (initialValue instanceof Term) ((Term) initialValue).setType(oldValueType);
+			});
+		}
+		resource.setResourceStateType(resourceStateType);
+	}
+
+	/**
+	 * Set the arity of a symbol of the model, which is restored if the block being parsed has an error.
+	 */
+	private void setArity(Symbol symbol, int arity) {
+		if (undoLog != null) {
+			int oldArity = symbol.getArity();
+			undoLog.add(() -> symbol.setArity(oldArity));
+		}
+		symbol.setArity(arity);
+	}
+
+	private void setSignature(Symbol symbol, Type[] signature) {
+		if (undoLog != null) {
+			Type[] oldSignature = symbol.getSignature();
+			undoLog.add(() -> symbol.setSignature(oldSignature));
+		}
+		symbol.setSignature(signature);
+	}
+
+	/**
+	 * Skip the rest of a block that has an error. The block is skipped to its closing curly bracket after the error,
+	 * or to the next "channel" or "init" keyword after the error if the block is not closed. 
+	 * A "}" that is not opened in the block closes the model, unless it is after the error in a block that lacks its "{".
+	 * 
+	 * @param start the offset of the block
+	 * @param error the offset of the token where the error is found
+	 */
+	private void skipBlock(int start, int error) {
+		stream.seek(start);
+		stream.nextToken();
+		int depth = 0;
+		boolean opened = false;
+		Token token;
+		while ((token = stream.checkNextToken()) != null) {
+			if (token.getKind() == Token.Kind.LEFT_CURLY_BRACKET) {
+				depth++;
+				opened = true;
+			} else if (token.getKind() == Token.Kind.RIGHT_CURLY_BRACKET) {
+				if (depth == 0 && (opened || token.getOffset() < error)) return;
+				depth--;
+				if (depth <= 0 && token.getOffset() >= error) {
+					stream.nextToken();
+					return;
+				}
+			} else if (token.getOffset() >= error && (token.getText().equals(CHANNEL) || token.getText().equals(INIT))) {
+				return;
+			}
+			stream.nextToken();
+		}
+	}
+
+	private static void addChannel(DataTransferModel model, DataTransferChannel channel) {
+		if (channel.getInputChannelMembers().size() == 0) {
+			model.addIOChannel(channel);
+		} else {
+			model.addChannel(channel);
+		}
+	}
+
+	/**
+	 * Parse the top-level "channel" and "init" blocks in parallel. The blocks are found by matching curly brackets,
+	 * and each run of consecutive blocks is parsed into a partial model by a task on the fork-join pool.
+	 * The partial models are merged in the order of the source, so that the result is the same as the sequential parsing.
+	 * 
+	 * @return the model of the parsed blocks, or null if the blocks should be parsed sequentially, 
+	 *         in which case the stream is left at the first block
+	 */
+	private DataTransferModel parseChannelsInParallel() {
+		stream.readAll();
+		Token token = stream.checkNextToken();
+		if (token == null) return null;
+		int start = token.getOffset();
+
+		// Find the blocks.
+		List<int[]> blocks = new ArrayList<>();
+		while (token != null && token.getKind() != Token.Kind.RIGHT_CURLY_BRACKET) {
+			int end = stream.findEndOfBlock(token.getOffset());
+			if (end >= 0 && token.getText().equals(INIT)) end = stream.findEndOfBlock(end);		// an init block followed by a channel.
+			if (end < 0) break;
+			blocks.add(new int[] {token.getOffset(), end});
+			stream.seek(end);
+			token = stream.checkNextToken();
+		}
+		int numTasks = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, blocks.size() / minBlocksPerTask);
+		if (numTasks < 2) {
+			stream.seek(start);
+			return null;
+		}
+
+		// Parse the runs of blocks.
+		List<List<int[]>> runs = new ArrayList<>();
+		List<Callable<PartialModel>> tasks = new ArrayList<>();
+		for (int i = 0; i < numTasks; i++) {
+			List<int[]> run = blocks.subList(blocks.size() * i / numTasks, blocks.size() * (i + 1) / numTasks);
+			runs.add(run);
+			tasks.add(() -> parseBlocks(stream, run, new PartialModel()));
+		}
+		List<Future<PartialModel>> results = ForkJoinPool.commonPool().invokeAll(tasks);
+
+		// Merge the partial models. A run that depends on the preceding runs is parsed again into the merged model.
+		DataTransferModel model = new DataTransferModel();
+		boolean merged = true;
+		for (int i = 0; i < numTasks && merged; i++) {
+			try {
+				PartialModel partial = results.get(i).get();
+				if (partial != null && partial.mergeInto(model)) continue;
+				merged = (parseBlocks(stream, runs.get(i), model) != null);
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+				merged = false;
 			}
 		}
+		if (!merged) {
+			stream.seek(start);
+			return null;
+		}
+		stream.seek(blocks.get(blocks.size() - 1)[1]);
+		return model;
+	}
+
+	/**
+	 * Parse a run of blocks into a model.
+	 * 
+	 * @param stream the token stream that contains the blocks
+	 * @param blocks the ranges of the blocks in the source
+	 * @param model a partial model or the model of the preceding blocks
+	 * @return the model, or null if a block cannot be parsed by itself
+	 */
+	private static <T extends DataTransferModel> T parseBlocks(TokenStream stream, List<int[]> blocks, T model) {
+		try {
+			for (int[] block: blocks) {
+				Parser parser = new Parser(new TokenStream(stream, block[0], block[1]));
+				DataTransferChannel channel = parser.parseChannel(model);
+				if (channel == null || parser.stream.hasNext()) return null;
+				if (model instanceof PartialModel) {
+					((PartialModel) model).parsedChannels.add(channel);
+				} else {
+					addChannel(model, channel);
+				}
+			}
+		} catch (ParseException | RuntimeException e) {
+			// The sequential parsing will report the error.
+			return null;
+		}
 		return model;
 	}
 
@@ -156,8 +471,9 @@ public class Parser {
 				throw new ExpectedInOrOutOrRefKeyword(stream.getLine());
 			}
 		}
+		if (!RIGHT_CURLY_BRACKET.equals(inOrOutOrRef)) throw new ExpectedRightBracket(stream.getLine());
 		int toLine = stream.getLine();
-		channel.setSourceText(stream.getSourceText(fromLine, toLine));
+		channel.setSourceText(stream.getSourceRange(fromLine, toLine));
 		return channel;
 	}
 
@@ -173,7 +489,7 @@ public class Parser {
 			ResourcePath resource = model.getResourcePath(resourceName);
 			if (resource == null) {
 				resource = new ResourcePath(resourceName, 0);
-				model.addResourcePath(resource);
+				addResourcePath(model, resource);
 			}
 
 			if (!stream.hasNext()) throw new ExpectedAssignment(stream.getLine());
@@ -189,8 +505,7 @@ public class Parser {
 			rightTerm = parseTerm(stream, model);		
 			if (rightTerm == null) throw new WrongRHSExpression(stream.getLine());
 
-			resource.setInitialValue(rightTerm);
-			resource.setInitText(stream.getSourceText(fromLine, toLine));
+			setInitialValue(resource, rightTerm, stream.getSourceText(fromLine, toLine));
 		}
 	}
 
@@ -218,7 +533,7 @@ public class Parser {
 		ResourcePath resource = model.getResourcePath(resourceName);
 		if (resource == null) {
 			resource = new ResourcePath(resourceName, 0);
-			model.addResourcePath(resource);
+			addResourcePath(model, resource);
 		}
 		ChannelMember channelMember = new ChannelMember(resource);
 		StateTransition stateTransition = new StateTransition();
@@ -230,12 +545,13 @@ public class Parser {
 		if (resource.getResourceStateType() == null && ((Term) leftTerm).getChild(0) instanceof Variable) {
 			Variable stateVar = (Variable) ((Term) leftTerm).getChild(0);
 			if (stateVar.getType() != null) {
-				resource.setResourceStateType(stateVar.getType());
+				setResourceStateType(resource, stateVar.getType());
 			}
 		}
 		if (((Term) leftTerm).getChild(1) instanceof Term) {
 			Term messageTerm = (Term) ((Term) leftTerm).getChild(1);
-			if (messageTerm.getSymbol().getSignature() == null && messageTerm.getChildren().size() > 0) {
+			Symbol messageSymbol = messageTerm.getSymbol();
+			if (messageSymbol.getSignature() == null && messageTerm.getChildren().size() > 0) {
 				Type[] signature = new Type[messageTerm.getChildren().size() + 1];
 				int i = 1;
 				for (Expression e: messageTerm.getChildren()) {
@@ -244,7 +560,11 @@ public class Parser {
 					}
 					i++;
 				}
-				messageTerm.getSymbol().setSignature(signature);
+				if (PREDEFINED_SYMBOLS.contains(messageSymbol)) {
+					messageSymbol = addOwnSymbol(model, messageSymbol.getName(), messageTerm.getChildren().size());
+					messageTerm.setSymbol(messageSymbol);
+				}
+				setSignature(messageSymbol, signature);
 			}
 		}
 		return channelMember;
@@ -288,7 +608,7 @@ public class Parser {
 					Symbol symbol = model.getSymbol(symbolName);
 					if (symbol == null) {
 						symbol = new Symbol(symbolName);
-						model.addSymbol(symbol);
+						addSymbol(model, symbol);
 					}
 					Term term = new Term(symbol);
 					int arity = 0;
@@ -301,7 +621,9 @@ public class Parser {
 					} while (stream.checkNext().equals(COMMA));
 					String rightBracket = stream.next();
 					if (!rightBracket.equals(RIGHT_BRACKET)) throw new ExpectedRightBracket(stream.getLine());
-					symbol.setArity(arity);
+					Symbol functionSymbol = getFunctionSymbol(model, symbol, arity);
+					if (functionSymbol != symbol) term.setSymbol(functionSymbol);
+					if (model instanceof PartialModel) ((PartialModel) model).addTerm(term);
 					exp = term;
 				} else {
 					// constant or variable or json access
@@ -309,6 +631,7 @@ public class Parser {
 					if (symbol != null && symbol.getArity() == 0) {
 						// a constant
 						exp = new Constant(symbol);
+						if (model instanceof PartialModel) ((PartialModel) model).addTerm((Term) exp);
 					} else {
 						if (Character.isDigit(symbolName.charAt(0))) {
 							// maybe a numerical value
@@ -494,134 +817,433 @@ public class Parser {
 		return token.equals(specificTokenName);
 	}
 
+	/**--------------------------------------------------------------------------------
+	 * [inner class]
+	 * "PartialModel" has the symbols, resources and channels of a run of blocks parsed in parallel.
+	 * The symbols and resources are held in the order of their creation. Those created by the parser are numbered by their ids,
+	 * and the terms of each symbol are kept in a table indexed by the id, so that merging does not visit all the expressions.
+	 */
+	private static class PartialModel extends DataTransferModel {
+		private List<DataTransferChannel> parsedChannels = new ArrayList<>();
+		private boolean isConsistent = true;		// false if a predefined symbol is hidden by a symbol of this partial model.
+		private List<List<Term>> termsOfSymbols = new ArrayList<>();		// the terms of each symbol created for this partial model, indexed by its id.
+		private int numResources = 0;
+
+		private PartialModel() {
+			resourcePaths = new LinkedHashMap<>();
+			symbols = new LinkedHashMap<>(symbols);
+		}
+
+		/**
+		 * Merge this partial model into a model, as if the blocks of this partial model were parsed after those of the model.
+		 * The symbols and resources of this partial model that already exist in the model are replaced with those of the model.
+		 * 
+		 * @param model the model of the preceding blocks
+		 * @return false if the blocks depend on the preceding blocks in a way that cannot be reproduced by merging, 
+		 *         in which case the model is not changed
+		 */
+		private boolean mergeInto(DataTransferModel model) {
+			if (!isConsistent) return false;
+			Symbol[] symbolMap = new Symbol[termsOfSymbols.size()];		// indexed by the ids of the symbols.
+			for (Symbol symbol: symbols.values()) {
+				Symbol existing = model.getSymbol(symbol.getName());
+				if (existing == null || existing == symbol) continue;
+				if (PREDEFINED_SYMBOLS.contains(symbol)) return false;		// hidden by a symbol of the model.
+				for (Term term: termsOfSymbols.get(symbol.getId())) {
+					if (term instanceof Constant) return false;		// the sequential parsing would have parsed it as a variable.
+				}
+				symbolMap[symbol.getId()] = existing;
+			}
+			ResourcePath[] resourceMap = new ResourcePath[numResources];
+			for (ResourcePath resource: resourcePaths.values()) {
+				ResourcePath existing = model.getResourcePath(resource.getResourceName());
+				if (existing == null) continue;
+				if (existing.getResourceStateType() != null && resource.getResourceStateType() != null && resource.getInitialValue() != null) {
+					return false;		// the type might have been set to the initial value only in this partial model.
+				}
+				resourceMap[resource.getId()] = existing;
+			}
+
+			// Merge.
+			for (Symbol symbol: symbols.values()) {
+				if (PREDEFINED_SYMBOLS.contains(symbol)) continue;
+				Symbol existing = symbolMap[symbol.getId()];
+				if (existing == null) {
+					model.addSymbol(symbol);
+				} else {
+					existing.setArity(symbol.getArity());
+					if (existing.getSignature() == null) existing.setSignature(symbol.getSignature());
+					for (Term term: termsOfSymbols.get(symbol.getId())) {
+						term.setSymbol(existing);
+					}
+				}
+			}
+			for (ResourcePath resource: resourcePaths.values()) {
+				ResourcePath existing = resourceMap[resource.getId()];
+				if (existing == null) {
+					model.addResourcePath(resource);
+					continue;
+				}
+				if (existing.getResourceStateType() == null && resource.getResourceStateType() != null) {
+					existing.setResourceStateType(resource.getResourceStateType());
+				}
+				if (resource.getInitialValue() != null) {
+					existing.setInitialValue(resource.getInitialValue());
+					existing.setInitText(resource.getInitText());
+				}
+			}
+			for (DataTransferChannel channel: parsedChannels) {
+				for (ChannelMember member: channel.getChannelMembers()) {
+					ResourcePath existing = resourceMap[member.getResource().getId()];
+					if (existing != null) member.setResource(existing);
+				}
+				Parser.addChannel(model, channel);
+			}
+			return true;
+		}
+
+		/**
+		 * Number a symbol created for this partial model.
+		 */
+		private void numberSymbol(Symbol symbol) {
+			symbol.setId(termsOfSymbols.size());
+			termsOfSymbols.add(new ArrayList<>());
+		}
+
+		/**
+		 * Record a parsed term, whose symbol is replaced if the symbol already exists in the model merged into.
+		 */
+		private void addTerm(Term term) {
+			int id = term.getSymbol().getId();
+			if (id >= 0) termsOfSymbols.get(id).add(term);		// the predefined symbols are not numbered.
+		}
+	}
+
 	/**--------------------------------------------------------------------------------
 	 * [inner class]
 	 * "TokenStream" has a token what is read from description of "Architecture Language Model".
 	 */
 	public static class TokenStream {
-		private ArrayList<ArrayList<String>> tokens = new ArrayList<>();
-		private ArrayList<String> lines = new ArrayList<>();
+		private BufferedReader reader = null;
+		private StringBuilder source = new StringBuilder();		// the lines read so far, each of which is followed by a new line.
+		private int[] lineOffsets = new int[] {0};					// the offset of each line in source.
+		private int numLines = 0;
+		private ArrayList<Token> lineTokens = new ArrayList<>();	// the tokens of the tokenized line.
+		private int tokenizedLine = -1;
 		private int line = 0;
 		private int n = 0;
+		private Token lastToken = null;
+		private int begin = 0;											// the range of the source to be tokenized.
+		private int end = Integer.MAX_VALUE;
 
 		public TokenStream() {
 			line = 0;
 			n = 0;
 		}
 
-		public void addLine(String line) {
-			lines.add(line);
-			line = line.trim();
-			tokens.add(
-					splitBy(
-							splitBy(
-									splitBy(
-											splitBy(
-													splitBy(
-															splitBy(
-																	splitBy(
-																			splitBy(
-																					splitBy(
-																							splitBy(
-																									splitBy(
-																											splitBy(
-																													splitBy(
-																															splitBy(
-																																	Arrays.asList(line.split("[ \t]")), 
-																																	ADD,
-																																	ADD_REGX),
-																															MUL,
-																															MUL_REGX),
-																													SUB,
-																													SUB_REGX),
-																											DIV,
-																											DIV_REGX),
-																									DOT,
-																									DOT_REGX),
-																							COMMA, 
-																							COMMA),
-																					COLON, 
-																					COLON),
-																			LEFT_BRACKET, 
-																			LEFT_BRACKET_REGX),
-																	RIGHT_BRACKET,
-																	RIGHT_BRACKET_REGX),
-															EQUALS,
-															EQUALS),
-													LEFT_CURLY_BRACKET,
-													LEFT_CURLY_BRACKET_REGX),
-											RIGHT_CURLY_BRACKET,
-											RIGHT_CURLY_BRACKET_REGX),
-									LEFT_SQUARE_BRACKET,
-									LEFT_SQUARE_BRACKET_REGX),
-							RIGHT_SQUARE_BRACKET,
-							RIGHT_SQUARE_BRACKET_REGX));
-		}
-
-		private ArrayList<String> splitBy(final List<String> tokens, final String delimiter, final String delimiterRegx) {
-			ArrayList<String> newTokens = new ArrayList<>();
-			for (String token: tokens) {
-				String[] splitTokens = token.split(delimiterRegx);
-				boolean fFirstToken = true;
-				for (String t: splitTokens) {
-					if (!fFirstToken) {
-						newTokens.add(delimiter);
-					}
-					if (t.length() > 0) {
-						newTokens.add(t);
-					}
-					fFirstToken = false;
+		/**
+		 * Create a token stream that reads the lines from a reader on demand.
+		 * Only the tokens of the current line are held, and the reader is closed when it reaches the end.
+		 * 
+		 * @param reader a reader of the source
+		 */
+		public TokenStream(Reader reader) {
+			this();
+			if (reader instanceof BufferedReader) {
+				this.reader = (BufferedReader) reader;
+			} else {
+				this.reader = new BufferedReader(reader);
+			}
+		}
+
+		/**
+		 * Create a token stream that reads the lines from a byte channel on demand.
+		 * 
+		 * @param channel a byte channel of the source
+		 * @param charset the charset of the source
+		 */
+		public TokenStream(ReadableByteChannel channel, Charset charset) {
+			this(Channels.newReader(channel, charset.newDecoder(), -1));
+		}
+
+		/**
+		 * Create a token stream of a text that is already in memory, such as a section of a memory-mapped file.
+		 * 
+		 * @param text the source
+		 */
+		public TokenStream(CharSequence text) {
+			this();
+			int begin = 0;
+			int length = text.length();
+			for (int i = 0; i < length; i++) {
+				char c = text.charAt(i);
+				if (c != '\n' && c != '\r') continue;
+				addLine(text.subSequence(begin, i));
+				if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') i++;
+				begin = i + 1;
+			}
+			if (begin < length) addLine(text.subSequence(begin, length));
+		}
+
+		/**
+		 * Create a token stream of a range of the source of another token stream that has read all the source.
+		 * The source is shared, so the lines and the source texts are those of the other token stream.
+		 * 
+		 * @param stream a token stream
+		 * @param begin the beginning offset of the range
+		 * @param end the end offset of the range
+		 */
+		private TokenStream(TokenStream stream, int begin, int end) {
+			this.source = stream.source;
+			this.lineOffsets = stream.lineOffsets;
+			this.begin = begin;
+			this.end = end;
+			this.line = stream.getLineAt(begin);
+			this.numLines = stream.getLineAt(end - 1) + 1;
+		}
+
+		public void addLine(CharSequence line) {
+			source.append(line).append('\n');
+			numLines++;
+			if (lineOffsets.length <= numLines) {
+				lineOffsets = Arrays.copyOf(lineOffsets, lineOffsets.length * 2);
+			}
+			lineOffsets[numLines] = source.length();
+		}
+
+		private boolean readLine() {
+			if (reader == null) return false;
+			try {
+				String line = reader.readLine();
+				if (line != null) {
+					addLine(line);
+					return true;
+				}
+				reader.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			reader = null;
+			return false;
+		}
+
+		private void readAll() {
+			while (readLine());
+		}
+
+		/**
+		 * Get the line of an offset of the source that has been read.
+		 * 
+		 * @param offset an offset of the source
+		 * @return the line
+		 */
+		private int getLineAt(int offset) {
+			int lo = 0;
+			int hi = numLines;
+			while (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if (lineOffsets[mid] <= offset) {
+					lo = mid;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		/**
+		 * Move to the first token at or after an offset of the source that has been read.
+		 * 
+		 * @param offset an offset of the source
+		 */
+		private void seek(int offset) {
+			if (offset >= lineOffsets[numLines]) {
+				line = numLines;
+				n = 0;
+				return;
+			}
+			line = getLineAt(offset);
+			tokenize(line);
+			n = 0;
+			while (n < lineTokens.size() && lineTokens.get(n).getOffset() < offset) n++;
+		}
+
+		/**
+		 * Find the end of the first curly bracket block after an offset of the source that has been read.
+		 * The curly brackets are always tokens by themselves, so they can be matched without tokenization.
+		 * 
+		 * @param offset an offset of the source
+		 * @return the offset next to the closing curly bracket, or -1 if there is no block
+		 */
+		private int findEndOfBlock(int offset) {
+			int length = source.length();
+			while (offset < length && source.charAt(offset) != '{') {
+				if (source.charAt(offset) == '}') return -1;
+				offset++;
+			}
+			int depth = 0;
+			for (; offset < length; offset++) {
+				char c = source.charAt(offset);
+				if (c == '{') {
+					depth++;
+				} else if (c == '}') {
+					depth--;
+					if (depth == 0) return offset + 1;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Split a line into tokens in a single pass.
+		 * A token is either a delimiter (+, *, -, /, ., ',', :, (, ), ==, {, }, [, ]) or a word between spaces, tabs and delimiters.
+		 * 
+		 * @param lineNo the line to be tokenized
+		 */
+		private void tokenize(int lineNo) {
+			lineTokens.clear();
+			tokenizedLine = lineNo;
+			int lineOffset = lineOffsets[lineNo];
+			int begin = Math.max(lineOffset, this.begin);
+			int end = Math.min(lineOffsets[lineNo + 1] - 1, this.end);
+			while (begin < end && source.charAt(begin) <= ' ') begin++;
+			while (end > begin && source.charAt(end - 1) <= ' ') end--;
+			int wordBegin = -1;
+			for (int i = begin; i < end; i++) {
+				char c = source.charAt(i);
+				Token.Kind kind = null;
+				if (c == '=') {
+					if (i + 1 < end && source.charAt(i + 1) == '=') kind = Token.Kind.EQUALS;
+				} else {
+					kind = getDelimiterKind(c);
+				}
+				if (kind == null && c != ' ' && c != '\t') {
+					if (wordBegin < 0) wordBegin = i;
+					continue;
+				}
+				if (wordBegin >= 0) {
+					lineTokens.add(new Token(Token.Kind.WORD, source.substring(wordBegin, i), wordBegin, lineNo, wordBegin - lineOffset));
+					wordBegin = -1;
 				}
-				while (token.endsWith(delimiter)) {
-					newTokens.add(delimiter);
-					token = token.substring(0, token.length() - 1);
+				if (kind != null) {
+					lineTokens.add(new Token(kind, getDelimiter(kind), i, lineNo, i - lineOffset));
+					if (kind == Token.Kind.EQUALS) i++;
 				}
 			}
-			return newTokens;
+			if (wordBegin >= 0) {
+				lineTokens.add(new Token(Token.Kind.WORD, source.substring(wordBegin, end), wordBegin, lineNo, wordBegin - lineOffset));
+			}
 		}
 
-		public String next() {
-			if (line >= tokens.size()) return null;
-			while (n >= tokens.get(line).size()) {
+		private static Token.Kind getDelimiterKind(char c) {
+			switch (c) {
+			case '+': return Token.Kind.ADD;
+			case '*': return Token.Kind.MUL;
+			case '-': return Token.Kind.SUB;
+			case '/': return Token.Kind.DIV;
+			case '.': return Token.Kind.DOT;
+			case ',': return Token.Kind.COMMA;
+			case ':': return Token.Kind.COLON;
+			case '(': return Token.Kind.LEFT_BRACKET;
+			case ')': return Token.Kind.RIGHT_BRACKET;
+			case '{': return Token.Kind.LEFT_CURLY_BRACKET;
+			case '}': return Token.Kind.RIGHT_CURLY_BRACKET;
+			case '[': return Token.Kind.LEFT_SQUARE_BRACKET;
+			case ']': return Token.Kind.RIGHT_SQUARE_BRACKET;
+			default: return null;
+			}
+		}
+
+		private static String getDelimiter(Token.Kind kind) {
+			switch (kind) {
+			case ADD: return ADD;
+			case MUL: return MUL;
+			case SUB: return SUB;
+			case DIV: return DIV;
+			case DOT: return DOT;
+			case COMMA: return COMMA;
+			case COLON: return COLON;
+			case LEFT_BRACKET: return LEFT_BRACKET;
+			case RIGHT_BRACKET: return RIGHT_BRACKET;
+			case EQUALS: return EQUALS;
+			case LEFT_CURLY_BRACKET: return LEFT_CURLY_BRACKET;
+			case RIGHT_CURLY_BRACKET: return RIGHT_CURLY_BRACKET;
+			case LEFT_SQUARE_BRACKET: return LEFT_SQUARE_BRACKET;
+			case RIGHT_SQUARE_BRACKET: return RIGHT_SQUARE_BRACKET;
+			default: return null;
+			}
+		}
+
+		/**
+		 * Skip the lines that have no more tokens.
+		 * 
+		 * @return true if there is a next token
+		 */
+		private boolean skipToNextToken() {
+			while (true) {
+				if (line >= numLines && !readLine()) return false;
+				if (tokenizedLine != line) tokenize(line);
+				if (n < lineTokens.size()) return true;
 				line++;
 				n = 0;
-				if (line >= tokens.size()) return null;
 			}
-			String token = tokens.get(line).get(n);
+		}
+
+		public Token nextToken() {
+			if (!skipToNextToken()) return null;
+			Token token = lineTokens.get(n);
 			n++;
+			lastToken = token;
 			return token;
 		}
 
+		public Token checkNextToken() {
+			if (!skipToNextToken()) return null;
+			return lineTokens.get(n);
+		}
+
+		public String next() {
+			Token token = nextToken();
+			if (token == null) return null;
+			return token.getText();
+		}
+
 		public String checkNext() {
-			if (line >= tokens.size()) return null;
-			while (n >= tokens.get(line).size()) {
-				line++;
-				n = 0;
-				if (line >= tokens.size()) return null;
-			}
-			return tokens.get(line).get(n);
+			Token token = checkNextToken();
+			if (token == null) return null;
+			return token.getText();
 		}
 
 		public boolean hasNext() {
-			if (line >= tokens.size()) return false;
-			while (n >= tokens.get(line).size()) {
-				line++;
-				n = 0;
-				if (line >= tokens.size()) return false;
-			}
-			return true;
+			return skipToNextToken();
 		}
 
 		public int getLine() {
 			return line;
 		}
 
+		/**
+		 * Get the token that is read last.
+		 * 
+		 * @return the last token, or null if no token has been read
+		 */
+		public Token getLastToken() {
+			return lastToken;
+		}
+
 		public String getSourceText(int from, int to) {
-			String text = "";
-			for (int l = from; l <= to; l++) {
-				text += lines.get(l) + "\n";
-			}
-			return text;
+			return source.substring(lineOffsets[from], lineOffsets[to + 1]);
+		}
+
+		/**
+		 * Get the source text of lines as a view of the source, which is copied only when its toString() is called.
+		 * 
+		 * @param from the first line
+		 * @param to the last line
+		 * @return the source text
+		 */
+		public CharSequence getSourceRange(int from, int to) {
+			return CharBuffer.wrap(source, lineOffsets[from], lineOffsets[to + 1]);
 		}
 	}
 }
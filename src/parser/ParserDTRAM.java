@@ -1,14 +1,28 @@
 package parser;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.mxgraph.model.mxCell;
 import com.mxgraph.model.mxGeometry;
 import com.mxgraph.model.mxIGraphModel;
-import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
-import com.mxgraph.view.mxGraphView;
 
 import application.editor.Stage;
 import models.dataFlowModel.DataTransferModel;
@@ -41,6 +55,12 @@ public class ParserDTRAM extends Parser {
 	private static final String CHANNEL_NODE = "c";
 	private static final String FORMULA_CHANNEL_NODE = "fc";
 	private static final String IO_CHANNEL_NODE = "ioc";
+	private static final int MIN_GEOMETRY_CHUNK_SIZE = 1 << 14;	// the minimum number of bytes of the geometry parsed by a thread.
+	private static final Charset CHARSET = StandardCharsets.UTF_8;	// the encoding of "DTRAM" files.
+
+	private List<Future<List<NodeGeometry>>> geometryChunks = null;	// the geometry being parsed in the background.
+	private ExecutorService geometryExecutor = null;
+	private ByteBuffer modelText = null;		// the model section of a mapped file, which is decoded when the model is parsed.
 
 	/**--------------------------------------------------------------------------------
 	 * [Constructor]
@@ -58,6 +78,79 @@ public class ParserDTRAM extends Parser {
 	public ParserDTRAM(final BufferedReader reader) {
 		super(reader);
 	}
+	/**--------------------------------------------------------------------------------
+	 * Map a "DTRAM" file into memory and split it at the beginning of the geometry section.
+	 * The model section is parsed by doParseModel(), while the geometry section is split into 
+	 * chunks of records and parsed by other threads at the same time.
+	 * The file is split on its bytes, and each part is decoded as UTF-8 by the thread that parses it.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public ParserDTRAM(final File file) throws IOException {
+		super((TokenStream) null);
+		MappedByteBuffer text;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			text = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		// Find the end of the model section by matching the curly brackets.
+		// The brackets and line breaks are single bytes that never appear inside other characters in UTF-8.
+		int length = text.limit();
+		int geometryBegin = length;
+		int geometryLine = 0;
+		int depth = 0;
+		for (int i = 0; i < length; i++) {
+			byte c = text.get(i);
+			if (c == '\n' || (c == '\r' && (i + 1 >= length || text.get(i + 1) != '\n'))) {
+				geometryLine++;
+			} else if (c == '{') {
+				depth++;
+			} else if (c == '}' && depth > 0) {
+				depth--;
+				if (depth == 0) {
+					geometryBegin = i + 1;
+					break;
+				}
+			}
+		}
+		modelText = slice(text, 0, geometryBegin);
+
+		// Split the geometry section at the beginnings of lines starting with "node", and parse each chunk in the background.
+		List<Integer> chunkBegins = new ArrayList<>();
+		List<Integer> chunkLines = new ArrayList<>();
+		chunkBegins.add(geometryBegin);
+		chunkLines.add(geometryLine);
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		int chunkSize = Math.max(MIN_GEOMETRY_CHUNK_SIZE, (length - geometryBegin) / numThreads + 1);
+		int line = geometryLine;
+		for (int i = geometryBegin; i < length; i++) {
+			byte c = text.get(i);
+			if (c == '\r' && i + 1 < length && text.get(i + 1) == '\n') i++;
+			else if (c != '\n' && c != '\r') continue;
+			line++;
+			if (i + 1 - chunkBegins.get(chunkBegins.size() - 1) >= chunkSize && startsWithNode(text, i + 1)) {
+				chunkBegins.add(i + 1);
+				chunkLines.add(line);
+			}
+		}
+		chunkBegins.add(length);
+		geometryExecutor = Executors.newFixedThreadPool(Math.min(numThreads, chunkLines.size()));
+		try {
+			geometryChunks = new ArrayList<>();
+			for (int k = 0; k < chunkLines.size(); k++) {
+				ByteBuffer chunk = slice(text, chunkBegins.get(k), chunkBegins.get(k + 1));
+				int firstLine = chunkLines.get(k);
+				boolean isFirst = (k == 0);
+				boolean isLast = (k == chunkLines.size() - 1);
+				geometryChunks.add(geometryExecutor.submit(() -> parseNodeGeometries(new TokenStream(CHARSET.decode(chunk)), firstLine, isFirst, isLast)));
+			}
+		} catch (RuntimeException | Error e) {
+			geometryExecutor.shutdownNow();
+			throw e;
+		}
+		geometryExecutor.shutdown();
+	}
 
 	/**--------------------------------------------------------------------------------
 	 * [public]
@@ -69,6 +162,10 @@ public class ParserDTRAM extends Parser {
 	 */
 	public DataTransferModel doParseModel() 
 			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment, ExpectedModel, ExpectedGeometry, WrongJsonExpression, ExpectedColon {
+		if (modelText != null) {
+			stream = new TokenStream(CHARSET.decode(modelText));
+			modelText = null;
+		}
 		DataTransferModel model = getParsedModel();
 		return model;
 	}
@@ -79,8 +176,59 @@ public class ParserDTRAM extends Parser {
 	 */
 	public void doParseGeometry(mxGraph graph) 
 			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment, ExpectedModel, ExpectedGeometry, ExpectedNode, ExpectedResource, ExpectedFormulaChannel, ExpectedIoChannel{
+		List<NodeGeometry> geometries = getNodeGeometries();
+		applyGeometry(graph, geometries);
+	}
 
-		parseGeometry(graph);
+	/**--------------------------------------------------------------------------------
+	 * restore the geometries of vertices before they are added to a graph, which does not change the graph. 
+	 * @param graph the graph to which the vertices are to be added
+	 * @param cells the cells that have not been added to the graph yet
+	 */
+	public void doParseGeometry(mxGraph graph, Collection<mxCell> cells) 
+			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment, ExpectedModel, ExpectedGeometry, ExpectedNode, ExpectedResource, ExpectedFormulaChannel, ExpectedIoChannel{
+		List<NodeGeometry> geometries = getNodeGeometries();
+		applyGeometry(graph, cells, geometries);
+	}
+
+	/**--------------------------------------------------------------------------------
+	 * [private]
+	/**--------------------------------------------------------------------------------
+	 * 
+	 * @return the geometries of the nodes
+	 */
+	private List<NodeGeometry> getNodeGeometries() 
+			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment, ExpectedModel, ExpectedGeometry, ExpectedNode, ExpectedResource, ExpectedFormulaChannel, ExpectedIoChannel{
+		List<NodeGeometry> geometries;
+		if (geometryChunks == null) {
+			geometries = parseNodeGeometries(stream, 0, true, true);
+		} else {
+			geometries = new ArrayList<>();
+			boolean done = false;
+			try {
+				for (Future<List<NodeGeometry>> chunk: geometryChunks) {
+					geometries.addAll(chunk.get());
+				}
+				done = true;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof ExpectedGeometry) throw (ExpectedGeometry) cause;
+				if (cause instanceof ExpectedLeftCurlyBracket) throw (ExpectedLeftCurlyBracket) cause;
+				if (cause instanceof ExpectedNode) throw (ExpectedNode) cause;
+				if (cause instanceof ExpectedAssignment) throw (ExpectedAssignment) cause;
+				if (cause instanceof ExpectedRightBracket) throw (ExpectedRightBracket) cause;
+				if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+				if (cause instanceof Error) throw (Error) cause;
+				throw new IllegalStateException(cause);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} finally {
+				// Stop parsing the remaining chunks when one of them has failed.
+				if (!done) geometryExecutor.shutdownNow();
+			}
+		}
+		return geometries;
 	}
 
 	/**--------------------------------------------------------------------------------
@@ -112,87 +260,179 @@ public class ParserDTRAM extends Parser {
 	}
 
 	/**--------------------------------------------------------------------------------
-	 * change graph's geometries from "DTRAM" file. 
+	 * parse the geometries of nodes from "DTRAM" file. 
 	 * @param stream
-	 * @param graph
+	 * @param firstLine the line of the stream's beginning in the file
+	 * @param isFirst whether the stream begins with "geometry {"
+	 * @param isLast whether the stream ends with "}"
 	 */
-	private void parseGeometry(mxGraph graph)
-			throws ExpectedRightBracket, ExpectedChannel, ExpectedChannelName, ExpectedLeftCurlyBracket, ExpectedInOrOutOrRefKeyword, ExpectedStateTransition, ExpectedEquals, ExpectedRHSExpression, WrongLHSExpression, WrongRHSExpression, ExpectedAssignment,ExpectedModel, ExpectedGeometry, ExpectedNode, ExpectedResource, ExpectedFormulaChannel, ExpectedIoChannel {
+	private List<NodeGeometry> parseNodeGeometries(TokenStream stream, int firstLine, boolean isFirst, boolean isLast)
+			throws ExpectedRightBracket, ExpectedLeftCurlyBracket, ExpectedAssignment, ExpectedGeometry, ExpectedNode {
+		List<NodeGeometry> geometries = new ArrayList<>();
+		if (isFirst) {
+			if (!isMatchKeyword(stream.next(), GEOMETRY_GROUP)) throw new ExpectedGeometry(firstLine + stream.getLine());
 
-		if (!isMatchKeyword(stream.next(), GEOMETRY_GROUP)) throw new ExpectedGeometry(stream.getLine());
-
-		if (!isMatchKeyword(stream.next(), LEFT_CURLY_BRACKET)) throw new ExpectedLeftCurlyBracket(stream.getLine());
+			if (!isMatchKeyword(stream.next(), LEFT_CURLY_BRACKET)) throw new ExpectedLeftCurlyBracket(firstLine + stream.getLine());
+		}
 
 		String node = stream.next();
-		while (node.equals(GEOMETORY_NODE)) {
+		while (isMatchKeyword(node, GEOMETORY_NODE)) {
 
 			String rOrFcOrIocOrC = stream.next();
-			if (!rOrFcOrIocOrC.equals(RESOURCE_NODE)
-					&& !rOrFcOrIocOrC.equals(FORMULA_CHANNEL_NODE)
-					&& !rOrFcOrIocOrC.equals(CHANNEL_NODE)
-					&& !rOrFcOrIocOrC.equals(IO_CHANNEL_NODE))
-				throw new ExpectedNode(stream.getLine());
+			if (!isMatchKeyword(rOrFcOrIocOrC, RESOURCE_NODE)
+					&& !isMatchKeyword(rOrFcOrIocOrC, FORMULA_CHANNEL_NODE)
+					&& !isMatchKeyword(rOrFcOrIocOrC, CHANNEL_NODE)
+					&& !isMatchKeyword(rOrFcOrIocOrC, IO_CHANNEL_NODE))
+				throw new ExpectedNode(firstLine + stream.getLine());
 
 			String name = stream.next();
 
-			if (!isMatchKeyword(stream.next(), COLON)) throw new ExpectedAssignment(stream.getLine());
+			if (!isMatchKeyword(stream.next(), COLON)) throw new ExpectedAssignment(firstLine + stream.getLine());
 
 			String x = stream.next();
 			int xC = Integer.parseInt(x);  // C = Coordinate(x,y,w,h)
 
-			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(stream.getLine());
+			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(firstLine + stream.getLine());
 
 			String y = stream.next();
 			int yC = Integer.parseInt(y);
 
-			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(stream.getLine());
+			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(firstLine + stream.getLine());
 
 			String w = stream.next();
 			int wC = Integer.parseInt(w);
 
-			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(stream.getLine());
+			if (!isMatchKeyword(stream.next(), COMMA))throw new ExpectedAssignment(firstLine + stream.getLine());
 
 			String h = stream.next();
 			int hC = Integer.parseInt(h);
 
-			mxIGraphModel graphModel = graph.getModel();
-			mxCell root = (mxCell) graph.getDefaultParent();
-			mxCell nodeLayer = (mxCell) root.getChildAt(Stage.NODE_LAYER);
-			mxCell dataFlowLayer = (mxCell) root.getChildAt(Stage.DATA_FLOW_LAYER);
-			for (int i = 0; i < graph.getModel().getChildCount(nodeLayer); i++) {
+			geometries.add(new NodeGeometry(name, xC, yC, wC, hC));
+			node = stream.next();
+		}
 
-				Object cell = graph.getModel().getChildAt(nodeLayer, i);
-				if (!graph.getModel().isVertex(cell)) continue;
+		if (isLast) {
+			if (!isMatchKeyword(node, RIGHT_CURLY_BRACKET)) throw new ExpectedRightBracket(firstLine + stream.getLine());
+		} else {
+			if (node != null) throw new ExpectedRightBracket(firstLine + stream.getLine());
+		}
+		return geometries;
+	}
 
-				mxGeometry geom = (mxGeometry) ((mxCell) cell).getGeometry().clone();
-				mxGraphView view = graph.getView();
-				mxCellState state = view.getState(cell);
+	/**--------------------------------------------------------------------------------
+	 * change graph's geometries in a single update of the graph model. 
+	 * @param graph
+	 * @param geometries
+	 */
+	private void applyGeometry(mxGraph graph, List<NodeGeometry> geometries) {
+		mxIGraphModel graphModel = graph.getModel();
+		mxCell root = (mxCell) graph.getDefaultParent();
+		mxCell nodeLayer = (mxCell) root.getChildAt(Stage.NODE_LAYER);
+		mxCell dataFlowLayer = (mxCell) root.getChildAt(Stage.DATA_FLOW_LAYER);
+
+		// Index the vertices by their labels. The labels are taken from the graph, since the view may not have been validated
+		// when the geometry is restored in the same update as the construction of the vertices.
+		Map<String, List<Object>> cellsByLabel = new HashMap<>();
+		for (mxCell layer: new mxCell[] {nodeLayer, dataFlowLayer}) {
+			for (int i = 0; i < graphModel.getChildCount(layer); i++) {
+				Object cell = graphModel.getChildAt(layer, i);
+				if (!graphModel.isVertex(cell)) continue;
+
+				String label = graph.getLabel(cell);
+				List<Object> cells = cellsByLabel.get(label);
+				if (cells == null) {
+					cells = new ArrayList<>();
+					cellsByLabel.put(label, cells);
+				}
+				cells.add(cell);
+			}
+		}
 
-				if (!name.equals(state.getLabel())) continue;
+		graphModel.beginUpdate();
+		try {
+			for (NodeGeometry geometry: geometries) {
+				List<Object> cells = cellsByLabel.get(geometry.name);
+				if (cells == null) continue;
+				for (Object cell: cells) {
+					mxGeometry geom = (mxGeometry) ((mxCell) cell).getGeometry().clone();
+					geom.setX(geometry.x);
+					geom.setY(geometry.y);
+					graphModel.setGeometry(cell, geom);
+				}
+			}
+		} finally {
+			graphModel.endUpdate();
+		}
+	}
 
-				geom.setX(xC);
-				geom.setY(yC);
-				graphModel.setGeometry(cell, geom);
+	/**--------------------------------------------------------------------------------
+	 * change the geometries of cells that have not been added to a graph. 
+	 * The labels are converted from the values of the cells, since the cells have neither their states nor the graph model.
+	 * @param graph
+	 * @param cells
+	 * @param geometries
+	 */
+	private void applyGeometry(mxGraph graph, Collection<mxCell> cells, List<NodeGeometry> geometries) {
+		Map<String, List<mxCell>> cellsByLabel = new HashMap<>();
+		for (mxCell cell: cells) {
+			if (!cell.isVertex()) continue;
+
+			String label = graph.convertValueToString(cell);
+			List<mxCell> sameLabelCells = cellsByLabel.get(label);
+			if (sameLabelCells == null) {
+				sameLabelCells = new ArrayList<>();
+				cellsByLabel.put(label, sameLabelCells);
 			}
-			for (int i = 0; i < graph.getModel().getChildCount(dataFlowLayer); i++) {
+			sameLabelCells.add(cell);
+		}
 
-				Object cell = graph.getModel().getChildAt(dataFlowLayer, i);
-				if (!graph.getModel().isVertex(cell)) continue;
+		for (NodeGeometry geometry: geometries) {
+			List<mxCell> sameLabelCells = cellsByLabel.get(geometry.name);
+			if (sameLabelCells == null) continue;
+			for (mxCell cell: sameLabelCells) {
+				mxGeometry geom = (mxGeometry) cell.getGeometry().clone();
+				geom.setX(geometry.x);
+				geom.setY(geometry.y);
+				cell.setGeometry(geom);
+			}
+		}
+	}
 
-				mxGeometry geom = (mxGeometry) ((mxCell) cell).getGeometry().clone();
-				mxGraphView view = graph.getView();
-				mxCellState state = view.getState(cell);
+	private static boolean startsWithNode(ByteBuffer text, int offset) {
+		while (offset < text.limit() && (text.get(offset) == ' ' || text.get(offset) == '\t')) offset++;
+		int end = offset + GEOMETORY_NODE.length();
+		if (end >= text.limit()) return false;
+		for (int i = 0; i < GEOMETORY_NODE.length(); i++) {
+			if (text.get(offset + i) != GEOMETORY_NODE.charAt(i)) return false;
+		}
+		return text.get(end) == ' ' || text.get(end) == '\t';
+	}
 
-				if (!name.equals(state.getLabel())) continue;
+	private static ByteBuffer slice(ByteBuffer buffer, int begin, int end) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(begin);
+		slice.limit(end);
+		return slice.slice();
+	}
 
-				geom.setX(xC);
-				geom.setY(yC);
-				graphModel.setGeometry(cell, geom);
-			}
-			node = stream.next();
+	/**--------------------------------------------------------------------------------
+	 * [inner class]
+	 * "NodeGeometry" is a record of the geometry section of "DTRAM" file.
+	 */
+	private static class NodeGeometry {
+		private String name;
+		private int x;
+		private int y;
+		private int w;
+		private int h;
+
+		private NodeGeometry(String name, int x, int y, int w, int h) {
+			this.name = name;
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
 		}
-
-		if (!node.equals(RIGHT_CURLY_BRACKET)) throw new ExpectedRightBracket(stream.getLine());
 	}
 }
 
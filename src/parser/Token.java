@@ -0,0 +1,78 @@
+package parser;
+
+/**
+ * A token of the description of a data transfer model, with its position in the source.
+ *
+ */
+public class Token {
+	public enum Kind {
+		WORD,
+		ADD,
+		MUL,
+		SUB,
+		DIV,
+		DOT,
+		COMMA,
+		COLON,
+		LEFT_BRACKET,
+		RIGHT_BRACKET,
+		EQUALS,
+		LEFT_CURLY_BRACKET,
+		RIGHT_CURLY_BRACKET,
+		LEFT_SQUARE_BRACKET,
+		RIGHT_SQUARE_BRACKET
+	}
+
+	private final Kind kind;
+	private final String text;
+	private final int offset;
+	private final int line;
+	private final int column;
+
+	public Token(Kind kind, String text, int offset, int line, int column) {
+		this.kind = kind;
+		this.text = text;
+		this.offset = offset;
+		this.line = line;
+		this.column = column;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Get the offset of this token from the beginning of the source.
+	 *
+	 * @return the offset in characters
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the line of this token (from 0).
+	 *
+	 * @return the line
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Get the column of this token in its line (from 0).
+	 *
+	 * @return the column
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	public String toString() {
+		return text;
+	}
+}
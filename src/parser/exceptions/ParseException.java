@@ -2,9 +2,40 @@ package parser.exceptions;
 
 public class ParseException extends Exception {
 	protected int line;
+	protected int column = -1;
 	
 	public ParseException(int line) {
 		super("at line " + (line + 1));
 		this.line = line;
 	}
+
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Get the column of the error (from 0).
+	 * 
+	 * @return the column, or -1 if it is not known
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Set the position of the error to that of the token where it is found.
+	 * 
+	 * @param line the line (from 0)
+	 * @param column the column (from 0)
+	 */
+	public void setPosition(int line, int column) {
+		this.line = line;
+		this.column = column;
+	}
+
+	@Override
+	public String getMessage() {
+		if (column < 0) return "at line " + (line + 1);
+		return "at line " + (line + 1) + ", column " + (column + 1);
+	}
 }
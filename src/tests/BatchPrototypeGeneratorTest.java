@@ -0,0 +1,71 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import application.BatchPrototypeGenerator;
+
+public class BatchPrototypeGeneratorTest {
+	private List<File> directories = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		for (File directory: directories) {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testNumberOfThreads() throws Exception {
+		// The models are generated independently of each other, so the codes do not depend on the number of threads.
+		Map<String, String> sequential = generate(1);
+		assertTrue(sequential.size() > new File("models").listFiles().length);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(sequential, generate(4));
+		}
+	}
+
+	/**
+	 * Generate the prototypes of the bundled models.
+	 *
+	 * @return the result of each model and the contents of each generated file
+	 */
+	private Map<String, String> generate(int numThreads) throws Exception {
+		File directory = Files.createTempDirectory("prototypes").toFile();
+		directories.add(directory);
+		BatchPrototypeGenerator generator = new BatchPrototypeGenerator(directory);
+		generator.setNumberOfThreads(numThreads);
+		Map<String, String> contents = new TreeMap<>();
+		for (BatchPrototypeGenerator.Result result: generator.generateAll(new File("models"))) {
+			String description = result.getNumberOfFiles() + " files";
+			if (result.getError() != null) description = result.getError().toString();
+			contents.put(result.getFile().getName(), description);
+		}
+		for (File modelDirectory: directory.listFiles()) {
+			for (File file: modelDirectory.listFiles()) {
+				contents.put(modelDirectory.getName() + "/" + file.getName(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			}
+		}
+		return contents;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child: children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
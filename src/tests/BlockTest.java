@@ -0,0 +1,119 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import code.ast.Block;
+
+public class BlockTest {
+
+	@Test
+	public void testOrder() {
+		Block block = new Block();
+		assertTrue(block.getStatements().isEmpty());
+		block.addStatement("b;");
+		block.addFirstStatement("a;");
+		block.addStatement("c;");
+		block.addFirstStatement("z;");
+		assertEquals(Arrays.asList("z;", "a;", "b;", "c;"), block.getStatements());
+		assertEquals("z;\na;\nb;\nc;\n", block.toString());
+
+		// The same order as that of a list with the statements inserted at its head.
+		Random random = new Random(0);
+		Block randomBlock = new Block();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String statement = "s" + random.nextInt(100) + ";";
+			if (random.nextBoolean()) {
+				randomBlock.addFirstStatement(statement);
+				expected.add(0, statement);
+			} else {
+				randomBlock.addStatement(statement);
+				expected.add(statement);
+			}
+		}
+		assertEquals(expected, randomBlock.getStatements());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), randomBlock.getStatements().get(i));
+		}
+	}
+
+	@Test
+	public void testContains() {
+		Block block = new Block();
+		assertFalse(block.containsStatement("a;"));
+		block.addStatement("a;");
+		block.addFirstStatement("b;");
+		block.addStatement("a;");
+		assertTrue(block.containsStatement("a;"));
+		assertTrue(block.containsStatement("b;"));
+		assertFalse(block.containsStatement("c;"));
+		assertTrue(block.getStatements().contains("a;"));
+		assertTrue(block.getStatements().contains("b;"));
+		assertFalse(block.getStatements().contains("c;"));
+		assertFalse(block.getStatements().contains(null));
+		assertEquals(Arrays.asList("b;", "a;", "a;"), block.getStatements());
+		assertEquals(1, block.getStatements().indexOf("a;"));
+		assertEquals(2, block.getStatements().lastIndexOf("a;"));
+	}
+
+	@Test
+	public void testSetStatements() {
+		Block block = new Block();
+		block.addStatement("a;");
+		block.addFirstStatement("b;");
+		block.setStatements(Arrays.asList("c;", "d;", "c;"));
+		assertEquals(Arrays.asList("c;", "d;", "c;"), block.getStatements());
+		assertFalse(block.containsStatement("a;"));
+		assertFalse(block.containsStatement("b;"));
+		assertTrue(block.containsStatement("c;"));
+
+		// The statements of the block itself.
+		block.addFirstStatement("e;");
+		block.setStatements(block.getStatements());
+		assertEquals(Arrays.asList("e;", "c;", "d;", "c;"), block.getStatements());
+		assertTrue(block.containsStatement("e;"));
+		block.addFirstStatement("f;");
+		assertEquals(Arrays.asList("f;", "e;", "c;", "d;", "c;"), block.getStatements());
+
+		block.setStatements(new ArrayList<String>());
+		assertTrue(block.getStatements().isEmpty());
+		assertFalse(block.containsStatement("c;"));
+	}
+
+	@Test
+	public void testView() {
+		Block block = new Block();
+		List<String> statements = block.getStatements();
+		block.addStatement("a;");
+		block.addFirstStatement("b;");
+		assertEquals(Arrays.asList("b;", "a;"), statements);
+		try {
+			statements.add("c;");
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			statements.set(0, "c;");
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			statements.remove(0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			statements.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		assertEquals(Arrays.asList("b;", "a;"), block.getStatements());
+	}
+}
@@ -0,0 +1,304 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.Annotation;
+import code.ast.Block;
+import code.ast.CodeEmitter;
+import code.ast.CodeUtil;
+import code.ast.CodeWriter;
+import code.ast.CompilationUnit;
+import code.ast.FieldDeclaration;
+import code.ast.ImportDeclaration;
+import code.ast.MethodDeclaration;
+import code.ast.TypeDeclaration;
+import code.ast.VariableDeclaration;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaCodeGenerator;
+import generators.JavaMethodBodyGenerator;
+import generators.JavaSpecific;
+import generators.JerseyCodeGenerator;
+import generators.JerseyMethodBodyGenerator;
+import models.algebra.Type;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import parser.Parser;
+
+public class CodeWriterTest {
+
+	@Test
+	public void testIndentation() throws Exception {
+		String[] codes = {"", "\n", "\n\n", "a", "a\n", "a\n\n\n", "\na", "a\n\nb", "\ta\n\t\tb\n", "a\n\t\n b"};
+		for (String outer: codes) {
+			for (String inner: codes) {
+				StringBuilder out = new StringBuilder();
+				CodeWriter writer = new CodeWriter(out);
+				writer.write(outer);
+				writer.indent();
+				writer.write(inner);
+				writer.unindent();
+				writer.write(outer);
+				assertEquals(outer + CodeUtil.insertTab(inner) + outer, out.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testNestedIndentation() throws Exception {
+		// Random nested code written in pieces, which are split at arbitrary characters.
+		Random random = new Random(0);
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder out = new StringBuilder();
+			CodeWriter writer = new CodeWriter(out);
+			assertEquals(writeRandomCode(writer, random, 0), out.toString());
+		}
+	}
+
+	@Test
+	public void testCompilationUnit() throws Exception {
+		Type intType = new Type("Integer", "int");
+		Type listType = new Type("List", "ArrayList<>", "List<Integer>");
+		TypeDeclaration type = new TypeDeclaration("Sample");
+		type.addAnnotation(new Annotation("Path", "\"/sample\""));
+		type.addField(new FieldDeclaration(intType, "value", "0"));
+		FieldDeclaration list = new FieldDeclaration(listType, "list");
+		list.addAnnotation(new Annotation("JsonProperty"));
+		type.addField(list);
+		MethodDeclaration constructor = type.createConstructor();
+		constructor.addStatement("this.value = 1;");
+		MethodDeclaration method = new MethodDeclaration("update", intType);
+		Annotation produces = new Annotation("Produces");
+		produces.addParam("value", "MediaType.APPLICATION_JSON");
+		method.addAnnotation(produces);
+		VariableDeclaration parameter = new VariableDeclaration(intType, "x");
+		parameter.addAnnotation(new Annotation("FormParam", "\"x\""));
+		method.addParameter(parameter);
+		method.addThrow("JsonProcessingException");
+		method.addStatement("if (x > 0) {\n\tfor (int i = 0; i < x; i++) {\n\t\tthis.value += i;\n\t}\n}\n");
+		method.addFirstStatement("int temp = 0;");
+		method.addStatement("return this.value;");
+		type.addMethod(method);
+		type.addMethod(new MethodDeclaration("clear"));
+		MethodDeclaration empty = new MethodDeclaration("nop");
+		empty.setBody(new Block());
+		type.addMethod(empty);
+		CompilationUnit cu = new CompilationUnit(type);
+		cu.addImport(new ImportDeclaration("java.util.*"));
+		assertEmitted(cu);
+	}
+
+	@Test
+	public void testGeneratedCode() throws Exception {
+		for (String fileName: new String[] {"models/POS.model", "models/StockManagement.model", "models/Twitter.model", "models/WeatherObservationSystem.model"}) {
+			DataTransferModel model;
+			try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+				model = new Parser(reader).doParse();
+			}
+			DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+			DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+			ModelExtension.extendModel(model);
+			TypeInference.infer(model);
+			DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+			List<CompilationUnit> codes = new ArrayList<>();
+			codes.addAll(new CodeGeneratorFromDataFlowGraph().generateCode(model, graph, new JavaSpecific()));
+			codes.addAll(JavaMethodBodyGenerator.doGenerate(graph, model, JavaCodeGenerator.doGenerate(graph, model)));
+			codes.addAll(JerseyMethodBodyGenerator.doGenerate(graph, model, JerseyCodeGenerator.doGenerate(graph, model)));
+			ModelExtension.recoverModel(model);
+			assertFalse(codes.isEmpty());
+			for (CompilationUnit cu: codes) {
+				assertEmitted(cu);
+			}
+		}
+	}
+
+	@Test
+	public void testEmitIfChanged() throws Exception {
+		TypeDeclaration type = new TypeDeclaration("Large");
+		MethodDeclaration method = new MethodDeclaration("run");
+		for (int i = 0; i < 1000; i++) {
+			method.addStatement("System.out.println(" + i + ");");		// longer than a chunk of the comparison.
+		}
+		type.addMethod(method);
+		CompilationUnit cu = new CompilationUnit(type);
+		String code = CodeEmitter.toString(cu);
+		File directory = Files.createTempDirectory("emitted").toFile();
+		File file = new File(directory, cu.getFileName());
+		try {
+			assertTrue(CodeEmitter.emitIfChanged(cu, file));
+			assertEquals(code, read(file));
+
+			// An unchanged file is not written.
+			assertTrue(file.setLastModified(0));
+			assertFalse(CodeEmitter.emitIfChanged(cu, file));
+			assertEquals(0, file.lastModified());
+
+			// A file that differs at its end, in its middle or in its length is replaced.
+			String[] contents = {code.substring(0, code.length() - 1) + "x", code.replace("(500)", "(501)"), code + "\n", code.substring(0, code.length() / 2), ""};
+			for (String content: contents) {
+				Files.write(file.toPath(), content.getBytes(Charset.defaultCharset()));
+				assertTrue(CodeEmitter.emitIfChanged(cu, file));
+				assertEquals(code, read(file));
+			}
+			assertEquals(1, directory.listFiles().length);		// no temporary file is left.
+		} finally {
+			for (File f: directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	private static String read(File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+	}
+
+	private static void assertEmitted(CompilationUnit cu) throws Exception {
+		String expected = toStringByInsertTab(cu);
+		assertEquals(expected, cu.toString());
+		StringWriter out = new StringWriter();
+		CodeEmitter.emit(cu, out);
+		assertEquals(expected, out.toString());
+	}
+
+	/**
+	 * Write random nested code to a writer.
+	 *
+	 * @return the code built with CodeUtil.insertTab
+	 */
+	private static String writeRandomCode(CodeWriter writer, Random random, int depth) throws Exception {
+		String[] pieces = {"", "\n", "\n\n", "a", "bc", "\t", " d ", "e\n", "\nf"};
+		StringBuilder expected = new StringBuilder();
+		int n = random.nextInt(5);
+		for (int i = 0; i < n; i++) {
+			if (depth < 4 && random.nextInt(3) == 0) {
+				writer.indent();
+				String inner = writeRandomCode(writer, random, depth + 1);
+				writer.unindent();
+				expected.append(CodeUtil.insertTab(inner));
+			} else {
+				String piece = pieces[random.nextInt(pieces.length)];
+				writer.write(piece);
+				expected.append(piece);
+			}
+		}
+		return expected.toString();
+	}
+
+	/**
+	 * Build the code of a compilation unit in the way it used to be built before it was emitted by CodeEmitter.
+	 */
+	private static String toStringByInsertTab(CompilationUnit cu) {
+		String result = "";
+		for (ImportDeclaration imp: cu.imports()) {
+			result += "import " + imp.getName() + ";\n";
+		}
+		result += "\n";
+		for (TypeDeclaration type: cu.types()) {
+			String code = "";
+			for (Annotation annotation: type.getAnnotations()) {
+				code += toString(annotation) + "\n";
+			}
+			code += "public class " + type.getTypeName() + " {\n";
+			for (FieldDeclaration f: type.getFields()) {
+				code += "\t" + toString(f);
+			}
+			for (MethodDeclaration m: type.getMethods()) {
+				code += CodeUtil.insertTab(toString(m));
+			}
+			code += "}";
+			result += code;
+		}
+		return result;
+	}
+
+	private static String toString(MethodDeclaration m) {
+		String code = "";
+		for (Annotation annotation: m.getAnnotations()) {
+			code += toString(annotation) + "\n";
+		}
+		code += "public ";
+		if (m.getReturnType() == null) {
+			if (!m.isConstructor()) code += "void ";
+		} else {
+			code += m.getReturnType().getInterfaceTypeName() + " ";
+		}
+		code += (m.getName() + "(");
+		if (m.getParameters() != null) {
+			String delimiter = "";
+			for (VariableDeclaration parameter: m.getParameters()) {
+				code = code + delimiter + toString(parameter);
+				delimiter = ", ";
+			}
+		}
+		code += ") ";
+		if (m.getThrows() != null) {
+			code += "throws " + String.join(", ", m.getThrows().getExceptions()) + " ";
+		}
+		code += "{\n";
+		if (m.getBody() != null) {
+			String body = "";
+			for (String statement: m.getBody().getStatements()) {
+				body += (statement + "\n");
+			}
+			code += CodeUtil.insertTab(body);
+		}
+		code += "}";
+		return code;
+	}
+
+	private static String toString(FieldDeclaration f) {
+		String code = "";
+		for (Annotation annotation: f.getAnnotations()) {
+			code += toString(annotation) + "\n";
+		}
+		if (f.getInitializer() == null) {
+			code += "private " + f.getType().getInterfaceTypeName() + " " + f.getName() + ";\n";
+		} else {
+			code += "private " + f.getType().getInterfaceTypeName() + " " + f.getName() + " = " + f.getInitializer() + ";\n";
+		}
+		return code;
+	}
+
+	private static String toString(VariableDeclaration v) {
+		String code = "";
+		for (Annotation annotation: v.getAnnotations()) {
+			code += toString(annotation) + " ";
+		}
+		code += v.getType().getInterfaceTypeName() + " " + v.getName();
+		return code;
+	}
+
+	private static String toString(Annotation annotation) {
+		String code = "@" + annotation.getElementName();
+		if (annotation.getParams().size() == 0) {
+			return code;
+		} else if (annotation.getParams().size() == 1 && annotation.getParams().containsKey("value")) {
+			code += "(" + annotation.getValue("value") + ")";
+		} else {
+			code += "(";
+			String delimiter = "";
+			for (String key: annotation.getParams().keySet()) {
+				code += delimiter + key + " = \"" + annotation.getValue(key) + "\"";
+				delimiter = ", ";
+			}
+			code += ")";
+		}
+		return code;
+	}
+}
@@ -55,6 +55,23 @@ public class DirectedGraphTest {
 		assertEquals(1, n3.getOutdegree());
 		assertEquals(1, n4.getIndegree());
 		assertEquals(1, n4.getOutdegree());
+		
+		// Remove a node.
+		g.removeNode(n2);
+		// Re-check the number of nodes.
+		assertEquals(3, g.getNodes().size());
+		// Re-check the number of edges.
+		assertEquals(2, g.getEdges().size());
+		// Re-check indegrees and outdegrees.
+		assertEquals(1, n1.getIndegree());
+		assertEquals(0, n1.getOutdegree());
+		assertEquals(0, n3.getIndegree());
+		assertEquals(1, n3.getOutdegree());
+		// Check the ids of the nodes.
+		assertEquals(-1, n2.getId());
+		for (int i = 0; i < g.getNumberOfNodes(); i++) {
+			assertEquals(i, g.getNode(i).getId());
+		}
 	}
 
 }
@@ -0,0 +1,99 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.CompilationUnitCache;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.Edge;
+import models.dataConstraintModel.ChannelMember;
+import models.dataFlowModel.DataFlowEdge;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferChannel;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import models.dataFlowModel.PushPullAttribute;
+import models.dataFlowModel.PushPullValue;
+import parser.Parser;
+
+public class IncrementalCodeGenerationTest {
+
+	@Test
+	public void testChannelEdit() throws Exception {
+		DataTransferModel model;
+		try (BufferedReader reader = new BufferedReader(new FileReader("models/POS.model"))) {
+			model = new Parser(reader).doParse();
+		}
+		DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		ModelExtension.extendModel(model);
+		TypeInference.infer(model);
+		DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+		CompilationUnitCache cache = new CompilationUnitCache();
+		String original = toString(generate(model, graph, cache));
+		assertEquals(original, toString(generate(model, graph, cache)));
+		ModelExtension.recoverModel(model);
+
+		// Edit C1 in the same way as the data-flow modeling stage.
+		DataTransferChannel channel = (DataTransferChannel) model.getChannel("C1");
+		Parser.TokenStream stream = new Parser.TokenStream("channel C1 {\n"
+				+ "	in payment(p, update1(y)) == y\n"
+				+ "	out points(l:Int, update1(y)) == l + floor(y * 0.1)\n"
+				+ "}");
+		DataTransferChannel editedChannel = new Parser(stream).parseChannel(model);
+		for (ChannelMember cm2: editedChannel.getChannelMembers()) {
+			for (ChannelMember cm: channel.getChannelMembers()) {
+				if (cm2.getResource() == cm.getResource()) {
+					cm.setStateTransition(cm2.getStateTransition());
+				}
+			}
+		}
+		TypeInference.invalidate(model, channel);
+		ModelExtension.extendModel(model);
+		TypeInference.update(model);
+		DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+		String edited = toString(generate(model, graph, cache));
+		assertNotEquals(original, edited);
+		assertEquals(toString(generate(model, graph, null)), edited);
+
+		// Change the push/pull selection of each edge in turn.
+		for (Edge e: graph.getEdges()) {
+			PushPullAttribute attribute = (PushPullAttribute) ((DataFlowEdge) e).getAttribute();
+			if (attribute.getOptions().size() > 1) {
+				List<PushPullValue> options = new ArrayList<>(attribute.getOptions());
+				Collections.reverse(options);
+				attribute.setOptions(options);
+				DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+				assertEquals(toString(generate(model, graph, null)), toString(generate(model, graph, cache)));
+			}
+		}
+		ModelExtension.recoverModel(model);
+	}
+
+	private static List<CompilationUnit> generate(DataTransferModel model, DataFlowGraph graph, CompilationUnitCache cache) {
+		CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+		generator.setCache(cache);
+		return generator.generateCode(model, graph, new JavaSpecific());
+	}
+
+	private static String toString(List<CompilationUnit> codes) {
+		StringBuilder result = new StringBuilder();
+		for (CompilationUnit cu: codes) {
+			result.append(cu.getFileName() + "\n" + CodeEmitter.toString(cu) + "\n");
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,144 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import code.ast.CodeEmitter;
+import code.ast.CompilationUnit;
+import generators.CodeGeneratorFromDataFlowGraph;
+import generators.DataTransferMethodAnalyzer;
+import generators.JavaSpecific;
+import models.Edge;
+import models.dataFlowModel.DataFlowEdge;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import models.dataFlowModel.PushPullAttribute;
+import models.dataFlowModel.PushPullValue;
+import parser.Parser;
+
+public class MemoizingPullAccessorTest {
+	private static final int LENGTH = 3;
+	private List<File> directories = new ArrayList<>();
+	private List<URLClassLoader> loaders = new ArrayList<>();
+
+	@After
+	public void tearDown() throws Exception {
+		for (URLClassLoader loader: loaders) {
+			loader.close();
+		}
+		for (File directory: directories) {
+			for (File file: directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testSameStates() throws Exception {
+		Object plain = createPrototype(false);
+		Object memoized = createPrototype(true);
+		Method plainAppend = plain.getClass().getMethod("append", int.class);
+		Method memoizedAppend = memoized.getClass().getMethod("append", int.class);
+
+		// Every derived state read from the memoized prototype equals the recomputed one after each update.
+		assertStates(plain, memoized);
+		for (int i = 0; i < 20; i++) {
+			plainAppend.invoke(plain, i);
+			memoizedAppend.invoke(memoized, i);
+			if (i % 3 == 0) continue;		// some updates are not followed by reads.
+			assertStates(plain, memoized);
+			assertStates(plain, memoized);
+		}
+		assertEquals(190 + LENGTH, plain.getClass().getMethod("getTotal" + LENGTH).invoke(plain));
+	}
+
+	private static void assertStates(Object plain, Object memoized) throws Exception {
+		for (int i = LENGTH; i >= 0; i--) {
+			String getter = "getTotal" + i;
+			assertEquals(getter, plain.getClass().getMethod(getter).invoke(plain), memoized.getClass().getMethod(getter).invoke(memoized));
+		}
+		assertEquals(plain.getClass().getMethod("getHistory").invoke(plain), memoized.getClass().getMethod("getHistory").invoke(memoized));
+	}
+
+	/**
+	 * Generate, compile and instantiate the main component of a prototype of a chain of PULL-style transfers.
+	 */
+	private Object createPrototype(boolean memoizing) throws Exception {
+		DataTransferModel model = new Parser(new BufferedReader(new StringReader(createModelText()))).doParse();
+		DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		for (Edge e: graph.getEdges()) {
+			PushPullAttribute attribute = (PushPullAttribute) ((DataFlowEdge) e).getAttribute();
+			if (attribute.getOptions().size() > 1 && attribute.getOptions().get(0) == PushPullValue.PUSH) {
+				List<PushPullValue> options = new ArrayList<>(attribute.getOptions());
+				Collections.reverse(options);
+				attribute.setOptions(options);
+			}
+		}
+		ModelExtension.extendModel(model);
+		TypeInference.infer(model);
+		DataTransferMethodAnalyzer.decideToStoreResourceStates(graph);
+		CodeGeneratorFromDataFlowGraph generator = new CodeGeneratorFromDataFlowGraph();
+		generator.setMemoizingPullAccessors(memoizing);
+		List<CompilationUnit> codes = generator.generateCode(model, graph, new JavaSpecific());
+		ModelExtension.recoverModel(model);
+
+		File directory = Files.createTempDirectory("prototype").toFile();
+		directories.add(directory);
+		List<String> compilerArgs = new ArrayList<>();
+		compilerArgs.add("-nowarn");
+		compilerArgs.add("-d");
+		compilerArgs.add(directory.getPath());
+		for (CompilationUnit cu: codes) {
+			File file = new File(directory, cu.getFileName());
+			CodeEmitter.emitIfChanged(cu, file);
+			compilerArgs.add(file.getPath());
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, compilerArgs.toArray(new String[compilerArgs.size()])));
+		URLClassLoader loader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, null);
+		loaders.add(loader);
+		return loader.loadClass("Main").getConstructor().newInstance();
+	}
+
+	/**
+	 * Create a model in which the sum of a list resource is followed by a chain of PULL-style transfers.
+	 */
+	private static String createModelText() {
+		StringBuilder text = new StringBuilder();
+		text.append("channel CIO {\n");
+		text.append("\tout history(h:List, append(x:Int)) == cons(x, h)\n");
+		text.append("}\n");
+		text.append("channel C0 {\n");
+		text.append("\tin history(h, update0(u)) == u\n");
+		text.append("\tout total0(t:Int, update0(u)) == sum(u)\n");
+		text.append("}\n");
+		for (int i = 1; i <= LENGTH; i++) {
+			text.append("channel C" + i + " {\n");
+			text.append("\tin total" + (i - 1) + "(s, update" + i + "(u)) == u\n");
+			text.append("\tout total" + i + "(t:Int, update" + i + "(u)) == u + 1\n");
+			text.append("}\n");
+		}
+		return text.toString();
+	}
+}
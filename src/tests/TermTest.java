@@ -2,11 +2,15 @@ package tests;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
 import models.algebra.Constant;
 import models.algebra.Symbol;
 import models.algebra.Term;
+import models.algebra.Type;
 import models.algebra.Variable;
 
 public class TermTest {
@@ -48,5 +52,70 @@ public class TermTest {
 		System.out.println(t1);
 		System.out.println(t2);
 	}
-
+	
+	@Test
+	public void testSubstitute() {
+		Symbol add = new Symbol("add", 2);
+		Symbol mul = new Symbol("mul", 2);
+		Constant one = new Constant("1");
+		Variable x = new Variable("x");
+		Variable y = new Variable("y");
+		Term t1 = new Term(add);		// add(x, 1)
+		t1.addChild(x);
+		t1.addChild(one);
+		Term t2 = new Term(mul);		// mul(add(x, 1), x)
+		t2.addChild(t1);
+		t2.addChild(x);
+		Term t3 = new Term(add);		// add(x, y)
+		t3.addChild(x);
+		t3.addChild(y);
+		
+		// Every occurrence of the variable is replaced, but not the ones in the substituted value.
+		Term t4 = t2.substitute(x, t3);	// mul(add(add(x, y), 1), add(x, y))
+		assertTrue(t4.getChild(0) instanceof Term);
+		assertTrue(((Term) t4.getChild(0)).getChild(0).equals(t3));
+		assertTrue(t4.getChild(1).equals(t3));
+		assertTrue(t4.contains(y));
+		assertFalse(t2.contains(y));
+		assertTrue(t2.getChild(1) == x);
+		assertTrue(t2.substitute(y, one).equals(t2));
+	}
+	
+	@Test
+	public void testHashCode() {
+		Symbol add = new Symbol("add", 2);
+		Constant one = new Constant("1");
+		Variable x = new Variable("x");
+		
+		// Equal terms have the same hash code, and the terms with the same symbol are spread.
+		Set<Integer> hashes = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			Term t1 = new Term(add);		// add(x, i)
+			t1.addChild(x);
+			t1.addChild(new Constant(Integer.toString(i)));
+			Term t2 = (Term) t1.clone();
+			assertTrue(t1.equals(t2));
+			assertTrue(t1.hashCode() == t2.hashCode());
+			hashes.add(t1.hashCode());
+		}
+		assertTrue(hashes.size() == 100);
+		
+		// A term without children has the same hash code as an equal constant.
+		Term t3 = new Term(one.getSymbol());
+		assertTrue(t3.equals(one));
+		assertTrue(t3.hashCode() == one.hashCode());
+		
+		// The hash code follows the children edited in place, but not the inferred type.
+		Term t4 = new Term(add);
+		t4.addChild(x);
+		t4.addChild(one);
+		int hash = t4.hashCode();
+		t4.setType(new Type("Integer", "int"));
+		assertTrue(t4.hashCode() == hash);
+		t4.getChildren().set(1, x);
+		Term t5 = new Term(add);
+		t5.addChild(x);
+		t5.addChild(x);
+		assertTrue(t4.hashCode() == t5.hashCode());
+	}
 }
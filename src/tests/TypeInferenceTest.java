@@ -0,0 +1,207 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import algorithms.DataTransferModelAnalyzer;
+import algorithms.TypeInference;
+import models.algebra.Expression;
+import models.algebra.Term;
+import models.algebra.Type;
+import models.algebra.Variable;
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.ResourcePath;
+import models.dataConstraintModel.StateTransition;
+import models.dataFlowModel.DataFlowGraph;
+import models.dataFlowModel.DataTransferChannel;
+import models.dataFlowModel.DataTransferModel;
+import models.dataFlowModel.ModelExtension;
+import parser.Parser;
+
+public class TypeInferenceTest {
+
+	@Test
+	public void testAlgo() throws Exception {
+		DataTransferModel model = parseAndExtend("models/Algo.model");
+		TypeInference.infer(model);
+		Map<String, String> types = getResourceTypes(model);
+		// deck keeps its declared type, since the component type of a list is not inferred from fst(head(d)).
+		assertEquals("List", types.get("deck"));
+		assertEquals("List<Map.Entry<Object, Boolean>>", types.get("handsA"));
+		assertEquals("List<Map.Entry<Object, Boolean>>", types.get("handsB"));
+		ModelExtension.recoverModel(model);
+	}
+
+	@Test
+	public void testUpdateAfterChannelEdit() throws Exception {
+		String c2 = "channel C2 {\n"
+				+ "	in payment(p, update2(z)) == z\n"
+				+ "	out history(h:List, update2(z)) == cons(z, h)\n"
+				+ "}";
+		String editedC2 = "channel C2 {\n"
+				+ "	in payment(p, update2(z)) == z\n"
+				+ "	out history(h:List, update2(z)) == cons(tuple(z, 1.0), h)\n"
+				+ "}";
+		String text = new String(Files.readAllBytes(Paths.get("models/POS.model")), StandardCharsets.UTF_8).replace("\r\n", "\n");
+		assertTrue(text.contains(c2));
+		text += "\nchannel CIO2 {\n"
+				+ "	out counter(c:Int, increment(d:Int)) == c + d\n"
+				+ "}\n";			// another constraint component, which is not affected by the edit
+
+		// Infer the original model and then edit C2 in the same way as the data-flow modeling stage.
+		DataTransferModel model = parseAndExtend(new StringReader(text));
+		TypeInference typeInference = TypeInference.infer(model);
+		ModelExtension.recoverModel(model);
+		DataTransferChannel channel = (DataTransferChannel) model.getChannel("C2");
+		Parser.TokenStream stream = new Parser.TokenStream();
+		for (String line: editedC2.split("\n")) {
+			stream.addLine(line);
+		}
+		DataTransferChannel editedChannel = new Parser(stream).parseChannel(model);
+		for (ChannelMember cm2: editedChannel.getChannelMembers()) {
+			for (ChannelMember cm: channel.getChannelMembers()) {
+				if (cm2.getResource() == cm.getResource()) {
+					cm.setStateTransition(cm2.getStateTransition());
+				}
+			}
+		}
+		TypeInference.invalidate(model, channel);
+		assertEquals(new HashSet<>(Arrays.asList("payment", "points", "history", "total")), getResourceNames(TypeInference.getAffectedResources(model, channel)));
+
+		// Only the constraint component of C2 is re-inferred in the registered context.
+		ModelExtension.extendModel(model);
+		assertSame(typeInference, TypeInference.update(model));
+		Map<String, String> updatedTypes = getResourceTypes(model);
+		ModelExtension.recoverModel(model);
+
+		DataTransferModel editedModel = parseAndExtend(new StringReader(text.replace(c2, editedC2)));
+		TypeInference.infer(editedModel);
+		Map<String, String> inferredTypes = getResourceTypes(editedModel);
+		ModelExtension.recoverModel(editedModel);
+
+		assertEquals("List<Map.Entry<Integer, Double>>", inferredTypes.get("history"));
+		assertEquals("int", inferredTypes.get("counter"));
+		assertEquals(inferredTypes, updatedTypes);
+	}
+
+	@Test
+	public void testReinferAll() throws Exception {
+		for (String fileName: new String[] {"models/POS.model", "models/Algo.model", "models/Twitter.model", "models/WeatherObservationSystem.model"}) {
+			// Re-inferring every channel gives the same types as inferring the model from scratch.
+			DataTransferModel model = parseAndExtend(fileName);
+			TypeInference.infer(model);
+			for (Channel channel: getAllChannels(model)) {
+				TypeInference.reinfer(model, channel);
+			}
+			Map<String, String> reinferredTypes = getExpressionTypes(model);
+			ModelExtension.recoverModel(model);
+
+			DataTransferModel inferredModel = parseAndExtend(fileName);
+			TypeInference.infer(inferredModel);
+			Map<String, String> inferredTypes = getExpressionTypes(inferredModel);
+			ModelExtension.recoverModel(inferredModel);
+			assertEquals(fileName, inferredTypes, reinferredTypes);
+		}
+	}
+
+	@Test
+	public void testContextIsReleased() throws Exception {
+		DataTransferModel model = parseAndExtend("models/POS.model");
+		TypeInference typeInference = TypeInference.infer(model);
+		assertSame(typeInference, TypeInference.getTypeInference(model));
+		WeakReference<DataTransferModel> modelRef = new WeakReference<>(model);
+		model = null;
+		typeInference = null;
+		for (int i = 0; i < 50 && modelRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(modelRef.get());
+	}
+
+	static DataTransferModel parseAndExtend(String fileName) throws Exception {
+		return parseAndExtend(new FileReader(fileName));
+	}
+
+	static DataTransferModel parseAndExtend(Reader source) throws Exception {
+		DataTransferModel model;
+		try (BufferedReader reader = new BufferedReader(source)) {
+			model = new Parser(reader).doParse();
+		}
+		DataFlowGraph graph = DataTransferModelAnalyzer.createDataFlowGraphWithStateStoringAttribute(model);
+		DataTransferModelAnalyzer.annotateWithSelectableDataTransferAttiribute(graph);
+		ModelExtension.extendModel(model);
+		return model;
+	}
+
+	/**
+	 * Get the types given to the terms and variables of the state transitions of a model.
+	 */
+	static Map<String, String> getExpressionTypes(DataTransferModel model) {
+		Map<String, String> types = new HashMap<>();
+		for (Channel channel: getAllChannels(model)) {
+			for (ChannelMember cm: channel.getChannelMembers()) {
+				StateTransition st = cm.getStateTransition();
+				String prefix = channel.getChannelName() + "." + cm.getResource().getResourceName() + ".";
+				getExpressionTypes(st.getCurStateExpression(), prefix + "cur", types);
+				getExpressionTypes(st.getMessageExpression(), prefix + "message", types);
+				getExpressionTypes(st.getNextStateExpression(), prefix + "next", types);
+			}
+		}
+		return types;
+	}
+
+	private static void getExpressionTypes(Expression exp, String position, Map<String, String> types) {
+		Type type = null;
+		if (exp instanceof Variable) {
+			type = ((Variable) exp).getType();
+		} else if (exp instanceof Term) {
+			type = ((Term) exp).getOwnType();
+			for (int i = 0; i < ((Term) exp).getChildren().size(); i++) {
+				getExpressionTypes(((Term) exp).getChild(i), position + "." + i, types);
+			}
+		}
+		types.put(position + ":" + exp, type == null ? null : type.getInterfaceTypeName());
+	}
+
+	private static List<Channel> getAllChannels(DataTransferModel model) {
+		List<Channel> channels = new ArrayList<>(model.getIOChannels());
+		channels.addAll(model.getChannels());
+		return channels;
+	}
+
+	static Map<String, String> getResourceTypes(DataTransferModel model) {
+		Map<String, String> types = new HashMap<>();
+		for (ResourcePath res: model.getResourcePaths()) {
+			types.put(res.getResourceName(), res.getResourceStateType() == null ? null : res.getResourceStateType().getInterfaceTypeName());
+		}
+		return types;
+	}
+
+	static Set<String> getResourceNames(Collection<ResourcePath> resources) {
+		Set<String> names = new HashSet<>();
+		for (ResourcePath res: resources) {
+			names.add(res.getResourceName());
+		}
+		return names;
+	}
+}
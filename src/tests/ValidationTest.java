@@ -0,0 +1,53 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import algorithms.Validation;
+import algorithms.Validation.UpdateConflict;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+
+public class ValidationTest {
+
+	@Test
+	public void testAcyclicModel() throws Exception {
+		DataTransferModel model = new Parser(new BufferedReader(new FileReader("models/POS.model"))).doParse();
+		assertTrue(Validation.findUpdateConflicts(model).isEmpty());
+		assertTrue(Validation.checkUpdateConflict(model));
+	}
+
+	@Test
+	public void testCyclicModel() throws Exception {
+		String text = "channel CIO {\n"
+				+ "	out a(x:Int, set(v:Int)) == v\n"
+				+ "}\n"
+				+ "channel C1 {\n"
+				+ "	in a(x, f(y)) == y\n"
+				+ "	out b(z:Int, f(y)) == y\n"
+				+ "}\n"
+				+ "channel C2 {\n"
+				+ "	in b(z, g(w)) == w\n"
+				+ "	out a(x, g(w)) == w\n"
+				+ "}\n"
+				+ "channel C3 {\n"
+				+ "	in b(z, h(u)) == u\n"
+				+ "	out c(t:Int, h(u)) == u\n"
+				+ "}\n";
+		DataTransferModel model = new Parser(new BufferedReader(new StringReader(text))).doParse();
+		List<UpdateConflict> conflicts = Validation.findUpdateConflicts(model);
+		assertEquals(1, conflicts.size());
+		// c and C3 are reachable from the cycle but are not on it.
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), conflicts.get(0).getResourceNames());
+		assertEquals(new HashSet<>(Arrays.asList("C1", "C2")), conflicts.get(0).getChannelNames());
+		assertFalse(Validation.checkUpdateConflict(model));
+	}
+}
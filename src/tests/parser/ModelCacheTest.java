@@ -0,0 +1,170 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.DataConstraintModel;
+import models.dataConstraintModel.ResourcePath;
+import models.dataConstraintModel.Selector;
+import models.dataFlowModel.DataTransferChannel;
+import models.dataFlowModel.DataTransferModel;
+import parser.ModelCache;
+import parser.Parser;
+import parser.ParserDTRAM;
+
+public class ModelCacheTest {
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("cache").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file: directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (File file: new File("models").listFiles()) {
+			DataTransferModel parsed;
+			if (file.getName().endsWith(".model")) {
+				try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+					parsed = new Parser(reader).doParse();
+				}
+			} else {
+				parsed = new ParserDTRAM(file).doParseModel();
+			}
+			ModelCache cache = new ModelCache(file, directory);
+			assertNull(cache.load());
+			cache.store(parsed);
+			DataTransferModel loaded = new ModelCache(file, directory).load();
+			assertNotNull(file.getName(), loaded);
+			assertEquals(file.getName(), describe(parsed), describe(loaded));
+		}
+		// The snapshots are stored only in the cache directory.
+		assertEquals(new File("models").listFiles().length, directory.listFiles().length);
+		for (File file: new File("models").listFiles()) {
+			assertFalse(file.getName().endsWith(".compiled"));
+		}
+	}
+
+	@Test
+	public void testPredefinedTypesAndSymbols() throws Exception {
+		File file = new File("models/POS.model");
+		DataTransferModel parsed;
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			parsed = new Parser(reader).doParse();
+		}
+		new ModelCache(file, directory).store(parsed);
+		DataTransferModel loaded = new ModelCache(file, directory).load();
+		assertSame(DataConstraintModel.typeInt, loaded.getResourcePath("payment").getResourceStateType());
+		assertSame(DataConstraintModel.typeList, loaded.getResourcePath("history").getResourceStateType());
+		for (ChannelMember member: loaded.getChannel("C2").getChannelMembers()) {
+			if (member.getResource().getResourceName().equals("history")) {
+				assertSame(DataConstraintModel.cons, ((models.algebra.Term) member.getStateTransition().getNextStateExpression()).getSymbol());
+			}
+		}
+	}
+
+	@Test
+	public void testChangedSource() throws Exception {
+		File file = new File(directory, "Test.model");
+		String text = "channel CIO {\n"
+				+ "	out a(x:Int, set(v:Int)) == v\n"
+				+ "}\n";
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			new ModelCache(file, directory).store(new Parser(reader).doParse());
+		}
+		assertNotNull(new ModelCache(file, directory).load());
+
+		// A snapshot is not loaded after the source is changed.
+		Files.write(file.toPath(), text.replace("Int", "Long").getBytes(StandardCharsets.UTF_8));
+		assertNull(new ModelCache(file, directory).load());
+
+		// The snapshot of another file of the same name is stored separately.
+		assertNotEquals(new ModelCache(file, directory).getCacheFile(), new ModelCache(new File("models/Test.model"), directory).getCacheFile());
+	}
+
+	@Test
+	public void testUntrustedSnapshot() throws Exception {
+		assertTrue(ModelCache.getDefaultDirectory().getPath().startsWith(System.getProperty("user.home")));
+		Assume.assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+		File file = new File("models/POS.model");
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			new ModelCache(file, directory).store(new Parser(reader).doParse());
+		}
+		Path cacheFile = new ModelCache(file, directory).getCacheFile().toPath();
+		assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(cacheFile));
+		assertNotNull(new ModelCache(file, directory).load());
+
+		// A snapshot that the others can write is not loaded.
+		Files.setPosixFilePermissions(cacheFile, PosixFilePermissions.fromString("rw-rw----"));
+		assertNull(new ModelCache(file, directory).load());
+		Files.setPosixFilePermissions(cacheFile, PosixFilePermissions.fromString("rw-------"));
+		Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+		assertNull(new ModelCache(file, directory).load());
+		Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwx------"));
+		assertNotNull(new ModelCache(file, directory).load());
+	}
+
+	static List<String> describe(DataTransferModel model) {
+		List<String> lines = new ArrayList<>();
+		for (ResourcePath res: model.getResourcePaths()) {
+			lines.add("resource " + res.getResourceName() + "/" + res.getNumberOfParameters() + ":"
+					+ (res.getResourceStateType() == null ? null : res.getResourceStateType().getInterfaceTypeName())
+					+ " = " + res.getInitialValue() + " " + res.getInitText());
+		}
+		for (Channel channel: model.getIOChannels()) {
+			lines.add("io " + describe((DataTransferChannel) channel));
+		}
+		for (Channel channel: model.getChannels()) {
+			lines.add("channel " + describe((DataTransferChannel) channel));
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static String describe(DataTransferChannel channel) {
+		List<String> members = new ArrayList<>();
+		for (ChannelMember member: channel.getChannelMembers()) {
+			String role = channel.getInputChannelMembers().contains(member) ? "in " : channel.getOutputChannelMembers().contains(member) ? "out " : "ref ";
+			members.add(role + member + " " + describe(member.getSelectors()));
+		}
+		Collections.sort(members);
+		return channel.getChannelName() + " " + describe(channel.getChannelSelectors()) + " " + members + " " + channel.getSourceText();
+	}
+
+	private static String describe(Collection<Selector> selectors) {
+		List<String> variables = new ArrayList<>();
+		for (Selector selector: selectors) {
+			variables.add(selector.getVariable().getName() + ":"
+					+ (selector.getVariable().getType() == null ? null : selector.getVariable().getType().getInterfaceTypeName()));
+		}
+		return variables.toString();
+	}
+}
@@ -0,0 +1,137 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import models.algebra.Expression;
+import models.algebra.Symbol;
+import models.algebra.Term;
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.StateTransition;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.ParserDTRAM;
+
+public class ParallelParseTest {
+
+	@Test
+	public void testBundledModels() throws Exception {
+		for (File file: new File("models").listFiles()) {
+			// Every channel and init block is a task, so that the merging of the partial models is exercised.
+			DataTransferModel sequential = parse(file, false);
+			DataTransferModel parallel = parse(file, true);
+			assertEquals(file.getName(), ModelCacheTest.describe(sequential), ModelCacheTest.describe(parallel));
+			assertEquals(file.getName(), describeSymbols(sequential), describeSymbols(parallel));
+		}
+	}
+
+	@Test
+	public void testDependentRuns() throws Exception {
+		// The symbol f and the resource a0 are shared by the runs, and the init block gives a0 an initial value
+		// in another run from the one that gives a0 its type.
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 8; i++) {
+			text.append("channel CIO" + i + " {\n");
+			text.append("	out a" + i + "(x:Int, set(v:Int)) == " + (i < 4 ? "f(v)" : "v + f") + "\n");
+			text.append("}\n");
+		}
+		text.append("init {\n");
+		text.append("	a0 := 1\n");
+		text.append("}\n");
+		text.append("channel C0 {\n");
+		text.append("	out a0(x:Int, h(w)) == w\n");
+		text.append("}\n");
+		text.append("channel C {\n");
+		text.append("	in a0(x, g(y)) == y\n");
+		text.append("	out b(z:Int, g(y)) == y\n");
+		text.append("}\n");
+		DataTransferModel sequential = createParser(text.toString(), false).doParse();
+		DataTransferModel parallel = createParser(text.toString(), true).doParse();
+		assertEquals(ModelCacheTest.describe(sequential), ModelCacheTest.describe(parallel));
+		assertEquals(describeSymbols(sequential), describeSymbols(parallel));
+	}
+
+	@Test
+	public void testSharedSymbolsAndResources() throws Exception {
+		// Each run creates its own f, g and a0, which are replaced with those of the preceding runs when the runs are merged.
+		StringBuilder text = new StringBuilder();
+		text.append("channel CIO {\n");
+		text.append("	out a0(x:Int, set(v:Int)) == v\n");
+		text.append("}\n");
+		for (int i = 1; i <= 8; i++) {
+			text.append("channel C" + i + " {\n");
+			text.append("	in a0(x, g(y)) == y\n");
+			text.append("	out a" + i + "(z:Int, g(y)) == f(y) + f(f(z))\n");
+			text.append("}\n");
+		}
+		DataTransferModel sequential = createParser(text.toString(), false).doParse();
+		DataTransferModel parallel = createParser(text.toString(), true).doParse();
+		assertEquals(ModelCacheTest.describe(sequential), ModelCacheTest.describe(parallel));
+		assertEquals(describeSymbols(sequential), describeSymbols(parallel));
+		int numTerms = 0;
+		for (Channel channel: parallel.getChannels()) {
+			for (ChannelMember member: channel.getChannelMembers()) {
+				assertSame(parallel.getResourcePath(member.getResource().getResourceName()), member.getResource());
+				StateTransition stateTransition = member.getStateTransition();
+				for (Expression exp: new Expression[] {stateTransition.getMessageExpression(), stateTransition.getNextStateExpression()}) {
+					numTerms += assertSymbolsOf(parallel, exp);
+				}
+			}
+		}
+		assertEquals(8 * 6, numTerms);
+	}
+
+	/**
+	 * Assert that the terms of an expression refer to the symbols of a model.
+	 *
+	 * @return the number of the terms
+	 */
+	private static int assertSymbolsOf(DataTransferModel model, Expression exp) {
+		if (!(exp instanceof Term)) return 0;
+		Term term = (Term) exp;
+		assertSame(term.getSymbol().getName(), model.getSymbol(term.getSymbol().getName()), term.getSymbol());
+		int numTerms = 1;
+		for (Expression child: term.getChildren()) {
+			numTerms += assertSymbolsOf(model, child);
+		}
+		return numTerms;
+	}
+
+	private static DataTransferModel parse(File file, boolean parallel) throws Exception {
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			if (file.getName().endsWith(".model")) {
+				Parser parser = new Parser(reader);
+				parser.setParallel(parallel, 1);
+				return parser.doParse();
+			}
+			ParserDTRAM parser = new ParserDTRAM(reader);
+			parser.setParallel(parallel, 1);
+			return parser.doParseModel();
+		}
+	}
+
+	private static Parser createParser(String text, boolean parallel) {
+		Parser parser = new Parser(new BufferedReader(new StringReader(text)));
+		parser.setParallel(parallel, 1);
+		return parser;
+	}
+
+	private static List<String> describeSymbols(DataTransferModel model) {
+		List<String> symbols = new ArrayList<>();
+		for (Symbol symbol: model.getSymbols()) {
+			symbols.add(symbol.getName() + "/" + symbol.getArity());
+		}
+		Collections.sort(symbols);
+		return symbols;
+	}
+}
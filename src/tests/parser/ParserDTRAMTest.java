@@ -0,0 +1,156 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.view.mxGraph;
+
+import application.editor.Stage;
+import application.editor.stages.DataFlowModelingStage;
+import parser.ParserDTRAM;
+import parser.exceptions.ExpectedAssignment;
+import parser.exceptions.ParseException;
+
+public class ParserDTRAMTest {
+	private static final int NUM_COPIES = 400;		// enough for the geometry to be split into several chunks.
+
+	@Test
+	public void testMappedFile() throws Exception {
+		for (String newLine: new String[] {"\n", "\r\n"}) {
+			File file = createFile(createText(newLine));
+			try {
+				Map<String, String> read = open(new ParserDTRAM(new BufferedReader(new FileReader(file))));
+				Map<String, String> mapped = open(new ParserDTRAM(file));
+				assertEquals(NUM_COPIES * 8, read.size());
+				assertEquals("650.0,10070.0", read.get("history100"));
+				assertEquals(read, mapped);
+			} finally {
+				file.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testMalformedGeometry() throws Exception {
+		// A broken record near the end of the file, which is parsed in the last chunk.
+		String record = "\tnode r total" + (NUM_COPIES - 2) + ":";
+		String text = createText("\r\n");
+		int line = text.substring(0, text.indexOf(record)).split("\r\n", -1).length - 1;
+		File file = createFile(text.replace(record, "\tnode r total" + (NUM_COPIES - 2) + " "));
+		try {
+			ParseException read = openAndFail(new ParserDTRAM(new BufferedReader(new FileReader(file))));
+			ParseException mapped = openAndFail(new ParserDTRAM(file));
+			assertTrue(read instanceof ExpectedAssignment);
+			assertTrue(mapped instanceof ExpectedAssignment);
+			assertEquals(line, read.getLine());
+			assertEquals(line, mapped.getLine());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testMalformedNumber() throws Exception {
+		File file = createFile(createText("\n").replace("\tnode r points" + (NUM_COPIES - 2) + ":650,", "\tnode r points" + (NUM_COPIES - 2) + ":x650,"));
+		try {
+			open(new ParserDTRAM(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Open a .dtram file in the same way as the editor.
+	 *
+	 * @return the positions of the vertices by their labels
+	 */
+	private static Map<String, String> open(ParserDTRAM parser) throws ParseException {
+		mxGraph graph = new mxGraph();
+		DataFlowModelingStage stage = new DataFlowModelingStage(new mxGraphComponent(graph) {
+			@Override
+			protected void createHandlers() {
+			}
+		});
+		stage.setModel(parser.doParseModel());
+		parser.doParseGeometry(graph);
+		Map<String, String> positions = new HashMap<>();
+		mxCell root = (mxCell) graph.getDefaultParent();
+		for (int layer: new int[] {Stage.NODE_LAYER, Stage.DATA_FLOW_LAYER}) {
+			mxCell layerCell = (mxCell) root.getChildAt(layer);
+			for (int i = 0; i < layerCell.getChildCount(); i++) {
+				mxCell cell = (mxCell) layerCell.getChildAt(i);
+				if (!cell.isVertex()) continue;
+				positions.put(graph.getLabel(cell), cell.getGeometry().getX() + "," + cell.getGeometry().getY());
+			}
+		}
+		return positions;
+	}
+
+	private static ParseException openAndFail(ParserDTRAM parser) {
+		try {
+			open(parser);
+		} catch (ParseException e) {
+			return e;
+		}
+		fail();
+		return null;
+	}
+
+	private static File createFile(String text) throws IOException {
+		File file = File.createTempFile("test", ".dtram");
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Create the text of a .dtram file with copies of the POS model.
+	 */
+	private static String createText(String newLine) {
+		StringBuilder text = new StringBuilder();
+		text.append("model {" + newLine);
+		for (int i = 0; i < NUM_COPIES; i++) {
+			text.append("channel CIO" + i + " {" + newLine);
+			text.append("\tout payment" + i + "(p:Int, purchase(x:Int)) == x" + newLine);
+			text.append("}" + newLine);
+			text.append("channel C1_" + i + " {" + newLine);
+			text.append("\tin payment" + i + "(p, update1(y)) == y" + newLine);
+			text.append("\tout points" + i + "(l:Int, update1(y)) == floor(y * 0.05)" + newLine);
+			text.append("}" + newLine);
+			text.append("channel C2_" + i + " {" + newLine);
+			text.append("\tin payment" + i + "(p, update2(z)) == z" + newLine);
+			text.append("\tout history" + i + "(h:List, update2(z)) == cons(z, h)" + newLine);
+			text.append("}" + newLine);
+			text.append("channel C3_" + i + " {" + newLine);
+			text.append("\tin history" + i + "(h, update3(u)) == u" + newLine);
+			text.append("\tout total" + i + "(t:Int, update3(u)) == sum(u)" + newLine);
+			text.append("}" + newLine);
+		}
+		text.append("}" + newLine);
+		text.append("geometry {" + newLine);
+		for (int i = 0; i < NUM_COPIES; i++) {
+			int y = i * 100;
+			text.append("\tnode ioc CIO" + i + ":150," + (y + 35) + ",30,30" + newLine);
+			text.append("\tnode c C1_" + i + ":500," + y + ",30,30" + newLine);
+			text.append("\tnode c C2_" + i + ":500," + (y + 70) + ",30,30" + newLine);
+			text.append("\tnode c C3_" + i + ":850," + (y + 70) + ",30,30" + newLine);
+			text.append("\tnode r payment" + i + ":300," + (y + 35) + ",80,30" + newLine);
+			text.append("\tnode r points" + i + ":650," + y + ",80,30" + newLine);
+			text.append("\tnode r history" + i + ":650," + (y + 70) + ",80,30" + newLine);
+			text.append("\tnode r total" + i + ":1000," + (y + 70) + ",80,30" + newLine);
+		}
+		text.append("}" + newLine);
+		return text.toString();
+	}
+}
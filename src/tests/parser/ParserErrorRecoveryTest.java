@@ -0,0 +1,128 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.DataConstraintModel;
+import models.dataConstraintModel.ResourcePath;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.exceptions.ExpectedEquals;
+import parser.exceptions.ParseException;
+
+public class ParserErrorRecoveryTest {
+
+	@Test
+	public void testDiagnostics() throws Exception {
+		String[] lines = {
+				"channel CIO {",
+				"	out a(x:Int, set(v:Int)) == v",
+				"}",
+				"channel C1 {",
+				"	in a(x, f(y)) == head(y, y)",
+				"	out c(t:Int, f(y)) == y",
+				"	out d(s:Int, f(y)) = y",
+				"}",
+				"init {",
+				"	a := 5",
+				"	e := 1",
+				"}",
+				"channel C2 {",
+				"	in a(x, g(w)) == w",
+				"	out b(z:Int, g(w)) = w",
+				"}",
+				"channel C3 {",
+				"	in a(x, h(u)) == u",
+				"	out b(z, h(u)) == u",
+				"}" };
+		Parser parser = createParser(String.join("\n", lines));
+		DataTransferModel model = parser.doParse();
+
+		List<ParseException> errors = parser.getErrors();
+		assertEquals(2, errors.size());
+		assertTrue(errors.get(0) instanceof ExpectedEquals);
+		assertEquals(6, errors.get(0).getLine());
+		assertEquals(lines[6].indexOf(" = ") + 1, errors.get(0).getColumn());
+		assertTrue(errors.get(1) instanceof ExpectedEquals);
+		assertEquals(14, errors.get(1).getLine());
+		assertEquals(lines[14].indexOf(" = ") + 1, errors.get(1).getColumn());
+
+		// Only the blocks without errors are in the model.
+		assertEquals(new HashSet<>(Arrays.asList("CIO")), getChannelNames(model.getIOChannels()));
+		assertEquals(new HashSet<>(Arrays.asList("C3")), getChannelNames(model.getChannels()));
+
+		// The resources, init values, types and symbols of the blocks with errors are rolled back.
+		Set<String> resourceNames = new HashSet<>();
+		for (ResourcePath res: model.getResourcePaths()) {
+			resourceNames.add(res.getResourceName());
+		}
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), resourceNames);
+		assertNull(model.getResourcePath("a").getInitialValue());
+		assertNull(model.getResourcePath("a").getInitText());
+		assertSame(DataConstraintModel.typeInt, model.getResourcePath("a").getResourceStateType());
+		assertNull(model.getResourcePath("b").getResourceStateType());
+		assertNull(model.getSymbol("f"));
+		assertNull(model.getSymbol("g"));
+		assertEquals(1, model.getSymbol("h").getArity());
+		assertEquals(1, DataConstraintModel.head.getArity());
+	}
+
+	@Test
+	public void testRuntimeException() throws Exception {
+		String text = "channel CIO {\n"
+				+ "	out a(x:Int, set(v:Int)) == v\n"
+				+ "}\n"
+				+ "channel C1 {\n"
+				+ "	in a(x, f(y)) == y +";
+		Parser parser = createParser(text);
+		DataTransferModel model = parser.doParse();
+
+		// The end of the source in the expression is reported as an error instead of aborting the parsing.
+		assertEquals(1, parser.getErrors().size());
+		ParseException error = parser.getErrors().get(0);
+		assertTrue(error.getCause() instanceof RuntimeException);
+		assertEquals(4, error.getLine());
+		assertEquals(new HashSet<>(Arrays.asList("CIO")), getChannelNames(model.getIOChannels()));
+		assertTrue(model.getChannels().isEmpty());
+		assertNull(model.getSymbol("f"));
+	}
+
+	@Test
+	public void testNoErrors() throws Exception {
+		String text = "channel CIO {\n"
+				+ "	out a(x:Int, set(v:Int)) == v\n"
+				+ "}\n"
+				+ "channel C1 {\n"
+				+ "	in a(x, f(y)) == y\n"
+				+ "	out b(z:Int, f(y)) == y\n"
+				+ "}\n";
+		Parser parser = createParser(text);
+		DataTransferModel model = parser.doParse();
+		assertTrue(parser.getErrors().isEmpty());
+		assertEquals(new HashSet<>(Arrays.asList("C1")), getChannelNames(model.getChannels()));
+		assertEquals(1, model.getSymbol("f").getArity());
+	}
+
+	private static Parser createParser(String text) {
+		Parser parser = new Parser(new BufferedReader(new StringReader(text)));
+		parser.setErrorRecovery(true);
+		return parser;
+	}
+
+	private static Set<String> getChannelNames(Iterable<Channel> channels) {
+		Set<String> names = new HashSet<>();
+		for (Channel channel: channels) {
+			names.add(channel.getChannelName());
+		}
+		return names;
+	}
+}
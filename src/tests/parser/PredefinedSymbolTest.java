@@ -0,0 +1,108 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import models.algebra.Symbol;
+import models.algebra.Term;
+import models.dataConstraintModel.Channel;
+import models.dataConstraintModel.ChannelMember;
+import models.dataConstraintModel.DataConstraintModel;
+import models.dataFlowModel.DataTransferChannel;
+import models.dataFlowModel.DataTransferModel;
+import parser.Parser;
+import parser.ParserDTRAM;
+
+public class PredefinedSymbolTest {
+
+	@Test
+	public void testUnchangedByParsing() throws Exception {
+		// The predefined symbols are shared by all the models, so parsing a model must not change them.
+		List<String> expected = describePredefinedSymbols();
+		for (File file: new File("models").listFiles()) {
+			for (boolean parallel: new boolean[] {false, true}) {
+				try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+					if (file.getName().endsWith(".model")) {
+						Parser parser = new Parser(reader);
+						parser.setParallel(parallel, 1);
+						parser.doParse();
+					} else {
+						ParserDTRAM parser = new ParserDTRAM(reader);
+						parser.setParallel(parallel, 1);
+						parser.doParseModel();
+					}
+				}
+				assertEquals(file.getName(), expected, describePredefinedSymbols());
+			}
+		}
+	}
+
+	@Test
+	public void testOwnSymbols() throws Exception {
+		List<String> expected = describePredefinedSymbols();
+
+		// A message named after a predefined symbol and a predefined symbol applied to another number of arguments.
+		DataTransferModel model = parse("channel CIO {\n"
+				+ "	out a(x:Int, set(v:Int)) == v + head(x, x)\n"
+				+ "}\n"
+				+ "channel C {\n"
+				+ "	in a(x, set(v)) == v\n"
+				+ "	out b(l:List, set(v)) == cons(tuple(v, v, v), l)\n"
+				+ "}\n");
+		Symbol set = model.getSymbol("set");
+		assertNotSame(DataConstraintModel.set, set);
+		assertEquals(1, set.getArity());
+		assertNotNull(set.getSignature());
+		Symbol head = model.getSymbol("head");
+		assertNotSame(DataConstraintModel.head, head);
+		assertEquals(2, head.getArity());
+		for (DataTransferChannel channel: getChannels(model)) {
+			for (ChannelMember member: channel.getChannelMembers()) {
+				assertSame(set, ((Term) member.getStateTransition().getMessageExpression()).getSymbol());
+			}
+		}
+		assertSame(DataConstraintModel.cons, model.getSymbol("cons"));
+		assertSame(DataConstraintModel.tuple, model.getSymbol("tuple"));
+		assertEquals(expected, describePredefinedSymbols());
+
+		// The other models refer to the predefined symbols.
+		model = parse("channel C {\n"
+				+ "	out b(l:List, update(i:Int, v:Int)) == set(l, i, v)\n"
+				+ "}\n");
+		assertSame(DataConstraintModel.set, model.getSymbol("set"));
+		assertSame(DataConstraintModel.head, model.getSymbol("head"));
+		assertEquals(expected, describePredefinedSymbols());
+	}
+
+	private static DataTransferModel parse(String text) throws Exception {
+		return new Parser(new BufferedReader(new StringReader(text))).doParse();
+	}
+
+	private static List<DataTransferChannel> getChannels(DataTransferModel model) {
+		List<DataTransferChannel> channels = new ArrayList<>();
+		for (Channel channel: model.getIOChannels()) {
+			channels.add((DataTransferChannel) channel);
+		}
+		for (Channel channel: model.getChannels()) {
+			channels.add((DataTransferChannel) channel);
+		}
+		return channels;
+	}
+
+	private static List<String> describePredefinedSymbols() {
+		List<String> symbols = new ArrayList<>();
+		for (Symbol symbol: new DataTransferModel().getSymbols()) {
+			symbols.add(symbol.getName() + "/" + symbol.getArity() + " " + Arrays.toString(symbol.getSignature()));
+		}
+		return symbols;
+	}
+}
@@ -0,0 +1,154 @@
+package tests.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import parser.Parser;
+import parser.Token;
+
+public class TokenStreamTest {
+
+	@Test
+	public void testTokens() {
+		Parser.TokenStream stream = new Parser.TokenStream("channel C1 {\n\tout points(l:Int, update1(y)) == floor(y * 0.05)\n}");
+		String[] texts = {"channel", "C1", "{", "out", "points", "(", "l", ":", "Int", ",", "update1", "(", "y", ")", ")", "==",
+				"floor", "(", "y", "*", "0", ".", "05", ")", "}"};
+		Token.Kind[] kinds = {Token.Kind.WORD, Token.Kind.WORD, Token.Kind.LEFT_CURLY_BRACKET, Token.Kind.WORD, Token.Kind.WORD, Token.Kind.LEFT_BRACKET,
+				Token.Kind.WORD, Token.Kind.COLON, Token.Kind.WORD, Token.Kind.COMMA, Token.Kind.WORD, Token.Kind.LEFT_BRACKET, Token.Kind.WORD,
+				Token.Kind.RIGHT_BRACKET, Token.Kind.RIGHT_BRACKET, Token.Kind.EQUALS, Token.Kind.WORD, Token.Kind.LEFT_BRACKET, Token.Kind.WORD,
+				Token.Kind.MUL, Token.Kind.WORD, Token.Kind.DOT, Token.Kind.WORD, Token.Kind.RIGHT_BRACKET, Token.Kind.RIGHT_CURLY_BRACKET};
+		for (int i = 0; i < texts.length; i++) {
+			assertEquals(texts[i], stream.checkNext());
+			Token token = stream.nextToken();
+			assertEquals(texts[i], token.getText());
+			assertEquals(texts[i], kinds[i], token.getKind());
+			assertSame(token, stream.getLastToken());
+		}
+		assertFalse(stream.hasNext());
+		assertNull(stream.nextToken());
+		assertNull(stream.next());
+	}
+
+	@Test
+	public void testPositions() {
+		String[] lines = {"init {", "", "  \ta := 0.5  ", "\tb := [1,2]", "}"};
+		for (String newLine: new String[] {"\n", "\r\n"}) {
+			String text = String.join(newLine, lines);
+			Parser.TokenStream stream = new Parser.TokenStream(text);
+			List<Token> tokens = new ArrayList<>();
+			while (stream.hasNext()) {
+				tokens.add(stream.nextToken());
+			}
+			assertEquals(Arrays.asList("init", "{", "a", ":", "=", "0", ".", "5", "b", ":", "=", "[", "1", ",", "2", "]", "}"), getTexts(tokens));
+			int lineOffset = 0;		// the offsets are those of the source with the line breaks normalized to "\n".
+			for (int line = 0, n = 0; line < lines.length; line++) {
+				for (; n < tokens.size() && tokens.get(n).getLine() == line; n++) {
+					Token token = tokens.get(n);
+					assertEquals(token.getText(), lines[line].indexOf(token.getText(), token.getColumn()), token.getColumn());
+					assertEquals(lineOffset + token.getColumn(), token.getOffset());
+				}
+				lineOffset += lines[line].length() + 1;
+			}
+			assertEquals(2, tokens.get(2).getLine());
+			assertEquals(3, tokens.get(2).getColumn());
+			assertEquals(4, tokens.get(16).getLine());
+			assertEquals(lines[2] + "\n" + lines[3] + "\n", stream.getSourceText(2, 3));
+			assertEquals(lines[2] + "\n" + lines[3] + "\n", stream.getSourceRange(2, 3).toString());
+		}
+	}
+
+	@Test
+	public void testDelimiters() {
+		assertEquals(Arrays.asList("a", "==", "=b"), tokenize("a===b"));
+		assertEquals(Arrays.asList("x", "=", "y", "==", "z"), tokenize("x = y == z"));
+		assertEquals(Arrays.asList(":", "=", "(", "-", "1", "+", "+", ")", "/", "2"), tokenize(":=(-1++)/2"));
+		assertEquals(Arrays.asList("a", ".", ".", "b", "[", "]", "{", "}"), tokenize("a..b[]{}"));
+		assertEquals(Arrays.asList(), tokenize(" \t "));
+	}
+
+	@Test
+	public void testSameAsSplitting() throws Exception {
+		// The tokens are the same as those of the former tokenizer that split each line by the delimiters one by one.
+		List<String> lines = new ArrayList<>(Arrays.asList("a===b", "a==", "==a", "+a+", "a\t+ \t b", "\"s\":1.5e-3", "f(x)(y)", "x=y", "{{}}", ""));
+		for (File file: new File("models").listFiles()) {
+			lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+		}
+		for (String line: lines) {
+			assertEquals(line, splitLine(line), tokenize(line));
+		}
+
+		// The lines are read from a reader on demand.
+		File file = new File("models/POS.model");
+		List<String> expected = new ArrayList<>();
+		for (String line: Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			expected.addAll(splitLine(line));
+		}
+		Parser.TokenStream stream = new Parser.TokenStream(new StringReader(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)));
+		List<String> actual = new ArrayList<>();
+		while (stream.hasNext()) {
+			actual.add(stream.next());
+		}
+		assertEquals(expected, actual);
+	}
+
+	private static List<String> tokenize(String line) {
+		Parser.TokenStream stream = new Parser.TokenStream();
+		stream.addLine(line);
+		List<String> tokens = new ArrayList<>();
+		while (stream.hasNext()) {
+			tokens.add(stream.next());
+		}
+		return tokens;
+	}
+
+	private static List<String> getTexts(List<Token> tokens) {
+		List<String> texts = new ArrayList<>();
+		for (Token token: tokens) {
+			texts.add(token.getText());
+		}
+		return texts;
+	}
+
+	/**
+	 * Split a line into tokens in the way of the former tokenizer.
+	 */
+	private static List<String> splitLine(String line) {
+		List<String> tokens = Arrays.asList(line.trim().split("[ \t]"));
+		for (String delimiter: new String[] {"+", "*", "-", "/", ".", ",", ":", "(", ")", "==", "{", "}", "[", "]"}) {
+			tokens = splitBy(tokens, delimiter);
+		}
+		return tokens;
+	}
+
+	private static List<String> splitBy(List<String> tokens, String delimiter) {
+		List<String> newTokens = new ArrayList<>();
+		for (String token: tokens) {
+			String[] splitTokens = token.split(Pattern.quote(delimiter));
+			boolean fFirstToken = true;
+			for (String t: splitTokens) {
+				if (!fFirstToken) {
+					newTokens.add(delimiter);
+				}
+				if (t.length() > 0) {
+					newTokens.add(t);
+				}
+				fFirstToken = false;
+			}
+			while (token.endsWith(delimiter)) {
+				newTokens.add(delimiter);
+				token = token.substring(0, token.length() - 1);
+			}
+		}
+		return newTokens;
+	}
+}